@@ -0,0 +1,16 @@
+plugins {
+	`java-library`
+}
+
+group = "example"
+version = "0.0.1-SNAPSHOT"
+
+java {
+	toolchain {
+		languageVersion = JavaLanguageVersion.of(21)
+	}
+}
+
+repositories {
+	mavenCentral()
+}
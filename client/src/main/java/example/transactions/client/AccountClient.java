@@ -0,0 +1,136 @@
+package example.transactions.client;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Клиент API счетов поверх TCP-шлюза сервера. Потокобезопасен и рассчитан на один экземпляр
+// на приложение: вызовы из множества потоков распределяются по пулу соединений, в каждом
+// соединении собираются в батчи и конвейеризуются (см. ClientConnection), а каждый вызов
+// получает свой CompletableFuture.
+//
+// Батч здесь — только сетевая запись: несколько обычных кадров уходят в сокет одним вызовом
+// и не ждут ответов друг друга. Сервер по-прежнему исполняет каждый депозит, списание и
+// перевод отдельным запросом в своей транзакции; экономия — в системных вызовах и круговых
+// задержках, а не в работе сервера и БД. Сливаются только одновременные запросы баланса
+// одного счёта.
+//
+// Суммы — BigDecimal с не более чем двумя знаками после запятой. Отказ сервера завершает
+// future исключением AccountOperationException, обрыв соединения — IOException, истечение
+// requestTimeout — TimeoutException. Оборванное соединение пересоздаётся при следующем
+// обращении к нему.
+public final class AccountClient implements AutoCloseable {
+
+    private final AccountClientConfig config;
+    private final ClientConnection[] connections;
+    private final AtomicInteger next = new AtomicInteger();
+    private volatile boolean closed;
+
+    private AccountClient(AccountClientConfig config, ClientConnection[] connections) {
+        this.config = config;
+        this.connections = connections;
+    }
+
+    public static AccountClient connect(AccountClientConfig config) throws IOException {
+        ClientConnection[] connections = new ClientConnection[config.connections()];
+        try {
+            for (int i = 0; i < connections.length; i++) {
+                connections[i] = new ClientConnection(config.address(), config.maxBatchSize());
+            }
+        } catch (IOException e) {
+            for (ClientConnection connection : connections) {
+                if (connection != null) {
+                    connection.close();
+                }
+            }
+            throw e;
+        }
+        return new AccountClient(config, connections);
+    }
+
+    // Результат — баланс после зачисления.
+    public CompletableFuture<BigDecimal> deposit(long accountId, BigDecimal amount) {
+        return balanceOf(AccountProtocol.OP_DEPOSIT, accountId, 0L, amount);
+    }
+
+    // Результат — баланс после списания.
+    public CompletableFuture<BigDecimal> withdraw(long accountId, BigDecimal amount) {
+        return balanceOf(AccountProtocol.OP_WITHDRAW, accountId, 0L, amount);
+    }
+
+    public CompletableFuture<BigDecimal> getBalance(long accountId) {
+        return balanceOf(AccountProtocol.OP_BALANCE, accountId, 0L, null);
+    }
+
+    public CompletableFuture<Void> transfer(long fromAccountId, long toAccountId,
+            BigDecimal amount) {
+        return balanceOf(AccountProtocol.OP_TRANSFER, fromAccountId, toAccountId, amount)
+                .thenApply(ignored -> null);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (connections) {
+            for (ClientConnection connection : connections) {
+                connection.close();
+            }
+        }
+    }
+
+    private CompletableFuture<BigDecimal> balanceOf(byte opcode, long accountId,
+            long targetAccountId, BigDecimal amount) {
+        long cents;
+        try {
+            cents = amount == null ? 0L : amount.movePointRight(2).longValueExact();
+        } catch (ArithmeticException e) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException(
+                    "Amount must have at most 2 decimal places", e));
+        }
+        ClientConnection connection;
+        try {
+            connection = connection();
+        } catch (UncheckedIOException e) {
+            return CompletableFuture.failedFuture(e.getCause());
+        }
+        ClientConnection.Request request =
+                new ClientConnection.Request(opcode, accountId, targetAccountId, cents);
+        return connection.submit(request)
+                .orTimeout(config.requestTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .thenApply(response -> {
+                    if (response.status() != AccountProtocol.STATUS_OK) {
+                        throw new AccountOperationException(
+                                AccountProtocol.status(response.status()), accountId);
+                    }
+                    return BigDecimal.valueOf(response.value(), 2);
+                });
+    }
+
+    private ClientConnection connection() {
+        if (closed) {
+            throw new UncheckedIOException(new IOException("Client closed"));
+        }
+        int index = Math.floorMod(next.getAndIncrement(), connections.length);
+        ClientConnection connection = connections[index];
+        if (connection.isOpen()) {
+            return connection;
+        }
+        synchronized (connections) {
+            if (closed) {
+                throw new UncheckedIOException(new IOException("Client closed"));
+            }
+            if (!connections[index].isOpen()) {
+                try {
+                    connections[index] = new ClientConnection(config.address(),
+                            config.maxBatchSize());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return connections[index];
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package example.transactions.client;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+
+// connections — размер пула соединений, запросы раздаются по кругу. maxBatchSize — сколько
+// запросов из очереди соединения уходит одной записью в сокет; искусственной задержки нет:
+// батч — это всё, что накопилось, пока шла предыдущая запись. requestTimeout — положительный:
+// при нулевом каждый вызов истекал бы сразу.
+public record AccountClientConfig(InetSocketAddress address, int connections, int maxBatchSize,
+        Duration requestTimeout) {
+
+    public AccountClientConfig {
+        if (address == null || connections <= 0 || maxBatchSize <= 0
+                || requestTimeout == null || requestTimeout.isNegative()
+                || requestTimeout.isZero()) {
+            throw new IllegalArgumentException("Invalid account client configuration");
+        }
+    }
+
+    public static AccountClientConfig of(InetSocketAddress address) {
+        return new AccountClientConfig(address, 4, 256, Duration.ofSeconds(5));
+    }
+}
@@ -0,0 +1,26 @@
+package example.transactions.client;
+
+// Отказ сервера по операции. Бизнес-отказы (нет средств, нет счёта, лимиты) не требуют
+// повтора; ERROR — сбой на стороне сервера, повторять можно только идемпотентные запросы.
+public class AccountOperationException extends RuntimeException {
+
+    public enum Status {
+        INSUFFICIENT_FUNDS,
+        NOT_FOUND,
+        INVALID,
+        ERROR,
+        LIMIT_EXCEEDED,
+        RATE_LIMITED
+    }
+
+    private final Status status;
+
+    public AccountOperationException(Status status, long accountId) {
+        super(status + ", account " + accountId, null, false, false);
+        this.status = status;
+    }
+
+    public Status status() {
+        return status;
+    }
+}
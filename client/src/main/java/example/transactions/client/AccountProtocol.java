@@ -0,0 +1,58 @@
+package example.transactions.client;
+
+import java.nio.ByteBuffer;
+
+// Кадры бинарного шлюза сервера (example.transactions.gateway.GatewayProtocol): клиент не
+// зависит от серверного модуля, поэтому формат продублирован здесь.
+//
+// Запрос:  [int length][long correlationId][byte opcode][long accountId]
+//          + [long amount] для WITHDRAW/DEPOSIT
+//          + [long targetAccountId][long amount] для TRANSFER
+// Ответ:   [int length][long correlationId][byte status][long value]
+final class AccountProtocol {
+
+    static final byte OP_WITHDRAW = 1;
+    static final byte OP_DEPOSIT = 2;
+    static final byte OP_TRANSFER = 3;
+    static final byte OP_BALANCE = 4;
+
+    static final byte STATUS_OK = 0;
+
+    static final int LENGTH_PREFIX = Integer.BYTES;
+    static final int RESPONSE_BODY_LENGTH = Long.BYTES + 1 + Long.BYTES;
+    static final int RESPONSE_FRAME_LENGTH = LENGTH_PREFIX + RESPONSE_BODY_LENGTH;
+    static final int MAX_REQUEST_FRAME_LENGTH = LENGTH_PREFIX + Long.BYTES + 1 + 3 * Long.BYTES;
+
+    private AccountProtocol() {
+    }
+
+    static void encodeRequest(ByteBuffer target, long correlationId, byte opcode, long accountId,
+            long targetAccountId, long amount) {
+        int fields = switch (opcode) {
+            case OP_BALANCE -> 1;
+            case OP_TRANSFER -> 3;
+            default -> 2;
+        };
+        target.putInt(Long.BYTES + 1 + fields * Long.BYTES)
+                .putLong(correlationId)
+                .put(opcode)
+                .putLong(accountId);
+        if (opcode == OP_TRANSFER) {
+            target.putLong(targetAccountId);
+        }
+        if (opcode != OP_BALANCE) {
+            target.putLong(amount);
+        }
+    }
+
+    static AccountOperationException.Status status(byte code) {
+        return switch (code) {
+            case 1 -> AccountOperationException.Status.INSUFFICIENT_FUNDS;
+            case 2 -> AccountOperationException.Status.NOT_FOUND;
+            case 3 -> AccountOperationException.Status.INVALID;
+            case 5 -> AccountOperationException.Status.LIMIT_EXCEEDED;
+            case 6 -> AccountOperationException.Status.RATE_LIMITED;
+            default -> AccountOperationException.Status.ERROR;
+        };
+    }
+}
@@ -0,0 +1,196 @@
+package example.transactions.client;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+// Одно соединение пула. Вызывающие потоки только кладут запрос в очередь; поток записи
+// забирает из неё всё накопившееся (до maxBatchSize), кодирует подряд в один буфер и пишет
+// одним вызовом. Пока идёт запись, очередь снова наполняется, так что под нагрузкой батчи
+// растут сами, а при одиночном запросе задержки нет. Ответы разбирает поток чтения и
+// завершает запросы по correlationId, не дожидаясь порядка.
+//
+// Одновременные запросы баланса одного счёта в одном батче сливаются в один кадр: ответ
+// раздаётся всем вызывающим.
+final class ClientConnection implements AutoCloseable {
+
+    private final SocketChannel channel;
+    private final int maxBatchSize;
+    private final Queue<Request> queue = new ConcurrentLinkedQueue<>();
+    private final Map<Long, Request> inFlight = new ConcurrentHashMap<>();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final Thread writer;
+    private long correlationIds;
+    private volatile boolean parked;
+
+    record Response(byte status, long value) {
+    }
+
+    static final class Request {
+        final byte opcode;
+        final long accountId;
+        final long targetAccountId;
+        final long amount;
+        final CompletableFuture<Response> future = new CompletableFuture<>();
+        volatile long correlationId;
+
+        Request(byte opcode, long accountId, long targetAccountId, long amount) {
+            this.opcode = opcode;
+            this.accountId = accountId;
+            this.targetAccountId = targetAccountId;
+            this.amount = amount;
+        }
+    }
+
+    ClientConnection(InetSocketAddress address, int maxBatchSize) throws IOException {
+        this.channel = SocketChannel.open(address);
+        this.channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        this.maxBatchSize = maxBatchSize;
+        this.writer = Thread.ofPlatform().daemon().name("account-client-writer")
+                .start(this::writeLoop);
+        Thread.ofPlatform().daemon().name("account-client-reader")
+                .start(this::readLoop);
+    }
+
+    boolean isOpen() {
+        return !closed.get();
+    }
+
+    CompletableFuture<Response> submit(Request request) {
+        if (closed.get()) {
+            request.future.completeExceptionally(new IOException("Connection closed"));
+            return request.future;
+        }
+        // по таймауту вызывающего запрос больше не ждёт ответа
+        request.future.whenComplete((response, error) -> {
+            if (error != null && request.correlationId != 0) {
+                inFlight.remove(request.correlationId, request);
+            }
+        });
+        queue.add(request);
+        if (parked) {
+            LockSupport.unpark(writer);
+        }
+        // соединение могло закрыться между проверкой и add, тогда запрос уже никто не заберёт
+        if (closed.get()) {
+            failAll(new IOException("Connection closed"));
+        }
+        return request.future;
+    }
+
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // соединение и так закрывается
+        }
+        LockSupport.unpark(writer);
+        failAll(new IOException("Connection closed"));
+    }
+
+    private void writeLoop() {
+        ByteBuffer out = ByteBuffer.allocateDirect(
+                maxBatchSize * AccountProtocol.MAX_REQUEST_FRAME_LENGTH);
+        Map<Long, Request> balanceReads = new HashMap<>();
+        try {
+            while (!closed.get()) {
+                Request request = queue.poll();
+                if (request == null) {
+                    parked = true;
+                    if (queue.isEmpty() && !closed.get()) {
+                        LockSupport.park(this);
+                    }
+                    parked = false;
+                    continue;
+                }
+                out.clear();
+                balanceReads.clear();
+                int batched = 0;
+                do {
+                    if (request.future.isDone()) {
+                        continue;
+                    }
+                    if (request.opcode == AccountProtocol.OP_BALANCE
+                            && follow(balanceReads.get(request.accountId), request)) {
+                        continue;
+                    }
+                    if (request.opcode == AccountProtocol.OP_BALANCE) {
+                        balanceReads.put(request.accountId, request);
+                    }
+                    long correlationId = ++correlationIds;
+                    request.correlationId = correlationId;
+                    inFlight.put(correlationId, request);
+                    AccountProtocol.encodeRequest(out, correlationId, request.opcode,
+                            request.accountId, request.targetAccountId, request.amount);
+                    batched++;
+                } while (batched < maxBatchSize && (request = queue.poll()) != null);
+                out.flip();
+                while (out.hasRemaining()) {
+                    channel.write(out);
+                }
+            }
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    private void readLoop() {
+        ByteBuffer in = ByteBuffer.allocateDirect(64 * 1024);
+        try {
+            while (channel.read(in) >= 0) {
+                in.flip();
+                while (in.remaining() >= AccountProtocol.RESPONSE_FRAME_LENGTH) {
+                    int body = in.position() + AccountProtocol.LENGTH_PREFIX;
+                    Request request = inFlight.remove(in.getLong(body));
+                    if (request != null) {
+                        request.future.complete(new Response(in.get(body + Long.BYTES),
+                                in.getLong(body + Long.BYTES + 1)));
+                    }
+                    in.position(body + AccountProtocol.RESPONSE_BODY_LENGTH);
+                }
+                in.compact();
+            }
+        } catch (IOException e) {
+            // закрытие ниже завершит все ожидающие запросы
+        }
+        close();
+    }
+
+    // Повторный запрос баланса того же счёта в батче ждёт ответа на первый.
+    private static boolean follow(Request leader, Request follower) {
+        if (leader == null) {
+            return false;
+        }
+        leader.future.whenComplete((response, error) -> {
+            if (error != null) {
+                follower.future.completeExceptionally(error);
+            } else {
+                follower.future.complete(response);
+            }
+        });
+        return true;
+    }
+
+    private void failAll(IOException cause) {
+        Request request;
+        while ((request = queue.poll()) != null) {
+            request.future.completeExceptionally(cause);
+        }
+        inFlight.values().forEach(pending -> pending.future.completeExceptionally(cause));
+        inFlight.clear();
+    }
+}
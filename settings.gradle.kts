@@ -1 +1,3 @@
 rootProject.name = "transactions"
+
+include("client")
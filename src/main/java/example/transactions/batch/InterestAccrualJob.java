@@ -0,0 +1,148 @@
+package example.transactions.batch;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import example.transactions.model.InterestRun;
+import example.transactions.repository.InterestAccrualJdbcRepository;
+import lombok.extern.slf4j.Slf4j;
+
+// Ежедневное начисление процентов (или списание комиссии) по всем счетам.
+//
+// Пространство id делится на диапазоны по chunkSize, выровненные по границам кратным
+// chunkSize, — при перезапуске границы те же. Каждый диапазон — одна короткая транзакция на
+// своём соединении: чекпойнт, UPDATE по диапазону, вставка проводок. Диапазоны идут
+// параллельно, не больше parallelism соединений одновременно. Упавший или прерванный запуск
+// продолжается с необработанных диапазонов.
+@Slf4j
+@Component
+public class InterestAccrualJob {
+
+    private static final int LOCK_RETRIES = 3;
+
+    private final InterestAccrualProperties properties;
+    private final InterestAccrualJdbcRepository repository;
+    private final TransactionTemplate rangeTransaction;
+
+    public InterestAccrualJob(InterestAccrualProperties properties,
+            InterestAccrualJdbcRepository repository,
+            PlatformTransactionManager transactionManager) {
+        this.properties = properties;
+        this.repository = repository;
+        this.rangeTransaction = new TransactionTemplate(transactionManager);
+        this.rangeTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.rangeTransaction.setTimeout((int) properties.rangeTimeout().toSeconds());
+    }
+
+    @Scheduled(cron = "${accounts.interest.cron:0 0 1 * * *}")
+    public void runScheduled() {
+        if (!properties.enabled()) {
+            return;
+        }
+        run(LocalDate.now());
+    }
+
+    public InterestAccrualSummary run(LocalDate businessDate) {
+        if (properties.rate().compareTo(BigDecimal.ONE.negate()) <= 0) {
+            throw new IllegalArgumentException("Interest rate must be greater than -1");
+        }
+        if (properties.chunkSize() <= 0 || properties.parallelism() <= 0) {
+            throw new IllegalArgumentException("Chunk size and parallelism must be positive");
+        }
+        InterestRun run = repository.startRun(businessDate, properties.rate(),
+                properties.chunkSize());
+        if (run.completed()) {
+            log.info("Interest for {} already accrued", businessDate);
+            return new InterestAccrualSummary(businessDate, 0, 0, 0);
+        }
+        long[] bounds = repository.findIdBounds();
+        if (bounds == null) {
+            repository.completeRun(businessDate);
+            return new InterestAccrualSummary(businessDate, 0, 0, 0);
+        }
+
+        long started = System.nanoTime();
+        Set<Long> completed = repository.findCompletedRanges(businessDate);
+        long chunkSize = run.chunkSize();
+        int skipped = 0;
+        Semaphore connections = new Semaphore(properties.parallelism());
+        List<Future<Integer>> ranges = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long start = Math.floorDiv(bounds[0], chunkSize) * chunkSize;
+                    start <= bounds[1]; start += chunkSize) {
+                if (completed.contains(start)) {
+                    skipped++;
+                    continue;
+                }
+                long rangeStart = start;
+                long rangeEnd = start + chunkSize - 1;
+                ranges.add(executor.submit(() -> {
+                    connections.acquire();
+                    try {
+                        return accrueRange(run, rangeStart, rangeEnd);
+                    } finally {
+                        connections.release();
+                    }
+                }));
+            }
+            long accounts = awaitRanges(ranges);
+            repository.completeRun(businessDate);
+            log.info("Accrued interest for {}: {} accounts in {} ranges ({} skipped) in {} ms",
+                    businessDate, accounts, ranges.size(), skipped,
+                    (System.nanoTime() - started) / 1_000_000);
+            return new InterestAccrualSummary(businessDate, ranges.size(), skipped, accounts);
+        }
+    }
+
+    // Перевод держит две строки и может столкнуться с диапазоном; Postgres снимет одну из
+    // транзакций, диапазон просто повторяется.
+    private int accrueRange(InterestRun run, long rangeStart, long rangeEnd) {
+        for (int attempt = 1;; attempt++) {
+            try {
+                Integer accrued = rangeTransaction.execute(status ->
+                        repository.claimRange(run.businessDate(), rangeStart, rangeEnd)
+                                ? repository.accrueRange(run.businessDate(), rangeStart,
+                                        rangeEnd, run.rate())
+                                : 0);
+                return accrued == null ? 0 : accrued;
+            } catch (PessimisticLockingFailureException e) {
+                if (attempt == LOCK_RETRIES) {
+                    throw e;
+                }
+                log.warn("Retrying interest range {}-{} after lock failure", rangeStart,
+                        rangeEnd);
+            }
+        }
+    }
+
+    private static long awaitRanges(List<Future<Integer>> ranges) {
+        long accounts = 0;
+        try {
+            for (Future<Integer> range : ranges) {
+                accounts += range.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while accruing interest", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Failed to accrue interest", e.getCause());
+        }
+        return accounts;
+    }
+}
@@ -0,0 +1,16 @@
+package example.transactions.batch;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// rate — ставка за один запуск (за день): 0.0001 = 0.01%. Отрицательная ставка — комиссия.
+@ConfigurationProperties(prefix = "accounts.interest")
+public record InterestAccrualProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("0") BigDecimal rate,
+        @DefaultValue("10000") long chunkSize,
+        @DefaultValue("8") int parallelism,
+        @DefaultValue("PT5M") Duration rangeTimeout) {
+}
@@ -0,0 +1,7 @@
+package example.transactions.batch;
+
+import java.time.LocalDate;
+
+public record InterestAccrualSummary(LocalDate businessDate, int rangesProcessed,
+        int rangesSkipped, long accountsAccrued) {
+}
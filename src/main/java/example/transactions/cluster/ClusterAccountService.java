@@ -0,0 +1,126 @@
+package example.transactions.cluster;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import example.transactions.gateway.GatewayClient;
+import example.transactions.gateway.GatewayProtocol;
+import example.transactions.gateway.GatewayResponse;
+import example.transactions.service.AccountOperations;
+import example.transactions.service.OperationResult;
+
+// Маршрутизация операций по владельцу партиции счёта (для перевода — счёта списания).
+// Свою партицию узел обслуживает сам (LocalAccountOperations, с кэшем балансов), чужую —
+// пересылает владельцу через его TCP-шлюз (OwnerConnections). Если владельца нет (лиза
+// истекла и ещё не перехвачена) или у него нет шлюза, операция выполняется здесь же прямо в
+// БД: источник истины один, владение нужно только кэшу. Зачисление перевода сбрасывает кэш
+// владельца счёта зачисления (см. LocalAccountOperations).
+//
+// Сумма по сети идёт в центах, поэтому более точные суммы отклоняются как Invalid. Владелец
+// недоступен — IllegalStateException: повторять имеет смысл после истечения его лиз.
+@Service
+@ConditionalOnProperty(prefix = "accounts.cluster", name = "enabled", havingValue = "true")
+public class ClusterAccountService implements AccountOperations {
+
+    private static final String PRECISION_EXCEEDED = "Amount precision exceeds cents";
+
+    private final LocalAccountOperations local;
+    private final PartitionLeaseManager leases;
+    private final OwnerConnections owners;
+
+    ClusterAccountService(LocalAccountOperations local, PartitionLeaseManager leases,
+            OwnerConnections owners) {
+        this.local = local;
+        this.leases = leases;
+        this.owners = owners;
+    }
+
+    @Override
+    public OperationResult tryGetBalance(Long id) {
+        String owner = remoteOwner(id);
+        if (owner == null) {
+            return local.tryGetBalance(id);
+        }
+        return forward(owner, id, true, client -> client.balance(id));
+    }
+
+    @Override
+    public OperationResult tryWithdraw(Long id, BigDecimal amount) {
+        String owner = remoteOwner(id);
+        if (owner == null || amount == null) {
+            return local.tryWithdraw(id, amount);
+        }
+        long cents;
+        try {
+            cents = toCents(amount);
+        } catch (ArithmeticException e) {
+            return new OperationResult.Invalid(PRECISION_EXCEEDED);
+        }
+        return forward(owner, id, true, client -> client.withdraw(id, cents));
+    }
+
+    @Override
+    public OperationResult tryDeposit(Long id, BigDecimal amount) {
+        String owner = remoteOwner(id);
+        if (owner == null || amount == null) {
+            return local.tryDeposit(id, amount);
+        }
+        long cents;
+        try {
+            cents = toCents(amount);
+        } catch (ArithmeticException e) {
+            return new OperationResult.Invalid(PRECISION_EXCEEDED);
+        }
+        return forward(owner, id, true, client -> client.deposit(id, cents));
+    }
+
+    @Override
+    public OperationResult tryTransfer(Long fromId, Long toId, BigDecimal amount) {
+        String owner = remoteOwner(fromId);
+        if (owner == null || toId == null || amount == null) {
+            return local.tryTransfer(fromId, toId, amount);
+        }
+        long cents;
+        try {
+            cents = toCents(amount);
+        } catch (ArithmeticException e) {
+            return new OperationResult.Invalid(PRECISION_EXCEEDED);
+        }
+        return forward(owner, fromId, false, client -> client.transfer(fromId, toId, cents));
+    }
+
+    // Адрес владельца, если это другой узел; null — обслуживаем сами.
+    private String remoteOwner(Long id) {
+        if (id == null || leases.isOwner(id)) {
+            return null;
+        }
+        String owner = leases.endpointOf(id);
+        return owner == null || owner.equals(leases.localEndpoint()) ? null : owner;
+    }
+
+    private OperationResult forward(String endpoint, long accountId, boolean returnsBalance,
+            Function<GatewayClient, CompletableFuture<GatewayResponse>> call) {
+        GatewayResponse response = owners.call(endpoint, call);
+        return switch (response.status()) {
+            case GatewayProtocol.STATUS_OK -> new OperationResult.Ok(
+                    returnsBalance ? BigDecimal.valueOf(response.value(), 2) : null);
+            case GatewayProtocol.STATUS_INSUFFICIENT_FUNDS ->
+                new OperationResult.InsufficientFunds(accountId);
+            case GatewayProtocol.STATUS_NOT_FOUND -> new OperationResult.NotFound(accountId);
+            case GatewayProtocol.STATUS_INVALID ->
+                new OperationResult.Invalid("Rejected by partition owner " + endpoint);
+            // лимит шлюза владельца считается на узел-отправитель, для вызывающего это тот же
+            // отказ по скорости
+            case GatewayProtocol.STATUS_LIMIT_EXCEEDED, GatewayProtocol.STATUS_RATE_LIMITED ->
+                new OperationResult.LimitExceeded(accountId);
+            default -> throw new IllegalStateException(
+                    "Partition owner " + endpoint + " failed with status " + response.status());
+        };
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount.movePointRight(2).longValueExact();
+    }
+}
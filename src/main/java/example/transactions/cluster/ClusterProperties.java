@@ -0,0 +1,22 @@
+package example.transactions.cluster;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// partitions одинаково на всех узлах. leaseDuration должна заметно превышать renewInterval:
+// узел перестаёт считать себя владельцем, как только с последнего продления прошло
+// leaseDuration - renewInterval. nodeId по умолчанию — случайный на каждый запуск.
+// releaseOnShutdown=false оставляет лизы истекать сами — так в тестах выглядит падение узла.
+@ConfigurationProperties(prefix = "accounts.cluster")
+public record ClusterProperties(
+        @DefaultValue("false") boolean enabled,
+        String nodeId,
+        @DefaultValue("localhost") String advertisedHost,
+        @DefaultValue("64") int partitions,
+        @DefaultValue("PT10S") Duration leaseDuration,
+        @DefaultValue("PT2S") Duration renewInterval,
+        @DefaultValue("PT5S") Duration cacheTtl,
+        @DefaultValue("PT5S") Duration forwardTimeout,
+        @DefaultValue("true") boolean releaseOnShutdown) {
+}
@@ -0,0 +1,106 @@
+package example.transactions.cluster;
+
+import java.math.BigDecimal;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import example.transactions.gateway.GatewayProtocol;
+import example.transactions.gateway.GatewayResponse;
+import example.transactions.service.AccountOperations;
+import example.transactions.service.OperationResult;
+import example.transactions.service.SingleThreadedJpaAccountService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// Исполнение операций на этом узле: всегда в БД, но баланс счетов своих партиций читается из
+// PartitionBalanceCache. Через этот бин работает шлюз — запросы, пересланные другими узлами,
+// сюда и приходят и дальше не пересылаются.
+//
+// Перевод исполняется на владельце счёта списания, а счёт зачисления может принадлежать
+// другому узлу — тогда после коммита его владельцу шлётся INVALIDATE, иначе тот до cacheTtl
+// отдавал бы баланс до зачисления. Если владелец недоступен, остаётся граница cacheTtl.
+@Slf4j
+@Service
+@Primary
+@ConditionalOnProperty(prefix = "accounts.cluster", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class LocalAccountOperations implements AccountOperations {
+
+    private final SingleThreadedJpaAccountService service;
+    private final PartitionLeaseManager leases;
+    private final PartitionBalanceCache cache;
+    private final OwnerConnections owners;
+
+    @Override
+    public OperationResult tryGetBalance(Long id) {
+        if (id == null || !leases.isOwner(id)) {
+            return service.tryGetBalance(id);
+        }
+        BigDecimal cached = cache.get(id);
+        if (cached != null) {
+            return new OperationResult.Ok(cached);
+        }
+        long generation = cache.generation(id);
+        OperationResult result = service.tryGetBalance(id);
+        if (result instanceof OperationResult.Ok ok && leases.isOwner(id)) {
+            cache.fill(id, ok.balance(), generation);
+        }
+        return result;
+    }
+
+    @Override
+    public OperationResult tryWithdraw(Long id, BigDecimal amount) {
+        OperationResult result = service.tryWithdraw(id, amount);
+        invalidate(result, id);
+        return result;
+    }
+
+    @Override
+    public OperationResult tryDeposit(Long id, BigDecimal amount) {
+        OperationResult result = service.tryDeposit(id, amount);
+        invalidate(result, id);
+        return result;
+    }
+
+    @Override
+    public OperationResult tryTransfer(Long fromId, Long toId, BigDecimal amount) {
+        OperationResult result = service.tryTransfer(fromId, toId, amount);
+        invalidate(result, fromId);
+        invalidate(result, toId);
+        if (result instanceof OperationResult.Ok && toId != null && !leases.isOwner(toId)) {
+            invalidateRemote(toId);
+        }
+        return result;
+    }
+
+    @Override
+    public OperationResult evictCachedBalance(Long id) {
+        if (id != null) {
+            cache.invalidate(id);
+        }
+        return new OperationResult.Ok(null);
+    }
+
+    private void invalidateRemote(long accountId) {
+        String owner = leases.endpointOf(accountId);
+        if (owner == null || owner.equals(leases.localEndpoint())) {
+            return;
+        }
+        try {
+            GatewayResponse response =
+                    owners.call(owner, client -> client.invalidate(accountId));
+            if (response.status() != GatewayProtocol.STATUS_OK) {
+                log.warn("Owner {} refused to invalidate account {}", owner, accountId);
+            }
+        } catch (IllegalStateException e) {
+            log.warn("Cannot invalidate account {} on {}", accountId, owner, e);
+        }
+    }
+
+    // Результат приходит уже после коммита: try*-методы сервиса сами открывают транзакцию.
+    private void invalidate(OperationResult result, Long id) {
+        if (result instanceof OperationResult.Ok && id != null) {
+            cache.invalidate(id);
+        }
+    }
+}
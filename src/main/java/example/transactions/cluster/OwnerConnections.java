@@ -0,0 +1,76 @@
+package example.transactions.cluster;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import example.transactions.gateway.GatewayClient;
+import example.transactions.gateway.GatewayResponse;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+// Соединения с TCP-шлюзами других узлов: одно конвейерное соединение на узел, общее для
+// пересылки операций и сброса кэша на владельце. Оборванное соединение выбрасывается, и
+// следующий вызов открывает новое.
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "accounts.cluster", name = "enabled", havingValue = "true")
+class OwnerConnections {
+
+    private final long timeoutMillis;
+    private final Map<String, GatewayClient> clients = new ConcurrentHashMap<>();
+
+    OwnerConnections(ClusterProperties properties) {
+        this.timeoutMillis = properties.forwardTimeout().toMillis();
+    }
+
+    // Владелец недоступен — IllegalStateException.
+    GatewayResponse call(String endpoint,
+            Function<GatewayClient, CompletableFuture<GatewayResponse>> call) {
+        GatewayClient client = null;
+        try {
+            client = clients.computeIfAbsent(endpoint, OwnerConnections::connect);
+            return call.apply(client).get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while forwarding to " + endpoint, e);
+        } catch (UncheckedIOException | ExecutionException | TimeoutException e) {
+            if (client != null && clients.remove(endpoint, client)) {
+                closeQuietly(client);
+            }
+            throw new IllegalStateException("Partition owner " + endpoint + " unavailable", e);
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        clients.values().forEach(OwnerConnections::closeQuietly);
+        clients.clear();
+    }
+
+    private static GatewayClient connect(String endpoint) {
+        int separator = endpoint.lastIndexOf(':');
+        try {
+            return GatewayClient.connect(new InetSocketAddress(endpoint.substring(0, separator),
+                    Integer.parseInt(endpoint.substring(separator + 1))));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void closeQuietly(GatewayClient client) {
+        try {
+            client.close();
+        } catch (IOException e) {
+            log.debug("Failed to close gateway client", e);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package example.transactions.cluster;
+
+import java.math.BigDecimal;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.jctools.maps.NonBlockingHashMapLong;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+// Балансы счетов из партиций этого узла. Пока узел владеет партицией, все операции с её
+// счетами идут через него, поэтому кэш не нужно сверять с БД: записи сами сбрасывают свои
+// счета; зачисление перевода со счёта чужой партиции сбрасывает запись через INVALIDATE.
+// Остаются писатели в обход владельца (пакетные задания, саги, холды, проценты) — их
+// изменения видны не позже чем через cacheTtl.
+//
+// Гонку «чтение из БД до записи, put после сброса» закрывают поколения: запись после
+// коммита увеличивает поколение полосы счёта и удаляет запись, чтение кладёт значение
+// только если поколение не изменилось за время запроса, и перепроверяет его после вставки.
+@Component
+@ConditionalOnProperty(prefix = "accounts.cluster", name = "enabled", havingValue = "true")
+class PartitionBalanceCache {
+
+    private static final int STRIPES = 1024;
+
+    private final NonBlockingHashMapLong<Entry> entries = new NonBlockingHashMapLong<>();
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+    private final long ttlNanos;
+
+    PartitionBalanceCache(ClusterProperties properties) {
+        this.ttlNanos = properties.cacheTtl().toNanos();
+    }
+
+    BigDecimal get(long accountId) {
+        Entry entry = entries.get(accountId);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt() - System.nanoTime() <= 0) {
+            entries.remove(accountId, entry);
+            return null;
+        }
+        return entry.balance();
+    }
+
+    long generation(long accountId) {
+        return generations.get(stripe(accountId));
+    }
+
+    void fill(long accountId, BigDecimal balance, long generation) {
+        int stripe = stripe(accountId);
+        if (generations.get(stripe) != generation) {
+            return;
+        }
+        Entry entry = new Entry(balance, System.nanoTime() + ttlNanos);
+        entries.put(accountId, entry);
+        if (generations.get(stripe) != generation) {
+            entries.remove(accountId, entry);
+        }
+    }
+
+    void invalidate(long accountId) {
+        generations.incrementAndGet(stripe(accountId));
+        entries.remove(accountId);
+    }
+
+    void evictPartitions(BitSet lost, int partitions) {
+        entries.forEach((accountId, entry) -> {
+            if (lost.get((int) Math.floorMod(accountId, (long) partitions))) {
+                invalidate(accountId);
+            }
+        });
+    }
+
+    private static int stripe(long accountId) {
+        return (int) (Long.hashCode(accountId) & (STRIPES - 1));
+    }
+
+    private record Entry(BigDecimal balance, long expiresAt) {
+    }
+}
@@ -0,0 +1,225 @@
+package example.transactions.cluster;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import example.transactions.gateway.TransferGatewayServer;
+import example.transactions.repository.PartitionLeaseJdbcRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+// Владение партициями счетов (id mod partitions) через лизы в Postgres. Каждые renewInterval
+// узел отмечается в cluster_nodes, продлевает свои лизы и выравнивает долю: держит не больше
+// ceil(partitions / живые узлы), лишние отпускает, недостающие забирает из свободных и
+// просроченных. Новый узел так получает свою часть за пару тиков, а партиции упавшего
+// разбирают оставшиеся, как только истекут его лизы.
+//
+// Узел считает себя владельцем только до момента «начало продления + leaseDuration -
+// renewInterval» по своим монотонным часам: лиза в БД к этому времени ещё действует, так что
+// два узла не считают себя владельцами одной партиции одновременно, даже если продление
+// задержалось. Потерянная партиция сразу выбрасывается из кэша.
+//
+// Заодно узел держит таблицу адресов владельцев: по ней ClusterAccountService пересылает
+// операции с чужими счетами через TCP-шлюз. Без запущенного шлюза узел владеет партициями,
+// но его адрес пуст и запросы к ним остальные узлы выполняют в БД сами.
+//
+// Продление идёт в собственном потоке, а не в общем планировщике: иначе оно ждало бы долгие
+// @Scheduled-задачи (начисление процентов, релей outbox), и владение партициями истекало бы.
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "accounts.cluster", name = "enabled", havingValue = "true")
+public class PartitionLeaseManager implements SmartLifecycle {
+
+    private final ClusterProperties properties;
+    private final PartitionLeaseJdbcRepository repository;
+    private final PartitionBalanceCache cache;
+    private final ObjectProvider<TransferGatewayServer> gateway;
+    private final String nodeId;
+    private final int partitions;
+    // срок владения по System.nanoTime(); 0 — партиция не наша
+    private final AtomicLongArray ownedUntil;
+    private final BitSet owned = new BitSet();
+    private volatile String[] endpoints;
+    private volatile String localEndpoint;
+    private Thread renewThread;
+    private volatile boolean running;
+
+    public PartitionLeaseManager(ClusterProperties properties,
+            PartitionLeaseJdbcRepository repository, PartitionBalanceCache cache,
+            ObjectProvider<TransferGatewayServer> gateway) {
+        if (properties.partitions() <= 0
+                || properties.leaseDuration().compareTo(properties.renewInterval()) <= 0) {
+            throw new IllegalArgumentException("Invalid cluster lease settings");
+        }
+        this.properties = properties;
+        this.repository = repository;
+        this.cache = cache;
+        this.gateway = gateway;
+        this.nodeId = properties.nodeId() == null || properties.nodeId().isBlank()
+                ? UUID.randomUUID().toString() : properties.nodeId();
+        this.partitions = properties.partitions();
+        this.ownedUntil = new AtomicLongArray(partitions);
+        this.endpoints = new String[partitions];
+    }
+
+    @PostConstruct
+    void init() {
+        repository.ensurePartitions(partitions);
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    public int partitionOf(long accountId) {
+        return (int) Math.floorMod(accountId, (long) partitions);
+    }
+
+    public boolean isOwner(long accountId) {
+        return ownedUntil.get(partitionOf(accountId)) - System.nanoTime() > 0;
+    }
+
+    // Адрес владельца счёта по последнему обновлению таблицы; null — владельца нет или у
+    // него нет шлюза.
+    public String endpointOf(long accountId) {
+        return endpoints[partitionOf(accountId)];
+    }
+
+    public String localEndpoint() {
+        return localEndpoint;
+    }
+
+    public synchronized int ownedPartitions() {
+        int count = 0;
+        for (int partition = owned.nextSetBit(0); partition >= 0;
+                partition = owned.nextSetBit(partition + 1)) {
+            if (ownedUntil.get(partition) - System.nanoTime() > 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        renewThread = Thread.ofPlatform().name("partition-lease").daemon()
+                .start(this::renewLoop);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        renewThread.interrupt();
+        try {
+            renewThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    public synchronized void renew() {
+        long startedAt = System.nanoTime();
+        localEndpoint = resolveEndpoint();
+        repository.heartbeat(nodeId, localEndpoint, properties.leaseDuration());
+        BitSet held = toBitSet(repository.renew(nodeId, properties.leaseDuration()));
+        int fairShare = Math.ceilDiv(partitions, Math.max(1, repository.countLiveNodes()));
+        int surplus = held.cardinality() - fairShare;
+        if (surplus > 0) {
+            int[] released = new int[surplus];
+            for (int i = 0, partition = held.length() - 1; i < surplus; i++) {
+                released[i] = partition;
+                held.clear(partition);
+                partition = held.previousSetBit(partition - 1);
+            }
+            // сначала перестаём считать их своими, потом отдаём
+            updateOwnership(held, startedAt);
+            repository.release(nodeId, released);
+            log.info("Node {} released {} partitions for rebalancing", nodeId, surplus);
+        } else if (surplus < 0) {
+            List<Integer> claimed = repository.claim(nodeId, localEndpoint, -surplus,
+                    properties.leaseDuration());
+            claimed.forEach(held::set);
+            if (!claimed.isEmpty()) {
+                log.info("Node {} claimed partitions {}", nodeId, claimed);
+            }
+        }
+        updateOwnership(held, startedAt);
+        endpoints = repository.findEndpoints(partitions);
+    }
+
+    // releaseOnShutdown=false — лизы истекают сами, как при падении узла.
+    @PreDestroy
+    public synchronized void shutdown() {
+        int[] released = owned.stream().toArray();
+        updateOwnership(new BitSet(), System.nanoTime());
+        if (!properties.releaseOnShutdown()) {
+            return;
+        }
+        repository.release(nodeId, released);
+        repository.leave(nodeId);
+        log.info("Node {} left the cluster, released {} partitions", nodeId, released.length);
+    }
+
+    private void renewLoop() {
+        long intervalMillis = properties.renewInterval().toMillis();
+        while (running) {
+            try {
+                renew();
+            } catch (RuntimeException e) {
+                // владение истечёт само по ownedUntil, если ошибки продлятся
+                log.warn("Node {} failed to renew partition leases", nodeId, e);
+            }
+            try {
+                Thread.sleep(intervalMillis);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+    }
+
+    private void updateOwnership(BitSet held, long renewedAt) {
+        long deadline = renewedAt + properties.leaseDuration().toNanos()
+                - properties.renewInterval().toNanos();
+        BitSet lost = (BitSet) owned.clone();
+        lost.andNot(held);
+        for (int partition = 0; partition < partitions; partition++) {
+            ownedUntil.set(partition, held.get(partition) ? deadline : 0L);
+        }
+        if (!lost.isEmpty()) {
+            cache.evictPartitions(lost, partitions);
+            log.info("Node {} lost partitions {}", nodeId, lost);
+        }
+        owned.clear();
+        owned.or(held);
+    }
+
+    private String resolveEndpoint() {
+        TransferGatewayServer server = gateway.getIfAvailable();
+        if (server == null || !server.isRunning()) {
+            return null;
+        }
+        return properties.advertisedHost() + ":" + server.getLocalPort();
+    }
+
+    private BitSet toBitSet(List<Integer> partitionIds) {
+        BitSet bits = new BitSet(partitions);
+        for (int partition : partitionIds) {
+            if (partition < partitions) {
+                bits.set(partition);
+            }
+        }
+        return bits;
+    }
+}
@@ -0,0 +1,30 @@
+package example.transactions.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import io.r2dbc.spi.ConnectionFactory;
+import jakarta.persistence.EntityManagerFactory;
+
+// JPA и R2DBC живут в одном контексте, поэтому менеджеров транзакций два.
+// Автоконфигурация JPA отключается при любом TransactionManager в контексте, а @Transactional
+// без квалификатора падает на двух кандидатах — отсюда явные бины и @Primary для JPA.
+// Реактивный сервис берёт ReactiveTransactionManager по типу и работает через
+// TransactionalOperator.
+@Configuration(proxyBeanMethods = false)
+public class TransactionManagerConfiguration {
+
+    @Bean
+    @Primary
+    public JpaTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
+        return new JpaTransactionManager(entityManagerFactory);
+    }
+
+    @Bean
+    public R2dbcTransactionManager reactiveTransactionManager(
+            ConnectionFactory connectionFactory) {
+        return new R2dbcTransactionManager(connectionFactory);
+    }
+}
@@ -0,0 +1,8 @@
+package example.transactions.exeption;
+
+public class LimitExceededException extends RuntimeException {
+
+    public LimitExceededException(String message) {
+        super(message);
+    }
+}
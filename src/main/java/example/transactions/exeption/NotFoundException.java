@@ -13,6 +13,10 @@ public class NotFoundException extends RuntimeException {
         super(MessageFormat.format(message, args));
     }
 
+    private NotFoundException(String message, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+    }
+
     public static Supplier<NotFoundException> notFoundException(String message, Object... args) {
         return () -> new NotFoundException(message, args);
     }
@@ -20,4 +24,9 @@ public class NotFoundException extends RuntimeException {
     public static Supplier<NotFoundException> notFoundException(String message) {
         return () -> new NotFoundException(message);
     }
+
+    // Для горячего пути: без захвата стека и без MessageFormat, сообщение передаётся готовым.
+    public static NotFoundException withoutStackTrace(String message) {
+        return new NotFoundException(message, false);
+    }
 }
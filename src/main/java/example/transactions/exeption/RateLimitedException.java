@@ -0,0 +1,9 @@
+package example.transactions.exeption;
+
+// Отказ лимитера — частый и ожидаемый исход под нагрузкой, стек не нужен.
+public class RateLimitedException extends RuntimeException {
+
+    public RateLimitedException(String message) {
+        super(message, null, false, false);
+    }
+}
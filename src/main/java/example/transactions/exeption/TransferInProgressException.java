@@ -0,0 +1,10 @@
+package example.transactions.exeption;
+
+// Перевод принят, но его исход ещё не известен: сага продолжает работу и будет доведена
+// восстановлением.
+public class TransferInProgressException extends IllegalStateException {
+
+    public TransferInProgressException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
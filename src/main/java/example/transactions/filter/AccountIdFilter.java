@@ -0,0 +1,107 @@
+package example.transactions.filter;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import javax.sql.DataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import lombok.extern.slf4j.Slf4j;
+
+// Быстрый отказ для несуществующих id: если фильтр говорит «нет», счёта точно нет и в
+// Postgres можно не ходить. Ложные «да» просто проходят в БД как раньше.
+//
+// Фильтр периодически перестраивается в фоне полным проходом по accounts (курсором) и
+// атомарно подменяется. Новые id добавляются в save(). Строка, вставленная до начала прохода,
+// но закоммиченная после взятия снимка, проходом не видна, поэтому недавние добавления
+// хранятся в очереди (recentRetention > таймаута транзакции) и доигрываются в новый фильтр —
+// до подмены и ещё раз после неё.
+//
+// Фильтр знает только о счетах, созданных через этот процесс или увиденных при последнем
+// проходе. Если счета создают и другие узлы, без пересборки они будут ложно отвергнуты,
+// поэтому по умолчанию фильтр выключен (accounts.id-filter.enabled).
+@Slf4j
+@Component
+public class AccountIdFilter {
+
+    private static final String ESTIMATE_SQL =
+            "SELECT GREATEST(reltuples, 0)::bigint FROM pg_class WHERE relname = 'accounts'";
+    private static final String IDS_SQL = "SELECT id FROM accounts";
+
+    private final AccountIdFilterProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Queue<RecentId> recentIds = new ConcurrentLinkedQueue<>();
+    private volatile LongBloomFilter current;
+
+    public AccountIdFilter(AccountIdFilterProperties properties, DataSource dataSource,
+            PlatformTransactionManager transactionManager) {
+        this.properties = properties;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(10_000);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    private record RecentId(long id, long addedAtNanos) {
+    }
+
+    public boolean mightContain(long id) {
+        if (!properties.enabled()) {
+            return true;
+        }
+        LongBloomFilter filter = current;
+        return filter == null || filter.mightContain(id);
+    }
+
+    public void add(long id) {
+        if (!properties.enabled()) {
+            return;
+        }
+        recentIds.add(new RecentId(id, System.nanoTime()));
+        LongBloomFilter filter = current;
+        if (filter != null) {
+            filter.add(id);
+        }
+    }
+
+    @Scheduled(initialDelay = 0,
+            fixedDelayString = "${accounts.id-filter.rebuild-interval:PT10M}")
+    public void rebuild() {
+        if (!properties.enabled()) {
+            return;
+        }
+        long started = System.nanoTime();
+        trimRecentIds(started);
+        Long estimate = jdbcTemplate.queryForObject(ESTIMATE_SQL, Long.class);
+        long expected = Math.max(properties.minExpectedInsertions(),
+                estimate == null ? 0 : estimate + estimate / 2);
+        LongBloomFilter next = LongBloomFilter.create(expected, properties.falsePositiveRate());
+        long[] scanned = new long[1];
+        readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(IDS_SQL, rs -> {
+            next.add(rs.getLong(1));
+            scanned[0]++;
+        }));
+        replayRecentIds(next);
+        current = next;
+        replayRecentIds(next);
+        log.info("Rebuilt account id filter: {} ids, {} bits, {} hashes in {} ms", scanned[0],
+                next.bitCount(), next.hashCount(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private void replayRecentIds(LongBloomFilter filter) {
+        for (RecentId recent : recentIds) {
+            filter.add(recent.id());
+        }
+    }
+
+    private void trimRecentIds(long now) {
+        long retention = properties.recentRetention().toNanos();
+        RecentId head;
+        while ((head = recentIds.peek()) != null && now - head.addedAtNanos() > retention) {
+            recentIds.poll();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package example.transactions.filter;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "accounts.id-filter")
+public record AccountIdFilterProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("0.01") double falsePositiveRate,
+        @DefaultValue("1000000") long minExpectedInsertions,
+        @DefaultValue("PT1M") Duration recentRetention) {
+}
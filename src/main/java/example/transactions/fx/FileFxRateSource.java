@@ -0,0 +1,35 @@
+package example.transactions.fx;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import lombok.RequiredArgsConstructor;
+
+// Курсы из файла вида EUR=1.08, по строке на валюту.
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "fx.source", havingValue = "file")
+public class FileFxRateSource implements FxRateSource {
+
+    private final FxProperties properties;
+
+    @Override
+    public Map<String, BigDecimal> load() throws IOException {
+        Properties file = new Properties();
+        try (Reader reader = Files.newBufferedReader(properties.file(), StandardCharsets.UTF_8)) {
+            file.load(reader);
+        }
+        Map<String, BigDecimal> rates = new HashMap<>();
+        for (String currency : file.stringPropertyNames()) {
+            rates.put(currency.trim(), new BigDecimal(file.getProperty(currency).trim()));
+        }
+        return rates;
+    }
+}
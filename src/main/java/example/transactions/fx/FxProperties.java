@@ -0,0 +1,11 @@
+package example.transactions.fx;
+
+import java.nio.file.Path;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "fx")
+public record FxProperties(
+        @DefaultValue("jdbc") String source,
+        @DefaultValue("fx-rates.properties") Path file) {
+}
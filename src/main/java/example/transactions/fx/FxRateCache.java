@@ -0,0 +1,41 @@
+package example.transactions.fx;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// Курсы в памяти: переводы читают текущий снимок одним volatile-чтением, без блокировок и
+// без запроса в БД. Обновление строит новый неизменяемый FxRates и подменяет ссылку целиком,
+// поэтому перевод никогда не видит наполовину обновлённую таблицу. Если источник недоступен,
+// остаётся прежний снимок.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FxRateCache {
+
+    private final FxRateSource source;
+    private volatile FxRates current = FxRates.EMPTY;
+
+    public FxRates current() {
+        return current;
+    }
+
+    @PostConstruct
+    void init() {
+        refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${fx.refresh-interval:PT1M}",
+            initialDelayString = "${fx.refresh-interval:PT1M}")
+    public void refresh() {
+        try {
+            FxRates next = new FxRates(source.load());
+            current = next;
+            log.debug("Refreshed {} FX rates", next.size());
+        } catch (Exception e) {
+            log.warn("Failed to refresh FX rates, keeping {} cached", current.size(), e);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package example.transactions.fx;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+public interface FxRateSource {
+
+    Map<String, BigDecimal> load() throws Exception;
+}
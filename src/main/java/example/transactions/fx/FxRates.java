@@ -0,0 +1,65 @@
+package example.transactions.fx;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.Map;
+
+// Неизменяемый снимок курсов. rate — стоимость единицы валюты в базовой валюте, кросс-курс
+// считается через базу. Массивы currencies/rates построены один раз на снимок и передаются в
+// SQL-функцию transfer() как есть — не изменять.
+public final class FxRates {
+
+    public static final FxRates EMPTY = new FxRates(Map.of());
+
+    private static final MathContext PRECISION = MathContext.DECIMAL64;
+
+    private final Map<String, BigDecimal> rates;
+    private final String[] currencyArray;
+    private final BigDecimal[] rateArray;
+
+    public FxRates(Map<String, BigDecimal> rates) {
+        this.rates = Map.copyOf(rates);
+        this.currencyArray = new String[this.rates.size()];
+        this.rateArray = new BigDecimal[this.rates.size()];
+        int i = 0;
+        for (Map.Entry<String, BigDecimal> rate : this.rates.entrySet()) {
+            if (rate.getValue().signum() <= 0) {
+                throw new IllegalArgumentException("Rate must be positive: " + rate.getKey());
+            }
+            currencyArray[i] = rate.getKey();
+            rateArray[i] = rate.getValue();
+            i++;
+        }
+    }
+
+    // null, если для одной из валют нет курса. Округление как у round() в Postgres.
+    public BigDecimal convert(BigDecimal amount, String from, String to) {
+        if (from.equals(to)) {
+            return amount;
+        }
+        BigDecimal fromRate = rates.get(from);
+        BigDecimal toRate = rates.get(to);
+        if (fromRate == null || toRate == null) {
+            return null;
+        }
+        return amount.multiply(fromRate).divide(toRate, PRECISION)
+                .setScale(2, RoundingMode.HALF_UP);
+    }
+
+    public boolean supports(String currency) {
+        return rates.containsKey(currency);
+    }
+
+    public int size() {
+        return rates.size();
+    }
+
+    public String[] currencyArray() {
+        return currencyArray;
+    }
+
+    public BigDecimal[] rateArray() {
+        return rateArray;
+    }
+}
@@ -0,0 +1,28 @@
+package example.transactions.fx;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import lombok.RequiredArgsConstructor;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "fx.source", havingValue = "jdbc", matchIfMissing = true)
+public class JdbcFxRateSource implements FxRateSource {
+
+    private static final String RATES_SQL = "SELECT currency, rate FROM fx_rates";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public Map<String, BigDecimal> load() {
+        Map<String, BigDecimal> rates = new HashMap<>();
+        jdbcTemplate.query(RATES_SQL, rs -> {
+            rates.put(rs.getString(1).trim(), rs.getBigDecimal(2));
+        });
+        return rates;
+    }
+}
@@ -0,0 +1,28 @@
+package example.transactions.gateway;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+
+// Пул direct-буферов фиксированного размера. allocateDirect дорогой и освобождается только
+// через GC (Cleaner), поэтому буферы переиспользуются; при пустом пуле выделяется новый,
+// при переполненном — лишний просто отдаётся GC.
+final class DirectBufferPool {
+
+    private final int bufferSize;
+    private final Queue<ByteBuffer> free;
+
+    DirectBufferPool(int bufferSize, int capacity) {
+        this.bufferSize = bufferSize;
+        this.free = new ArrayBlockingQueue<>(capacity);
+    }
+
+    ByteBuffer acquire() {
+        ByteBuffer buffer = free.poll();
+        return buffer != null ? buffer.clear() : ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    void release(ByteBuffer buffer) {
+        free.offer(buffer);
+    }
+}
@@ -0,0 +1,118 @@
+package example.transactions.gateway;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+
+// Клиент бинарного шлюза с конвейеризацией: запросы пишутся в сокет сразу, ответы
+// разбирает отдельный поток чтения и завершает CompletableFuture по correlationId.
+@Slf4j
+public class GatewayClient implements AutoCloseable {
+
+    private final SocketChannel channel;
+    private final ByteBuffer writeBuffer =
+            ByteBuffer.allocateDirect(GatewayProtocol.MAX_REQUEST_FRAME_LENGTH);
+    private final Map<Long, CompletableFuture<GatewayResponse>> inFlight =
+            new ConcurrentHashMap<>();
+    private final AtomicLong correlationIds = new AtomicLong();
+    private final Thread reader;
+
+    private GatewayClient(SocketChannel channel) {
+        this.channel = channel;
+        this.reader = Thread.ofPlatform().daemon().name("gateway-client-reader")
+                .start(this::readLoop);
+    }
+
+    public static GatewayClient connect(InetSocketAddress address) throws IOException {
+        SocketChannel channel = SocketChannel.open(address);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        return new GatewayClient(channel);
+    }
+
+    public CompletableFuture<GatewayResponse> withdraw(long accountId, long amountCents) {
+        return send(GatewayProtocol.OP_WITHDRAW, accountId, 0L, amountCents);
+    }
+
+    public CompletableFuture<GatewayResponse> deposit(long accountId, long amountCents) {
+        return send(GatewayProtocol.OP_DEPOSIT, accountId, 0L, amountCents);
+    }
+
+    public CompletableFuture<GatewayResponse> transfer(long fromAccountId, long toAccountId,
+            long amountCents) {
+        return send(GatewayProtocol.OP_TRANSFER, fromAccountId, toAccountId, amountCents);
+    }
+
+    public CompletableFuture<GatewayResponse> balance(long accountId) {
+        return send(GatewayProtocol.OP_BALANCE, accountId, 0L, 0L);
+    }
+
+    public CompletableFuture<GatewayResponse> invalidate(long accountId) {
+        return send(GatewayProtocol.OP_INVALIDATE, accountId, 0L, 0L);
+    }
+
+    private CompletableFuture<GatewayResponse> send(byte opcode, long accountId,
+            long targetAccountId, long amount) {
+        long correlationId = correlationIds.incrementAndGet();
+        CompletableFuture<GatewayResponse> future = new CompletableFuture<>();
+        inFlight.put(correlationId, future);
+        try {
+            synchronized (writeBuffer) {
+                writeBuffer.clear();
+                GatewayProtocol.encodeRequest(writeBuffer,
+                        new GatewayRequest(correlationId, opcode, accountId, targetAccountId,
+                                amount));
+                writeBuffer.flip();
+                while (writeBuffer.hasRemaining()) {
+                    channel.write(writeBuffer);
+                }
+            }
+        } catch (IOException e) {
+            inFlight.remove(correlationId);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private void readLoop() {
+        ByteBuffer readBuffer = ByteBuffer.allocateDirect(64 * 1024);
+        try {
+            while (channel.read(readBuffer) >= 0) {
+                readBuffer.flip();
+                while (readBuffer.remaining() >= GatewayProtocol.RESPONSE_FRAME_LENGTH) {
+                    int bodyStart = readBuffer.position() + GatewayProtocol.LENGTH_PREFIX;
+                    GatewayResponse response =
+                            GatewayProtocol.decodeResponse(readBuffer, bodyStart);
+                    readBuffer.position(bodyStart + GatewayProtocol.RESPONSE_BODY_LENGTH);
+                    CompletableFuture<GatewayResponse> future =
+                            inFlight.remove(response.correlationId());
+                    if (future != null) {
+                        future.complete(response);
+                    }
+                }
+                readBuffer.compact();
+            }
+        } catch (IOException e) {
+            log.debug("Gateway client connection closed", e);
+        }
+        IOException closed = new IOException("Gateway connection closed");
+        inFlight.values().forEach(future -> future.completeExceptionally(closed));
+        inFlight.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        try {
+            reader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
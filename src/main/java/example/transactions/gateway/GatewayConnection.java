@@ -0,0 +1,121 @@
+package example.transactions.gateway;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import lombok.extern.slf4j.Slf4j;
+
+// Состояние одного клиентского соединения. read() и flush() вызываются только из потока
+// селектора, send() — из рабочих потоков; между ними только неблокирующая очередь ответов.
+@Slf4j
+final class GatewayConnection {
+
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final TransferGatewayServer server;
+    private final ByteBuffer readBuffer;
+    private final String callerId;
+    private final Queue<ByteBuffer> responses = new ConcurrentLinkedQueue<>();
+    private volatile boolean closed;
+
+    GatewayConnection(SocketChannel channel, SelectionKey key, TransferGatewayServer server,
+            ByteBuffer readBuffer, String callerId) {
+        this.channel = channel;
+        this.key = key;
+        this.server = server;
+        this.readBuffer = readBuffer;
+        this.callerId = callerId;
+    }
+
+    String callerId() {
+        return callerId;
+    }
+
+    void read() {
+        try {
+            if (channel.read(readBuffer) < 0) {
+                close();
+                return;
+            }
+        } catch (IOException e) {
+            close();
+            return;
+        }
+        readBuffer.flip();
+        // в одном read() может оказаться несколько конвейерных кадров и хвост следующего
+        while (readBuffer.remaining() >= GatewayProtocol.LENGTH_PREFIX) {
+            int frameStart = readBuffer.position();
+            int bodyLength = readBuffer.getInt(frameStart);
+            if (bodyLength <= 0
+                    || bodyLength > GatewayProtocol.MAX_REQUEST_FRAME_LENGTH) {
+                log.warn("Closing {}: invalid frame length {}", channel, bodyLength);
+                close();
+                return;
+            }
+            if (readBuffer.remaining() < GatewayProtocol.LENGTH_PREFIX + bodyLength) {
+                break;
+            }
+            int bodyStart = frameStart + GatewayProtocol.LENGTH_PREFIX;
+            GatewayRequest request =
+                    GatewayProtocol.decodeRequest(readBuffer, bodyStart, bodyLength);
+            if (request == null) {
+                log.warn("Closing {}: malformed frame", channel);
+                close();
+                return;
+            }
+            readBuffer.position(bodyStart + bodyLength);
+            server.dispatch(this, request);
+        }
+        readBuffer.compact();
+    }
+
+    void send(GatewayResponse response) {
+        if (closed) {
+            return;
+        }
+        ByteBuffer frame = server.acquireResponseBuffer();
+        GatewayProtocol.encodeResponse(frame, response);
+        responses.add(frame.flip());
+        server.scheduleFlush(this);
+    }
+
+    void flush() {
+        if (closed) {
+            return;
+        }
+        try {
+            ByteBuffer frame;
+            while ((frame = responses.peek()) != null) {
+                channel.write(frame);
+                if (frame.hasRemaining()) {
+                    // сокет переполнен — допишем, когда селектор сообщит OP_WRITE
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+                responses.poll();
+                server.releaseResponseBuffer(frame);
+            }
+            key.interestOps(SelectionKey.OP_READ);
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.debug("Failed to close {}", channel, e);
+        }
+        server.releaseReadBuffer(readBuffer);
+        responses.clear();
+    }
+}
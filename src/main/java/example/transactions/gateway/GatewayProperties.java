@@ -0,0 +1,13 @@
+package example.transactions.gateway;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "gateway.tcp")
+public record GatewayProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("localhost") String host,
+        @DefaultValue("9999") int port,
+        @DefaultValue("65536") int readBufferSize,
+        @DefaultValue("4096") int pooledBuffers) {
+}
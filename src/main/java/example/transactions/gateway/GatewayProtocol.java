@@ -0,0 +1,104 @@
+package example.transactions.gateway;
+
+import java.nio.ByteBuffer;
+
+// Бинарный протокол TCP-шлюза. Каждый кадр предваряется int-длиной тела (big-endian).
+//
+// Запрос:  [int length][long correlationId][byte opcode][long accountId]
+//          (BALANCE и INVALIDATE — без других полей)
+//          + [long amount] для WITHDRAW/DEPOSIT
+//          + [long targetAccountId][long amount] для TRANSFER
+// Ответ:   [int length][long correlationId][byte status][long value]
+//
+// Суммы передаются в копейках (scale = 2), value в ответе — баланс для BALANCE и остаток после
+// WITHDRAW/DEPOSIT, для TRANSFER — 0. Формат продублирован в клиентской библиотеке (client).
+// correlationId выбирает клиент: ответы на конвейерные запросы могут прийти в любом порядке.
+// INVALIDATE — служебная операция кластера: сбросить кэш баланса счёта на владельце его
+// партиции; лимит частоты к ней не применяется.
+public final class GatewayProtocol {
+
+    public static final byte OP_WITHDRAW = 1;
+    public static final byte OP_DEPOSIT = 2;
+    public static final byte OP_TRANSFER = 3;
+    public static final byte OP_BALANCE = 4;
+    public static final byte OP_INVALIDATE = 5;
+
+    public static final byte STATUS_OK = 0;
+    public static final byte STATUS_INSUFFICIENT_FUNDS = 1;
+    public static final byte STATUS_NOT_FOUND = 2;
+    public static final byte STATUS_INVALID = 3;
+    public static final byte STATUS_ERROR = 4;
+    public static final byte STATUS_LIMIT_EXCEEDED = 5;
+    public static final byte STATUS_RATE_LIMITED = 6;
+
+    public static final int LENGTH_PREFIX = Integer.BYTES;
+    public static final int RESPONSE_BODY_LENGTH = Long.BYTES + 1 + Long.BYTES;
+    public static final int RESPONSE_FRAME_LENGTH = LENGTH_PREFIX + RESPONSE_BODY_LENGTH;
+    public static final int MAX_REQUEST_FRAME_LENGTH =
+            LENGTH_PREFIX + requestBodyLength(OP_TRANSFER);
+
+    private static final int REQUEST_HEADER_LENGTH = Long.BYTES + 1;
+
+    private GatewayProtocol() {
+    }
+
+    public static int requestBodyLength(byte opcode) {
+        return switch (opcode) {
+            case OP_BALANCE, OP_INVALIDATE -> REQUEST_HEADER_LENGTH + Long.BYTES;
+            case OP_WITHDRAW, OP_DEPOSIT -> REQUEST_HEADER_LENGTH + 2 * Long.BYTES;
+            case OP_TRANSFER -> REQUEST_HEADER_LENGTH + 3 * Long.BYTES;
+            default -> -1;
+        };
+    }
+
+    public static void encodeRequest(ByteBuffer target, GatewayRequest request) {
+        int bodyLength = requestBodyLength(request.opcode());
+        if (bodyLength < 0) {
+            throw new IllegalArgumentException("Unknown opcode " + request.opcode());
+        }
+        target.putInt(bodyLength)
+                .putLong(request.correlationId())
+                .put(request.opcode())
+                .putLong(request.accountId());
+        if (request.opcode() == OP_TRANSFER) {
+            target.putLong(request.targetAccountId());
+        }
+        if (request.opcode() == OP_WITHDRAW || request.opcode() == OP_DEPOSIT
+                || request.opcode() == OP_TRANSFER) {
+            target.putLong(request.amount());
+        }
+    }
+
+    // Читает тело запроса абсолютными get-ами прямо из буфера чтения, без копирования в массив.
+    // Возвращает null, если длина тела не соответствует коду операции.
+    static GatewayRequest decodeRequest(ByteBuffer source, int bodyStart, int bodyLength) {
+        long correlationId = source.getLong(bodyStart);
+        byte opcode = source.get(bodyStart + Long.BYTES);
+        if (requestBodyLength(opcode) != bodyLength) {
+            return null;
+        }
+        int fields = bodyStart + REQUEST_HEADER_LENGTH;
+        long accountId = source.getLong(fields);
+        return switch (opcode) {
+            case OP_BALANCE, OP_INVALIDATE ->
+                new GatewayRequest(correlationId, opcode, accountId, 0L, 0L);
+            case OP_TRANSFER -> new GatewayRequest(correlationId, opcode, accountId,
+                    source.getLong(fields + Long.BYTES), source.getLong(fields + 2 * Long.BYTES));
+            default -> new GatewayRequest(correlationId, opcode, accountId, 0L,
+                    source.getLong(fields + Long.BYTES));
+        };
+    }
+
+    static void encodeResponse(ByteBuffer target, GatewayResponse response) {
+        target.putInt(RESPONSE_BODY_LENGTH)
+                .putLong(response.correlationId())
+                .put(response.status())
+                .putLong(response.value());
+    }
+
+    public static GatewayResponse decodeResponse(ByteBuffer source, int bodyStart) {
+        return new GatewayResponse(source.getLong(bodyStart),
+                source.get(bodyStart + Long.BYTES),
+                source.getLong(bodyStart + Long.BYTES + 1));
+    }
+}
@@ -0,0 +1,5 @@
+package example.transactions.gateway;
+
+public record GatewayRequest(long correlationId, byte opcode, long accountId,
+        long targetAccountId, long amount) {
+}
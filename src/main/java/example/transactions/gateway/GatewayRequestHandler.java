@@ -0,0 +1,63 @@
+package example.transactions.gateway;
+
+import java.math.BigDecimal;
+import org.springframework.stereotype.Component;
+import example.transactions.service.AccountOperations;
+import example.transactions.service.OperationResult;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class GatewayRequestHandler {
+
+    private final AccountOperations service;
+
+    public GatewayResponse handle(GatewayRequest request) {
+        try {
+            OperationResult result = switch (request.opcode()) {
+                case GatewayProtocol.OP_WITHDRAW ->
+                    service.tryWithdraw(request.accountId(), amount(request));
+                case GatewayProtocol.OP_DEPOSIT ->
+                    service.tryDeposit(request.accountId(), amount(request));
+                case GatewayProtocol.OP_TRANSFER -> service.tryTransfer(request.accountId(),
+                        request.targetAccountId(), amount(request));
+                case GatewayProtocol.OP_BALANCE -> service.tryGetBalance(request.accountId());
+                case GatewayProtocol.OP_INVALIDATE ->
+                    service.evictCachedBalance(request.accountId());
+                default -> new OperationResult.Invalid("Unknown opcode " + request.opcode());
+            };
+            return switch (result) {
+                // остаток после списания и зачисления тоже отдаём: по нему узел, переславший
+                // запрос, возвращает тот же результат, что дал бы локальный вызов
+                case OperationResult.Ok ok -> respond(request, GatewayProtocol.STATUS_OK,
+                        ok.balance() == null ? 0L : toCents(ok.balance()));
+                case OperationResult.InsufficientFunds ignored ->
+                    respond(request, GatewayProtocol.STATUS_INSUFFICIENT_FUNDS, 0L);
+                case OperationResult.LimitExceeded ignored ->
+                    respond(request, GatewayProtocol.STATUS_LIMIT_EXCEEDED, 0L);
+                case OperationResult.NotFound ignored ->
+                    respond(request, GatewayProtocol.STATUS_NOT_FOUND, 0L);
+                case OperationResult.Invalid ignored ->
+                    respond(request, GatewayProtocol.STATUS_INVALID, 0L);
+            };
+        } catch (RuntimeException e) {
+            // сюда попадают только настоящие сбои: БД недоступна, таймаут и т.п.
+            log.warn("Gateway request {} failed", request.correlationId(), e);
+            return respond(request, GatewayProtocol.STATUS_ERROR, 0L);
+        }
+    }
+
+    private static GatewayResponse respond(GatewayRequest request, byte status, long value) {
+        return new GatewayResponse(request.correlationId(), status, value);
+    }
+
+    private static BigDecimal amount(GatewayRequest request) {
+        return BigDecimal.valueOf(request.amount(), 2);
+    }
+
+    private static long toCents(BigDecimal balance) {
+        return balance.setScale(2).unscaledValue().longValueExact();
+    }
+}
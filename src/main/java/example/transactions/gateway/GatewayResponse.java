@@ -0,0 +1,8 @@
+package example.transactions.gateway;
+
+public record GatewayResponse(long correlationId, byte status, long value) {
+
+    public boolean isOk() {
+        return status == GatewayProtocol.STATUS_OK;
+    }
+}
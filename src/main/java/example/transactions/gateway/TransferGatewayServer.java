@@ -0,0 +1,177 @@
+package example.transactions.gateway;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import example.transactions.ratelimit.RateLimiter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// Бинарный TCP-шлюз перед AccountService.
+// Один поток селектора принимает соединения, читает кадры и пишет ответы; сами операции
+// блокирующие (JDBC), поэтому каждая уходит в виртуальный поток. Ответ возвращается в
+// очередь соединения, а селектор будится через wakeup() и дописывает его в сокет.
+// Клиент может слать запросы конвейером, не дожидаясь ответов: порядок ответов не
+// гарантирован, сопоставление — по correlationId.
+// Лимит частоты проверяется прямо в потоке селектора: отклонённый запрос не доходит ни до
+// виртуального потока, ни до пула соединений.
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "gateway.tcp", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class TransferGatewayServer implements SmartLifecycle {
+
+    private final GatewayProperties properties;
+    private final GatewayRequestHandler handler;
+    private final RateLimiter rateLimiter;
+
+    private final Queue<GatewayConnection> pendingFlushes = new ConcurrentLinkedQueue<>();
+    private DirectBufferPool readBuffers;
+    private DirectBufferPool responseBuffers;
+    private ExecutorService workers;
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread selectorThread;
+    private volatile boolean running;
+
+    @Override
+    public void start() {
+        try {
+            selector = Selector.open();
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(properties.host(), properties.port()));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot start TCP gateway", e);
+        }
+        readBuffers = new DirectBufferPool(properties.readBufferSize(), properties.pooledBuffers());
+        responseBuffers = new DirectBufferPool(GatewayProtocol.RESPONSE_FRAME_LENGTH,
+                properties.pooledBuffers());
+        workers = Executors.newVirtualThreadPerTaskExecutor();
+        running = true;
+        selectorThread = Thread.ofPlatform().name("tcp-gateway-selector").start(this::selectLoop);
+        log.info("TCP gateway listening on port {}", getLocalPort());
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            selector.close();
+            serverChannel.close();
+            selectorThread.join();
+        } catch (IOException e) {
+            log.warn("Failed to close TCP gateway", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        workers.close();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    public int getLocalPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    void dispatch(GatewayConnection connection, GatewayRequest request) {
+        if (request.opcode() != GatewayProtocol.OP_INVALIDATE
+                && !rateLimiter.tryAcquire(connection.callerId(), request.accountId())) {
+            connection.send(new GatewayResponse(request.correlationId(),
+                    GatewayProtocol.STATUS_RATE_LIMITED, 0L));
+            return;
+        }
+        workers.execute(() -> connection.send(handler.handle(request)));
+    }
+
+    void scheduleFlush(GatewayConnection connection) {
+        pendingFlushes.add(connection);
+        selector.wakeup();
+    }
+
+    ByteBuffer acquireResponseBuffer() {
+        return responseBuffers.acquire();
+    }
+
+    void releaseResponseBuffer(ByteBuffer buffer) {
+        responseBuffers.release(buffer);
+    }
+
+    void releaseReadBuffer(ByteBuffer buffer) {
+        readBuffers.release(buffer);
+    }
+
+    private void selectLoop() {
+        while (running) {
+            try {
+                selector.select();
+                GatewayConnection pending;
+                while ((pending = pendingFlushes.poll()) != null) {
+                    pending.flush();
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    GatewayConnection connection = (GatewayConnection) key.attachment();
+                    if (key.isReadable()) {
+                        connection.read();
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        connection.flush();
+                    }
+                }
+            } catch (ClosedSelectorException e) {
+                break;
+            } catch (IOException e) {
+                log.warn("TCP gateway selector failure", e);
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        key.attach(new GatewayConnection(channel, key, this, readBuffers.acquire(),
+                callerId(channel)));
+    }
+
+    // Клиент шлюза идентифицируется адресом: все соединения одной интеграции делят ведро.
+    private static String callerId(SocketChannel channel) throws IOException {
+        if (channel.getRemoteAddress() instanceof InetSocketAddress address) {
+            return address.getAddress().getHostAddress();
+        }
+        return String.valueOf(channel.getRemoteAddress());
+    }
+}
@@ -0,0 +1,122 @@
+package example.transactions.holds;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import example.transactions.repository.HoldJdbcRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// Истечение холдов без сканирования таблицы и без задачи на каждый холд: сроки живут в
+// TimingWheel, один поток двигает колесо раз в тик, а истёкшие за тик id снимаются пачками
+// одним оператором на пачку в виртуальных потоках.
+//
+// Колесо живёт в памяти, поэтому при старте оно заполняется из account_holds; просроченные
+// за время простоя холды истекают на первом же тике. Холды, поставленные другим экземпляром,
+// этот экземпляр видит только после своего перезапуска. Повторное снятие безопасно: уже
+// снятый холд просто не находится.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HoldExpiryWheel implements SmartLifecycle {
+
+    private final HoldProperties properties;
+    private final HoldJdbcRepository repository;
+
+    private TimingWheel wheel;
+    private long tickMillis;
+    private Semaphore connections;
+    private ExecutorService workers;
+    private Thread timerThread;
+    private volatile boolean running;
+
+    @Override
+    public void start() {
+        tickMillis = properties.tick().toMillis();
+        wheel = new TimingWheel(tickMillis, properties.wheelSize(), System.currentTimeMillis());
+        connections = new Semaphore(properties.expiryParallelism());
+        workers = Executors.newVirtualThreadPerTaskExecutor();
+        running = true;
+        int[] recovered = new int[1];
+        repository.forEachActive((holdId, expiresAtMillis) -> {
+            schedule(holdId, expiresAtMillis);
+            recovered[0]++;
+        });
+        timerThread = Thread.ofPlatform().name("hold-expiry").daemon().start(this::tickLoop);
+        log.info("Hold expiry started, {} active holds recovered", recovered[0]);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        timerThread.interrupt();
+        try {
+            timerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        workers.close();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    public void schedule(long holdId, Instant expiresAt) {
+        schedule(holdId, expiresAt.toEpochMilli());
+    }
+
+    // Уже наступивший срок уходит на ближайший тик и снимается вместе с остальными.
+    private void schedule(long holdId, long expiresAtMillis) {
+        if (!wheel.schedule(holdId, expiresAtMillis)) {
+            wheel.schedule(holdId, System.currentTimeMillis() + tickMillis);
+        }
+    }
+
+    private void tickLoop() {
+        long[] expired = new long[properties.expiryBatchSize()];
+        int[] size = new int[1];
+        while (running) {
+            try {
+                Thread.sleep(tickMillis);
+            } catch (InterruptedException e) {
+                break;
+            }
+            wheel.advance(System.currentTimeMillis(), holdId -> {
+                expired[size[0]++] = holdId;
+                if (size[0] == expired.length) {
+                    submit(Arrays.copyOf(expired, size[0]));
+                    size[0] = 0;
+                }
+            });
+            if (size[0] > 0) {
+                submit(Arrays.copyOf(expired, size[0]));
+                size[0] = 0;
+            }
+        }
+    }
+
+    private void submit(long[] holdIds) {
+        workers.execute(() -> {
+            connections.acquireUninterruptibly();
+            try {
+                repository.releaseAll(holdIds);
+            } catch (RuntimeException e) {
+                // пачка откатилась целиком — ставим её заново
+                log.warn("Failed to expire {} holds, retrying", holdIds.length, e);
+                long retryAt = System.currentTimeMillis()
+                        + properties.expiryRetryDelay().toMillis();
+                for (long holdId : holdIds) {
+                    schedule(holdId, retryAt);
+                }
+            } finally {
+                connections.release();
+            }
+        });
+    }
+}
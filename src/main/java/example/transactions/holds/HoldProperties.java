@@ -0,0 +1,19 @@
+package example.transactions.holds;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// tick — точность истечения: холд снимается не позже чем через тик после срока.
+// Четыре уровня колеса по wheelSize корзин покрывают tick * wheelSize^4 (при 100 мс и 64
+// корзинах — около 19 суток, с запасом больше maxTtl); более далёкие сроки просто
+// перекладываются чаще.
+@ConfigurationProperties(prefix = "accounts.holds")
+public record HoldProperties(
+        @DefaultValue("PT168H") Duration maxTtl,
+        @DefaultValue("PT0.1S") Duration tick,
+        @DefaultValue("64") int wheelSize,
+        @DefaultValue("1000") int expiryBatchSize,
+        @DefaultValue("2") int expiryParallelism,
+        @DefaultValue("PT5S") Duration expiryRetryDelay) {
+}
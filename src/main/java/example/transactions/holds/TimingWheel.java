@@ -0,0 +1,122 @@
+package example.transactions.holds;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongConsumer;
+
+// Иерархическое колесо таймеров для id холдов. Уровень i — wheelSize корзин шириной
+// tick * wheelSize^i; запись кладётся на нижний уровень, куда помещается её срок. Когда время
+// доходит до корзины верхнего уровня, её записи перекладываются ниже (каскад), на нулевом —
+// истекают. Постановка и снятие срока — O(1) независимо от числа холдов, а сам ход колеса
+// стоит один шаг на тик плюс работа с реально истекающими записями.
+//
+// Сроки округляются вверх до тика: запись истекает не раньше своего срока и не позже чем
+// через тик после него. Срок дальше верхнего уровня кладётся в его последнюю корзину и при
+// каскаде перекладывается снова.
+//
+// schedule() вызывают из любых потоков (под read lock, корзины неблокирующие), advance() —
+// только поток колеса под write lock, так что постановка не гоняется с переключением корзины.
+final class TimingWheel {
+
+    static final int LEVELS = 4;
+
+    private final long tickMillis;
+    private final int wheelSize;
+    private final long[] levelTicks = new long[LEVELS];
+    private final Queue<Entry>[][] buckets;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile long currentMillis;
+
+    @SuppressWarnings("unchecked")
+    TimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0 || wheelSize < 2) {
+            throw new IllegalArgumentException("Invalid timing wheel dimensions");
+        }
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.buckets = new Queue[LEVELS][wheelSize];
+        long levelTick = tickMillis;
+        for (int level = 0; level < LEVELS; level++) {
+            levelTicks[level] = levelTick;
+            levelTick = Math.multiplyExact(levelTick, wheelSize);
+            for (int i = 0; i < wheelSize; i++) {
+                buckets[level][i] = new ConcurrentLinkedQueue<>();
+            }
+        }
+        this.currentMillis = startMillis - Math.floorMod(startMillis, tickMillis);
+    }
+
+    // false — срок уже наступил, запись не поставлена и истекает у вызывающего.
+    boolean schedule(long id, long deadlineMillis) {
+        lock.readLock().lock();
+        try {
+            return place(new Entry(id, roundUp(deadlineMillis)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Проходит все тики до nowMillis и отдаёт истёкшие id.
+    void advance(long nowMillis, LongConsumer expired) {
+        lock.writeLock().lock();
+        try {
+            while (currentMillis + tickMillis <= nowMillis) {
+                long now = currentMillis + tickMillis;
+                currentMillis = now;
+                for (int level = LEVELS - 1; level > 0; level--) {
+                    if (now % levelTicks[level] == 0) {
+                        cascade(buckets[level][bucketIndex(now, level)], expired);
+                    }
+                }
+                Queue<Entry> due = buckets[0][bucketIndex(now, 0)];
+                Entry entry;
+                while ((entry = due.poll()) != null) {
+                    expired.accept(entry.id());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void cascade(Queue<Entry> bucket, LongConsumer expired) {
+        Entry entry;
+        while ((entry = bucket.poll()) != null) {
+            if (!place(entry)) {
+                expired.accept(entry.id());
+            }
+        }
+    }
+
+    private boolean place(Entry entry) {
+        long now = currentMillis;
+        if (entry.deadline() <= now) {
+            return false;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            long distance = entry.deadline() / levelTicks[level] - now / levelTicks[level];
+            if (distance < wheelSize) {
+                buckets[level][bucketIndex(entry.deadline(), level)].add(entry);
+                return true;
+            }
+        }
+        int top = LEVELS - 1;
+        long last = now + levelTicks[top] * (wheelSize - 1);
+        buckets[top][bucketIndex(last, top)].add(entry);
+        return true;
+    }
+
+    private int bucketIndex(long millis, int level) {
+        return (int) Math.floorMod(millis / levelTicks[level], (long) wheelSize);
+    }
+
+    private long roundUp(long millis) {
+        long remainder = Math.floorMod(millis, tickMillis);
+        return remainder == 0 ? millis : millis - remainder + tickMillis;
+    }
+
+    private record Entry(long id, long deadline) {
+    }
+}
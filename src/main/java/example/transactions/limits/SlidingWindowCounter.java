@@ -0,0 +1,84 @@
+package example.transactions.limits;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Скользящее окно из кольца корзин фиксированной длины. Каждая корзина — один long: в старших
+// EPOCH_BITS номер интервала (по модулю), в младших — сумма за этот интервал. Обновление —
+// CAS одной ячейки: корзина текущего интервала увеличивается, устаревшая перезаписывается.
+// Сумма окна складывает корзины, чей интервал попадает в последние bucketCount интервалов,
+// то есть окно сдвигается с точностью до одной корзины: текущая корзина неполная, и сумма
+// покрывает от (bucketCount - 1) до bucketCount длин корзины. Лимит по такой сумме может
+// пропустить списание, которое по точному окну было бы отклонено, не больше чем на одну
+// корзину раньше; точность регулируется размером корзины.
+final class SlidingWindowCounter {
+
+    private static final int EPOCH_BITS = 24;
+    private static final int VALUE_BITS = Long.SIZE - EPOCH_BITS;
+    private static final long EPOCH_MASK = (1L << EPOCH_BITS) - 1;
+    private static final long VALUE_MASK = (1L << VALUE_BITS) - 1;
+
+    private final AtomicLongArray buckets;
+    private final long bucketMillis;
+
+    SlidingWindowCounter(int bucketCount, long bucketMillis) {
+        this.buckets = new AtomicLongArray(bucketCount);
+        this.bucketMillis = bucketMillis;
+    }
+
+    long sum(long nowMillis) {
+        long current = nowMillis / bucketMillis;
+        long total = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            long slot = buckets.get(i);
+            if (age(current, slot >>> VALUE_BITS) < buckets.length()) {
+                total += slot & VALUE_MASK;
+            }
+        }
+        return total;
+    }
+
+    // Добавление в корзину момента atMillis. Для прошлых моментов (восстановление из журнала)
+    // корзина, уже занятая более поздним интервалом, не трогается.
+    void add(long atMillis, long value) {
+        long interval = atMillis / bucketMillis;
+        long epoch = interval & EPOCH_MASK;
+        int index = (int) (interval % buckets.length());
+        while (true) {
+            long slot = buckets.get(index);
+            long slotEpoch = slot >>> VALUE_BITS;
+            long next;
+            if (slotEpoch == epoch) {
+                next = (epoch << VALUE_BITS) | (((slot & VALUE_MASK) + value) & VALUE_MASK);
+            } else if (slot == 0 || age(interval, slotEpoch) < (1L << (EPOCH_BITS - 1))) {
+                next = (epoch << VALUE_BITS) | (value & VALUE_MASK);
+            } else {
+                return;
+            }
+            if (buckets.compareAndSet(index, slot, next)) {
+                return;
+            }
+        }
+    }
+
+    // Откат add() для того же момента. Если корзина уже ушла под новый интервал, откатывать
+    // нечего — значение выпало из окна вместе с ней.
+    void subtract(long atMillis, long value) {
+        long interval = atMillis / bucketMillis;
+        long epoch = interval & EPOCH_MASK;
+        int index = (int) (interval % buckets.length());
+        while (true) {
+            long slot = buckets.get(index);
+            if (slot >>> VALUE_BITS != epoch) {
+                return;
+            }
+            long remaining = Math.max(0, (slot & VALUE_MASK) - value);
+            if (buckets.compareAndSet(index, slot, (epoch << VALUE_BITS) | remaining)) {
+                return;
+            }
+        }
+    }
+
+    private static long age(long currentInterval, long slotEpoch) {
+        return (currentInterval - slotEpoch) & EPOCH_MASK;
+    }
+}
@@ -0,0 +1,13 @@
+package example.transactions.limits;
+
+import java.math.BigDecimal;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// Лимиты одинаковы для всех счетов и считаются по каждому счёту отдельно, в его валюте.
+@ConfigurationProperties(prefix = "accounts.velocity")
+public record VelocityLimitProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("10000.00") BigDecimal maxWithdrawnPerDay,
+        @DefaultValue("60") int maxOperationsPerMinute) {
+}
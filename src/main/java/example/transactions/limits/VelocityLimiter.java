@@ -0,0 +1,204 @@
+package example.transactions.limits;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Clock;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.sql.DataSource;
+import org.jctools.maps.NonBlockingHashMapLong;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import example.transactions.sharding.AccountShards;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+// Лимиты скорости списаний по счёту: сумма за скользящие 24 часа и число операций за
+// скользящую минуту. Счётчики живут в памяти (NonBlockingHashMapLong по id без боксинга,
+// внутри — CAS-корзины), поэтому проверка не ходит в БД.
+//
+// Списание сначала резервируется в счётчиках и только потом уходит в Postgres; если
+// транзакция откатилась или операция получила отказ, резерв снимается. Так два параллельных
+// списания не могут вместе превысить лимит.
+//
+// При старте счётчики восстанавливаются из ledger_entries за последние сутки — основной БД и
+// всех шардов, если они включены. Счётчики
+// локальны для процесса: при нескольких узлах каждый видит только свои списания после старта.
+@Slf4j
+@Component
+public class VelocityLimiter {
+
+    public static final Permit UNLIMITED = new Permit(0, 0, 0);
+
+    // Окно охватывает от bucketCount - 1 до bucketCount корзин (см. SlidingWindowCounter):
+    // пятиминутные корзины дают 23:55–24:00 вместо 23–24 часов у часовых, ценой 2,3 КБ на счёт.
+    private static final int DAY_BUCKETS = 288;
+    private static final long DAY_BUCKET_MILLIS = 5 * 60 * 1000L;
+    private static final int MINUTE_BUCKETS = 12;
+    private static final long MINUTE_BUCKET_MILLIS = 5_000L;
+    private static final long IDLE_MILLIS = (DAY_BUCKETS + 1) * DAY_BUCKET_MILLIS;
+    private static final String RECENT_DEBITS_SQL = "SELECT account_id, created_at, -amount"
+            + " FROM ledger_entries WHERE amount < 0 AND kind IN ('WITHDRAWAL', 'TRANSFER_OUT')"
+            + " AND created_at > now() - interval '24 hours' ORDER BY created_at";
+
+    private final VelocityLimitProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectProvider<AccountShards> shards;
+    private final NonBlockingHashMapLong<AccountVelocity> counters =
+            new NonBlockingHashMapLong<>();
+    private final long maxWithdrawnCents;
+    private final Clock clock = Clock.systemUTC();
+
+    public VelocityLimiter(VelocityLimitProperties properties, DataSource dataSource,
+            PlatformTransactionManager transactionManager, ObjectProvider<AccountShards> shards) {
+        this.properties = properties;
+        this.jdbcTemplate = ledgerReader(dataSource);
+        this.readOnlyTransaction = readOnly(transactionManager);
+        this.shards = shards;
+        this.maxWithdrawnCents = toCents(properties.maxWithdrawnPerDay());
+    }
+
+    // Резерв одного списания. Снимается не больше одного раза, даже если release() вызван и
+    // явно, и из отката транзакции.
+    public static final class Permit {
+        private final long accountId;
+        private final long cents;
+        private final long acquiredAtMillis;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(long accountId, long cents, long acquiredAtMillis) {
+            this.accountId = accountId;
+            this.cents = cents;
+            this.acquiredAtMillis = acquiredAtMillis;
+        }
+    }
+
+    private static final class AccountVelocity {
+        final SlidingWindowCounter withdrawn =
+                new SlidingWindowCounter(DAY_BUCKETS, DAY_BUCKET_MILLIS);
+        final SlidingWindowCounter operations =
+                new SlidingWindowCounter(MINUTE_BUCKETS, MINUTE_BUCKET_MILLIS);
+        volatile long lastUsedMillis;
+    }
+
+    // null — лимит превышен. При выключенных лимитах всегда UNLIMITED.
+    public Permit tryAcquire(long accountId, BigDecimal amount) {
+        if (!properties.enabled()) {
+            return UNLIMITED;
+        }
+        long cents = toCents(amount);
+        long now = clock.millis();
+        AccountVelocity velocity = velocity(accountId);
+        velocity.lastUsedMillis = now;
+        velocity.withdrawn.add(now, cents);
+        velocity.operations.add(now, 1);
+        if (velocity.withdrawn.sum(now) > maxWithdrawnCents
+                || velocity.operations.sum(now) > properties.maxOperationsPerMinute()) {
+            velocity.withdrawn.subtract(now, cents);
+            velocity.operations.subtract(now, 1);
+            return null;
+        }
+        return new Permit(accountId, cents, now);
+    }
+
+    public void release(Permit permit) {
+        if (permit == UNLIMITED || !permit.released.compareAndSet(false, true)) {
+            return;
+        }
+        AccountVelocity velocity = counters.get(permit.accountId);
+        if (velocity != null) {
+            velocity.withdrawn.subtract(permit.acquiredAtMillis, permit.cents);
+            velocity.operations.subtract(permit.acquiredAtMillis, 1);
+        }
+    }
+
+    // Снять резерв, если текущая транзакция не закоммитится.
+    public void releaseOnRollback(Permit permit) {
+        if (permit == UNLIMITED || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    release(permit);
+                }
+            }
+        });
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        if (!properties.enabled()) {
+            return;
+        }
+        long started = System.nanoTime();
+        long[] replayed = new long[1];
+        replay(jdbcTemplate, readOnlyTransaction, replayed);
+        shards.ifAvailable(available -> available.all().forEach(shard -> replay(
+                ledgerReader(shard.dataSource()), readOnly(shard.transactionManager()),
+                replayed)));
+        log.info("Rebuilt velocity counters from {} ledger debits for {} accounts in {} ms",
+                replayed[0], counters.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    // Счётчики счетов без списаний дольше окна пусты и только занимают память.
+    @Scheduled(fixedDelayString = "${accounts.velocity.eviction-interval:PT10M}")
+    public void evictIdle() {
+        if (!properties.enabled()) {
+            return;
+        }
+        long idleBefore = clock.millis() - IDLE_MILLIS;
+        counters.forEach((accountId, velocity) -> {
+            if (velocity.lastUsedMillis < idleBefore) {
+                counters.remove(accountId, velocity);
+            }
+        });
+    }
+
+    private void replay(JdbcTemplate ledger, TransactionTemplate transaction, long[] replayed) {
+        transaction.executeWithoutResult(status -> ledger.query(RECENT_DEBITS_SQL, rs -> {
+            long at = rs.getTimestamp(2).getTime();
+            AccountVelocity velocity = velocity(rs.getLong(1));
+            velocity.withdrawn.add(at, toCents(rs.getBigDecimal(3)));
+            velocity.operations.add(at, 1);
+            velocity.lastUsedMillis = Math.max(velocity.lastUsedMillis, at);
+            replayed[0]++;
+        }));
+    }
+
+    private AccountVelocity velocity(long accountId) {
+        AccountVelocity velocity = counters.get(accountId);
+        if (velocity == null) {
+            AccountVelocity created = new AccountVelocity();
+            velocity = counters.putIfAbsent(accountId, created);
+            if (velocity == null) {
+                velocity = created;
+            }
+        }
+        return velocity;
+    }
+
+    // Курсор с fetch size работает только внутри транзакции.
+    private static JdbcTemplate ledgerReader(DataSource dataSource) {
+        JdbcTemplate ledger = new JdbcTemplate(dataSource);
+        ledger.setFetchSize(10_000);
+        return ledger;
+    }
+
+    private static TransactionTemplate readOnly(PlatformTransactionManager transactionManager) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        return transaction;
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount.movePointRight(2).setScale(0, RoundingMode.UNNECESSARY).longValueExact();
+    }
+}
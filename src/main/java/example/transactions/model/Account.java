@@ -2,11 +2,14 @@
 package example.transactions.model;
 
 import java.math.BigDecimal;
+import org.hibernate.annotations.SecondaryRow;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.PrimaryKeyJoinColumn;
+import jakarta.persistence.SecondaryTable;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -22,6 +25,9 @@ import lombok.ToString;
 @NoArgsConstructor
 @Builder
 @Table(name = "accounts")
+@SecondaryTable(name = "account_balances",
+        pkJoinColumns = @PrimaryKeyJoinColumn(name = "account_id"))
+@SecondaryRow(table = "account_balances", optional = false)
 @ToString
 public class Account {
     @Id
@@ -32,6 +38,10 @@ public class Account {
     @Column(name = "owner")
     private String owner;
 
-    @Column(name = "balance")
+    @Column(name = "balance", table = "account_balances")
     private BigDecimal balance;
+
+    @Builder.Default
+    @Column(name = "currency", length = 3, nullable = false, updatable = false)
+    private String currency = "USD";
 }
@@ -0,0 +1,6 @@
+package example.transactions.model;
+
+import java.math.BigDecimal;
+
+public record AccountBalanceView(Long id, BigDecimal balance) {
+}
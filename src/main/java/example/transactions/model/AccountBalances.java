@@ -0,0 +1,52 @@
+package example.transactions.model;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Результат пакетного чтения балансов: отсортированный long[] id и параллельный массив
+// балансов. Без боксинга ключей и без узлов HashMap; поиск — бинарный.
+// Отсутствующие в БД id в результат не попадают.
+public final class AccountBalances {
+
+    private final long[] ids;
+    private final BigDecimal[] balances;
+
+    public AccountBalances(long[] sortedIds, BigDecimal[] balances) {
+        if (sortedIds.length != balances.length) {
+            throw new IllegalArgumentException("Ids and balances must have the same length");
+        }
+        this.ids = sortedIds;
+        this.balances = balances;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public boolean contains(long id) {
+        return Arrays.binarySearch(ids, id) >= 0;
+    }
+
+    public BigDecimal get(long id) {
+        int index = Arrays.binarySearch(ids, id);
+        return index >= 0 ? balances[index] : null;
+    }
+
+    public long idAt(int index) {
+        return ids[index];
+    }
+
+    public BigDecimal balanceAt(int index) {
+        return balances[index];
+    }
+
+    public Map<Long, BigDecimal> asMap() {
+        Map<Long, BigDecimal> map = LinkedHashMap.newLinkedHashMap(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            map.put(ids[i], balances[i]);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,7 @@
+package example.transactions.model;
+
+import java.util.List;
+
+// nextCursor == null означает, что страница последняя.
+public record AccountPage(List<AccountView> items, String nextCursor) {
+}
@@ -0,0 +1,6 @@
+package example.transactions.model;
+
+import java.math.BigDecimal;
+
+public record AccountView(Long id, String owner, BigDecimal balance) {
+}
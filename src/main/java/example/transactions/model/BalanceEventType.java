@@ -0,0 +1,10 @@
+package example.transactions.model;
+
+public enum BalanceEventType {
+    WITHDRAWAL,
+    DEPOSIT,
+    TRANSFER_OUT,
+    TRANSFER_IN,
+    CAPTURE,
+    TRANSFER_REVERSAL
+}
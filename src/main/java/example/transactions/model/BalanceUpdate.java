@@ -0,0 +1,8 @@
+package example.transactions.model;
+
+import java.math.BigDecimal;
+
+// Изменение баланса для подписчика: balance — баланс после изменения, delta — сумма
+// изменений с прошлого отправленного обновления (0 для начального снимка).
+public record BalanceUpdate(long accountId, BigDecimal balance, BigDecimal delta) {
+}
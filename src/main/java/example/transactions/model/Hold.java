@@ -0,0 +1,7 @@
+package example.transactions.model;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+public record Hold(long id, long accountId, BigDecimal amount, Instant expiresAt) {
+}
@@ -0,0 +1,8 @@
+package example.transactions.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public record InterestRun(LocalDate businessDate, BigDecimal rate, long chunkSize,
+        boolean completed) {
+}
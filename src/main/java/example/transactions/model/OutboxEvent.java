@@ -0,0 +1,10 @@
+package example.transactions.model;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+// amount — изменение баланса со знаком, balance — баланс после изменения.
+// counterpartyId заполнен только для переводов.
+public record OutboxEvent(long id, Instant createdAt, BalanceEventType type, long accountId,
+        Long counterpartyId, BigDecimal amount, BigDecimal balance) {
+}
@@ -0,0 +1,17 @@
+package example.transactions.model;
+
+// PENDING -> DEBITED -> CREDITED -> COMPLETED; при отказе зачисления
+// DEBITED -> COMPENSATING -> COMPENSATED; отказ списания — PENDING -> FAILED.
+public enum SagaState {
+    PENDING,
+    DEBITED,
+    CREDITED,
+    COMPLETED,
+    COMPENSATING,
+    COMPENSATED,
+    FAILED;
+
+    public boolean isTerminal() {
+        return this == COMPLETED || this == COMPENSATED || this == FAILED;
+    }
+}
@@ -0,0 +1,10 @@
+package example.transactions.model;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+// lastStatus — код TransferStatus последнего запуска, null до первого.
+public record ScheduledTransfer(long id, long fromAccountId, long toAccountId,
+        BigDecimal amount, Instant nextRunAt, int runsDone, ScheduledTransferStatus status,
+        Integer lastStatus) {
+}
@@ -0,0 +1,8 @@
+package example.transactions.model;
+
+public enum ScheduledTransferStatus {
+    ACTIVE,
+    COMPLETED,
+    FAILED,
+    CANCELLED
+}
@@ -0,0 +1,14 @@
+package example.transactions.model;
+
+import java.math.BigDecimal;
+
+// Результат списания в переводе: новый баланс источника и валюты обеих сторон.
+// targetCurrency == null — счёта получателя нет.
+public interface TransferDebit {
+
+    BigDecimal getBalance();
+
+    String getSourceCurrency();
+
+    String getTargetCurrency();
+}
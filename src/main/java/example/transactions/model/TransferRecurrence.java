@@ -0,0 +1,18 @@
+package example.transactions.model;
+
+// Шаг повторения в виде литерала interval Postgres.
+public enum TransferRecurrence {
+    DAILY("1 day"),
+    WEEKLY("7 days"),
+    MONTHLY("1 month");
+
+    private final String interval;
+
+    TransferRecurrence(String interval) {
+        this.interval = interval;
+    }
+
+    public String interval() {
+        return interval;
+    }
+}
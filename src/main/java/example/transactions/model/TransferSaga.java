@@ -0,0 +1,9 @@
+package example.transactions.model;
+
+import java.math.BigDecimal;
+
+// creditAmount — сумма зачисления в валюте получателя, фиксируется при старте саги.
+// failureStatus — код TransferStatus причины отказа или компенсации.
+public record TransferSaga(long id, long fromAccountId, long toAccountId, BigDecimal amount,
+        BigDecimal creditAmount, SagaState state, Integer failureStatus) {
+}
@@ -0,0 +1,49 @@
+package example.transactions.outbox;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import example.transactions.model.OutboxEvent;
+import lombok.RequiredArgsConstructor;
+
+// Локальный получатель для отладки и тестов: дописывает события в файл NDJSON и сбрасывает
+// его на диск до коммита пачки. Другой получатель подключается через outbox.sink.
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "outbox.sink", havingValue = "file", matchIfMissing = true)
+public class FileOutboxSink implements OutboxSink {
+
+    private final OutboxProperties properties;
+
+    @Override
+    public synchronized void publish(List<OutboxEvent> events) throws IOException {
+        StringBuilder lines = new StringBuilder(events.size() * 160);
+        for (OutboxEvent event : events) {
+            appendJson(lines, event);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        try (FileChannel channel = FileChannel.open(properties.file(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+    }
+
+    private static void appendJson(StringBuilder json, OutboxEvent event) {
+        json.append("{\"id\":").append(event.id())
+                .append(",\"createdAt\":\"").append(event.createdAt())
+                .append("\",\"type\":\"").append(event.type().name())
+                .append("\",\"accountId\":").append(event.accountId())
+                .append(",\"counterpartyId\":").append(event.counterpartyId())
+                .append(",\"amount\":").append(event.amount().toPlainString())
+                .append(",\"balance\":").append(event.balance().toPlainString())
+                .append("}\n");
+    }
+}
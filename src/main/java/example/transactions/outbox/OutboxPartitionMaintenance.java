@@ -0,0 +1,82 @@
+package example.transactions.outbox;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import example.transactions.repository.OutboxJdbcRepository;
+import example.transactions.sharding.AccountShards;
+import lombok.extern.slf4j.Slf4j;
+
+// Суточные секции outbox: заранее создаёт секции на сегодня и partitionsAhead дней вперёд и
+// удаляет прошедшие, в которых не осталось необработанных событий. Работает независимо от
+// outbox.relay-enabled — события пишутся всегда. При шардировании обслуживает и outbox
+// каждого шарда.
+@Slf4j
+@Component
+public class OutboxPartitionMaintenance {
+
+    private final OutboxProperties properties;
+    // Основная БД первой, затем шарды.
+    private final List<OutboxJdbcRepository> repositories = new ArrayList<>();
+    private final Clock clock = Clock.systemUTC();
+
+    public OutboxPartitionMaintenance(OutboxProperties properties,
+            OutboxJdbcRepository repository, ObjectProvider<AccountShards> shards) {
+        this.properties = properties;
+        repositories.add(repository);
+        shards.ifAvailable(available -> available.all().forEach(shard -> repositories.add(
+                new OutboxJdbcRepository(shard.jdbc().getJdbcTemplate()))));
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${outbox.maintenance-interval:PT1H}")
+    public void maintain() {
+        for (OutboxJdbcRepository repository : repositories) {
+            try {
+                maintain(repository);
+            } catch (DataAccessException e) {
+                log.warn("Outbox maintenance failed, will retry", e);
+            }
+        }
+    }
+
+    private void maintain(OutboxJdbcRepository repository) {
+        LocalDate today = LocalDate.now(clock);
+        for (int i = 0; i <= properties.partitionsAhead(); i++) {
+            try {
+                repository.createPartition(today.plusDays(i));
+            } catch (DataAccessException e) {
+                // например, гонка со вставкой в DEFAULT; повторим на следующем проходе
+                log.warn("Failed to create outbox partition for {}", today.plusDays(i), e);
+            }
+        }
+        Instant dropBefore = clock.instant().minus(properties.dropGrace());
+        for (String partition : repository.findPartitions()) {
+            LocalDate day = parseDay(partition);
+            if (day == null
+                    || day.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant().isAfter(dropBefore)
+                    || repository.hasPendingEvents(day)) {
+                continue;
+            }
+            repository.dropPartition(day);
+            log.info("Dropped processed outbox partition {}", partition);
+        }
+        repository.purgeDefaultPartition();
+    }
+
+    private static LocalDate parseDay(String partition) {
+        try {
+            String suffix = partition.substring(OutboxJdbcRepository.PARTITION_PREFIX.length());
+            return LocalDate.parse(suffix, OutboxJdbcRepository.PARTITION_SUFFIX);
+        } catch (DateTimeParseException | IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+}
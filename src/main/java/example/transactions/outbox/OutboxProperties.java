@@ -0,0 +1,19 @@
+package example.transactions.outbox;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// События пишутся всегда; relayEnabled включает только их доставку.
+// dropGrace — сколько ждать после конца суток, прежде чем удалять секцию: транзакция,
+// начатая до полуночи, ещё может вставить строку со вчерашним created_at.
+@ConfigurationProperties(prefix = "outbox")
+public record OutboxProperties(
+        @DefaultValue("false") boolean relayEnabled,
+        @DefaultValue("500") int batchSize,
+        @DefaultValue("2") int workers,
+        @DefaultValue("2") int partitionsAhead,
+        @DefaultValue("PT1H") Duration dropGrace,
+        @DefaultValue("outbox.ndjson") Path file) {
+}
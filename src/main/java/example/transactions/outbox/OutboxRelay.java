@@ -0,0 +1,138 @@
+package example.transactions.outbox;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import example.transactions.model.OutboxEvent;
+import example.transactions.repository.OutboxJdbcRepository;
+import example.transactions.sharding.AccountShards;
+import lombok.extern.slf4j.Slf4j;
+
+// Доставка событий outbox в OutboxSink. Каждая пачка — отдельная транзакция: забрать
+// необработанные строки с SKIP LOCKED, отдать получателю, пометить обработанными и разослать
+// пачку через NOTIFY (OutboxJdbcRepository.RELAYED_CHANNEL) — её получают все узлы, которые
+// слушают канал, а не только этот. NOTIFY доставляется после коммита, откатившаяся пачка
+// никому не видна. Воркеры (в этом процессе и в соседних) не ждут друг друга, поэтому общий
+// порядок событий между пачками не гарантируется — получатель упорядочивает по id.
+//
+// При шардировании у каждого шарда свой outbox, и релей обходит их после основной БД. id
+// событий уникальны только внутри одной БД, но все события счёта пишутся в БД его шарда,
+// поэтому порядок по id в пределах счёта сохраняется.
+@Slf4j
+@Component
+public class OutboxRelay {
+
+    private final OutboxProperties properties;
+    private final OutboxSink sink;
+    // Основная БД первой, затем шарды.
+    private final List<Outbox> outboxes = new ArrayList<>();
+
+    public OutboxRelay(OutboxProperties properties, OutboxJdbcRepository repository,
+            OutboxSink sink, PlatformTransactionManager transactionManager,
+            ObjectProvider<AccountShards> shards) {
+        this.properties = properties;
+        this.sink = sink;
+        outboxes.add(new Outbox(repository, batchTransaction(transactionManager)));
+        shards.ifAvailable(available -> available.all().forEach(shard -> outboxes.add(
+                new Outbox(new OutboxJdbcRepository(shard.jdbc().getJdbcTemplate()),
+                        batchTransaction(shard.transactionManager())))));
+    }
+
+    private record Outbox(OutboxJdbcRepository repository, TransactionTemplate batchTransaction) {
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.poll-interval:PT1S}")
+    public void poll() {
+        if (!properties.relayEnabled()) {
+            return;
+        }
+        drain(properties.workers());
+    }
+
+    // Воркеры забирают пачки, пока очередь не опустеет. Возвращает число доставленных событий.
+    public long drain(int workers) {
+        long relayed = 0;
+        for (Outbox outbox : outboxes) {
+            relayed += drain(outbox, workers);
+        }
+        return relayed;
+    }
+
+    // Одна пачка из основной БД.
+    public int relayBatch() {
+        return relayBatch(outboxes.getFirst());
+    }
+
+    private long drain(Outbox outbox, int workers) {
+        List<Future<Long>> results = new ArrayList<>(workers);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < workers; i++) {
+                results.add(executor.submit(() -> drainWorker(outbox)));
+            }
+            long relayed = 0;
+            for (Future<Long> result : results) {
+                relayed += result.get();
+            }
+            return relayed;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while relaying outbox", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to relay outbox", e.getCause());
+        }
+    }
+
+    private int relayBatch(Outbox outbox) {
+        List<OutboxEvent> relayed = outbox.batchTransaction().execute(status -> {
+            List<OutboxEvent> events = outbox.repository().claimBatch(properties.batchSize());
+            if (events.isEmpty()) {
+                return events;
+            }
+            try {
+                sink.publish(events);
+            } catch (Exception e) {
+                throw new IllegalStateException("Outbox sink failed", e);
+            }
+            long[] ids = new long[events.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = events.get(i).id();
+            }
+            outbox.repository().markProcessed(ids);
+            outbox.repository().notifyRelayed(events);
+            return events;
+        });
+        return relayed == null ? 0 : relayed.size();
+    }
+
+    private long drainWorker(Outbox outbox) {
+        long relayed = 0;
+        int batch;
+        do {
+            try {
+                batch = relayBatch(outbox);
+            } catch (RuntimeException e) {
+                log.warn("Outbox batch failed, will retry on next poll", e);
+                return relayed;
+            }
+            relayed += batch;
+        } while (batch == properties.batchSize());
+        return relayed;
+    }
+
+    private static TransactionTemplate batchTransaction(
+            PlatformTransactionManager transactionManager) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        transaction.setTimeout(30);
+        return transaction;
+    }
+}
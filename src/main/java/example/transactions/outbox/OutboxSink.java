@@ -0,0 +1,12 @@
+package example.transactions.outbox;
+
+import java.util.List;
+import example.transactions.model.OutboxEvent;
+
+// Получатель событий outbox. Вызывается, пока пачка заблокирована в транзакции релея:
+// исключение откатывает пачку, и её заберёт следующий проход. Доставка «как минимум один
+// раз», получатель дедуплицирует по OutboxEvent.id.
+public interface OutboxSink {
+
+    void publish(List<OutboxEvent> events) throws Exception;
+}
@@ -0,0 +1,14 @@
+package example.transactions.ratelimit;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// burst — ёмкость ведра, не больше TokenBucket.MAX_CAPACITY.
+@ConfigurationProperties(prefix = "accounts.rate-limit")
+public record RateLimitProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("50") long accountPermitsPerSecond,
+        @DefaultValue("100") long accountBurst,
+        @DefaultValue("1000") long callerPermitsPerSecond,
+        @DefaultValue("2000") long callerBurst) {
+}
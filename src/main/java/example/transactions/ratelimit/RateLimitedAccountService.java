@@ -0,0 +1,51 @@
+package example.transactions.ratelimit;
+
+import java.math.BigDecimal;
+import example.transactions.exeption.RateLimitedException;
+import example.transactions.model.Account;
+import example.transactions.service.AccountService;
+
+// Декоратор: лимит проверяется до вызова сервиса, так что отклонённый запрос не занимает
+// соединение из пула и не открывает транзакцию. Перевод учитывается по счёту списания.
+final class RateLimitedAccountService implements AccountService {
+
+    private final AccountService delegate;
+    private final RateLimiter rateLimiter;
+    private final String callerId;
+
+    RateLimitedAccountService(AccountService delegate, RateLimiter rateLimiter,
+            String callerId) {
+        this.delegate = delegate;
+        this.rateLimiter = rateLimiter;
+        this.callerId = callerId;
+    }
+
+    @Override
+    public void withdraw(Account account, BigDecimal amount) {
+        checkLimit(account);
+        delegate.withdraw(account, amount);
+    }
+
+    @Override
+    public void deposit(Account account, BigDecimal amount) {
+        checkLimit(account);
+        delegate.deposit(account, amount);
+    }
+
+    @Override
+    public void transfer(Account fromAccount, Account toAccount, BigDecimal amount) {
+        checkLimit(fromAccount);
+        delegate.transfer(fromAccount, toAccount, amount);
+    }
+
+    // Некорректные аргументы пропускаем дальше — их отклонит сам сервис.
+    private void checkLimit(Account account) {
+        if (account == null || account.getId() == null) {
+            return;
+        }
+        if (!rateLimiter.tryAcquire(callerId, account.getId())) {
+            throw new RateLimitedException("Rate limit exceeded, caller=" + callerId
+                    + ", id=" + account.getId());
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package example.transactions.ratelimit;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import org.jctools.maps.NonBlockingHashMapLong;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import example.transactions.service.AccountService;
+
+// Ограничение частоты запросов по счёту и по вызывающей стороне. Проверка идёт до того, как
+// запрос попадёт в сервис, то есть до взятия соединения из пула: одна интеграция, заливающая
+// запросами, получает отказы, а пул остаётся остальным.
+//
+// Вёдра лежат в неблокирующих картах (по счёту — с примитивным ключом). Фоновая чистка
+// удаляет полные вёдра: полное ведро ничем не отличается от нового, так что удаление ничего
+// не теряет, и чистить можно грубо и редко.
+@Component
+public class RateLimiter {
+
+    private final RateLimitProperties properties;
+    private final NonBlockingHashMapLong<TokenBucket> accountBuckets =
+            new NonBlockingHashMapLong<>();
+    private final ConcurrentHashMap<String, TokenBucket> callerBuckets =
+            new ConcurrentHashMap<>();
+    private final LongSupplier nanoTime;
+    private final long startNanos;
+
+    @Autowired
+    public RateLimiter(RateLimitProperties properties) {
+        this(properties, System::nanoTime);
+    }
+
+    // nanoTime — монотонные часы в наносекундах; в тестах подменяются, чтобы не ждать пополнения.
+    public RateLimiter(RateLimitProperties properties, LongSupplier nanoTime) {
+        if (properties.accountBurst() > TokenBucket.MAX_CAPACITY
+                || properties.callerBurst() > TokenBucket.MAX_CAPACITY) {
+            throw new IllegalArgumentException(
+                    "Rate limit burst must not exceed " + TokenBucket.MAX_CAPACITY);
+        }
+        this.properties = properties;
+        this.nanoTime = nanoTime;
+        this.startNanos = nanoTime.getAsLong();
+    }
+
+    // Сначала ведро вызывающей стороны: оно защищает пул от одной интеграции целиком. Если
+    // отказало ведро счёта, токен вызывающей стороны возвращается — иначе запросы в один
+    // перегруженный счёт выедали бы её лимит на все остальные.
+    public boolean tryAcquire(String callerId, long accountId) {
+        if (!properties.enabled()) {
+            return true;
+        }
+        long now = nowMillis();
+        TokenBucket caller = callerBucket(callerId, now);
+        if (!caller.tryAcquire(now)) {
+            return false;
+        }
+        if (!accountBucket(accountId, now).tryAcquire(now)) {
+            caller.release(now);
+            return false;
+        }
+        return true;
+    }
+
+    // Сервис, который пропускает вызовы callerId через этот лимитер.
+    public AccountService decorate(AccountService delegate, String callerId) {
+        return new RateLimitedAccountService(delegate, this, callerId);
+    }
+
+    @Scheduled(fixedDelayString = "${accounts.rate-limit.eviction-interval:PT1M}")
+    public void evictFull() {
+        long now = nowMillis();
+        accountBuckets.values().removeIf(bucket -> bucket.isFull(now));
+        callerBuckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    private TokenBucket accountBucket(long accountId, long now) {
+        TokenBucket bucket = accountBuckets.get(accountId);
+        if (bucket == null) {
+            TokenBucket created = new TokenBucket(properties.accountPermitsPerSecond(),
+                    properties.accountBurst(), now);
+            bucket = accountBuckets.putIfAbsent(accountId, created);
+            if (bucket == null) {
+                bucket = created;
+            }
+        }
+        return bucket;
+    }
+
+    private TokenBucket callerBucket(String callerId, long now) {
+        TokenBucket bucket = callerBuckets.get(callerId);
+        if (bucket == null) {
+            bucket = callerBuckets.computeIfAbsent(callerId, id -> new TokenBucket(
+                    properties.callerPermitsPerSecond(), properties.callerBurst(), now));
+        }
+        return bucket;
+    }
+
+    private long nowMillis() {
+        return (nanoTime.getAsLong() - startNanos) / 1_000_000;
+    }
+}
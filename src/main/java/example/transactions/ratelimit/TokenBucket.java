@@ -0,0 +1,84 @@
+package example.transactions.ratelimit;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+// Token bucket в одном long: старшие TIME_BITS — момент последнего пополнения (мс от старта
+// лимитера), младшие TOKEN_BITS — запас в тысячных долях токена. Скорость r токенов в секунду —
+// ровно r тысячных за миллисекунду, поэтому пополнение считается без деления. Взятие токена —
+// один CAS; при отказе состояние не меняется.
+final class TokenBucket {
+
+    static final long MILLI_TOKENS_PER_TOKEN = 1_000;
+
+    private static final int TOKEN_BITS = 24;
+    private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+    static final long MAX_CAPACITY = TOKEN_MASK / MILLI_TOKENS_PER_TOKEN;
+
+    private static final VarHandle STATE;
+
+    static {
+        try {
+            STATE = MethodHandles.lookup().findVarHandle(TokenBucket.class, "state", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final long permitsPerSecond;
+    private final long capacityMilliTokens;
+    private volatile long state;
+
+    // Новое ведро полное.
+    TokenBucket(long permitsPerSecond, long capacity, long nowMillis) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.capacityMilliTokens = capacity * MILLI_TOKENS_PER_TOKEN;
+        this.state = pack(nowMillis, capacityMilliTokens);
+    }
+
+    boolean tryAcquire(long nowMillis) {
+        while (true) {
+            long current = state;
+            long tokens = available(current, nowMillis);
+            if (tokens < MILLI_TOKENS_PER_TOKEN) {
+                return false;
+            }
+            long refilledAt = Math.max(nowMillis, current >>> TOKEN_BITS);
+            if (STATE.compareAndSet(this, current, pack(refilledAt,
+                    tokens - MILLI_TOKENS_PER_TOKEN))) {
+                return true;
+            }
+        }
+    }
+
+    // Возврат токена, взятого tryAcquire(), когда запрос отклонён на следующей проверке.
+    void release(long nowMillis) {
+        while (true) {
+            long current = state;
+            long tokens = Math.min(capacityMilliTokens,
+                    available(current, nowMillis) + MILLI_TOKENS_PER_TOKEN);
+            long refilledAt = Math.max(nowMillis, current >>> TOKEN_BITS);
+            if (STATE.compareAndSet(this, current, pack(refilledAt, tokens))) {
+                return;
+            }
+        }
+    }
+
+    // Полное ведро можно выбросить без потери состояния: новое создаётся тоже полным.
+    boolean isFull(long nowMillis) {
+        return available(state, nowMillis) >= capacityMilliTokens;
+    }
+
+    private long available(long current, long nowMillis) {
+        long elapsed = Math.max(0, nowMillis - (current >>> TOKEN_BITS));
+        long tokens = current & TOKEN_MASK;
+        if (elapsed >= capacityMilliTokens / Math.max(1, permitsPerSecond)) {
+            return capacityMilliTokens;
+        }
+        return Math.min(capacityMilliTokens, tokens + elapsed * permitsPerSecond);
+    }
+
+    private static long pack(long millis, long milliTokens) {
+        return (millis << TOKEN_BITS) | milliTokens;
+    }
+}
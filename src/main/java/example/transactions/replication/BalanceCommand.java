@@ -0,0 +1,27 @@
+package example.transactions.replication;
+
+import java.nio.ByteBuffer;
+
+// Запись журнала команд: уже проверенное на primary изменение балансов. Суммы в центах;
+// для OPEN amount — начальный баланс, для TRANSFER targetId — счёт зачисления; epoch — эпоха
+// primary, который выполнил команду.
+record BalanceCommand(long sequence, long epoch, byte type, long accountId, long targetId,
+        long amount) {
+
+    static final byte OPEN = 1;
+    static final byte DEPOSIT = 2;
+    static final byte WITHDRAW = 3;
+    static final byte TRANSFER = 4;
+
+    static final int LENGTH = Long.BYTES * 5 + 1;
+
+    void encode(ByteBuffer buffer) {
+        buffer.putLong(sequence).putLong(epoch).put(type).putLong(accountId).putLong(targetId)
+                .putLong(amount);
+    }
+
+    static BalanceCommand decode(ByteBuffer buffer) {
+        return new BalanceCommand(buffer.getLong(), buffer.getLong(), buffer.get(),
+                buffer.getLong(), buffer.getLong(), buffer.getLong());
+    }
+}
@@ -0,0 +1,145 @@
+package example.transactions.replication;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.jctools.maps.NonBlockingHashMapLong;
+
+// Балансы в памяти. Все изменения идут строго по одному в порядке номеров команд: на primary
+// execute() проверяет команду, присваивает номер и применяет её, на бэкапе replay() применяет
+// команды primary в том же порядке, поэтому состояние реплик совпадает. Чтение баланса
+// без блокировки: отдельный счёт всегда согласован, но между двумя сторонами перевода можно
+// увидеть промежуточное состояние.
+//
+// epoch — эпоха primary, чей журнал применён последним: primary берёт новую при promote,
+// бэкап перенимает эпоху из снимка и применяет только команды своей эпохи.
+final class BalanceEngine {
+
+    static final int APPLIED = 0;
+    static final int INSUFFICIENT_FUNDS = 1;
+    static final int NOT_FOUND = 2;
+    static final int SAME_ACCOUNT = 3;
+    static final int TARGET_NOT_FOUND = 4;
+
+    private final NonBlockingHashMapLong<AtomicLong> balances = new NonBlockingHashMapLong<>();
+    private volatile long lastSequence;
+    private volatile long epoch;
+    private long lastAccountId;
+    private CommandLog log;
+
+    // balance — остаток счёта команды после применения (для отказа — 0)
+    record Outcome(int status, BalanceCommand command, long balance) {
+    }
+
+    record Snapshot(long sequence, long epoch, long lastAccountId, long[] ids,
+            long[] balances) {
+    }
+
+    synchronized Outcome execute(byte type, long accountId, long targetId, long amount) {
+        AtomicLong account = type == BalanceCommand.OPEN ? null : balances.get(accountId);
+        if (type != BalanceCommand.OPEN && account == null) {
+            return new Outcome(NOT_FOUND, null, 0L);
+        }
+        if (type == BalanceCommand.TRANSFER) {
+            if (accountId == targetId) {
+                return new Outcome(SAME_ACCOUNT, null, 0L);
+            }
+            if (!balances.containsKey(targetId)) {
+                return new Outcome(TARGET_NOT_FOUND, null, 0L);
+            }
+        }
+        if ((type == BalanceCommand.WITHDRAW || type == BalanceCommand.TRANSFER)
+                && account.get() < amount) {
+            return new Outcome(INSUFFICIENT_FUNDS, null, 0L);
+        }
+        long id = type == BalanceCommand.OPEN ? lastAccountId + 1 : accountId;
+        BalanceCommand command =
+                new BalanceCommand(lastSequence + 1, epoch, type, id, targetId, amount);
+        apply(command);
+        if (log != null) {
+            log.append(command);
+        }
+        return new Outcome(APPLIED, command, balances.get(id).get());
+    }
+
+    // Команды, которые реплика уже применила, пропускаются: после переподключения primary
+    // может прислать часть батча повторно.
+    synchronized void replay(BalanceCommand command) {
+        if (command.epoch() != epoch) {
+            throw new IllegalStateException("Command " + command.sequence() + " of epoch "
+                    + command.epoch() + " does not match replica epoch " + epoch);
+        }
+        if (command.sequence() <= lastSequence) {
+            return;
+        }
+        if (command.sequence() != lastSequence + 1) {
+            throw new IllegalStateException("Gap in command log: expected "
+                    + (lastSequence + 1) + ", got " + command.sequence());
+        }
+        apply(command);
+    }
+
+    // Вызывается при promote, до приёма записей.
+    synchronized void nextEpoch() {
+        epoch++;
+    }
+
+    // С этого момента каждая новая команда попадает и в журнал для бэкапов.
+    synchronized CommandLog startLog(int capacity, Runnable onAppend) {
+        log = new CommandLog(capacity, lastSequence, onAppend);
+        return log;
+    }
+
+    // Под блокировкой движка карта не меняется, так что размер и содержимое согласованы.
+    synchronized Snapshot snapshot() {
+        long[] ids = new long[balances.size()];
+        long[] amounts = new long[ids.length];
+        int[] next = new int[1];
+        balances.forEach((id, balance) -> {
+            ids[next[0]] = id;
+            amounts[next[0]++] = balance.get();
+        });
+        return new Snapshot(lastSequence, epoch, lastAccountId, ids, amounts);
+    }
+
+    synchronized void restore(Snapshot snapshot) {
+        balances.clear();
+        for (int i = 0; i < snapshot.ids().length; i++) {
+            balances.put(snapshot.ids()[i], new AtomicLong(snapshot.balances()[i]));
+        }
+        lastAccountId = snapshot.lastAccountId();
+        lastSequence = snapshot.sequence();
+        epoch = snapshot.epoch();
+    }
+
+    // -1 — счёта нет
+    long balance(long accountId) {
+        AtomicLong balance = balances.get(accountId);
+        return balance == null ? -1L : balance.get();
+    }
+
+    long lastSequence() {
+        return lastSequence;
+    }
+
+    long epoch() {
+        return epoch;
+    }
+
+    private void apply(BalanceCommand command) {
+        switch (command.type()) {
+            case BalanceCommand.OPEN -> {
+                balances.put(command.accountId(), new AtomicLong(command.amount()));
+                lastAccountId = Math.max(lastAccountId, command.accountId());
+            }
+            case BalanceCommand.DEPOSIT ->
+                balances.get(command.accountId()).addAndGet(command.amount());
+            case BalanceCommand.WITHDRAW ->
+                balances.get(command.accountId()).addAndGet(-command.amount());
+            case BalanceCommand.TRANSFER -> {
+                balances.get(command.accountId()).addAndGet(-command.amount());
+                balances.get(command.targetId()).addAndGet(command.amount());
+            }
+            default -> throw new IllegalStateException("Unknown command type " + command.type());
+        }
+        lastSequence = command.sequence();
+    }
+}
@@ -0,0 +1,54 @@
+package example.transactions.replication;
+
+import java.util.List;
+
+// Кольцо последних команд primary, из которого бэкапам отправляются батчи. Пишет движок под
+// своей блокировкой, читает поток репликации.
+final class CommandLog {
+
+    private final BalanceCommand[] ring;
+    private final Runnable onAppend;
+    private long firstSequence;
+    private long lastSequence;
+
+    CommandLog(int capacity, long startSequence, Runnable onAppend) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Invalid command log capacity");
+        }
+        this.ring = new BalanceCommand[capacity];
+        this.onAppend = onAppend;
+        this.firstSequence = startSequence + 1;
+        this.lastSequence = startSequence;
+    }
+
+    void append(BalanceCommand command) {
+        synchronized (this) {
+            ring[index(command.sequence())] = command;
+            lastSequence = command.sequence();
+            if (lastSequence - firstSequence >= ring.length) {
+                firstSequence = lastSequence - ring.length + 1;
+            }
+        }
+        onAppend.run();
+    }
+
+    synchronized long lastSequence() {
+        return lastSequence;
+    }
+
+    // Дописывает в out до max команд, начиная с from. -1 — from уже вытеснена из кольца.
+    synchronized int read(long from, int max, List<BalanceCommand> out) {
+        if (from < firstSequence) {
+            return -1;
+        }
+        int count = (int) Math.min(max, lastSequence - from + 1);
+        for (int i = 0; i < count; i++) {
+            out.add(ring[index(from + i)]);
+        }
+        return Math.max(count, 0);
+    }
+
+    private int index(long sequence) {
+        return (int) Math.floorMod(sequence, (long) ring.length);
+    }
+}
@@ -0,0 +1,137 @@
+package example.transactions.replication;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletionException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import example.transactions.service.AccountOperations;
+import example.transactions.service.OperationResult;
+
+// Операции над балансами в памяти с репликацией журнала. Запись выполняется только на
+// primary: команда применяется в памяти, затем вызывающий ждёт подтверждений по
+// accounts.replication.durability. Если подтверждения не пришли за ackTimeout, бросается
+// IllegalStateException, но команда на primary уже применена и дойдёт до бэкапов, когда те
+// подключатся, — как WAIT в Redis. Чтение работает на любой реплике, на бэкапе — с отставанием.
+//
+// Движок одновалютный и без лимитов, холдов и outbox: это отдельное хранилище, а не кэш
+// таблиц Postgres.
+//
+// С включённой репликацией шлюз работает через этот бин, поэтому он @Primary среди
+// AccountOperations; вместе с accounts.cluster его не включают.
+@Service
+@Primary
+@ConditionalOnProperty(prefix = "accounts.replication", name = "enabled", havingValue = "true")
+public class ReplicatedAccountService implements AccountOperations {
+
+    private static final String INVALID_ID = "Invalid account ID";
+    private static final String INVALID_AMOUNT =
+            "Amount must be positive and with max 2 decimal places";
+
+    private final ReplicationNode node;
+    private final ReplicationDurability durability;
+
+    public ReplicatedAccountService(ReplicationNode node, ReplicationProperties properties) {
+        this.node = node;
+        this.durability = properties.durability();
+    }
+
+    // Открывает счёт и возвращает его id; id выдаёт primary, бэкапы получают его в журнале.
+    public long open(BigDecimal balance) {
+        if (balance == null || balance.signum() < 0 || balance.scale() > 2) {
+            throw new IllegalArgumentException("Invalid initial balance");
+        }
+        BalanceEngine.Outcome outcome = execute(BalanceCommand.OPEN, 0L, 0L, toCents(balance));
+        return outcome.command().accountId();
+    }
+
+    @Override
+    public OperationResult tryGetBalance(Long id) {
+        if (id == null || id <= 0) {
+            return new OperationResult.Invalid(INVALID_ID);
+        }
+        long balance = node.engine().balance(id);
+        return balance < 0 ? new OperationResult.NotFound(id)
+                : new OperationResult.Ok(BigDecimal.valueOf(balance, 2));
+    }
+
+    @Override
+    public OperationResult tryWithdraw(Long id, BigDecimal amount) {
+        OperationResult invalid = checkArguments(id, amount);
+        if (invalid != null) {
+            return invalid;
+        }
+        return toResult(execute(BalanceCommand.WITHDRAW, id, 0L, toCents(amount)), id, 0L);
+    }
+
+    @Override
+    public OperationResult tryDeposit(Long id, BigDecimal amount) {
+        OperationResult invalid = checkArguments(id, amount);
+        if (invalid != null) {
+            return invalid;
+        }
+        return toResult(execute(BalanceCommand.DEPOSIT, id, 0L, toCents(amount)), id, 0L);
+    }
+
+    @Override
+    public OperationResult tryTransfer(Long fromId, Long toId, BigDecimal amount) {
+        OperationResult invalid = checkArguments(fromId, amount);
+        if (invalid == null) {
+            invalid = checkArguments(toId, amount);
+        }
+        if (invalid != null) {
+            return invalid;
+        }
+        return toResult(execute(BalanceCommand.TRANSFER, fromId, toId, toCents(amount)),
+                fromId, toId);
+    }
+
+    private BalanceEngine.Outcome execute(byte type, long accountId, long targetId,
+            long amount) {
+        ReplicationPrimary primary = node.primary();
+        if (primary == null) {
+            throw new IllegalStateException("Writes are accepted only by the primary");
+        }
+        BalanceEngine.Outcome outcome = node.engine().execute(type, accountId, targetId, amount);
+        if (outcome.status() == BalanceEngine.APPLIED) {
+            long sequence = outcome.command().sequence();
+            try {
+                primary.replicated(sequence, durability).join();
+            } catch (CompletionException e) {
+                throw new IllegalStateException(
+                        "Command " + sequence + " not acknowledged by backups", e.getCause());
+            }
+        }
+        return outcome;
+    }
+
+    private static OperationResult toResult(BalanceEngine.Outcome outcome, long accountId,
+            long targetId) {
+        return switch (outcome.status()) {
+            case BalanceEngine.APPLIED -> new OperationResult.Ok(
+                    outcome.command().type() == BalanceCommand.TRANSFER ? null
+                            : BigDecimal.valueOf(outcome.balance(), 2));
+            case BalanceEngine.INSUFFICIENT_FUNDS ->
+                new OperationResult.InsufficientFunds(accountId);
+            case BalanceEngine.NOT_FOUND -> new OperationResult.NotFound(accountId);
+            case BalanceEngine.TARGET_NOT_FOUND -> new OperationResult.NotFound(targetId);
+            case BalanceEngine.SAME_ACCOUNT ->
+                new OperationResult.Invalid("Cannot transfer to the same account");
+            default -> throw new IllegalStateException("Unknown status " + outcome.status());
+        };
+    }
+
+    private static OperationResult checkArguments(Long id, BigDecimal amount) {
+        if (id == null || id <= 0) {
+            return new OperationResult.Invalid(INVALID_ID);
+        }
+        if (amount == null || amount.signum() <= 0 || amount.scale() > 2) {
+            return new OperationResult.Invalid(INVALID_AMOUNT);
+        }
+        return null;
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount.movePointRight(2).longValueExact();
+    }
+}
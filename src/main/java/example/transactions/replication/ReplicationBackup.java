@@ -0,0 +1,160 @@
+package example.transactions.replication;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import lombok.extern.slf4j.Slf4j;
+
+// Сторона бэкапа: поток подключается к primary, сообщает последний применённый номер и эпоху
+// и дальше непрерывно применяет присланные батчи, подтверждая каждый ACK-ом с номером
+// последней применённой команды. Обрыв, разрыв в номерах или команда чужой эпохи —
+// переподключение через reconnectDelay: primary той же эпохи продолжит с того, что бэкап
+// успел применить, другой эпохи — пришлёт снимок.
+@Slf4j
+final class ReplicationBackup {
+
+    private final BalanceEngine engine;
+    private final ReplicationProperties properties;
+    private final ByteBuffer ack =
+            ByteBuffer.allocateDirect(ReplicationProtocol.CONTROL_FRAME_LENGTH);
+    private Thread thread;
+    private volatile SocketChannel channel;
+    private volatile boolean running;
+    // снимок, который ещё принимается по частям
+    private BalanceEngine.Snapshot pending;
+    private int pendingOffset;
+
+    ReplicationBackup(BalanceEngine engine, ReplicationProperties properties) {
+        this.engine = engine;
+        this.properties = properties;
+    }
+
+    void start() {
+        running = true;
+        thread = Thread.ofPlatform().name("replication-backup").start(this::run);
+    }
+
+    void stop() {
+        running = false;
+        closeChannel();
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        InetSocketAddress primary =
+                new InetSocketAddress(properties.primaryHost(), properties.primaryPort());
+        while (running) {
+            try (SocketChannel connected = SocketChannel.open(primary)) {
+                channel = connected;
+                log.info("Connected to replication primary {} at {} in epoch {}", primary,
+                        engine.lastSequence(), engine.epoch());
+                send(ReplicationProtocol.HELLO);
+                receive(connected);
+            } catch (IOException | RuntimeException e) {
+                if (running) {
+                    log.warn("Replication from {} interrupted, reconnecting", primary, e);
+                }
+            } finally {
+                channel = null;
+                pending = null;
+            }
+            if (running) {
+                try {
+                    Thread.sleep(properties.reconnectDelay());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void receive(SocketChannel connected) throws IOException {
+        ByteBuffer in = ByteBuffer.allocate(
+                ReplicationProtocol.maxFrameLength(properties.batchSize()) * 2);
+        while (connected.read(in) >= 0) {
+            in.flip();
+            while (in.remaining() >= ReplicationProtocol.LENGTH_PREFIX
+                    && in.remaining() >= ReplicationProtocol.LENGTH_PREFIX
+                            + in.getInt(in.position())) {
+                int length = in.getInt();
+                int end = in.position() + length;
+                apply(in.get(), in);
+                in.position(end);
+            }
+            in.compact();
+        }
+    }
+
+    private void apply(byte type, ByteBuffer in) throws IOException {
+        switch (type) {
+            case ReplicationProtocol.BATCH -> {
+                int count = in.getInt();
+                for (int i = 0; i < count; i++) {
+                    engine.replay(BalanceCommand.decode(in));
+                }
+                send(ReplicationProtocol.ACK);
+            }
+            case ReplicationProtocol.SNAPSHOT -> {
+                long sequence = in.getLong();
+                long epoch = in.getLong();
+                long lastAccountId = in.getLong();
+                int accounts = in.getInt();
+                pending = new BalanceEngine.Snapshot(sequence, epoch, lastAccountId,
+                        new long[accounts], new long[accounts]);
+                pendingOffset = 0;
+                completeSnapshot();
+            }
+            case ReplicationProtocol.SNAPSHOT_ACCOUNTS -> {
+                if (pending == null) {
+                    throw new IOException("Snapshot accounts without snapshot header");
+                }
+                int count = in.getInt();
+                for (int i = 0; i < count; i++) {
+                    pending.ids()[pendingOffset] = in.getLong();
+                    pending.balances()[pendingOffset++] = in.getLong();
+                }
+                completeSnapshot();
+            }
+            default -> throw new IOException("Unexpected frame type " + type);
+        }
+    }
+
+    // Снимок подменяет состояние целиком и только когда принят полностью.
+    private void completeSnapshot() throws IOException {
+        if (pendingOffset < pending.ids().length) {
+            return;
+        }
+        engine.restore(pending);
+        log.info("Restored snapshot of {} accounts at {} in epoch {}", pending.ids().length,
+                pending.sequence(), pending.epoch());
+        pending = null;
+        send(ReplicationProtocol.ACK);
+    }
+
+    private void send(byte type) throws IOException {
+        ack.clear().putInt(ReplicationProtocol.CONTROL_FRAME_LENGTH
+                - ReplicationProtocol.LENGTH_PREFIX).put(type).putLong(engine.lastSequence())
+                .putLong(engine.epoch()).flip();
+        while (ack.hasRemaining()) {
+            channel.write(ack);
+        }
+    }
+
+    private void closeChannel() {
+        SocketChannel current = channel;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                log.debug("Failed to close replication connection", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package example.transactions.replication;
+
+// Сколько подтверждений ждёт запись на primary, прежде чем вернуть результат.
+public enum ReplicationDurability {
+    // только память primary: команда уйдёт бэкапам асинхронно
+    NONE,
+    // хотя бы один бэкап применил команду
+    ONE,
+    // все подключённые бэкапы применили команду (без бэкапов — ждём первого)
+    ALL
+}
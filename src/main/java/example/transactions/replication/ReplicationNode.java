@@ -0,0 +1,125 @@
+package example.transactions.replication;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import lombok.extern.slf4j.Slf4j;
+
+// Узел с балансами в памяти: в роли PRIMARY принимает записи и раздаёт журнал команд
+// бэкапам, в роли BACKUP применяет журнал primary. promote() делает бэкап новым primary:
+// репликация останавливается, узел переходит в новую эпоху и начинает принимать бэкапы на
+// своём host:port. demote() возвращает бывший primary в бэкапы primaryHost:primaryPort; его
+// неподтверждённые команды другой эпохи затираются снимком нового primary. Решения о promote
+// и demote принимаются снаружи — узел не следит за живостью primary сам.
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "accounts.replication", name = "enabled", havingValue = "true")
+public class ReplicationNode implements SmartLifecycle {
+
+    private final ReplicationProperties properties;
+    private final BalanceEngine engine = new BalanceEngine();
+    private volatile ReplicationPrimary primary;
+    private ReplicationBackup backup;
+    private volatile boolean running;
+
+    public ReplicationNode(ReplicationProperties properties) {
+        if (properties.batchSize() <= 0 || properties.retainedCommands() <= 0) {
+            throw new IllegalArgumentException("Invalid replication settings");
+        }
+        this.properties = properties;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (properties.role() == ReplicationRole.PRIMARY) {
+            startPrimary();
+        } else {
+            backup = new ReplicationBackup(engine, properties);
+            backup.start();
+        }
+        running = true;
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (backup != null) {
+            backup.stop();
+            backup = null;
+        }
+        if (primary != null) {
+            primary.stop();
+            primary = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    public synchronized void promote() {
+        if (primary != null) {
+            return;
+        }
+        if (backup != null) {
+            backup.stop();
+            backup = null;
+        }
+        engine.nextEpoch();
+        startPrimary();
+        log.info("Promoted to replication primary at {} in epoch {}", engine.lastSequence(),
+                engine.epoch());
+    }
+
+    public synchronized void demote() {
+        if (backup != null) {
+            return;
+        }
+        if (primary != null) {
+            primary.stop();
+            primary = null;
+        }
+        backup = new ReplicationBackup(engine, properties);
+        backup.start();
+        log.info("Demoted to replication backup at {} in epoch {}", engine.lastSequence(),
+                engine.epoch());
+    }
+
+    public boolean isPrimary() {
+        return primary != null;
+    }
+
+    // Порт приёма бэкапов; -1 — узел не primary.
+    public int getLocalPort() {
+        ReplicationPrimary current = primary;
+        return current == null ? -1 : current.localPort();
+    }
+
+    public int connectedBackups() {
+        ReplicationPrimary current = primary;
+        return current == null ? 0 : current.backups();
+    }
+
+    public long lastSequence() {
+        return engine.lastSequence();
+    }
+
+    public long epoch() {
+        return engine.epoch();
+    }
+
+    BalanceEngine engine() {
+        return engine;
+    }
+
+    ReplicationPrimary primary() {
+        return primary;
+    }
+
+    private void startPrimary() {
+        ReplicationPrimary started = new ReplicationPrimary(engine, properties);
+        started.start();
+        primary = started;
+    }
+}
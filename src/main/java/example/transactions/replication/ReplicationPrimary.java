@@ -0,0 +1,342 @@
+package example.transactions.replication;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.extern.slf4j.Slf4j;
+
+// Сторона primary: один поток с селектором принимает бэкапы, читает их HELLO/ACK и раздаёт
+// журнал. Всё, что накопилось в журнале с прошлой отправки, уходит одним батчем (до
+// batchSize команд), так что под нагрузкой на кадр приходится много команд. Запись
+// неблокирующая: медленный бэкап копит отставание у себя в позиции журнала, а не тормозит
+// остальных; отставший дальше кольца или пришедший из другой эпохи получает снимок.
+//
+// Ожидание подтверждений — CompletableFuture на номер команды; их завершает поток селектора
+// по приходу ACK, по таймауту они завершаются исключением.
+@Slf4j
+final class ReplicationPrimary {
+
+    private static final int FRAMES_PER_PASS = 16;
+
+    private final BalanceEngine engine;
+    private final ReplicationProperties properties;
+    private final List<Session> sessions = new CopyOnWriteArrayList<>();
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+    private final List<BalanceCommand> batch = new ArrayList<>();
+    private CommandLog commandLog;
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread selectorThread;
+    private volatile boolean running;
+
+    ReplicationPrimary(BalanceEngine engine, ReplicationProperties properties) {
+        this.engine = engine;
+        this.properties = properties;
+    }
+
+    void start() {
+        try {
+            selector = Selector.open();
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(properties.host(), properties.port()));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot start replication primary", e);
+        }
+        commandLog = engine.startLog(properties.retainedCommands(), this::wakeup);
+        running = true;
+        selectorThread = Thread.ofPlatform().name("replication-primary").start(this::selectLoop);
+        log.info("Replication primary listening on port {}", localPort());
+    }
+
+    void stop() {
+        running = false;
+        try {
+            selector.close();
+            serverChannel.close();
+            selectorThread.join();
+        } catch (IOException e) {
+            log.warn("Failed to close replication primary", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        IllegalStateException stopped = new IllegalStateException("Replication stopped");
+        waiters.forEach(waiter -> waiter.future().completeExceptionally(stopped));
+        waiters.clear();
+    }
+
+    int localPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    int backups() {
+        return (int) sessions.stream().filter(Session::connected).count();
+    }
+
+    // Завершается, когда команду применило нужное durability число бэкапов.
+    CompletableFuture<Void> replicated(long sequence, ReplicationDurability durability) {
+        if (durability == ReplicationDurability.NONE) {
+            return CompletableFuture.completedFuture(null);
+        }
+        Waiter waiter = new Waiter(sequence, durability, new CompletableFuture<>());
+        waiter.future().orTimeout(properties.ackTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((ignored, e) -> waiters.remove(waiter));
+        waiters.add(waiter);
+        // ACK мог прийти раньше, чем ожидание встало в очередь
+        completeWaiters();
+        return waiter.future();
+    }
+
+    private void wakeup() {
+        if (wakeupPending.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+    }
+
+    private void selectLoop() {
+        while (running) {
+            try {
+                selector.select();
+                wakeupPending.set(false);
+                for (SelectionKey key : selector.selectedKeys()) {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Session session = (Session) key.attachment();
+                        if (key.isReadable()) {
+                            read(session);
+                        }
+                    }
+                }
+                selector.selectedKeys().clear();
+                for (Session session : sessions) {
+                    ship(session);
+                }
+            } catch (IOException | RuntimeException e) {
+                if (running) {
+                    log.error("Replication selector failure", e);
+                }
+            }
+        }
+        sessions.forEach(session -> close(session, null));
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        Session session = new Session(channel,
+                ByteBuffer.allocateDirect(
+                        ReplicationProtocol.maxFrameLength(properties.batchSize())));
+        session.key = channel.register(selector, SelectionKey.OP_READ, session);
+        sessions.add(session);
+        log.info("Backup connected from {}", channel.getRemoteAddress());
+    }
+
+    private void read(Session session) {
+        try {
+            if (session.channel.read(session.in) < 0) {
+                close(session, null);
+                return;
+            }
+        } catch (IOException e) {
+            close(session, e);
+            return;
+        }
+        ByteBuffer in = session.in.flip();
+        while (in.remaining() >= ReplicationProtocol.CONTROL_FRAME_LENGTH) {
+            int length = in.getInt();
+            byte type = in.get();
+            long sequence = in.getLong();
+            long epoch = in.getLong();
+            if (length != ReplicationProtocol.CONTROL_FRAME_LENGTH
+                    - ReplicationProtocol.LENGTH_PREFIX) {
+                close(session, new IOException("Malformed frame of length " + length));
+                return;
+            }
+            if (type == ReplicationProtocol.HELLO) {
+                if (epoch != engine.epoch()) {
+                    // номера другой эпохи не сравнимы с нашими: даже отстающий бэкап мог
+                    // применить команды, которых здесь нет. Номер 0 заведомо вне журнала —
+                    // nextFrame отправит снимок, а до его ACK бэкап ничего не подтверждает.
+                    log.info("Backup is in epoch {} at {}, primary is in epoch {}", epoch,
+                            sequence, engine.epoch());
+                    session.nextSequence = 0;
+                    session.acked = -1;
+                    continue;
+                }
+                if (sequence > commandLog.lastSequence()) {
+                    // бэкап видел команды, которых у этого primary нет: журналы разошлись
+                    close(session, new IOException("Backup is ahead of primary at " + sequence));
+                    return;
+                }
+                session.nextSequence = sequence + 1;
+                session.acked = sequence;
+            } else if (type == ReplicationProtocol.ACK) {
+                if (epoch != engine.epoch()) {
+                    close(session, new IOException("Acknowledgement from epoch " + epoch));
+                    return;
+                }
+                session.acked = sequence;
+                completeWaiters();
+            } else {
+                close(session, new IOException("Unexpected frame type " + type));
+                return;
+            }
+        }
+        in.compact();
+    }
+
+    private void ship(Session session) {
+        if (!session.connected() || !session.channel.isOpen()) {
+            return;
+        }
+        try {
+            for (int frames = 0; frames < FRAMES_PER_PASS; frames++) {
+                if (session.out.hasRemaining()) {
+                    session.channel.write(session.out);
+                    if (session.out.hasRemaining()) {
+                        session.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                        return;
+                    }
+                }
+                if (!nextFrame(session)) {
+                    session.key.interestOps(SelectionKey.OP_READ);
+                    return;
+                }
+            }
+            // есть что слать дальше — вернёмся на следующем проходе селектора
+            session.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        } catch (IOException e) {
+            close(session, e);
+        }
+    }
+
+    // Готовит в session.out следующий кадр; false — отправлять нечего.
+    private boolean nextFrame(Session session) {
+        ByteBuffer out = session.out.clear();
+        if (session.snapshot != null) {
+            BalanceEngine.Snapshot snapshot = session.snapshot;
+            int count = Math.min(properties.batchSize(),
+                    snapshot.ids().length - session.snapshotOffset);
+            out.putInt(1 + Integer.BYTES + count * ReplicationProtocol.ACCOUNT_LENGTH)
+                    .put(ReplicationProtocol.SNAPSHOT_ACCOUNTS).putInt(count);
+            for (int i = session.snapshotOffset; i < session.snapshotOffset + count; i++) {
+                out.putLong(snapshot.ids()[i]).putLong(snapshot.balances()[i]);
+            }
+            session.snapshotOffset += count;
+            if (session.snapshotOffset == snapshot.ids().length) {
+                session.snapshot = null;
+            }
+            out.flip();
+            return true;
+        }
+        batch.clear();
+        int count = commandLog.read(session.nextSequence, properties.batchSize(), batch);
+        if (count < 0) {
+            BalanceEngine.Snapshot snapshot = engine.snapshot();
+            out.putInt(ReplicationProtocol.SNAPSHOT_FRAME_LENGTH
+                    - ReplicationProtocol.LENGTH_PREFIX).put(ReplicationProtocol.SNAPSHOT)
+                    .putLong(snapshot.sequence()).putLong(snapshot.epoch())
+                    .putLong(snapshot.lastAccountId())
+                    .putInt(snapshot.ids().length);
+            session.snapshot = snapshot.ids().length == 0 ? null : snapshot;
+            session.snapshotOffset = 0;
+            session.nextSequence = snapshot.sequence() + 1;
+            log.info("Sending snapshot of {} accounts at {} in epoch {}",
+                    snapshot.ids().length, snapshot.sequence(), snapshot.epoch());
+            out.flip();
+            return true;
+        }
+        if (count == 0) {
+            out.flip();
+            return false;
+        }
+        out.putInt(1 + Integer.BYTES + count * BalanceCommand.LENGTH)
+                .put(ReplicationProtocol.BATCH).putInt(count);
+        batch.forEach(command -> command.encode(out));
+        session.nextSequence += count;
+        out.flip();
+        return true;
+    }
+
+    private synchronized void completeWaiters() {
+        int connected = backups();
+        for (Waiter waiter : waiters) {
+            int acked = 0;
+            for (Session session : sessions) {
+                if (session.connected() && session.acked >= waiter.sequence()) {
+                    acked++;
+                }
+            }
+            int required = waiter.durability() == ReplicationDurability.ONE ? 1
+                    : Math.max(1, connected);
+            if (acked >= required) {
+                waiter.future().complete(null);
+            }
+        }
+    }
+
+    private void close(Session session, IOException cause) {
+        if (!sessions.remove(session)) {
+            return;
+        }
+        try {
+            session.channel.close();
+        } catch (IOException e) {
+            log.debug("Failed to close backup connection", e);
+        }
+        if (cause != null) {
+            log.warn("Backup connection closed", cause);
+        } else {
+            log.info("Backup disconnected");
+        }
+        // ALL ждёт только оставшихся
+        completeWaiters();
+    }
+
+    private record Waiter(long sequence, ReplicationDurability durability,
+            CompletableFuture<Void> future) {
+    }
+
+    private static final class Session {
+        final SocketChannel channel;
+        final ByteBuffer in = ByteBuffer.allocate(ReplicationProtocol.CONTROL_FRAME_LENGTH * 64);
+        final ByteBuffer out;
+        SelectionKey key;
+        // -1 — HELLO ещё не пришёл, отправлять нечего
+        volatile long nextSequence = -1;
+        volatile long acked = -1;
+        BalanceEngine.Snapshot snapshot;
+        int snapshotOffset;
+
+        Session(SocketChannel channel, ByteBuffer out) {
+            this.channel = channel;
+            this.out = out.flip();
+        }
+
+        boolean connected() {
+            return nextSequence >= 0;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package example.transactions.replication;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// host/port — где primary принимает бэкапы (и где их будет принимать бэкап после promote),
+// primaryHost/primaryPort — куда подключается бэкап. Два процесса на одной машине: primary
+// с port=9800 и бэкап с role=BACKUP, port=9801, primary-port=9800.
+// retainedCommands — сколько последних команд primary держит для догоняющих бэкапов; кто
+// отстал сильнее, получает снимок балансов.
+@ConfigurationProperties(prefix = "accounts.replication")
+public record ReplicationProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("PRIMARY") ReplicationRole role,
+        @DefaultValue("localhost") String host,
+        @DefaultValue("9800") int port,
+        @DefaultValue("localhost") String primaryHost,
+        @DefaultValue("9800") int primaryPort,
+        @DefaultValue("ONE") ReplicationDurability durability,
+        @DefaultValue("PT1S") Duration ackTimeout,
+        @DefaultValue("1024") int batchSize,
+        @DefaultValue("1000000") int retainedCommands,
+        @DefaultValue("PT1S") Duration reconnectDelay) {
+}
@@ -0,0 +1,32 @@
+package example.transactions.replication;
+
+// Кадры репликации: [int длина тела][byte тип][тело], big-endian.
+// Бэкап → primary: HELLO (последний применённый номер и эпоха), ACK (номер и эпоха после
+// применения батча). Primary → бэкап: BATCH (int число команд, команды подряд), SNAPSHOT
+// (номер, эпоха, последний id счёта, int число счетов) и за ним SNAPSHOT_ACCOUNTS (int число,
+// пары id/баланс) до полного числа счетов; после снимка батчи продолжаются с номера снимка + 1.
+//
+// Эпоха растёт при каждом promote. Номера команд разных эпох не сравнимы: бывший primary мог
+// применить команды, которые не дошли до бэкапов, и под теми же номерами у нового primary
+// лежат другие команды. Поэтому бэкап другой эпохи всегда получает снимок.
+final class ReplicationProtocol {
+
+    static final byte HELLO = 1;
+    static final byte ACK = 2;
+    static final byte BATCH = 3;
+    static final byte SNAPSHOT = 4;
+    static final byte SNAPSHOT_ACCOUNTS = 5;
+
+    static final int LENGTH_PREFIX = Integer.BYTES;
+    static final int CONTROL_FRAME_LENGTH = LENGTH_PREFIX + 1 + Long.BYTES * 2;
+    static final int SNAPSHOT_FRAME_LENGTH = LENGTH_PREFIX + 1 + Long.BYTES * 3 + Integer.BYTES;
+    static final int ACCOUNT_LENGTH = Long.BYTES * 2;
+
+    private ReplicationProtocol() {
+    }
+
+    // Буфер, в который помещается любой кадр primary при данном размере батча.
+    static int maxFrameLength(int batchSize) {
+        return LENGTH_PREFIX + 1 + Integer.BYTES + batchSize * BalanceCommand.LENGTH;
+    }
+}
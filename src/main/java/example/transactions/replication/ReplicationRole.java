@@ -0,0 +1,6 @@
+package example.transactions.replication;
+
+public enum ReplicationRole {
+    PRIMARY,
+    BACKUP
+}
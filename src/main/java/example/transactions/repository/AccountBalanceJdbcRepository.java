@@ -0,0 +1,64 @@
+package example.transactions.repository;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Repository;
+import example.transactions.model.AccountBalances;
+import lombok.RequiredArgsConstructor;
+
+// Пакетное чтение балансов одним запросом. Весь список id уходит одним параметром
+// bigint[] (pgjdbc умеет биндить long[] без боксинга), поэтому текст запроса один и тот же
+// для любого числа id и план переиспользуется.
+@Repository
+@RequiredArgsConstructor
+public class AccountBalanceJdbcRepository {
+
+    private static final String BALANCES_SQL = "SELECT account_id, balance FROM account_balances"
+            + " WHERE account_id = ANY(?) ORDER BY account_id";
+
+    // Перевод целиком внутри функции Postgres: блокировки, проверки, конвертация, списание и
+    // зачисление за один запрос. Курсы приходят из снимка FxRateCache. Результат — код
+    // TransferStatus.
+    private static final String TRANSFER_SQL = "SELECT transfer(?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AccountBalances findBalances(long[] sortedIds) {
+        return jdbcTemplate.query(BALANCES_SQL, ps -> ps.setObject(1, sortedIds),
+                (ResultSetExtractor<AccountBalances>) rs -> read(rs, sortedIds.length));
+    }
+
+    public int transfer(long fromId, long toId, BigDecimal amount, String[] currencies,
+            BigDecimal[] rates) {
+        Integer status = jdbcTemplate.query(TRANSFER_SQL, ps -> {
+            ps.setLong(1, fromId);
+            ps.setLong(2, toId);
+            ps.setBigDecimal(3, amount);
+            ps.setArray(4, ps.getConnection().createArrayOf("text", currencies));
+            ps.setArray(5, ps.getConnection().createArrayOf("numeric", rates));
+        }, rs -> rs.next() ? rs.getInt(1) : null);
+        if (status == null) {
+            throw new IllegalStateException("transfer() returned no status");
+        }
+        return status;
+    }
+
+    private static AccountBalances read(ResultSet rs, int expected) throws SQLException {
+        long[] ids = new long[expected];
+        BigDecimal[] balances = new BigDecimal[expected];
+        int found = 0;
+        while (rs.next()) {
+            ids[found] = rs.getLong(1);
+            balances[found] = rs.getBigDecimal(2);
+            found++;
+        }
+        if (found == expected) {
+            return new AccountBalances(ids, balances);
+        }
+        return new AccountBalances(Arrays.copyOf(ids, found), Arrays.copyOf(balances, found));
+    }
+}
@@ -1,7 +1,133 @@
 package example.transactions.repository;
 
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import example.transactions.model.Account;
+import example.transactions.model.AccountBalanceView;
+import example.transactions.model.AccountView;
+import example.transactions.model.TransferDebit;
+import jakarta.persistence.QueryHint;
 
 public interface AccountRepository extends JpaRepository<Account, Long> {
+
+    // Журнал изменения баланса: событие для outbox и проводка в ledger_entries. Дописывается к
+    // CTE changed с RETURNING account_id, balance — всё одним оператором.
+    String DEBIT_JOURNAL = " event AS (INSERT INTO outbox (event_type, account_id,"
+            + " counterparty_id, amount, balance) SELECT :type, account_id,"
+            + " NULLIF(:counterpartyId, 0), -:amount, balance FROM changed),"
+            + " ledger AS (INSERT INTO ledger_entries (account_id, amount, kind)"
+            + " SELECT account_id, -:amount, :type FROM changed)";
+    String CREDIT_JOURNAL = " event AS (INSERT INTO outbox (event_type, account_id,"
+            + " counterparty_id, amount, balance) SELECT :type, account_id,"
+            + " NULLIF(:counterpartyId, 0), :amount, balance FROM changed),"
+            + " ledger AS (INSERT INTO ledger_entries (account_id, amount, kind)"
+            + " SELECT account_id, :amount, :type FROM changed)";
+    // Зачисление и условное списание с журналом. Общие для JPA, R2DBC и шардов: параметры
+    // :id, :amount, :type, :counterpartyId; результат — новый баланс или пусто.
+    String CREDIT_SQL = "WITH changed AS (UPDATE account_balances SET balance = balance + :amount"
+            + " WHERE account_id = :id RETURNING account_id, balance)," + CREDIT_JOURNAL
+            + " SELECT balance FROM changed";
+    String DEBIT_IF_SUFFICIENT_SQL = "WITH changed AS (UPDATE account_balances"
+            + " SET balance = balance - :amount WHERE account_id = :id"
+            + " AND balance - held >= :amount RETURNING account_id, balance)," + DEBIT_JOURNAL
+            + " SELECT balance FROM changed";
+
+    // Слепые UPDATE без чтения строки. Пустой результат — счёта нет; отрицательный баланс
+    // отсекает CHECK account_balances_balance_non_negative. RETURNING отдаёт новый баланс тем
+    // же round trip.
+    //
+    // Событие для outbox и проводка пишутся тем же оператором (data-modifying CTE), то есть в
+    // той же транзакции и без лишнего round trip. counterpartyId = 0 — контрагента нет.
+    @Transactional
+    @Query(value = "WITH changed AS (UPDATE account_balances SET balance = balance - :amount"
+            + " WHERE account_id = :id RETURNING account_id, balance)," + DEBIT_JOURNAL
+            + " SELECT balance FROM changed", nativeQuery = true)
+    Optional<BigDecimal> debit(@Param("id") Long id, @Param("amount") BigDecimal amount,
+            @Param("type") String type, @Param("counterpartyId") long counterpartyId);
+
+    @Transactional
+    @Query(value = CREDIT_SQL, nativeQuery = true)
+    Optional<BigDecimal> credit(@Param("id") Long id, @Param("amount") BigDecimal amount,
+            @Param("type") String type, @Param("counterpartyId") long counterpartyId);
+
+    // Условное списание для API без исключений: при нехватке средств CHECK не срабатывает,
+    // строка просто не обновляется и результат пуст. Холды уменьшают доступный остаток.
+    @Transactional
+    @Query(value = DEBIT_IF_SUFFICIENT_SQL, nativeQuery = true)
+    Optional<BigDecimal> debitIfSufficient(@Param("id") Long id,
+            @Param("amount") BigDecimal amount, @Param("type") String type,
+            @Param("counterpartyId") long counterpartyId);
+
+    // Списание в переводе: заодно возвращает валюты обеих сторон, чтобы сконвертировать сумму
+    // зачисления без отдельного запроса.
+    @Transactional
+    @Query(value = "WITH changed AS (UPDATE account_balances SET balance = balance - :amount"
+            + " WHERE account_id = :id RETURNING account_id, balance)," + DEBIT_JOURNAL
+            + " SELECT c.balance AS \"balance\", s.currency AS \"sourceCurrency\","
+            + " t.currency AS \"targetCurrency\" FROM changed c"
+            + " JOIN accounts s ON s.id = c.account_id"
+            + " LEFT JOIN accounts t ON t.id = :counterpartyId", nativeQuery = true)
+    Optional<TransferDebit> debitForTransfer(@Param("id") Long id,
+            @Param("amount") BigDecimal amount, @Param("type") String type,
+            @Param("counterpartyId") long counterpartyId);
+
+    // То же для API без исключений: при нехватке доступного остатка результат пуст.
+    @Transactional
+    @Query(value = "WITH changed AS (UPDATE account_balances SET balance = balance - :amount"
+            + " WHERE account_id = :id AND balance - held >= :amount"
+            + " RETURNING account_id, balance)," + DEBIT_JOURNAL
+            + " SELECT c.balance AS \"balance\", s.currency AS \"sourceCurrency\","
+            + " t.currency AS \"targetCurrency\" FROM changed c"
+            + " JOIN accounts s ON s.id = c.account_id"
+            + " LEFT JOIN accounts t ON t.id = :counterpartyId", nativeQuery = true)
+    Optional<TransferDebit> debitForTransferIfSufficient(@Param("id") Long id,
+            @Param("amount") BigDecimal amount, @Param("type") String type,
+            @Param("counterpartyId") long counterpartyId);
+
+    // Чтения без гидратации сущности: ни записи в persistence context, ни снимка для dirty
+    // checking, ни прокси — только нужные колонки.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query("select new example.transactions.model.AccountBalanceView(a.id, a.balance)"
+            + " from Account a where a.id = :id")
+    Optional<AccountBalanceView> findBalanceById(@Param("id") Long id);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query("select new example.transactions.model.AccountView(a.id, a.owner, a.balance)"
+            + " from Account a where a.id = :id")
+    Optional<AccountView> findViewById(@Param("id") Long id);
+
+    // Конструкторная проекция не создаёт managed-сущностей: в persistence context ничего не
+    // попадает и снимков для dirty checking нет. fetchSize вместе с autoCommit=false
+    // (его даёт окружающая транзакция) заставляет pgjdbc читать через серверный курсор
+    // порциями, а не материализовать весь ResultSet в памяти.
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("select new example.transactions.model.AccountView(a.id, a.owner, a.balance)"
+            + " from Account a order by a.id")
+    Stream<AccountView> streamAll();
+
+    // Keyset (seek) пагинация: вместо OFFSET продолжаем с последнего показанного id.
+    // Индекс (owner, id) отдаёт строки уже в нужном порядке, поэтому стоимость страницы
+    // не зависит от её номера.
+    @Query("select new example.transactions.model.AccountView(a.id, a.owner, a.balance)"
+            + " from Account a where a.owner = :owner and a.id > :afterId order by a.id")
+    List<AccountView> findPageByOwner(@Param("owner") String owner,
+            @Param("afterId") long afterId, Limit limit);
+
+    // ILIKE по подстроке обслуживается GIN-индексом pg_trgm; pattern уже содержит % и
+    // экранирование через '!'.
+    @Query("select new example.transactions.model.AccountView(a.id, a.owner, a.balance)"
+            + " from Account a where a.owner ilike :pattern escape '!' and a.id > :afterId"
+            + " order by a.id")
+    List<AccountView> searchPageByOwner(@Param("pattern") String pattern,
+            @Param("afterId") long afterId, Limit limit);
 }
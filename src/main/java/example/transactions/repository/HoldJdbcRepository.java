@@ -0,0 +1,111 @@
+package example.transactions.repository;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import example.transactions.model.Hold;
+import lombok.RequiredArgsConstructor;
+
+// Каждая операция с холдом — один оператор: строка холда и held счёта меняются вместе.
+@Repository
+@RequiredArgsConstructor
+public class HoldJdbcRepository {
+
+    private static final String HOLD_SQL = """
+            WITH changed AS (
+                UPDATE account_balances SET held = held + ?
+                 WHERE account_id = ? AND balance - held >= ?
+                RETURNING account_id
+            )
+            INSERT INTO account_holds (account_id, amount, expires_at)
+            SELECT account_id, ?, now() + ? * interval '1 millisecond' FROM changed
+            RETURNING id, account_id, amount, expires_at
+            """;
+    // Capture списывает всю сумму холда: событие и проводка пишутся тем же оператором,
+    // как и у остальных списаний (см. AccountRepository.DEBIT_JOURNAL).
+    private static final String CAPTURE_SQL = """
+            WITH h AS (
+                DELETE FROM account_holds WHERE id = ? RETURNING id, account_id, amount
+            ), changed AS (
+                UPDATE account_balances b
+                   SET balance = b.balance - h.amount, held = b.held - h.amount
+                  FROM h WHERE b.account_id = h.account_id
+                RETURNING b.account_id, b.balance, h.amount, h.id
+            ), event AS (
+                INSERT INTO outbox (event_type, account_id, amount, balance)
+                SELECT 'CAPTURE', account_id, -amount, balance FROM changed
+            ), ledger AS (
+                INSERT INTO ledger_entries (account_id, amount, kind, reference)
+                SELECT account_id, -amount, 'CAPTURE', 'hold:' || id FROM changed
+            )
+            SELECT balance FROM changed
+            """;
+    private static final String RELEASE_SQL = """
+            WITH h AS (
+                DELETE FROM account_holds WHERE id = ? RETURNING account_id, amount
+            )
+            UPDATE account_balances b SET held = b.held - h.amount
+              FROM h WHERE b.account_id = h.account_id
+            """;
+    // Пачка истёкших холдов: суммы сворачиваются по счёту, строки балансов блокируются в
+    // порядке id, чтобы параллельные пачки не ловили взаимоблокировок. Уже снятые
+    // (capture/release) холды просто не находятся.
+    private static final String RELEASE_ALL_SQL = """
+            WITH h AS (
+                DELETE FROM account_holds WHERE id = ANY(?) RETURNING account_id, amount
+            ), totals AS (
+                SELECT account_id, sum(amount) AS amount FROM h GROUP BY account_id
+            ), locked AS (
+                SELECT b.account_id, t.amount FROM account_balances b
+                  JOIN totals t ON t.account_id = b.account_id
+                 ORDER BY b.account_id FOR UPDATE OF b
+            )
+            UPDATE account_balances b SET held = b.held - l.amount
+              FROM locked l WHERE b.account_id = l.account_id
+            """;
+    private static final String AVAILABLE_SQL =
+            "SELECT balance - held FROM account_balances WHERE account_id = ?";
+    private static final String ACTIVE_SQL = "SELECT id, expires_at FROM account_holds";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Пусто — не хватает доступного остатка или счёта нет.
+    public Optional<Hold> hold(long accountId, BigDecimal amount, Duration ttl) {
+        List<Hold> holds = jdbcTemplate.query(HOLD_SQL, (rs, rowNum) -> new Hold(rs.getLong(1),
+                rs.getLong(2), rs.getBigDecimal(3), rs.getTimestamp(4).toInstant()),
+                amount, accountId, amount, amount, ttl.toMillis());
+        return holds.stream().findFirst();
+    }
+
+    // Пусто — холда уже нет: он списан, снят или истёк.
+    public Optional<BigDecimal> capture(long holdId) {
+        return jdbcTemplate.queryForList(CAPTURE_SQL, BigDecimal.class, holdId).stream()
+                .findFirst();
+    }
+
+    public boolean release(long holdId) {
+        return jdbcTemplate.update(RELEASE_SQL, holdId) > 0;
+    }
+
+    public int releaseAll(long[] holdIds) {
+        return jdbcTemplate.update(RELEASE_ALL_SQL, ps -> ps.setObject(1, holdIds));
+    }
+
+    public Optional<BigDecimal> findAvailableBalance(long accountId) {
+        return jdbcTemplate.queryForList(AVAILABLE_SQL, BigDecimal.class, accountId).stream()
+                .findFirst();
+    }
+
+    public void forEachActive(ActiveHoldHandler handler) {
+        jdbcTemplate.query(ACTIVE_SQL,
+                rs -> handler.accept(rs.getLong(1), rs.getTimestamp(2).getTime()));
+    }
+
+    @FunctionalInterface
+    public interface ActiveHoldHandler {
+        void accept(long holdId, long expiresAtMillis);
+    }
+}
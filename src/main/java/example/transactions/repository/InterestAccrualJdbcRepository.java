@@ -0,0 +1,95 @@
+package example.transactions.repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import example.transactions.model.InterestRun;
+import lombok.RequiredArgsConstructor;
+
+// Начисление процентов множествами: один UPDATE ... FROM на весь диапазон id и одна вставка
+// в ledger_entries из его RETURNING. Строки диапазона блокируются в порядке id, как и в
+// функции transfer(), чтобы не ловить взаимоблокировки с переводами.
+//
+// Комиссия (отрицательная ставка) не списывает больше доступного остатка balance - held:
+// иначе одна строка с холдом нарушила бы account_balances_held_covered, и весь диапазон
+// откатывался бы при каждом повторе.
+@Repository
+@RequiredArgsConstructor
+public class InterestAccrualJdbcRepository {
+
+    private static final String START_RUN_SQL = "INSERT INTO interest_runs"
+            + " (business_date, rate, chunk_size) VALUES (?, ?, ?) ON CONFLICT DO NOTHING";
+    private static final String FIND_RUN_SQL = "SELECT business_date, rate, chunk_size,"
+            + " completed_at IS NOT NULL FROM interest_runs WHERE business_date = ?";
+    private static final String COMPLETE_RUN_SQL =
+            "UPDATE interest_runs SET completed_at = now() WHERE business_date = ?";
+    private static final String ID_BOUNDS_SQL =
+            "SELECT min(account_id), max(account_id) FROM account_balances";
+    private static final String COMPLETED_RANGES_SQL =
+            "SELECT range_start FROM interest_checkpoints WHERE business_date = ?";
+    private static final String CLAIM_RANGE_SQL = "INSERT INTO interest_checkpoints"
+            + " (business_date, range_start, range_end) VALUES (?, ?, ?) ON CONFLICT DO NOTHING";
+    private static final String RECORD_RANGE_SQL = "UPDATE interest_checkpoints SET accounts = ?"
+            + " WHERE business_date = ? AND range_start = ?";
+    private static final String ACCRUE_RANGE_SQL = """
+            WITH deltas AS (
+                SELECT account_id, greatest(round(balance * ?, 2), held - balance) AS amount
+                  FROM account_balances
+                 WHERE account_id BETWEEN ? AND ? ORDER BY account_id FOR UPDATE
+            ), accrued AS (
+                UPDATE account_balances b SET balance = b.balance + d.amount FROM deltas d
+                 WHERE b.account_id = d.account_id AND d.amount <> 0
+                RETURNING b.account_id, d.amount
+            )
+            INSERT INTO ledger_entries (account_id, amount, kind, reference)
+            SELECT account_id, amount, CASE WHEN amount > 0 THEN 'INTEREST' ELSE 'FEE' END, ?
+              FROM accrued
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Повторный старт за ту же дату возвращает параметры первого запуска.
+    public InterestRun startRun(LocalDate businessDate, BigDecimal rate, long chunkSize) {
+        Date date = Date.valueOf(businessDate);
+        jdbcTemplate.update(START_RUN_SQL, date, rate, chunkSize);
+        return jdbcTemplate.queryForObject(FIND_RUN_SQL, (rs, rowNum) -> new InterestRun(
+                rs.getDate(1).toLocalDate(), rs.getBigDecimal(2), rs.getLong(3),
+                rs.getBoolean(4)), date);
+    }
+
+    public void completeRun(LocalDate businessDate) {
+        jdbcTemplate.update(COMPLETE_RUN_SQL, Date.valueOf(businessDate));
+    }
+
+    // {min, max} или null, если счетов нет
+    public long[] findIdBounds() {
+        return jdbcTemplate.queryForObject(ID_BOUNDS_SQL, (rs, rowNum) -> {
+            long min = rs.getLong(1);
+            return rs.wasNull() ? null : new long[] {min, rs.getLong(2)};
+        });
+    }
+
+    public Set<Long> findCompletedRanges(LocalDate businessDate) {
+        return new HashSet<>(jdbcTemplate.queryForList(COMPLETED_RANGES_SQL, Long.class,
+                Date.valueOf(businessDate)));
+    }
+
+    // Вставка чекпойнта первой: конкурирующий запуск на том же диапазоне ждёт на уникальном
+    // ключе и после коммита получает конфликт, то есть диапазон не начисляется дважды.
+    public boolean claimRange(LocalDate businessDate, long rangeStart, long rangeEnd) {
+        return jdbcTemplate.update(CLAIM_RANGE_SQL, Date.valueOf(businessDate), rangeStart,
+                rangeEnd) == 1;
+    }
+
+    public int accrueRange(LocalDate businessDate, long rangeStart, long rangeEnd,
+            BigDecimal rate) {
+        int accrued = jdbcTemplate.update(ACCRUE_RANGE_SQL, rate, rangeStart, rangeEnd,
+                "interest:" + businessDate);
+        jdbcTemplate.update(RECORD_RANGE_SQL, accrued, Date.valueOf(businessDate), rangeStart);
+        return accrued;
+    }
+}
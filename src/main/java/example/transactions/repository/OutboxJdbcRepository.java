@@ -0,0 +1,131 @@
+package example.transactions.repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import example.transactions.model.BalanceEventType;
+import example.transactions.model.OutboxEvent;
+import lombok.RequiredArgsConstructor;
+
+@Repository
+@RequiredArgsConstructor
+public class OutboxJdbcRepository {
+
+    public static final String PARTITION_PREFIX = "outbox_p";
+    public static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.BASIC_ISO_DATE;
+    public static final String RELAYED_CHANNEL = "outbox_relayed";
+
+    // SKIP LOCKED: строки, уже взятые другим релеем, пропускаются, а не ожидаются — каждый
+    // воркер получает свою пачку без блокировок друг на друге.
+    private static final String CLAIM_SQL = "SELECT id, created_at, event_type, account_id,"
+            + " counterparty_id, amount, balance FROM outbox WHERE processed_at IS NULL"
+            + " ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+    private static final String MARK_PROCESSED_SQL =
+            "UPDATE outbox SET processed_at = now() WHERE id = ANY(?) AND processed_at IS NULL";
+    private static final String NOTIFY_SQL = "SELECT pg_notify(?, ?)";
+    // Предел полезной нагрузки NOTIFY — 8000 байт, запас на последнюю запись.
+    private static final int MAX_NOTIFY_PAYLOAD = 7800;
+    private static final String PARTITIONS_SQL = "SELECT c.relname FROM pg_inherits i"
+            + " JOIN pg_class c ON c.oid = i.inhrelid"
+            + " WHERE i.inhparent = 'outbox'::regclass AND c.relname LIKE 'outbox\\_p%'";
+    private static final String PURGE_DEFAULT_SQL =
+            "DELETE FROM outbox_default WHERE processed_at IS NOT NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public List<OutboxEvent> claimBatch(int batchSize) {
+        return jdbcTemplate.query(CLAIM_SQL, OutboxJdbcRepository::readEvent, batchSize);
+    }
+
+    public void markProcessed(long[] ids) {
+        jdbcTemplate.update(MARK_PROCESSED_SQL, ps -> ps.setObject(1, ids));
+    }
+
+    // Доставленная пачка для всех узлов: NOTIFY уходит при коммите транзакции пачки, один на
+    // каждые ~7800 байт, а не на строку. Записи разделены ';', поля записи —
+    // id,account_id,balance,amount.
+    public void notifyRelayed(List<OutboxEvent> events) {
+        StringBuilder payload = new StringBuilder(MAX_NOTIFY_PAYLOAD + 100);
+        for (OutboxEvent event : events) {
+            if (payload.length() > MAX_NOTIFY_PAYLOAD) {
+                jdbcTemplate.queryForList(NOTIFY_SQL, RELAYED_CHANNEL, payload.toString());
+                payload.setLength(0);
+            }
+            if (!payload.isEmpty()) {
+                payload.append(';');
+            }
+            payload.append(event.id()).append(',').append(event.accountId()).append(',')
+                    .append(event.balance().toPlainString()).append(',')
+                    .append(event.amount().toPlainString());
+        }
+        if (!payload.isEmpty()) {
+            jdbcTemplate.queryForList(NOTIFY_SQL, RELAYED_CHANNEL, payload.toString());
+        }
+    }
+
+    public List<String> findPartitions() {
+        return jdbcTemplate.queryForList(PARTITIONS_SQL, String.class);
+    }
+
+    // Имя секции строится только из даты, поэтому подстановка в DDL безопасна.
+    //
+    // Если строки этого дня уже попали в DEFAULT (секцию не успели создать), PARTITION OF
+    // упадёт на проверке DEFAULT. Тогда секция собирается отдельной таблицей, строки дня
+    // переносятся в неё из DEFAULT и она подключается ATTACH PARTITION. Блок DO — один
+    // оператор, так что перенос атомарен. Замки берутся в том же порядке, что у вставки
+    // (outbox, затем DEFAULT), и DEFAULT держится до конца, чтобы туда не добавились новые
+    // строки дня.
+    public void createPartition(LocalDate day) {
+        String name = partitionName(day);
+        Instant from = day.atStartOfDay(ZoneOffset.UTC).toInstant();
+        Instant to = day.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+        String range = "FROM ('" + from + "') TO ('" + to + "')";
+        String inDay = "created_at >= '" + from + "' AND created_at < '" + to + "'";
+        jdbcTemplate.execute("DO $$ BEGIN"
+                + " IF to_regclass('" + name + "') IS NOT NULL THEN RETURN; END IF;"
+                + " IF EXISTS (SELECT 1 FROM outbox_default WHERE " + inDay + ") THEN"
+                + " LOCK TABLE outbox IN SHARE UPDATE EXCLUSIVE MODE;"
+                + " LOCK TABLE outbox_default IN ACCESS EXCLUSIVE MODE;"
+                + " CREATE TABLE " + name + " (LIKE outbox INCLUDING DEFAULTS);"
+                + " WITH moved AS (DELETE FROM outbox_default WHERE " + inDay + " RETURNING *)"
+                + " INSERT INTO " + name + " SELECT * FROM moved;"
+                + " ALTER TABLE outbox ATTACH PARTITION " + name + " FOR VALUES " + range + ";"
+                + " ELSE"
+                + " CREATE TABLE " + name + " PARTITION OF outbox FOR VALUES " + range + ";"
+                + " END IF;"
+                + " END $$");
+    }
+
+    public boolean hasPendingEvents(LocalDate day) {
+        Boolean pending = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM "
+                + partitionName(day) + " WHERE processed_at IS NULL)", Boolean.class);
+        return Boolean.TRUE.equals(pending);
+    }
+
+    public void dropPartition(LocalDate day) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + partitionName(day));
+    }
+
+    public int purgeDefaultPartition() {
+        return jdbcTemplate.update(PURGE_DEFAULT_SQL);
+    }
+
+    public static String partitionName(LocalDate day) {
+        return PARTITION_PREFIX + day.format(PARTITION_SUFFIX);
+    }
+
+    private static OutboxEvent readEvent(ResultSet rs, int rowNum) throws SQLException {
+        Timestamp createdAt = rs.getTimestamp(2);
+        long counterpartyId = rs.getLong(5);
+        return new OutboxEvent(rs.getLong(1), createdAt.toInstant(),
+                BalanceEventType.valueOf(rs.getString(3)), rs.getLong(4),
+                rs.wasNull() ? null : counterpartyId, rs.getBigDecimal(6), rs.getBigDecimal(7));
+    }
+}
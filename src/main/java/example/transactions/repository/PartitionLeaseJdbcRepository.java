@@ -0,0 +1,86 @@
+package example.transactions.repository;
+
+import java.time.Duration;
+import java.util.List;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import lombok.RequiredArgsConstructor;
+
+// Все сроки считаются по часам Postgres: у узлов общий источник времени для лиз.
+@Repository
+@RequiredArgsConstructor
+public class PartitionLeaseJdbcRepository {
+
+    private static final String ENSURE_PARTITIONS_SQL = "INSERT INTO partition_leases"
+            + " (partition_id) SELECT generate_series(0, ? - 1) ON CONFLICT DO NOTHING";
+    private static final String HEARTBEAT_SQL = "INSERT INTO cluster_nodes (node_id, endpoint,"
+            + " expires_at) VALUES (?, ?, now() + ? * interval '1 millisecond')"
+            + " ON CONFLICT (node_id) DO UPDATE SET endpoint = EXCLUDED.endpoint,"
+            + " expires_at = EXCLUDED.expires_at";
+    private static final String LIVE_NODES_SQL =
+            "SELECT count(*) FROM cluster_nodes WHERE expires_at > now()";
+    private static final String LEAVE_SQL = "DELETE FROM cluster_nodes WHERE node_id = ?";
+    private static final String RENEW_SQL = "UPDATE partition_leases"
+            + " SET expires_at = now() + ? * interval '1 millisecond'"
+            + " WHERE owner = ? AND expires_at > now() RETURNING partition_id";
+    // Свободные и просроченные партиции; SKIP LOCKED — узлы, забирающие одновременно,
+    // не ждут друг друга и не делят одну партицию.
+    private static final String CLAIM_SQL = "UPDATE partition_leases SET owner = ?,"
+            + " endpoint = ?, expires_at = now() + ? * interval '1 millisecond'"
+            + " WHERE partition_id IN (SELECT partition_id FROM partition_leases"
+            + " WHERE expires_at IS NULL OR expires_at <= now() ORDER BY partition_id"
+            + " LIMIT ? FOR UPDATE SKIP LOCKED) RETURNING partition_id";
+    private static final String RELEASE_SQL = "UPDATE partition_leases"
+            + " SET owner = NULL, endpoint = NULL, expires_at = NULL"
+            + " WHERE owner = ? AND partition_id = ANY(?)";
+    private static final String ENDPOINTS_SQL = "SELECT partition_id, endpoint"
+            + " FROM partition_leases WHERE expires_at > now()";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void ensurePartitions(int partitions) {
+        jdbcTemplate.update(ENSURE_PARTITIONS_SQL, partitions);
+    }
+
+    public void heartbeat(String nodeId, String endpoint, Duration ttl) {
+        jdbcTemplate.update(HEARTBEAT_SQL, nodeId, endpoint, ttl.toMillis());
+    }
+
+    public int countLiveNodes() {
+        Integer nodes = jdbcTemplate.queryForObject(LIVE_NODES_SQL, Integer.class);
+        return nodes == null ? 0 : nodes;
+    }
+
+    public void leave(String nodeId) {
+        jdbcTemplate.update(LEAVE_SQL, nodeId);
+    }
+
+    // Партиции, которые узел всё ещё держит; упущенные (просроченные) сюда не попадают.
+    public List<Integer> renew(String nodeId, Duration lease) {
+        return jdbcTemplate.queryForList(RENEW_SQL, Integer.class, lease.toMillis(), nodeId);
+    }
+
+    public List<Integer> claim(String nodeId, String endpoint, int limit, Duration lease) {
+        return jdbcTemplate.queryForList(CLAIM_SQL, Integer.class, nodeId, endpoint,
+                lease.toMillis(), limit);
+    }
+
+    public void release(String nodeId, int[] partitions) {
+        jdbcTemplate.update(RELEASE_SQL, ps -> {
+            ps.setString(1, nodeId);
+            ps.setObject(2, partitions);
+        });
+    }
+
+    // Адреса владельцев по номеру партиции; null — владельца нет или он не принимает запросы.
+    public String[] findEndpoints(int partitions) {
+        String[] endpoints = new String[partitions];
+        jdbcTemplate.query(ENDPOINTS_SQL, rs -> {
+            int partition = rs.getInt(1);
+            if (partition < partitions) {
+                endpoints[partition] = rs.getString(2);
+            }
+        });
+        return endpoints;
+    }
+}
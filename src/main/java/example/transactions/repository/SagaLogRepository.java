@@ -0,0 +1,68 @@
+package example.transactions.repository;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import example.transactions.model.SagaState;
+import example.transactions.model.TransferSaga;
+import lombok.RequiredArgsConstructor;
+
+// Журнал саг в основной БД. Переход состояния — compare-and-set по текущему состоянию:
+// если сагу параллельно двигает другой экземпляр, проигравший просто перечитывает её.
+@Repository
+@RequiredArgsConstructor
+public class SagaLogRepository {
+
+    private static final String COLUMNS = "id, from_account_id, to_account_id, amount,"
+            + " credit_amount, state, failure_status";
+    private static final String CREATE_SQL = "INSERT INTO transfer_sagas (from_account_id,"
+            + " to_account_id, amount, credit_amount) VALUES (?, ?, ?, ?) RETURNING " + COLUMNS;
+    private static final String FIND_SQL =
+            "SELECT " + COLUMNS + " FROM transfer_sagas WHERE id = ?";
+    private static final String ADVANCE_SQL = "UPDATE transfer_sagas SET state = ?,"
+            + " failure_status = COALESCE(?, failure_status), updated_at = now()"
+            + " WHERE id = ? AND state = ?";
+    private static final String RECORD_ATTEMPT_SQL = "UPDATE transfer_sagas"
+            + " SET attempts = attempts + 1, updated_at = now() WHERE id = ?";
+    private static final String FIND_STALE_SQL = "SELECT id FROM transfer_sagas"
+            + " WHERE state NOT IN ('COMPLETED', 'COMPENSATED', 'FAILED')"
+            + " AND updated_at <= now() - ? * interval '1 millisecond' ORDER BY updated_at LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TransferSaga create(long fromId, long toId, BigDecimal amount,
+            BigDecimal creditAmount) {
+        return jdbcTemplate.queryForObject(CREATE_SQL, SagaLogRepository::read, fromId, toId,
+                amount, creditAmount);
+    }
+
+    public Optional<TransferSaga> findById(long id) {
+        return jdbcTemplate.query(FIND_SQL, SagaLogRepository::read, id).stream().findFirst();
+    }
+
+    public boolean advance(long id, SagaState from, SagaState to, Integer failureStatus) {
+        return jdbcTemplate.update(ADVANCE_SQL, to.name(), failureStatus, id, from.name()) > 0;
+    }
+
+    public void recordAttempt(long id) {
+        jdbcTemplate.update(RECORD_ATTEMPT_SQL, id);
+    }
+
+    // Незавершённые саги, которых никто не двигал дольше staleAfter.
+    public List<Long> findStale(Duration staleAfter, int limit) {
+        return jdbcTemplate.queryForList(FIND_STALE_SQL, Long.class, staleAfter.toMillis(),
+                limit);
+    }
+
+    private static TransferSaga read(ResultSet rs, int rowNum) throws SQLException {
+        int failureStatus = rs.getInt(7);
+        return new TransferSaga(rs.getLong(1), rs.getLong(2), rs.getLong(3),
+                rs.getBigDecimal(4), rs.getBigDecimal(5), SagaState.valueOf(rs.getString(6)),
+                rs.wasNull() ? null : failureStatus);
+    }
+}
@@ -0,0 +1,103 @@
+package example.transactions.repository;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import example.transactions.model.ScheduledTransfer;
+import example.transactions.model.ScheduledTransferStatus;
+import example.transactions.model.TransferRecurrence;
+import lombok.RequiredArgsConstructor;
+
+@Repository
+@RequiredArgsConstructor
+public class ScheduledTransferJdbcRepository {
+
+    private static final String CREATE_SQL = "INSERT INTO scheduled_transfers (from_account_id,"
+            + " to_account_id, amount, starts_at, repeat_every, max_runs, next_run_at)"
+            + " VALUES (?, ?, ?, ?, CAST(? AS interval), ?, ?) RETURNING id";
+    private static final String CANCEL_SQL = "UPDATE scheduled_transfers SET status = 'CANCELLED'"
+            + " WHERE id = ? AND status = 'ACTIVE'";
+    private static final String FIND_SQL = "SELECT id, from_account_id, to_account_id, amount,"
+            + " next_run_at, runs_done, status, last_status FROM scheduled_transfers WHERE id = ?";
+    // Экземпляр берёт только свою долю строк (mod(id, shards) = shard), воркеры внутри
+    // экземпляра расходятся через SKIP LOCKED.
+    private static final String CLAIM_DUE_SQL = "SELECT id FROM scheduled_transfers"
+            + " WHERE status = 'ACTIVE' AND next_run_at <= now() AND mod(id, ?) = ?"
+            + " ORDER BY next_run_at LIMIT ? FOR UPDATE SKIP LOCKED";
+    private static final String FIND_DUE_SQL = "SELECT id FROM scheduled_transfers"
+            + " WHERE status = 'ACTIVE' AND next_run_at <= now() AND mod(id, ?) = ?"
+            + " ORDER BY next_run_at LIMIT ?";
+    private static final String CLAIM_ONE_SQL = "SELECT id FROM scheduled_transfers"
+            + " WHERE id = ? AND status = 'ACTIVE' AND next_run_at <= now()"
+            + " FOR UPDATE SKIP LOCKED";
+    private static final String EXECUTE_SQL = "SELECT execute_scheduled_transfers(?, ?, ?)";
+    private static final String MARK_FAILED_SQL = "UPDATE scheduled_transfers"
+            + " SET status = 'FAILED', last_run_at = now() WHERE id = ? AND status = 'ACTIVE'";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public long create(long fromId, long toId, BigDecimal amount, Instant startsAt,
+            TransferRecurrence recurrence, Integer maxRuns) {
+        Timestamp start = Timestamp.from(startsAt);
+        Long id = jdbcTemplate.queryForObject(CREATE_SQL, Long.class, fromId, toId, amount,
+                start, recurrence == null ? null : recurrence.interval(), maxRuns, start);
+        if (id == null) {
+            throw new IllegalStateException("Scheduled transfer was not created");
+        }
+        return id;
+    }
+
+    public boolean cancel(long id) {
+        return jdbcTemplate.update(CANCEL_SQL, id) > 0;
+    }
+
+    public Optional<ScheduledTransfer> findById(long id) {
+        return jdbcTemplate.query(FIND_SQL, ScheduledTransferJdbcRepository::read, id).stream()
+                .findFirst();
+    }
+
+    public long[] claimDue(int shards, int shard, int limit) {
+        return ids(jdbcTemplate.queryForList(CLAIM_DUE_SQL, Long.class, shards, shard, limit));
+    }
+
+    // Без блокировок: кандидаты для поштучного исполнения, каждый потом берётся claimOne.
+    public long[] findDue(int shards, int shard, int limit) {
+        return ids(jdbcTemplate.queryForList(FIND_DUE_SQL, Long.class, shards, shard, limit));
+    }
+
+    public boolean claimOne(long id) {
+        return !jdbcTemplate.queryForList(CLAIM_ONE_SQL, Long.class, id).isEmpty();
+    }
+
+    // Пачка должна быть заблокирована в текущей транзакции (claimDue или claimOne).
+    public int execute(long[] ids, String[] currencies, BigDecimal[] rates) {
+        Integer executed = jdbcTemplate.query(EXECUTE_SQL, ps -> {
+            ps.setObject(1, ids);
+            ps.setArray(2, ps.getConnection().createArrayOf("text", currencies));
+            ps.setArray(3, ps.getConnection().createArrayOf("numeric", rates));
+        }, rs -> rs.next() ? rs.getInt(1) : null);
+        return executed == null ? 0 : executed;
+    }
+
+    public boolean markFailed(long id) {
+        return jdbcTemplate.update(MARK_FAILED_SQL, id) > 0;
+    }
+
+    private static long[] ids(List<Long> ids) {
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static ScheduledTransfer read(ResultSet rs, int rowNum) throws SQLException {
+        int lastStatus = rs.getInt(8);
+        return new ScheduledTransfer(rs.getLong(1), rs.getLong(2), rs.getLong(3),
+                rs.getBigDecimal(4), rs.getTimestamp(5).toInstant(), rs.getInt(6),
+                ScheduledTransferStatus.valueOf(rs.getString(7)),
+                rs.wasNull() ? null : lastStatus);
+    }
+}
@@ -0,0 +1,194 @@
+package example.transactions.saga;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import example.transactions.exeption.NotFoundException;
+import example.transactions.fx.FxRateCache;
+import example.transactions.model.BalanceEventType;
+import example.transactions.model.SagaState;
+import example.transactions.model.TransferSaga;
+import example.transactions.repository.SagaLogRepository;
+import example.transactions.service.TransferStatus;
+import example.transactions.sharding.AccountShards;
+import lombok.extern.slf4j.Slf4j;
+
+// Перевод между шардами как сага: списание на шарде источника с отложенной записью,
+// зачисление на шарде получателя, финализация записи. Если зачислить некуда, списание
+// компенсируется возвратом. Каждый шаг — одна локальная транзакция шарда (saga_apply),
+// идемпотентная по (saga_id, step), поэтому блокировки не держатся между БД, как при 2PC,
+// а шаг можно безопасно повторить.
+//
+// Журнал в основной БД фиксирует последний подтверждённый шаг. Порядок всегда: шаг на шарде,
+// затем переход в журнале. Упав между ними, сага при повторе применит шаг ещё раз — шард его
+// узнает и ничего не изменит. Брошенные саги (после падения процесса или недоступности шарда)
+// подбирает recover(); параллельные исполнители одной саги безопасны по той же причине.
+// Отказ в списании шард тоже запоминает, поэтому второй исполнитель не спишет деньги у саги,
+// которую первый уже пометил FAILED.
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "accounts.sharding", name = "enabled", havingValue = "true")
+public class SagaCoordinator implements DisposableBean {
+
+    private static final String CURRENCY_SQL = "SELECT currency FROM accounts WHERE id = ?";
+    private static final String APPLY_SQL = "SELECT saga_apply(?, ?, ?, ?, ?, ?)";
+    private static final String SETTLE_DEBIT_SQL = "UPDATE saga_steps SET status = ?"
+            + " WHERE saga_id = ? AND step = 'DEBIT' AND status = 'PENDING'";
+    private static final int APPLIED = 0;
+    private static final int INSUFFICIENT_FUNDS = 1;
+
+    private final AccountShards shards;
+    private final SagaLogRepository sagaLog;
+    private final FxRateCache fxRateCache;
+    private final SagaProperties properties;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public SagaCoordinator(AccountShards shards, SagaLogRepository sagaLog,
+            FxRateCache fxRateCache, SagaProperties properties) {
+        this.shards = shards;
+        this.sagaLog = sagaLog;
+        this.fxRateCache = fxRateCache;
+        this.properties = properties;
+    }
+
+    // Записывает сагу в журнал и двигает её асинхронно. Future завершается конечным
+    // состоянием или ошибкой шага — во втором случае сагу доведёт recover().
+    public CompletableFuture<TransferSaga> start(long fromId, long toId, BigDecimal amount) {
+        TransferSaga saga = begin(fromId, toId, amount);
+        return CompletableFuture.supplyAsync(() -> drive(saga.id()), executor);
+    }
+
+    // Сумма зачисления фиксируется сразу: повтор шага после смены курса зачислит столько же.
+    public TransferSaga begin(long fromId, long toId, BigDecimal amount) {
+        String sourceCurrency = currency(fromId);
+        String targetCurrency = currency(toId);
+        BigDecimal credit = fxRateCache.current().convert(amount, sourceCurrency,
+                targetCurrency);
+        if (credit == null) {
+            throw new IllegalStateException("Exchange rate unavailable");
+        }
+        TransferSaga saga = sagaLog.create(fromId, toId, amount, credit);
+        log.info("Started transfer saga {}: {} from account {} to account {}", saga.id(),
+                amount, fromId, toId);
+        return saga;
+    }
+
+    public TransferSaga drive(long sagaId) {
+        TransferSaga saga = find(sagaId);
+        while (!saga.state().isTerminal()) {
+            saga = step(saga);
+        }
+        return saga;
+    }
+
+    // Один шаг саги. Возвращает её состояние после шага.
+    public TransferSaga step(long sagaId) {
+        return step(find(sagaId));
+    }
+
+    public TransferSaga find(long sagaId) {
+        return sagaLog.findById(sagaId)
+                .orElseThrow(() -> new NotFoundException("Saga not found, id=" + sagaId));
+    }
+
+    @Scheduled(initialDelayString = "${accounts.saga.recovery-interval:PT10S}",
+            fixedDelayString = "${accounts.saga.recovery-interval:PT10S}")
+    public void recover() {
+        List<Long> stale = sagaLog.findStale(properties.staleAfter(),
+                properties.recoveryBatchSize());
+        for (long sagaId : stale) {
+            try {
+                sagaLog.recordAttempt(sagaId);
+                drive(sagaId);
+            } catch (DataAccessException e) {
+                log.warn("Saga {} is still stuck, will retry", sagaId, e);
+            } catch (RuntimeException e) {
+                // Одна сломанная сага не должна останавливать восстановление остальных.
+                log.error("Saga {} failed to recover, will retry", sagaId, e);
+            }
+        }
+        if (!stale.isEmpty()) {
+            log.info("Recovered {} transfer sagas", stale.size());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.close();
+    }
+
+    private TransferSaga step(TransferSaga saga) {
+        long id = saga.id();
+        switch (saga.state()) {
+            case PENDING -> {
+                int result = apply(saga.fromAccountId(), id, "DEBIT", saga.amount().negate(),
+                        saga.toAccountId(), BalanceEventType.TRANSFER_OUT);
+                if (result == APPLIED) {
+                    sagaLog.advance(id, SagaState.PENDING, SagaState.DEBITED, null);
+                } else {
+                    sagaLog.advance(id, SagaState.PENDING, SagaState.FAILED,
+                            (result == INSUFFICIENT_FUNDS ? TransferStatus.INSUFFICIENT_FUNDS
+                                    : TransferStatus.SOURCE_NOT_FOUND).ordinal());
+                }
+            }
+            case DEBITED -> {
+                int result = apply(saga.toAccountId(), id, "CREDIT", saga.creditAmount(),
+                        saga.fromAccountId(), BalanceEventType.TRANSFER_IN);
+                if (result == APPLIED) {
+                    sagaLog.advance(id, SagaState.DEBITED, SagaState.CREDITED, null);
+                } else {
+                    sagaLog.advance(id, SagaState.DEBITED, SagaState.COMPENSATING,
+                            TransferStatus.TARGET_NOT_FOUND.ordinal());
+                }
+            }
+            case CREDITED -> {
+                settleDebit(saga, "FINAL");
+                sagaLog.advance(id, SagaState.CREDITED, SagaState.COMPLETED, null);
+            }
+            case COMPENSATING -> {
+                if (apply(saga.fromAccountId(), id, "REFUND", saga.amount(), saga.toAccountId(),
+                        BalanceEventType.TRANSFER_REVERSAL) != APPLIED) {
+                    throw new IllegalStateException("Cannot refund saga " + id);
+                }
+                settleDebit(saga, "COMPENSATED");
+                sagaLog.advance(id, SagaState.COMPENSATING, SagaState.COMPENSATED, null);
+            }
+            default -> {
+                return saga;
+            }
+        }
+        return find(id);
+    }
+
+    private int apply(long accountId, long sagaId, String step, BigDecimal amount,
+            long counterpartyId, BalanceEventType kind) {
+        Integer result = shards.shardFor(accountId).jdbc().getJdbcTemplate().queryForObject(
+                APPLY_SQL, Integer.class, sagaId, step, accountId, amount, counterpartyId,
+                kind.name());
+        if (result == null) {
+            throw new IllegalStateException("saga_apply() returned no status");
+        }
+        return result;
+    }
+
+    private void settleDebit(TransferSaga saga, String status) {
+        shards.shardFor(saga.fromAccountId()).jdbc().getJdbcTemplate().update(SETTLE_DEBIT_SQL,
+                status, saga.id());
+    }
+
+    private String currency(long accountId) {
+        List<String> currency = shards.shardFor(accountId).jdbc().getJdbcTemplate()
+                .queryForList(CURRENCY_SQL, String.class, accountId);
+        if (currency.isEmpty()) {
+            throw new NotFoundException("Account not found, id=" + accountId);
+        }
+        return currency.getFirst();
+    }
+}
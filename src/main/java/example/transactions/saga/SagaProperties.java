@@ -0,0 +1,14 @@
+package example.transactions.saga;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// staleAfter — через сколько без движения сага считается брошенной и подбирается
+// восстановлением; completionTimeout — сколько синхронный перевод ждёт завершения саги.
+@ConfigurationProperties(prefix = "accounts.saga")
+public record SagaProperties(
+        @DefaultValue("PT30S") Duration staleAfter,
+        @DefaultValue("PT10S") Duration completionTimeout,
+        @DefaultValue("500") int recoveryBatchSize) {
+}
@@ -0,0 +1,150 @@
+package example.transactions.scheduled;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import example.transactions.fx.FxRateCache;
+import example.transactions.fx.FxRates;
+import example.transactions.repository.ScheduledTransferJdbcRepository;
+import lombok.extern.slf4j.Slf4j;
+
+// Исполнение наступивших отложенных и повторяющихся переводов.
+//
+// Каждая пачка — одна транзакция из двух запросов: забрать до batchSize наступивших строк
+// своей доли с SKIP LOCKED и исполнить их одним вызовом execute_scheduled_transfers().
+// Состояние целиком в таблице и меняется в той же транзакции, что и балансы, поэтому после
+// перезапуска работа продолжается с того же места, а перевод не исполняется дважды.
+//
+// Если пачка падает не из-за блокировок, её строки исполняются поштучно, и строка, на которой
+// падает сама функция, помечается FAILED — одна испорченная строка не держит остальные.
+// Временные ошибки (таймауты, потеря соединения — TransientDataAccessException и
+// RecoverableDataAccessException) строку не портят: она остаётся наступившей до следующего
+// опроса, иначе короткий сбой БД навсегда терял бы разовый перевод.
+@Slf4j
+@Component
+public class ScheduledTransferJob {
+
+    private static final int LOCK_RETRIES = 3;
+
+    private final ScheduledTransferProperties properties;
+    private final ScheduledTransferJdbcRepository repository;
+    private final FxRateCache fxRateCache;
+    private final TransactionTemplate batchTransaction;
+
+    public ScheduledTransferJob(ScheduledTransferProperties properties,
+            ScheduledTransferJdbcRepository repository, FxRateCache fxRateCache,
+            PlatformTransactionManager transactionManager) {
+        if (properties.instances() <= 0 || properties.instanceIndex() < 0
+                || properties.instanceIndex() >= properties.instances()) {
+            throw new IllegalArgumentException("Invalid scheduled transfer instance index");
+        }
+        this.properties = properties;
+        this.repository = repository;
+        this.fxRateCache = fxRateCache;
+        this.batchTransaction = new TransactionTemplate(transactionManager);
+        this.batchTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.batchTransaction.setTimeout(60);
+    }
+
+    @Scheduled(fixedDelayString = "${accounts.scheduled-transfers.poll-interval:PT1S}")
+    public void poll() {
+        if (!properties.enabled()) {
+            return;
+        }
+        drain(properties.workers());
+    }
+
+    // Воркеры исполняют пачки, пока наступившие переводы не кончатся. Возвращает их число.
+    public long drain(int workers) {
+        List<Future<Long>> results = new ArrayList<>(workers);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < workers; i++) {
+                results.add(executor.submit(this::drainWorker));
+            }
+            long executed = 0;
+            for (Future<Long> result : results) {
+                executed += result.get();
+            }
+            return executed;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while executing scheduled transfers", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to execute scheduled transfers",
+                    e.getCause());
+        }
+    }
+
+    public int runBatch() {
+        for (int attempt = 1;; attempt++) {
+            try {
+                Integer executed = batchTransaction.execute(status -> {
+                    long[] ids = repository.claimDue(properties.instances(),
+                            properties.instanceIndex(), properties.batchSize());
+                    return ids.length == 0 ? 0 : execute(ids);
+                });
+                return executed == null ? 0 : executed;
+            } catch (PessimisticLockingFailureException e) {
+                if (attempt == LOCK_RETRIES) {
+                    throw e;
+                }
+                log.warn("Retrying scheduled transfer batch after lock failure");
+            } catch (TransientDataAccessException | RecoverableDataAccessException e) {
+                log.warn("Scheduled transfer batch failed, will retry on next poll", e);
+                return 0;
+            } catch (DataAccessException e) {
+                log.warn("Scheduled transfer batch failed, executing one by one", e);
+                return runOneByOne();
+            }
+        }
+    }
+
+    private long drainWorker() {
+        long executed = 0;
+        int batch;
+        do {
+            batch = runBatch();
+            executed += batch;
+        } while (batch > 0);
+        return executed;
+    }
+
+    private int runOneByOne() {
+        int executed = 0;
+        for (long id : repository.findDue(properties.instances(), properties.instanceIndex(),
+                properties.batchSize())) {
+            try {
+                Integer one = batchTransaction.execute(status ->
+                        repository.claimOne(id) ? execute(new long[] {id}) : 0);
+                executed += one == null ? 0 : one;
+            } catch (PessimisticLockingFailureException e) {
+                log.warn("Scheduled transfer {} is locked, leaving it for the next poll", id);
+            } catch (TransientDataAccessException | RecoverableDataAccessException e) {
+                log.warn("Scheduled transfer {} failed, leaving it for the next poll", id, e);
+            } catch (DataAccessException e) {
+                log.error("Scheduled transfer {} failed, marking it FAILED", id, e);
+                if (repository.markFailed(id)) {
+                    executed++;
+                }
+            }
+        }
+        return executed;
+    }
+
+    private int execute(long[] ids) {
+        FxRates rates = fxRateCache.current();
+        return repository.execute(ids, rates.currencyArray(), rates.rateArray());
+    }
+}
@@ -0,0 +1,15 @@
+package example.transactions.scheduled;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// instances/instanceIndex делят строки между экземплярами по mod(id, instances); у каждого
+// экземпляра свой instanceIndex от 0 до instances - 1.
+@ConfigurationProperties(prefix = "accounts.scheduled-transfers")
+public record ScheduledTransferProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("500") int batchSize,
+        @DefaultValue("4") int workers,
+        @DefaultValue("1") int instances,
+        @DefaultValue("0") int instanceIndex) {
+}
@@ -0,0 +1,104 @@
+package example.transactions.service;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import example.transactions.model.AccountView;
+import example.transactions.repository.AccountRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// Потоковая выгрузка всех счетов. Строки читаются курсором и сразу пишутся в Writer,
+// поэтому расход памяти не зависит от числа счетов. Транзакция нужна самому курсору:
+// Postgres держит его только внутри транзакции (autoCommit=false).
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class AccountExportService {
+
+    private final AccountRepository repository;
+
+    @Transactional(readOnly = true, rollbackFor = Exception.class, timeout = 3600,
+            isolation = Isolation.READ_COMMITTED)
+    public long export(Writer writer, ExportFormat format) throws IOException {
+        if (writer == null || format == null) {
+            throw new IllegalArgumentException("Writer and format cannot be null");
+        }
+        long exported = 0;
+        if (format == ExportFormat.CSV) {
+            writer.write("id,owner,balance\n");
+        }
+        try (Stream<AccountView> accounts = repository.streamAll()) {
+            Iterator<AccountView> iterator = accounts.iterator();
+            while (iterator.hasNext()) {
+                AccountView account = iterator.next();
+                if (format == ExportFormat.CSV) {
+                    writeCsv(writer, account);
+                } else {
+                    writeJson(writer, account);
+                }
+                exported++;
+            }
+        }
+        writer.flush();
+        log.info("Exported {} accounts as {}", exported, format);
+        return exported;
+    }
+
+    private static void writeCsv(Writer writer, AccountView account) throws IOException {
+        writer.write(String.valueOf(account.id()));
+        writer.write(',');
+        if (account.owner() != null) {
+            writer.write(csvField(account.owner()));
+        }
+        writer.write(',');
+        if (account.balance() != null) {
+            writer.write(account.balance().toPlainString());
+        }
+        writer.write('\n');
+    }
+
+    private static void writeJson(Writer writer, AccountView account) throws IOException {
+        writer.write("{\"id\":");
+        writer.write(String.valueOf(account.id()));
+        writer.write(",\"owner\":");
+        writer.write(account.owner() == null ? "null" : jsonString(account.owner()));
+        writer.write(",\"balance\":");
+        writer.write(account.balance() == null ? "null" : account.balance().toPlainString());
+        writer.write("}\n");
+    }
+
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String jsonString(String value) {
+        StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        return json.append('"').toString();
+    }
+}
@@ -0,0 +1,23 @@
+package example.transactions.service;
+
+import java.math.BigDecimal;
+
+// Операции со счётом без исключений для ожидаемых исходов (см. OperationResult). Через этот
+// интерфейс работает шлюз; в кластере его реализуют слои с кэшем и маршрутизацией по
+// владельцу партиции.
+public interface AccountOperations {
+
+    OperationResult tryGetBalance(Long id);
+
+    OperationResult tryWithdraw(Long id, BigDecimal amount);
+
+    OperationResult tryDeposit(Long id, BigDecimal amount);
+
+    OperationResult tryTransfer(Long fromId, Long toId, BigDecimal amount);
+
+    // Сброс кэшированного баланса счёта после записи в обход этого слоя. Без кэша делать
+    // нечего.
+    default OperationResult evictCachedBalance(Long id) {
+        return new OperationResult.Ok(null);
+    }
+}
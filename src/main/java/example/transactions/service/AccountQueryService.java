@@ -0,0 +1,67 @@
+package example.transactions.service;
+
+import java.util.List;
+import java.util.function.LongFunction;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import example.transactions.model.AccountPage;
+import example.transactions.model.AccountView;
+import example.transactions.repository.AccountRepository;
+import lombok.RequiredArgsConstructor;
+
+@Service
+@RequiredArgsConstructor
+public class AccountQueryService {
+
+    static final int MAX_PAGE_SIZE = 500;
+
+    private final AccountRepository repository;
+
+    @Transactional(readOnly = true, rollbackFor = Exception.class, timeout = 30,
+            isolation = Isolation.READ_COMMITTED)
+    public AccountPage listByOwner(String owner, String cursor, int size) {
+        if (owner == null) {
+            throw new IllegalArgumentException("Owner cannot be null");
+        }
+        validateSize(size);
+        return page(size, cursor,
+                afterId -> repository.findPageByOwner(owner, afterId, Limit.of(size + 1)));
+    }
+
+    @Transactional(readOnly = true, rollbackFor = Exception.class, timeout = 30,
+            isolation = Isolation.READ_COMMITTED)
+    public AccountPage searchByOwner(String fragment, String cursor, int size) {
+        if (fragment == null || fragment.isBlank()) {
+            throw new IllegalArgumentException("Search fragment cannot be empty");
+        }
+        validateSize(size);
+        String pattern = "%" + escapeLike(fragment) + "%";
+        return page(size, cursor,
+                afterId -> repository.searchPageByOwner(pattern, afterId, Limit.of(size + 1)));
+    }
+
+    // Запрашиваем на одну строку больше: так без COUNT видно, есть ли следующая страница.
+    private static AccountPage page(int size, String cursor,
+            LongFunction<List<AccountView>> query) {
+        List<AccountView> rows = query.apply(KeysetCursor.decode(cursor));
+        if (rows.size() <= size) {
+            return new AccountPage(rows, null);
+        }
+        List<AccountView> items = rows.subList(0, size);
+        return new AccountPage(List.copyOf(items),
+                KeysetCursor.encode(items.get(size - 1).id()));
+    }
+
+    private static void validateSize(int size) {
+        if (size <= 0 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException(
+                    "Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+}
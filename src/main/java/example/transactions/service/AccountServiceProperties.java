@@ -0,0 +1,17 @@
+package example.transactions.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "accounts")
+public record AccountServiceProperties(
+        @DefaultValue("jpa") TransferMode transferMode,
+        @DefaultValue BalanceLookup balanceLookup) {
+
+    // chunkSize — сколько id уходит в один запрос; parallelism — сколько таких запросов
+    // одновременно держат соединения из пула.
+    public record BalanceLookup(
+            @DefaultValue("1000") int chunkSize,
+            @DefaultValue("4") int parallelism) {
+    }
+}
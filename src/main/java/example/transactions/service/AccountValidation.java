@@ -0,0 +1,32 @@
+package example.transactions.service;
+
+import java.math.BigDecimal;
+
+final class AccountValidation {
+
+    static final String INVALID_ID = "Invalid account ID";
+    static final String INVALID_AMOUNT = "Amount must be positive and with max 2 decimal places";
+
+    private AccountValidation() {
+    }
+
+    static boolean isValidId(Long id) {
+        return id != null && id > 0;
+    }
+
+    static boolean isValidAmount(BigDecimal amount) {
+        return amount != null && amount.compareTo(BigDecimal.ZERO) > 0 && amount.scale() <= 2;
+    }
+
+    static void validateId(Long id) {
+        if (!isValidId(id)) {
+            throw new IllegalArgumentException(INVALID_ID);
+        }
+    }
+
+    static void validateAmount(BigDecimal amount) {
+        if (!isValidAmount(amount)) {
+            throw new IllegalArgumentException(INVALID_AMOUNT);
+        }
+    }
+}
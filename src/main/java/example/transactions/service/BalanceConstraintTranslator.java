@@ -0,0 +1,27 @@
+package example.transactions.service;
+
+import java.sql.SQLException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+// Неотрицательность баланса обеспечивает CHECK (balance >= 0) в самой БД, поэтому списание —
+// это слепой UPDATE без предварительного SELECT. Нарушение CHECK приходит как SQLState 23514;
+// здесь оно превращается в ту же ошибку «Insufficient funds», что и раньше. Так же приходит и
+// нарушение balance >= held — списание сверх доступного при активных холдах.
+final class BalanceConstraintTranslator {
+
+    static final String CHECK_VIOLATION = "23514";
+    static final String INSUFFICIENT_FUNDS = "Insufficient funds";
+
+    private BalanceConstraintTranslator() {
+    }
+
+    static RuntimeException translate(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException
+                    && CHECK_VIOLATION.equals(sqlException.getSQLState())) {
+                return new IllegalArgumentException(INSUFFICIENT_FUNDS, e);
+            }
+        }
+        return e;
+    }
+}
@@ -0,0 +1,6 @@
+package example.transactions.service;
+
+public enum ExportFormat {
+    CSV,
+    NDJSON
+}
@@ -0,0 +1,97 @@
+package example.transactions.service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import example.transactions.exeption.NotFoundException;
+import example.transactions.holds.HoldExpiryWheel;
+import example.transactions.holds.HoldProperties;
+import example.transactions.model.Hold;
+import example.transactions.repository.AccountRepository;
+import example.transactions.repository.HoldJdbcRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// Авторизационные холды: hold резервирует сумму (доступный остаток = balance - held),
+// capture списывает её, release возвращает. Незахваченный холд снимается по сроку через
+// HoldExpiryWheel. Списания AccountService видят только доступный остаток.
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class HoldService {
+
+    private final HoldJdbcRepository holdRepository;
+    private final AccountRepository accountRepository;
+    private final HoldExpiryWheel expiryWheel;
+    private final HoldProperties properties;
+
+    @Transactional(rollbackFor = Exception.class, timeout = 30,
+            isolation = Isolation.READ_COMMITTED)
+    public Hold hold(Long accountId, BigDecimal amount, Duration ttl) {
+        AccountValidation.validateId(accountId);
+        AccountValidation.validateAmount(amount);
+        if (ttl == null || ttl.isNegative() || ttl.isZero()
+                || ttl.compareTo(properties.maxTtl()) > 0) {
+            throw new IllegalArgumentException("Invalid hold ttl");
+        }
+        Hold hold = holdRepository.hold(accountId, amount, ttl)
+                .orElseThrow(() -> rejectHold(accountId));
+        scheduleExpiryAfterCommit(hold);
+        log.info("Held {} on account {}, hold {}", amount, accountId, hold.id());
+        return hold;
+    }
+
+    // Возвращает баланс после списания.
+    @Transactional(rollbackFor = Exception.class, timeout = 30,
+            isolation = Isolation.READ_COMMITTED)
+    public BigDecimal capture(long holdId) {
+        BigDecimal balance = holdRepository.capture(holdId).orElseThrow(() -> notFound(holdId));
+        log.info("Captured hold {}", holdId);
+        return balance;
+    }
+
+    @Transactional(rollbackFor = Exception.class, timeout = 30,
+            isolation = Isolation.READ_COMMITTED)
+    public void release(long holdId) {
+        if (!holdRepository.release(holdId)) {
+            throw notFound(holdId);
+        }
+        log.info("Released hold {}", holdId);
+    }
+
+    @Transactional(readOnly = true, timeout = 30, isolation = Isolation.READ_COMMITTED)
+    public BigDecimal getAvailableBalance(Long accountId) {
+        AccountValidation.validateId(accountId);
+        return holdRepository.findAvailableBalance(accountId).orElseThrow(
+                () -> new NotFoundException("Account not found, id=" + accountId));
+    }
+
+    // До коммита строки холда никто не видит, и снятие по сроку прошло бы мимо.
+    private void scheduleExpiryAfterCommit(Hold hold) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            expiryWheel.schedule(hold.id(), hold.expiresAt());
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                expiryWheel.schedule(hold.id(), hold.expiresAt());
+            }
+        });
+    }
+
+    private RuntimeException rejectHold(Long accountId) {
+        if (accountRepository.existsById(accountId)) {
+            return new IllegalArgumentException(BalanceConstraintTranslator.INSUFFICIENT_FUNDS);
+        }
+        return new NotFoundException("Account not found, id=" + accountId);
+    }
+
+    private static NotFoundException notFound(long holdId) {
+        return new NotFoundException("Hold not found, id=" + holdId);
+    }
+}
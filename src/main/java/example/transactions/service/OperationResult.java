@@ -0,0 +1,25 @@
+package example.transactions.service;
+
+import java.math.BigDecimal;
+
+// Итог операции без исключений: отказ по сумме или отсутствие счёта — обычный бизнес-исход,
+// а не ошибка. Разбирается pattern matching switch-ем, компилятор проверяет полноту.
+public sealed interface OperationResult {
+
+    // balance — остаток после операции; для перевода не возвращается (null)
+    record Ok(BigDecimal balance) implements OperationResult {
+    }
+
+    record InsufficientFunds(long accountId) implements OperationResult {
+    }
+
+    // сработал лимит скорости списаний (VelocityLimiter)
+    record LimitExceeded(long accountId) implements OperationResult {
+    }
+
+    record NotFound(long accountId) implements OperationResult {
+    }
+
+    record Invalid(String reason) implements OperationResult {
+    }
+}
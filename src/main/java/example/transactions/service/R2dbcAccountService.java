@@ -0,0 +1,186 @@
+package example.transactions.service;
+
+import java.math.BigDecimal;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import example.transactions.exeption.LimitExceededException;
+import example.transactions.exeption.NotFoundException;
+import example.transactions.fx.FxRateCache;
+import example.transactions.limits.VelocityLimiter;
+import example.transactions.model.Account;
+import example.transactions.model.BalanceEventType;
+import example.transactions.repository.AccountRepository;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+// Неблокирующий вариант AccountService поверх R2DBC.
+// Вместо чтения строки и последующей записи списание делается одним условным UPDATE:
+// проверка остатка и изменение баланса атомарны на стороне Postgres, поэтому результат
+// совпадает с JPA-версией (READ_COMMITTED + чтение под той же транзакцией), но без лишнего
+// round trip. Если UPDATE ничего не изменил, отдельным запросом выясняем причину.
+@Service
+@Slf4j
+public class R2dbcAccountService implements ReactiveAccountService {
+
+    // Событие outbox и проводка пишутся тем же оператором, см. AccountRepository
+    private static final String DEBIT_SQL = AccountRepository.DEBIT_IF_SUFFICIENT_SQL;
+    private static final String CREDIT_SQL = AccountRepository.CREDIT_SQL;
+    private static final String TRANSFER_DEBIT_SQL = "WITH changed AS (UPDATE account_balances"
+            + " SET balance = balance - :amount WHERE account_id = :id"
+            + " AND balance - held >= :amount RETURNING account_id, balance),"
+            + AccountRepository.DEBIT_JOURNAL
+            + " SELECT s.currency AS source_currency, t.currency AS target_currency"
+            + " FROM changed c JOIN accounts s ON s.id = c.account_id"
+            + " LEFT JOIN accounts t ON t.id = :counterpartyId";
+    private static final String BALANCE_SQL =
+            "SELECT balance FROM account_balances WHERE account_id = :id";
+
+    private final DatabaseClient client;
+    private final TransactionalOperator transactionalOperator;
+    private final FxRateCache fxRateCache;
+    private final VelocityLimiter velocityLimiter;
+
+    public R2dbcAccountService(DatabaseClient client,
+            ReactiveTransactionManager transactionManager, FxRateCache fxRateCache,
+            VelocityLimiter velocityLimiter) {
+        this.client = client;
+        this.fxRateCache = fxRateCache;
+        this.velocityLimiter = velocityLimiter;
+        DefaultTransactionDefinition definition = new DefaultTransactionDefinition();
+        definition.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        definition.setTimeout(30);
+        this.transactionalOperator = TransactionalOperator.create(transactionManager, definition);
+    }
+
+    @Override
+    public Mono<Void> withdraw(Account account, BigDecimal amount) {
+        return Mono.defer(() -> {
+            if (account == null) {
+                return Mono.error(new IllegalArgumentException("Account cannot be null"));
+            }
+            AccountValidation.validateAmount(amount);
+            AccountValidation.validateId(account.getId());
+            return limited(account.getId(), amount,
+                    debit(account.getId(), amount, BalanceEventType.WITHDRAWAL, 0L));
+        }).as(transactionalOperator::transactional)
+                .doOnSuccess(ignored -> log.info("Withdrawn {} from account {}", amount,
+                        account.getId()));
+    }
+
+    @Override
+    public Mono<Void> deposit(Account account, BigDecimal amount) {
+        return Mono.defer(() -> {
+            if (account == null) {
+                return Mono.error(new IllegalArgumentException("Account cannot be null"));
+            }
+            AccountValidation.validateAmount(amount);
+            return credit(account.getId(), amount, BalanceEventType.DEPOSIT, 0L);
+        }).as(transactionalOperator::transactional)
+                .doOnSuccess(ignored -> log.info("Deposited {} to account {}", amount,
+                        account.getId()));
+    }
+
+    @Override
+    public Mono<Void> transfer(Account fromAccount, Account toAccount, BigDecimal amount) {
+        return Mono.defer(() -> {
+            if (fromAccount == null || toAccount == null) {
+                return Mono.error(new IllegalArgumentException("Accounts cannot be null"));
+            }
+            if (fromAccount.getId().equals(toAccount.getId())) {
+                return Mono.error(
+                        new IllegalArgumentException("Cannot transfer to the same account"));
+            }
+            AccountValidation.validateAmount(amount);
+            AccountValidation.validateId(fromAccount.getId());
+            return limited(fromAccount.getId(), amount,
+                    transferWithConversion(fromAccount.getId(), toAccount.getId(), amount));
+        }).as(transactionalOperator::transactional)
+                .doOnSuccess(ignored -> log.info("Transferred {} from account {} to account {}",
+                        amount, fromAccount.getId(), toAccount.getId()));
+    }
+
+    @Override
+    public Mono<BigDecimal> getBalance(Long id) {
+        if (id == null || id <= 0) {
+            return Mono.error(new IllegalArgumentException("Invalid account ID"));
+        }
+        return client.sql(BALANCE_SQL)
+                .bind("id", id)
+                .map(row -> row.get("balance", BigDecimal.class))
+                .one()
+                .switchIfEmpty(Mono.error(() -> notFound(id)));
+    }
+
+    private Mono<Void> debit(Long id, BigDecimal amount, BalanceEventType type,
+            long counterpartyId) {
+        return changeBalance(DEBIT_SQL, id, amount, type, counterpartyId)
+                .switchIfEmpty(Mono.defer(() -> rejectDebit(id)))
+                .then();
+    }
+
+    private Mono<Void> credit(Long id, BigDecimal amount, BalanceEventType type,
+            long counterpartyId) {
+        return changeBalance(CREDIT_SQL, id, amount, type, counterpartyId)
+                .switchIfEmpty(Mono.error(() -> notFound(id)))
+                .then();
+    }
+
+    // Резерв лимита снимается, если списание завершилось ошибкой или подписку отменили.
+    private Mono<Void> limited(Long id, BigDecimal amount, Mono<Void> debit) {
+        VelocityLimiter.Permit permit = velocityLimiter.tryAcquire(id, amount);
+        if (permit == null) {
+            return Mono.error(new LimitExceededException("Velocity limit exceeded, id=" + id));
+        }
+        return debit.doOnError(e -> velocityLimiter.release(permit))
+                .doOnCancel(() -> velocityLimiter.release(permit));
+    }
+
+    // Валюты обеих сторон приходят из списания, курс — из снимка в памяти.
+    private Mono<Void> transferWithConversion(Long fromId, Long toId, BigDecimal amount) {
+        return client.sql(TRANSFER_DEBIT_SQL)
+                .bind("id", fromId)
+                .bind("amount", amount)
+                .bind("type", BalanceEventType.TRANSFER_OUT.name())
+                .bind("counterpartyId", toId)
+                .map(row -> new String[] {row.get("source_currency", String.class),
+                        row.get("target_currency", String.class)})
+                .one()
+                .switchIfEmpty(Mono.defer(() -> rejectDebit(fromId).then(Mono.<String[]>empty())))
+                .flatMap(currencies -> {
+                    if (currencies[1] == null) {
+                        return Mono.error(notFound(toId));
+                    }
+                    BigDecimal credited = fxRateCache.current().convert(amount, currencies[0],
+                            currencies[1]);
+                    if (credited == null) {
+                        return Mono.error(
+                                new IllegalStateException("Exchange rate unavailable"));
+                    }
+                    return credit(toId, credited, BalanceEventType.TRANSFER_IN, fromId);
+                });
+    }
+
+    private Mono<BigDecimal> changeBalance(String sql, Long id, BigDecimal amount,
+            BalanceEventType type, long counterpartyId) {
+        return client.sql(sql)
+                .bind("id", id)
+                .bind("amount", amount)
+                .bind("type", type.name())
+                .bind("counterpartyId", counterpartyId)
+                .map(row -> row.get("balance", BigDecimal.class))
+                .one();
+    }
+
+    private Mono<BigDecimal> rejectDebit(Long id) {
+        return getBalance(id).flatMap(
+                balance -> Mono.error(new IllegalArgumentException("Insufficient funds")));
+    }
+
+    private static NotFoundException notFound(Long id) {
+        return new NotFoundException("Account not found, id=" + id);
+    }
+}
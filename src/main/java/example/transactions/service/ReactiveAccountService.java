@@ -0,0 +1,15 @@
+package example.transactions.service;
+
+import java.math.BigDecimal;
+import example.transactions.model.Account;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveAccountService {
+    Mono<Void> withdraw(Account account, BigDecimal amount);
+
+    Mono<Void> deposit(Account account, BigDecimal amount);
+
+    Mono<Void> transfer(Account fromAccount, Account toAccount, BigDecimal amount);
+
+    Mono<BigDecimal> getBalance(Long id);
+}
@@ -0,0 +1,53 @@
+package example.transactions.service;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Optional;
+import org.springframework.stereotype.Service;
+import example.transactions.exeption.NotFoundException;
+import example.transactions.model.ScheduledTransfer;
+import example.transactions.model.TransferRecurrence;
+import example.transactions.repository.ScheduledTransferJdbcRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// Постановка и отмена отложенных переводов; исполняет их ScheduledTransferJob.
+// recurrence == null — разовый перевод; maxRuns == null — без ограничения числа повторов.
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ScheduledTransferService {
+
+    private final ScheduledTransferJdbcRepository repository;
+
+    public long schedule(Long fromId, Long toId, BigDecimal amount, Instant startsAt,
+            TransferRecurrence recurrence, Integer maxRuns) {
+        AccountValidation.validateId(fromId);
+        AccountValidation.validateId(toId);
+        AccountValidation.validateAmount(amount);
+        if (fromId.equals(toId)) {
+            throw new IllegalArgumentException("Cannot transfer to the same account");
+        }
+        if (startsAt == null) {
+            throw new IllegalArgumentException("Start time cannot be null");
+        }
+        if (maxRuns != null && (maxRuns <= 0 || recurrence == null)) {
+            throw new IllegalArgumentException("Invalid number of runs");
+        }
+        long id = repository.create(fromId, toId, amount, startsAt, recurrence, maxRuns);
+        log.info("Scheduled transfer {} of {} from account {} to account {} at {}", id, amount,
+                fromId, toId, startsAt);
+        return id;
+    }
+
+    public void cancel(long id) {
+        if (!repository.cancel(id)) {
+            throw new NotFoundException("Active scheduled transfer not found, id=" + id);
+        }
+        log.info("Cancelled scheduled transfer {}", id);
+    }
+
+    public Optional<ScheduledTransfer> findById(long id) {
+        return repository.findById(id);
+    }
+}
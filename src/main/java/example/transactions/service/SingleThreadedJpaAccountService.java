@@ -1,12 +1,34 @@
 package example.transactions.service;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import example.transactions.exeption.LimitExceededException;
 import example.transactions.exeption.NotFoundException;
+import example.transactions.filter.AccountIdFilter;
+import example.transactions.fx.FxRateCache;
+import example.transactions.fx.FxRates;
+import example.transactions.limits.VelocityLimiter;
 import example.transactions.model.Account;
+import example.transactions.model.AccountBalanceView;
+import example.transactions.model.AccountBalances;
+import example.transactions.model.BalanceEventType;
+import example.transactions.model.TransferDebit;
+import example.transactions.model.AccountView;
+import example.transactions.repository.AccountBalanceJdbcRepository;
 import example.transactions.repository.AccountRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -14,9 +36,18 @@ import lombok.extern.slf4j.Slf4j;
 @Service
 @Slf4j
 @RequiredArgsConstructor
-public class SingleThreadedJpaAccountService implements AccountService {
+public class SingleThreadedJpaAccountService implements AccountService, AccountOperations {
+
+    private static final String ACCOUNT_NOT_FOUND = "Account not found";
+    private static final String RATE_UNAVAILABLE = "Exchange rate unavailable";
+    private static final String VELOCITY_LIMIT_EXCEEDED = "Velocity limit exceeded";
 
     private final AccountRepository repository;
+    private final AccountBalanceJdbcRepository balanceRepository;
+    private final AccountServiceProperties properties;
+    private final AccountIdFilter idFilter;
+    private final FxRateCache fxRateCache;
+    private final VelocityLimiter velocityLimiter;
 
     @Transactional(rollbackFor = Exception.class, timeout = 30,
             isolation = Isolation.READ_COMMITTED)
@@ -30,32 +61,198 @@ public class SingleThreadedJpaAccountService implements AccountService {
             throw new IllegalArgumentException("Initial balance cannot be negative");
         }
         Account saved = repository.save(account);
+        idFilter.add(saved.getId());
         log.info("Saved account with id {}", saved.getId());
         return saved;
     }
 
+    // readOnly включает в Hibernate default read-only для сессии и FlushMode.MANUAL:
+    // загруженная сущность не получает снимка для dirty checking и не флашится.
+    @Transactional(readOnly = true, timeout = 30, isolation = Isolation.READ_COMMITTED)
     public Optional<Account> findById(Long id) {
-        if (id == null || id <= 0) {
-            throw new IllegalArgumentException("Invalid account ID");
+        AccountValidation.validateId(id);
+        if (!idFilter.mightContain(id)) {
+            return Optional.empty();
         }
         return repository.findById(id);
     }
 
+    @Transactional(readOnly = true, timeout = 30, isolation = Isolation.READ_COMMITTED)
     public Account getById(Long id) {
-        return findById(id).orElseThrow(() -> new NotFoundException("Account not found, id=" + id));
+        rejectUnknown(id);
+        return repository.findById(id).orElseThrow(() -> notFound(id));
+    }
+
+    @Transactional(readOnly = true, timeout = 30, isolation = Isolation.READ_COMMITTED)
+    public Optional<AccountBalanceView> findBalanceById(Long id) {
+        AccountValidation.validateId(id);
+        if (!idFilter.mightContain(id)) {
+            return Optional.empty();
+        }
+        return repository.findBalanceById(id);
+    }
+
+    @Transactional(readOnly = true, timeout = 30, isolation = Isolation.READ_COMMITTED)
+    public AccountBalanceView getBalanceById(Long id) {
+        rejectUnknown(id);
+        return repository.findBalanceById(id).orElseThrow(() -> notFound(id));
     }
 
-    private void validateAmount(BigDecimal amount) {
-        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0 || amount.scale() > 2) {
-            throw new IllegalArgumentException(
-                    "Amount must be positive and with max 2 decimal places");
+    @Transactional(readOnly = true, timeout = 30, isolation = Isolation.READ_COMMITTED)
+    public AccountView getViewById(Long id) {
+        rejectUnknown(id);
+        return repository.findViewById(id).orElseThrow(() -> notFound(id));
+    }
+
+    // Без @Transactional намеренно: порции большого списка читаются параллельно, каждая на
+    // своём соединении из пула. До chunkSize id — ровно один запрос.
+    public AccountBalances getBalances(Collection<Long> ids) {
+        if (ids == null) {
+            throw new IllegalArgumentException("Ids cannot be null");
+        }
+        long[] sortedIds = ids.stream().mapToLong(id -> {
+            AccountValidation.validateId(id);
+            return id;
+        }).sorted().distinct().toArray();
+        if (sortedIds.length == 0) {
+            return new AccountBalances(sortedIds, new BigDecimal[0]);
+        }
+        int chunkSize = properties.balanceLookup().chunkSize();
+        if (sortedIds.length <= chunkSize) {
+            return balanceRepository.findBalances(sortedIds);
+        }
+        return getBalancesInChunks(sortedIds, chunkSize);
+    }
+
+    // Параллельный API без исключений для ожидаемых исходов (нехватка средств, нет счёта,
+    // неверные аргументы): не строится стек, не срабатывает откат по исключению.
+    @Override
+    @Transactional(readOnly = true, timeout = 30, isolation = Isolation.READ_COMMITTED)
+    public OperationResult tryGetBalance(Long id) {
+        if (!AccountValidation.isValidId(id)) {
+            return new OperationResult.Invalid(AccountValidation.INVALID_ID);
+        }
+        if (!idFilter.mightContain(id)) {
+            return new OperationResult.NotFound(id);
+        }
+        return repository.findBalanceById(id)
+                .<OperationResult>map(view -> new OperationResult.Ok(view.balance()))
+                .orElseGet(() -> new OperationResult.NotFound(id));
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class, timeout = 30,
+            isolation = Isolation.READ_COMMITTED)
+    public OperationResult tryWithdraw(Long id, BigDecimal amount) {
+        OperationResult invalid = checkArguments(id, amount);
+        if (invalid != null) {
+            return invalid;
         }
+        VelocityLimiter.Permit permit = velocityLimiter.tryAcquire(id, amount);
+        if (permit == null) {
+            return new OperationResult.LimitExceeded(id);
+        }
+        velocityLimiter.releaseOnRollback(permit);
+        Optional<BigDecimal> balance = repository.debitIfSufficient(id, amount,
+                BalanceEventType.WITHDRAWAL.name(), 0L);
+        if (balance.isPresent()) {
+            log.info("Withdrawn {} from account {}", amount, id);
+            return new OperationResult.Ok(balance.get());
+        }
+        velocityLimiter.release(permit);
+        return repository.existsById(id) ? new OperationResult.InsufficientFunds(id)
+                : new OperationResult.NotFound(id);
     }
 
-    private void validateSufficientFunds(BigDecimal balance, BigDecimal amount) {
-        if (balance == null || balance.compareTo(amount) < 0) {
-            throw new IllegalArgumentException("Insufficient funds");
+    @Override
+    @Transactional(rollbackFor = Exception.class, timeout = 30,
+            isolation = Isolation.READ_COMMITTED)
+    public OperationResult tryDeposit(Long id, BigDecimal amount) {
+        OperationResult invalid = checkArguments(id, amount);
+        if (invalid != null) {
+            return invalid;
+        }
+        Optional<BigDecimal> balance = repository.credit(id, amount,
+                BalanceEventType.DEPOSIT.name(), 0L);
+        if (balance.isEmpty()) {
+            return new OperationResult.NotFound(id);
         }
+        log.info("Deposited {} to account {}", amount, id);
+        return new OperationResult.Ok(balance.get());
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class, timeout = 30,
+            isolation = Isolation.READ_COMMITTED)
+    public OperationResult tryTransfer(Long fromId, Long toId, BigDecimal amount) {
+        OperationResult invalid = checkArguments(fromId, amount);
+        if (invalid == null) {
+            invalid = checkArguments(toId, amount);
+        }
+        if (invalid != null) {
+            return invalid;
+        }
+        VelocityLimiter.Permit permit = velocityLimiter.tryAcquire(fromId, amount);
+        if (permit == null) {
+            return new OperationResult.LimitExceeded(fromId);
+        }
+        velocityLimiter.releaseOnRollback(permit);
+        OperationResult result = properties.transferMode() == TransferMode.FUNCTION
+                ? tryTransferInDatabase(fromId, toId, amount)
+                : tryTransferWithConversion(fromId, toId, amount);
+        if (!(result instanceof OperationResult.Ok)) {
+            velocityLimiter.release(permit);
+            return result;
+        }
+        log.info("Transferred {} from account {} to account {}", amount, fromId, toId);
+        return result;
+    }
+
+    // функция transfer() сообщает исход кодом, поэтому и здесь обходимся без исключений
+    private OperationResult tryTransferInDatabase(Long fromId, Long toId, BigDecimal amount) {
+        return switch (TransferStatus.fromCode(transferCall(fromId, toId, amount))) {
+            case OK -> new OperationResult.Ok(null);
+            case INSUFFICIENT_FUNDS -> new OperationResult.InsufficientFunds(fromId);
+            case SOURCE_NOT_FOUND -> new OperationResult.NotFound(fromId);
+            case TARGET_NOT_FOUND -> new OperationResult.NotFound(toId);
+            case SAME_ACCOUNT ->
+                new OperationResult.Invalid("Cannot transfer to the same account");
+            case RATE_UNAVAILABLE -> new OperationResult.Invalid(RATE_UNAVAILABLE);
+        };
+    }
+
+    // Вариант transferWithConversion без исключений. Если после списания выяснилось, что
+    // зачислить некуда или нет курса, транзакция помечается на откат, а не прерывается
+    // исключением.
+    private OperationResult tryTransferWithConversion(Long fromId, Long toId,
+            BigDecimal amount) {
+        if (fromId.equals(toId)) {
+            return new OperationResult.Invalid("Cannot transfer to the same account");
+        }
+        Optional<TransferDebit> debit = repository.debitForTransferIfSufficient(fromId, amount,
+                BalanceEventType.TRANSFER_OUT.name(), toId);
+        if (debit.isEmpty()) {
+            return repository.existsById(fromId) ? new OperationResult.InsufficientFunds(fromId)
+                    : new OperationResult.NotFound(fromId);
+        }
+        if (debit.get().getTargetCurrency() == null) {
+            return rollback(new OperationResult.NotFound(toId));
+        }
+        BigDecimal credited = fxRateCache.current().convert(amount,
+                debit.get().getSourceCurrency(), debit.get().getTargetCurrency());
+        if (credited == null) {
+            return rollback(new OperationResult.Invalid(RATE_UNAVAILABLE));
+        }
+        if (repository.credit(toId, credited, BalanceEventType.TRANSFER_IN.name(), fromId)
+                .isEmpty()) {
+            return rollback(new OperationResult.NotFound(toId));
+        }
+        return new OperationResult.Ok(null);
+    }
+
+    private static OperationResult rollback(OperationResult result) {
+        TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+        return result;
     }
 
     @Override
@@ -65,12 +262,11 @@ public class SingleThreadedJpaAccountService implements AccountService {
         if (account == null) {
             throw new IllegalArgumentException("Account cannot be null");
         }
-        validateAmount(amount);
-        Account freshAcc = getById(account.getId());
-        validateSufficientFunds(freshAcc.getBalance(), amount);
-        freshAcc.setBalance(freshAcc.getBalance().subtract(amount));
-        repository.save(freshAcc);
-        log.info("Withdrawn {} from account {}", amount, freshAcc.getId());
+        AccountValidation.validateAmount(amount);
+        AccountValidation.validateId(account.getId());
+        acquireLimit(account.getId(), amount);
+        debit(account.getId(), amount, BalanceEventType.WITHDRAWAL, 0L);
+        log.info("Withdrawn {} from account {}", amount, account.getId());
     }
 
     @Override
@@ -80,11 +276,9 @@ public class SingleThreadedJpaAccountService implements AccountService {
         if (account == null) {
             throw new IllegalArgumentException("Account cannot be null");
         }
-        validateAmount(amount);
-        Account freshAcc = getById(account.getId());
-        freshAcc.setBalance(freshAcc.getBalance().add(amount));
-        repository.save(freshAcc);
-        log.info("Deposited {} to account {}", amount, freshAcc.getId());
+        AccountValidation.validateAmount(amount);
+        credit(account.getId(), amount, BalanceEventType.DEPOSIT, 0L);
+        log.info("Deposited {} to account {}", amount, account.getId());
     }
 
     @Override
@@ -97,11 +291,164 @@ public class SingleThreadedJpaAccountService implements AccountService {
         if (fromAccount.getId().equals(toAccount.getId())) {
             throw new IllegalArgumentException("Cannot transfer to the same account");
         }
-        withdraw(fromAccount, amount);
-        deposit(toAccount, amount);
+        AccountValidation.validateAmount(amount);
+        AccountValidation.validateId(fromAccount.getId());
+        acquireLimit(fromAccount.getId(), amount);
+        if (properties.transferMode() == TransferMode.FUNCTION) {
+            transferInDatabase(fromAccount.getId(), toAccount.getId(), amount);
+        } else {
+            transferWithConversion(fromAccount.getId(), toAccount.getId(), amount);
+        }
         log.info("Transferred {} from account {} to account {}", amount, fromAccount.getId(),
                 toAccount.getId());
     }
+
+    private void transferInDatabase(Long fromId, Long toId, BigDecimal amount) {
+        AccountValidation.validateAmount(amount);
+        AccountValidation.validateId(fromId);
+        AccountValidation.validateId(toId);
+        switch (TransferStatus.fromCode(transferCall(fromId, toId, amount))) {
+            case OK -> {
+            }
+            case INSUFFICIENT_FUNDS ->
+                throw new IllegalArgumentException(BalanceConstraintTranslator.INSUFFICIENT_FUNDS);
+            case SOURCE_NOT_FOUND -> throw notFound(fromId);
+            case TARGET_NOT_FOUND -> throw notFound(toId);
+            case SAME_ACCOUNT ->
+                throw new IllegalArgumentException("Cannot transfer to the same account");
+            case RATE_UNAVAILABLE -> throw new IllegalStateException(RATE_UNAVAILABLE);
+        }
+    }
+
+    // Зачисление в валюте получателя. Валюты обеих сторон приходят из того же UPDATE, что и
+    // списание, курс — из снимка в памяти, так что кросс-валютный перевод не добавляет запросов.
+    private void transferWithConversion(Long fromId, Long toId, BigDecimal amount) {
+        AccountValidation.validateAmount(amount);
+        AccountValidation.validateId(fromId);
+        AccountValidation.validateId(toId);
+        TransferDebit debit;
+        try {
+            debit = repository.debitForTransfer(fromId, amount,
+                    BalanceEventType.TRANSFER_OUT.name(), toId)
+                    .orElseThrow(() -> notFound(fromId));
+        } catch (DataIntegrityViolationException e) {
+            throw BalanceConstraintTranslator.translate(e);
+        }
+        if (debit.getTargetCurrency() == null) {
+            throw notFound(toId);
+        }
+        BigDecimal credited = fxRateCache.current().convert(amount, debit.getSourceCurrency(),
+                debit.getTargetCurrency());
+        if (credited == null) {
+            throw new IllegalStateException(RATE_UNAVAILABLE);
+        }
+        credit(toId, credited, BalanceEventType.TRANSFER_IN, fromId);
+    }
+
+    // Резерв лимита снимается откатом: любая ошибка дальше по списанию бросает исключение.
+    private void acquireLimit(Long id, BigDecimal amount) {
+        VelocityLimiter.Permit permit = velocityLimiter.tryAcquire(id, amount);
+        if (permit == null) {
+            throw new LimitExceededException(VELOCITY_LIMIT_EXCEEDED + ", id=" + id);
+        }
+        velocityLimiter.releaseOnRollback(permit);
+    }
+
+    private int transferCall(Long fromId, Long toId, BigDecimal amount) {
+        FxRates rates = fxRateCache.current();
+        return balanceRepository.transfer(fromId, toId, amount, rates.currencyArray(),
+                rates.rateArray());
+    }
+
+    private AccountBalances getBalancesInChunks(long[] sortedIds, int chunkSize) {
+        Semaphore connections = new Semaphore(properties.balanceLookup().parallelism());
+        List<Future<AccountBalances>> chunks = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int from = 0; from < sortedIds.length; from += chunkSize) {
+                long[] chunk = Arrays.copyOfRange(sortedIds, from,
+                        Math.min(sortedIds.length, from + chunkSize));
+                chunks.add(executor.submit(() -> {
+                    connections.acquire();
+                    try {
+                        return balanceRepository.findBalances(chunk);
+                    } finally {
+                        connections.release();
+                    }
+                }));
+            }
+            return mergeChunks(chunks, sortedIds.length);
+        }
+    }
+
+    // Порции — непересекающиеся отрезки отсортированного списка, поэтому склейка по порядку
+    // сохраняет сортировку.
+    private static AccountBalances mergeChunks(List<Future<AccountBalances>> chunks, int capacity) {
+        long[] ids = new long[capacity];
+        BigDecimal[] balances = new BigDecimal[capacity];
+        int size = 0;
+        try {
+            for (Future<AccountBalances> future : chunks) {
+                AccountBalances chunk = future.get();
+                for (int i = 0; i < chunk.size(); i++, size++) {
+                    ids[size] = chunk.idAt(i);
+                    balances[size] = chunk.balanceAt(i);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading balances", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Failed to read balances", e.getCause());
+        }
+        return new AccountBalances(Arrays.copyOf(ids, size), Arrays.copyOf(balances, size));
+    }
+
+    private BigDecimal debit(Long id, BigDecimal amount, BalanceEventType type,
+            long counterpartyId) {
+        AccountValidation.validateId(id);
+        try {
+            return repository.debit(id, amount, type.name(), counterpartyId)
+                    .orElseThrow(() -> notFound(id));
+        } catch (DataIntegrityViolationException e) {
+            throw BalanceConstraintTranslator.translate(e);
+        }
+    }
+
+    private BigDecimal credit(Long id, BigDecimal amount, BalanceEventType type,
+            long counterpartyId) {
+        AccountValidation.validateId(id);
+        return repository.credit(id, amount, type.name(), counterpartyId)
+                .orElseThrow(() -> notFound(id));
+    }
+
+    private OperationResult checkArguments(Long id, BigDecimal amount) {
+        if (!AccountValidation.isValidId(id)) {
+            return new OperationResult.Invalid(AccountValidation.INVALID_ID);
+        }
+        if (!AccountValidation.isValidAmount(amount)) {
+            return new OperationResult.Invalid(AccountValidation.INVALID_AMOUNT);
+        }
+        if (!idFilter.mightContain(id)) {
+            return new OperationResult.NotFound(id);
+        }
+        return null;
+    }
+
+    // Id, которых точно нет, отсекаются без запроса в БД и без построения стека исключения.
+    private void rejectUnknown(Long id) {
+        AccountValidation.validateId(id);
+        if (!idFilter.mightContain(id)) {
+            throw NotFoundException.withoutStackTrace(ACCOUNT_NOT_FOUND);
+        }
+    }
+
+    private static NotFoundException notFound(Long id) {
+        return new NotFoundException("Account not found, id=" + id);
+    }
+
     // @Transactional в Spring — это не МАГИЯ.
     // Может показаться, что Spring просто включает транзакцию,
     // но под капотом целая цепочка механизмов. Аннотация только входная точка.
@@ -0,0 +1,8 @@
+package example.transactions.service;
+
+public enum TransferMode {
+    // withdraw + deposit через JPA-репозиторий, несколько запросов на перевод
+    JPA,
+    // один вызов функции transfer() в Postgres
+    FUNCTION
+}
@@ -0,0 +1,20 @@
+package example.transactions.service;
+
+// Коды, которые возвращает SQL-функция transfer(from, to, amount, currencies, rates).
+public enum TransferStatus {
+    OK,
+    INSUFFICIENT_FUNDS,
+    SOURCE_NOT_FOUND,
+    TARGET_NOT_FOUND,
+    SAME_ACCOUNT,
+    RATE_UNAVAILABLE;
+
+    private static final TransferStatus[] VALUES = values();
+
+    public static TransferStatus fromCode(int code) {
+        if (code < 0 || code >= VALUES.length) {
+            throw new IllegalStateException("Unknown transfer status " + code);
+        }
+        return VALUES[code];
+    }
+}
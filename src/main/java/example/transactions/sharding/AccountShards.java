@@ -0,0 +1,115 @@
+package example.transactions.sharding;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import example.transactions.exeption.NotFoundException;
+import example.transactions.repository.AccountBalanceJdbcRepository;
+import liquibase.exception.LiquibaseException;
+import liquibase.integration.spring.SpringLiquibase;
+import lombok.extern.slf4j.Slf4j;
+
+// Пулы соединений шардов. Схема каждого шарда — те же changelog'и, что и у основной БД;
+// последовательность id счетов шарда сдвигается к его базе из ShardIds. Шард журналирует
+// операции в свои outbox и ledger_entries, поэтому OutboxRelay, OutboxPartitionMaintenance и
+// VelocityLimiter обходят шарды наравне с основной БД.
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "accounts.sharding", name = "enabled", havingValue = "true")
+public class AccountShards implements DisposableBean {
+
+    private static final String CHANGE_LOG = "classpath:db/changelog/db.changelog-master.yaml";
+    // Только вперёд: уже выданные id шарда не трогаем.
+    private static final String ALIGN_SEQUENCE_SQL = "SELECT setval('accounts_id_seq', :base)"
+            + " FROM accounts_id_seq WHERE last_value < :base";
+
+    private final List<Shard> shards;
+    private final AtomicInteger nextShard = new AtomicInteger();
+
+    public AccountShards(ShardingProperties properties, ResourceLoader resourceLoader) {
+        if (properties.shards().isEmpty() || properties.shards().size() > ShardIds.MAX_SHARDS) {
+            throw new IllegalArgumentException("Invalid number of shards");
+        }
+        List<Shard> opened = new ArrayList<>(properties.shards().size());
+        try {
+            for (ShardingProperties.Shard shard : properties.shards()) {
+                opened.add(open(opened.size(), shard, properties.poolSize(), resourceLoader));
+            }
+        } catch (RuntimeException e) {
+            opened.forEach(shard -> shard.dataSource().close());
+            throw e;
+        }
+        this.shards = List.copyOf(opened);
+        log.info("Opened {} account shards", shards.size());
+    }
+
+    public Shard shardFor(long accountId) {
+        int index = ShardIds.shardOf(accountId);
+        if (index >= shards.size()) {
+            throw new NotFoundException("Account not found, id=" + accountId);
+        }
+        return shards.get(index);
+    }
+
+    public Shard shard(int index) {
+        return shards.get(index);
+    }
+
+    // Новые счета раскладываются по шардам по кругу.
+    public Shard nextShard() {
+        return shards.get(Math.floorMod(nextShard.getAndIncrement(), shards.size()));
+    }
+
+    public int size() {
+        return shards.size();
+    }
+
+    public List<Shard> all() {
+        return shards;
+    }
+
+    @Override
+    public void destroy() {
+        shards.forEach(shard -> shard.dataSource().close());
+    }
+
+    private static Shard open(int index, ShardingProperties.Shard properties, int poolSize,
+            ResourceLoader resourceLoader) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("shard-" + index);
+        config.setJdbcUrl(properties.url());
+        config.setUsername(properties.username());
+        config.setPassword(properties.password());
+        config.setMaximumPoolSize(poolSize);
+        HikariDataSource dataSource = new HikariDataSource(config);
+        try {
+            SpringLiquibase liquibase = new SpringLiquibase();
+            liquibase.setDataSource(dataSource);
+            liquibase.setChangeLog(CHANGE_LOG);
+            liquibase.setResourceLoader(resourceLoader);
+            liquibase.afterPropertiesSet();
+            NamedParameterJdbcTemplate jdbc = new NamedParameterJdbcTemplate(dataSource);
+            jdbc.queryForList(ALIGN_SEQUENCE_SQL, Map.of("base", ShardIds.baseId(index)),
+                    Long.class);
+            return new Shard(index, dataSource, jdbc, new DataSourceTransactionManager(dataSource),
+                    new AccountBalanceJdbcRepository(jdbc.getJdbcTemplate()));
+        } catch (LiquibaseException | RuntimeException e) {
+            dataSource.close();
+            throw new IllegalStateException("Cannot initialize shard " + index, e);
+        }
+    }
+
+    public record Shard(int index, HikariDataSource dataSource, NamedParameterJdbcTemplate jdbc,
+            DataSourceTransactionManager transactionManager,
+            AccountBalanceJdbcRepository balances) {
+    }
+}
@@ -0,0 +1,26 @@
+package example.transactions.sharding;
+
+// Номер шарда в старших битах id: id = shard << SHARD_SHIFT | локальный номер. Каждый шард —
+// непрерывный диапазон id, маршрут считается по самому id без обращения к карте, а счета
+// никогда не переезжают. Счета, созданные до шардирования, попадают в шард 0.
+public final class ShardIds {
+
+    public static final int SHARD_BITS = 10;
+    public static final int SHARD_SHIFT = 53;
+    public static final int MAX_SHARDS = 1 << SHARD_BITS;
+
+    private ShardIds() {
+    }
+
+    public static int shardOf(long id) {
+        return (int) (id >>> SHARD_SHIFT);
+    }
+
+    // Последовательность id шарда стартует с этого значения (не включая его).
+    public static long baseId(int shard) {
+        if (shard < 0 || shard >= MAX_SHARDS) {
+            throw new IllegalArgumentException("Invalid shard " + shard);
+        }
+        return (long) shard << SHARD_SHIFT;
+    }
+}
@@ -0,0 +1,232 @@
+package example.transactions.sharding;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.stereotype.Service;
+import example.transactions.exeption.LimitExceededException;
+import example.transactions.exeption.NotFoundException;
+import example.transactions.exeption.TransferInProgressException;
+import example.transactions.fx.FxRateCache;
+import example.transactions.fx.FxRates;
+import example.transactions.limits.VelocityLimiter;
+import example.transactions.model.Account;
+import example.transactions.model.BalanceEventType;
+import example.transactions.model.SagaState;
+import example.transactions.model.TransferSaga;
+import example.transactions.repository.AccountRepository;
+import example.transactions.saga.SagaCoordinator;
+import example.transactions.saga.SagaProperties;
+import example.transactions.service.AccountService;
+import example.transactions.service.AccountValidation;
+import example.transactions.service.TransferStatus;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// AccountService поверх нескольких БД. Шард счёта — старшие биты его id (ShardIds), так что
+// каждая операция уходит в одну БД тем же одним оператором, что и в SingleThreadedJpa-
+// AccountService: слепой UPDATE с журналом в CTE или функция transfer(). Семантика та же:
+// нехватка средств — IllegalArgumentException, нет счёта — NotFoundException, лимиты и курсы —
+// из тех же VelocityLimiter и FxRateCache.
+//
+// Перевод между счетами разных шардов одной локальной транзакцией не сделать — он идёт сагой
+// (SagaCoordinator), а вызывающий ждёт её завершения не дольше accounts.saga.completion-timeout.
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "accounts.sharding", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class ShardedAccountService implements AccountService {
+
+    private static final String INSUFFICIENT_FUNDS = "Insufficient funds";
+    private static final String CREATE_SQL = "WITH created AS (INSERT INTO accounts"
+            + " (owner, currency) VALUES (:owner, :currency) RETURNING id)"
+            + " INSERT INTO account_balances (account_id, balance)"
+            + " SELECT id, :balance FROM created RETURNING account_id";
+    private static final String DEBIT_SQL = AccountRepository.DEBIT_IF_SUFFICIENT_SQL;
+    private static final String CREDIT_SQL = AccountRepository.CREDIT_SQL;
+    private static final String BALANCE_SQL =
+            "SELECT balance FROM account_balances WHERE account_id = :id";
+
+    private final AccountShards shards;
+    private final FxRateCache fxRateCache;
+    private final VelocityLimiter velocityLimiter;
+    private final SagaCoordinator sagaCoordinator;
+    private final SagaProperties sagaProperties;
+
+    public Account create(String owner, BigDecimal balance) {
+        return create(Account.builder().owner(owner).balance(balance).build());
+    }
+
+    public Account create(int shard, String owner, BigDecimal balance) {
+        return create(shard, Account.builder().owner(owner).balance(balance).build());
+    }
+
+    // Владелец, начальный баланс и валюта берутся из account; id назначает шард.
+    public Account create(Account account) {
+        return create(shards.nextShard(), account);
+    }
+
+    public Account create(int shard, Account account) {
+        return create(shards.shard(shard), account);
+    }
+
+    @Override
+    public void withdraw(Account account, BigDecimal amount) {
+        if (account == null) {
+            throw new IllegalArgumentException("Account cannot be null");
+        }
+        AccountValidation.validateAmount(amount);
+        AccountValidation.validateId(account.getId());
+        Long id = account.getId();
+        VelocityLimiter.Permit permit = acquireLimit(id, amount);
+        try {
+            if (changeBalance(DEBIT_SQL, id, amount, BalanceEventType.WITHDRAWAL) == null) {
+                throw rejectDebit(id);
+            }
+        } catch (RuntimeException e) {
+            velocityLimiter.release(permit);
+            throw e;
+        }
+        log.info("Withdrawn {} from account {}", amount, id);
+    }
+
+    @Override
+    public void deposit(Account account, BigDecimal amount) {
+        if (account == null) {
+            throw new IllegalArgumentException("Account cannot be null");
+        }
+        AccountValidation.validateAmount(amount);
+        AccountValidation.validateId(account.getId());
+        if (changeBalance(CREDIT_SQL, account.getId(), amount, BalanceEventType.DEPOSIT) == null) {
+            throw notFound(account.getId());
+        }
+        log.info("Deposited {} to account {}", amount, account.getId());
+    }
+
+    @Override
+    public void transfer(Account fromAccount, Account toAccount, BigDecimal amount) {
+        if (fromAccount == null || toAccount == null) {
+            throw new IllegalArgumentException("Accounts cannot be null");
+        }
+        if (fromAccount.getId().equals(toAccount.getId())) {
+            throw new IllegalArgumentException("Cannot transfer to the same account");
+        }
+        AccountValidation.validateAmount(amount);
+        AccountValidation.validateId(fromAccount.getId());
+        AccountValidation.validateId(toAccount.getId());
+        Long fromId = fromAccount.getId();
+        Long toId = toAccount.getId();
+        AccountShards.Shard shard = shards.shardFor(fromId);
+        boolean crossShard = shards.shardFor(toId) != shard;
+        VelocityLimiter.Permit permit = acquireLimit(fromId, amount);
+        try {
+            int status = crossShard ? transferSaga(fromId, toId, amount)
+                    : transferCall(shard, fromId, toId, amount);
+            switch (TransferStatus.fromCode(status)) {
+                case OK -> {
+                }
+                case INSUFFICIENT_FUNDS -> throw new IllegalArgumentException(INSUFFICIENT_FUNDS);
+                case SOURCE_NOT_FOUND -> throw notFound(fromId);
+                case TARGET_NOT_FOUND -> throw notFound(toId);
+                case SAME_ACCOUNT ->
+                    throw new IllegalArgumentException("Cannot transfer to the same account");
+                case RATE_UNAVAILABLE ->
+                    throw new IllegalStateException("Exchange rate unavailable");
+            }
+        } catch (TransferInProgressException e) {
+            // сага ещё может списать деньги — резерв лимита остаётся за ней
+            throw e;
+        } catch (RuntimeException e) {
+            velocityLimiter.release(permit);
+            throw e;
+        }
+        log.info("Transferred {} from account {} to account {}", amount, fromId, toId);
+    }
+
+    public BigDecimal getBalance(Long id) {
+        AccountValidation.validateId(id);
+        List<BigDecimal> balance = shards.shardFor(id).jdbc().queryForList(BALANCE_SQL,
+                new MapSqlParameterSource("id", id), BigDecimal.class);
+        if (balance.isEmpty()) {
+            throw notFound(id);
+        }
+        return balance.getFirst();
+    }
+
+    private Account create(AccountShards.Shard shard, Account account) {
+        if (account == null) {
+            throw new IllegalArgumentException("Account cannot be null");
+        }
+        BigDecimal initial = account.getBalance() == null ? BigDecimal.ZERO
+                : account.getBalance();
+        if (initial.signum() < 0) {
+            throw new IllegalArgumentException("Initial balance cannot be negative");
+        }
+        Long id = shard.jdbc().queryForObject(CREATE_SQL, new MapSqlParameterSource()
+                .addValue("owner", account.getOwner())
+                .addValue("currency", account.getCurrency())
+                .addValue("balance", initial), Long.class);
+        return Account.builder().id(id).owner(account.getOwner()).balance(initial)
+                .currency(account.getCurrency()).build();
+    }
+
+    // null — счёта нет или (для списания) не хватает доступного остатка.
+    private BigDecimal changeBalance(String sql, Long id, BigDecimal amount,
+            BalanceEventType type) {
+        List<BigDecimal> balance = shards.shardFor(id).jdbc().queryForList(sql,
+                new MapSqlParameterSource()
+                        .addValue("id", id)
+                        .addValue("amount", amount)
+                        .addValue("type", type.name())
+                        .addValue("counterpartyId", 0L), BigDecimal.class);
+        return balance.isEmpty() ? null : balance.getFirst();
+    }
+
+    private int transferCall(AccountShards.Shard shard, Long fromId, Long toId,
+            BigDecimal amount) {
+        FxRates rates = fxRateCache.current();
+        return shard.balances().transfer(fromId, toId, amount, rates.currencyArray(),
+                rates.rateArray());
+    }
+
+    // Код TransferStatus завершённой саги. Не успевшая завершиться сага не отменяется: её
+    // доведёт восстановление, а вызывающий получает ошибку с id саги.
+    private int transferSaga(Long fromId, Long toId, BigDecimal amount) {
+        CompletableFuture<TransferSaga> future = sagaCoordinator.start(fromId, toId, amount);
+        TransferSaga saga;
+        try {
+            saga = future.get(sagaProperties.completionTimeout().toMillis(),
+                    TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TransferInProgressException(
+                    "Interrupted while waiting for transfer saga", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new TransferInProgressException("Transfer saga is still in progress", e);
+        }
+        return saga.state() == SagaState.COMPLETED ? TransferStatus.OK.ordinal()
+                : saga.failureStatus();
+    }
+
+    private VelocityLimiter.Permit acquireLimit(Long id, BigDecimal amount) {
+        VelocityLimiter.Permit permit = velocityLimiter.tryAcquire(id, amount);
+        if (permit == null) {
+            throw new LimitExceededException("Velocity limit exceeded, id=" + id);
+        }
+        return permit;
+    }
+
+    private RuntimeException rejectDebit(Long id) {
+        getBalance(id);
+        return new IllegalArgumentException(INSUFFICIENT_FUNDS);
+    }
+
+    private static NotFoundException notFound(Long id) {
+        return new NotFoundException("Account not found, id=" + id);
+    }
+}
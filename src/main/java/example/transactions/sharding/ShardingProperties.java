@@ -0,0 +1,17 @@
+package example.transactions.sharding;
+
+import java.util.List;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// Порядок шардов значим: индекс в списке — номер шарда в id. Новые шарды добавляются только
+// в конец.
+@ConfigurationProperties(prefix = "accounts.sharding")
+public record ShardingProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("10") int poolSize,
+        @DefaultValue List<Shard> shards) {
+
+    public record Shard(String url, String username, String password) {
+    }
+}
@@ -0,0 +1,63 @@
+package example.transactions.subscriptions;
+
+import java.io.IOException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import example.transactions.model.BalanceUpdate;
+import lombok.RequiredArgsConstructor;
+
+// GET /accounts/balances/stream?ids=1,2,3 — поток SSE: сначала текущие балансы, потом
+// событие balance на каждое закоммиченное изменение. Поток открыт, пока его не закроет
+// клиент; поток запроса Tomcat при этом не занят.
+@RestController
+@RequestMapping("/accounts/balances")
+@ConditionalOnProperty(prefix = "accounts.subscriptions", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class BalanceSubscriptionController {
+
+    private final BalanceSubscriptionHub hub;
+
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestParam("ids") long[] ids) {
+        // 0 — без таймаута асинхронного запроса
+        SseEmitter emitter = new SseEmitter(0L);
+        BalanceSubscriptionHub.Subscription subscription;
+        try {
+            subscription = hub.subscribe(ids, new SseSink(emitter));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        }
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(e -> subscription.close());
+        return emitter;
+    }
+
+    private record SseSink(SseEmitter emitter) implements BalanceUpdateSink {
+
+        @Override
+        public void send(BalanceUpdate update) throws IOException {
+            emitter.send(SseEmitter.event().name("balance").data(update,
+                    MediaType.APPLICATION_JSON));
+        }
+
+        @Override
+        public void heartbeat() throws IOException {
+            emitter.send(SseEmitter.event().comment("heartbeat"));
+        }
+
+        @Override
+        public void close() {
+            emitter.complete();
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package example.transactions.subscriptions;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jctools.maps.NonBlockingHashMapLong;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import example.transactions.model.AccountBalances;
+import example.transactions.model.BalanceUpdate;
+import example.transactions.repository.AccountBalanceJdbcRepository;
+import lombok.extern.slf4j.Slf4j;
+
+// Раздача изменений балансов подписчикам. publish() не блокируется и не пишет в сеть: он
+// только кладёт обновление в буфер каждого подписчика счёта и, если доставка у того не идёт,
+// запускает её в виртуальном потоке. Так медленный клиент держит свой поток, а не поток
+// релея и не соседей.
+//
+// Изменения приходят от RelayedEventListener: релей любого узла рассылает доставленные пачки
+// через NOTIFY в основной БД и в шардах, и каждый узел с подписками слушает все эти БД. Так
+// подписки не привязаны к узлу релея, но хотя бы один узел должен держать релей включённым.
+//
+// Буфер подписчика — по одной записи на счёт: новое обновление сливается с недоставленным
+// (баланс — последний, delta — сумма), поэтому буфер ограничен числом счетов подписки, а
+// отстающий клиент получает только актуальный баланс, а не очередь всех промежуточных.
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "accounts.subscriptions", name = "enabled", havingValue = "true")
+public class BalanceSubscriptionHub implements DisposableBean {
+
+    private static final int SNAPSHOT_CHUNK = 1000;
+
+    private final SubscriptionProperties properties;
+    private final AccountBalanceJdbcRepository balanceRepository;
+    private final NonBlockingHashMapLong<Set<Subscription>> byAccount =
+            new NonBlockingHashMapLong<>();
+    // id последнего разданного события счёта. Воркеры релея доставляют пачки параллельно, и
+    // старое событие счёта может прийти после нового — его баланс (и delta) отбрасывается.
+    // id сравнимы в пределах счёта: все его события пишутся в одну БД.
+    private final NonBlockingHashMapLong<Long> lastEventIds = new NonBlockingHashMapLong<>();
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger count = new AtomicInteger();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public BalanceSubscriptionHub(SubscriptionProperties properties,
+            AccountBalanceJdbcRepository balanceRepository) {
+        this.properties = properties;
+        this.balanceRepository = balanceRepository;
+    }
+
+    // Подписка начинается с текущих балансов счетов; неизвестные счета просто молчат.
+    public Subscription subscribe(long[] accountIds, BalanceUpdateSink sink) {
+        long[] ids = Arrays.stream(accountIds).filter(id -> id > 0).sorted().distinct()
+                .toArray();
+        if (ids.length == 0 || ids.length > properties.maxAccountsPerSubscription()) {
+            throw new IllegalArgumentException("Subscription must list from 1 to "
+                    + properties.maxAccountsPerSubscription() + " account ids");
+        }
+        if (count.incrementAndGet() > properties.maxSubscriptions()) {
+            count.decrementAndGet();
+            throw new IllegalStateException("Subscription limit reached");
+        }
+        Subscription subscription = new Subscription(ids, sink);
+        subscriptions.add(subscription);
+        for (long id : ids) {
+            register(id, subscription);
+        }
+        // снимок читается после регистрации: изменение, закоммиченное между ними, придёт
+        // от релея и не будет перекрыто более старым значением из снимка
+        try {
+            offerSnapshot(subscription, ids);
+        } catch (RuntimeException e) {
+            subscription.close();
+            throw e;
+        }
+        return subscription;
+    }
+
+    public void publish(long accountId, BigDecimal balance, BigDecimal delta) {
+        Set<Subscription> subscribers = byAccount.get(accountId);
+        if (subscribers == null) {
+            return;
+        }
+        BalanceUpdate update = new BalanceUpdate(accountId, balance, delta);
+        for (Subscription subscription : subscribers) {
+            subscription.offer(update);
+        }
+    }
+
+    // Событие outbox с id eventId; устаревшее для счёта отбрасывается.
+    public void publish(long eventId, long accountId, BigDecimal balance, BigDecimal delta) {
+        if (byAccount.containsKey(accountId) && advance(accountId, eventId)) {
+            publish(accountId, balance, delta);
+        }
+    }
+
+    // Уведомления, пропущенные, пока слушатель БД был отключён, не восстановить — подписчикам
+    // её счетов заново отправляются текущие балансы. Счетов других БД в ответе просто нет.
+    public void resynchronize(AccountBalanceJdbcRepository balances) {
+        long[] ids = new long[byAccount.size()];
+        int[] size = new int[1];
+        byAccount.forEach((id, subscribers) -> {
+            if (size[0] < ids.length) {
+                ids[size[0]++] = id;
+            }
+        });
+        long[] sorted = Arrays.copyOf(ids, size[0]);
+        Arrays.sort(sorted);
+        for (int from = 0; from < sorted.length; from += SNAPSHOT_CHUNK) {
+            AccountBalances chunk = balances.findBalances(Arrays.copyOfRange(sorted, from,
+                    Math.min(from + SNAPSHOT_CHUNK, sorted.length)));
+            for (int i = 0; i < chunk.size(); i++) {
+                publish(chunk.idAt(i), chunk.balanceAt(i), BigDecimal.ZERO);
+            }
+        }
+    }
+
+    public int subscriptions() {
+        return count.get();
+    }
+
+    @Scheduled(fixedDelayString = "${accounts.subscriptions.heartbeat-interval:PT15S}")
+    public void heartbeat() {
+        subscriptions.forEach(Subscription::requestHeartbeat);
+    }
+
+    @Override
+    public void destroy() {
+        subscriptions.forEach(Subscription::close);
+        executor.close();
+    }
+
+    private boolean advance(long accountId, long eventId) {
+        while (true) {
+            Long last = lastEventIds.get(accountId);
+            if (last == null) {
+                if (lastEventIds.putIfAbsent(accountId, eventId) == null) {
+                    return true;
+                }
+            } else if (last >= eventId) {
+                return false;
+            } else if (lastEventIds.replace(accountId, last, eventId)) {
+                return true;
+            }
+        }
+    }
+
+    private void offerSnapshot(Subscription subscription, long[] sortedIds) {
+        AccountBalances balances = balanceRepository.findBalances(sortedIds);
+        for (int i = 0; i < balances.size(); i++) {
+            subscription.offerInitial(new BalanceUpdate(balances.idAt(i), balances.balanceAt(i),
+                    BigDecimal.ZERO));
+        }
+    }
+
+    // Пустое множество удаляется из индекса; подписка, успевшая добавиться в уже удалённое,
+    // повторяет регистрацию в новом.
+    private void register(long accountId, Subscription subscription) {
+        while (true) {
+            Set<Subscription> subscribers = byAccount.get(accountId);
+            if (subscribers == null) {
+                Set<Subscription> created = ConcurrentHashMap.newKeySet();
+                subscribers = byAccount.putIfAbsent(accountId, created);
+                if (subscribers == null) {
+                    subscribers = created;
+                }
+            }
+            subscribers.add(subscription);
+            if (byAccount.get(accountId) == subscribers) {
+                return;
+            }
+            subscribers.remove(subscription);
+        }
+    }
+
+    private void unregister(long accountId, Subscription subscription) {
+        Set<Subscription> subscribers = byAccount.get(accountId);
+        if (subscribers != null && subscribers.remove(subscription) && subscribers.isEmpty()
+                && byAccount.remove(accountId, subscribers)) {
+            lastEventIds.remove(accountId);
+        }
+    }
+
+    public final class Subscription implements AutoCloseable {
+
+        private final long[] accountIds;
+        private final BalanceUpdateSink sink;
+        private final Map<Long, BalanceUpdate> pending = new ConcurrentHashMap<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile boolean heartbeatDue;
+
+        private Subscription(long[] accountIds, BalanceUpdateSink sink) {
+            this.accountIds = accountIds;
+            this.sink = sink;
+        }
+
+        @Override
+        public void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            for (long id : accountIds) {
+                unregister(id, this);
+            }
+            subscriptions.remove(this);
+            count.decrementAndGet();
+            pending.clear();
+            sink.close();
+        }
+
+        private void offer(BalanceUpdate update) {
+            pending.merge(update.accountId(), update, (queued, next) -> new BalanceUpdate(
+                    next.accountId(), next.balance(), queued.delta().add(next.delta())));
+            schedule();
+        }
+
+        private void offerInitial(BalanceUpdate update) {
+            pending.putIfAbsent(update.accountId(), update);
+            schedule();
+        }
+
+        private void requestHeartbeat() {
+            heartbeatDue = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (!closed.get() && scheduled.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+
+        // Одновременно работает не больше одной доставки; то, что пришло после снятия флага,
+        // подхватывает следующий круг или следующий schedule().
+        private void drain() {
+            try {
+                do {
+                    for (Long id : pending.keySet()) {
+                        BalanceUpdate update = pending.remove(id);
+                        if (update != null && !closed.get()) {
+                            sink.send(update);
+                        }
+                    }
+                    if (heartbeatDue) {
+                        heartbeatDue = false;
+                        sink.heartbeat();
+                    }
+                    scheduled.set(false);
+                } while (!closed.get() && (!pending.isEmpty() || heartbeatDue)
+                        && scheduled.compareAndSet(false, true));
+            } catch (IOException | RuntimeException e) {
+                log.debug("Balance subscriber disconnected", e);
+                close();
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package example.transactions.subscriptions;
+
+import java.io.IOException;
+import example.transactions.model.BalanceUpdate;
+
+// Транспорт подписки (SSE-поток и т.п.). Вызывается из одного виртуального потока за раз,
+// поэтому может блокироваться на записи.
+public interface BalanceUpdateSink {
+
+    void send(BalanceUpdate update) throws IOException;
+
+    void heartbeat() throws IOException;
+
+    default void close() {
+    }
+}
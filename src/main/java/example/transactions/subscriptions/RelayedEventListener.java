@@ -0,0 +1,140 @@
+package example.transactions.subscriptions;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import javax.sql.DataSource;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import example.transactions.repository.AccountBalanceJdbcRepository;
+import example.transactions.repository.OutboxJdbcRepository;
+import example.transactions.sharding.AccountShards;
+import lombok.extern.slf4j.Slf4j;
+
+// Слушает пачки, разосланные OutboxRelay (NOTIFY outbox_relayed), и передаёт события в
+// BalanceSubscriptionHub. Релей может работать на любом узле: уведомление получают все
+// слушатели БД. У основной БД и у каждого шарда свой outbox, поэтому на каждую БД — своё
+// соединение и свой поток. Пока соединение потеряно, уведомления пропадают; после
+// переподключения подписчикам счетов этой БД заново отправляются текущие балансы.
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "accounts.subscriptions", name = "enabled", havingValue = "true")
+public class RelayedEventListener implements SmartLifecycle {
+
+    private static final String LISTEN_SQL = "LISTEN " + OutboxJdbcRepository.RELAYED_CHANNEL;
+    private static final int POLL_TIMEOUT_MILLIS = 500;
+
+    private final BalanceSubscriptionHub hub;
+    private final SubscriptionProperties properties;
+    private final List<Source> sources = new ArrayList<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean running;
+
+    public RelayedEventListener(BalanceSubscriptionHub hub, SubscriptionProperties properties,
+            DataSource dataSource, AccountBalanceJdbcRepository balances,
+            ObjectProvider<AccountShards> shards) {
+        this.hub = hub;
+        this.properties = properties;
+        sources.add(new Source("main", dataSource, balances));
+        shards.ifAvailable(available -> available.all().forEach(shard -> sources.add(
+                new Source("shard-" + shard.index(), shard.dataSource(), shard.balances()))));
+    }
+
+    private record Source(String name, DataSource dataSource,
+            AccountBalanceJdbcRepository balances) {
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        for (Source source : sources) {
+            threads.add(Thread.ofPlatform().daemon().name("relayed-events-" + source.name())
+                    .start(() -> listen(source)));
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        threads.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listen(Source source) {
+        boolean reconnected = false;
+        while (running) {
+            try (Connection connection = source.dataSource().getConnection()) {
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute(LISTEN_SQL);
+                }
+                if (reconnected) {
+                    hub.resynchronize(source.balances());
+                }
+                PGConnection notifications = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] received =
+                            notifications.getNotifications(POLL_TIMEOUT_MILLIS);
+                    if (received != null) {
+                        for (PGNotification notification : received) {
+                            dispatch(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Relayed event listener of {} failed, reconnecting", source.name(), e);
+                reconnected = true;
+                try {
+                    Thread.sleep(properties.reconnectDelay());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    // id,account_id,balance,amount;... — см. OutboxJdbcRepository.notifyRelayed
+    private void dispatch(String payload) {
+        int start = 0;
+        while (start < payload.length()) {
+            int end = payload.indexOf(';', start);
+            if (end < 0) {
+                end = payload.length();
+            }
+            int first = payload.indexOf(',', start);
+            int second = payload.indexOf(',', first + 1);
+            int third = payload.indexOf(',', second + 1);
+            if (first < 0 || second < 0 || third < 0 || third > end) {
+                log.warn("Malformed relayed event: {}", payload.substring(start, end));
+            } else {
+                hub.publish(Long.parseLong(payload, start, first, 10),
+                        Long.parseLong(payload, first + 1, second, 10),
+                        new BigDecimal(payload.substring(second + 1, third)),
+                        new BigDecimal(payload.substring(third + 1, end)));
+            }
+            start = end + 1;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package example.transactions.subscriptions;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// maxSubscriptions — потолок открытых потоков на узел; к нему же подтянут
+// server.tomcat.max-connections в профиле subscriptions. heartbeatInterval — как часто слать
+// комментарий в пустой поток, чтобы заметить отвалившихся клиентов и не дать прокси закрыть
+// соединение. reconnectDelay — пауза перед переподключением RelayedEventListener.
+@ConfigurationProperties(prefix = "accounts.subscriptions")
+public record SubscriptionProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("100000") int maxSubscriptions,
+        @DefaultValue("100") int maxAccountsPerSubscription,
+        @DefaultValue("PT15S") Duration heartbeatInterval,
+        @DefaultValue("PT1S") Duration reconnectDelay) {
+}
@@ -0,0 +1,13 @@
+--liquibase formatted sql
+
+--changeset transactions:002-accounts-owner-id-index runInTransaction:false
+CREATE INDEX CONCURRENTLY IF NOT EXISTS accounts_owner_id_idx ON accounts (owner, id);
+--rollback DROP INDEX CONCURRENTLY IF EXISTS accounts_owner_id_idx;
+
+--changeset transactions:002-pg-trgm-extension
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+--changeset transactions:002-accounts-owner-trgm-index runInTransaction:false
+CREATE INDEX CONCURRENTLY IF NOT EXISTS accounts_owner_trgm_idx
+    ON accounts USING gin (owner gin_trgm_ops);
+--rollback DROP INDEX CONCURRENTLY IF EXISTS accounts_owner_trgm_idx;
@@ -0,0 +1,10 @@
+--liquibase formatted sql
+
+--changeset transactions:003-accounts-balance-non-negative
+ALTER TABLE accounts
+    ADD CONSTRAINT accounts_balance_non_negative CHECK (balance >= 0) NOT VALID;
+--rollback ALTER TABLE accounts DROP CONSTRAINT accounts_balance_non_negative;
+
+--changeset transactions:003-accounts-balance-non-negative-validate runInTransaction:false
+ALTER TABLE accounts VALIDATE CONSTRAINT accounts_balance_non_negative;
+--rollback empty
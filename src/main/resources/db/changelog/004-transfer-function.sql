@@ -0,0 +1,30 @@
+--liquibase formatted sql
+
+--changeset transactions:004-transfer-function splitStatements:false
+-- Коды возврата: 0 OK, 1 недостаточно средств, 2 нет счёта-источника,
+-- 3 нет счёта-получателя, 4 перевод на тот же счёт (см. TransferStatus).
+CREATE OR REPLACE FUNCTION transfer(p_from BIGINT, p_to BIGINT, p_amount NUMERIC)
+    RETURNS INTEGER
+    LANGUAGE plpgsql
+AS $$
+BEGIN
+    IF p_from = p_to THEN
+        RETURN 4;
+    END IF;
+    -- обе строки блокируются в порядке id, поэтому встречные переводы не дают deadlock
+    PERFORM 1 FROM accounts WHERE id IN (p_from, p_to) ORDER BY id FOR UPDATE;
+    IF NOT EXISTS (SELECT 1 FROM accounts WHERE id = p_from) THEN
+        RETURN 2;
+    END IF;
+    IF NOT EXISTS (SELECT 1 FROM accounts WHERE id = p_to) THEN
+        RETURN 3;
+    END IF;
+    UPDATE accounts SET balance = balance - p_amount WHERE id = p_from AND balance >= p_amount;
+    IF NOT FOUND THEN
+        RETURN 1;
+    END IF;
+    UPDATE accounts SET balance = balance + p_amount WHERE id = p_to;
+    RETURN 0;
+END;
+$$;
+--rollback DROP FUNCTION transfer(BIGINT, BIGINT, NUMERIC);
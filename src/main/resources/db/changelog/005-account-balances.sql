@@ -0,0 +1,44 @@
+--liquibase formatted sql
+
+--changeset transactions:005-account-balances-table
+-- Баланс обновляется на каждой операции, а owner почти никогда. В узкой таблице с низким
+-- fillfactor новая версия строки почти всегда помещается на ту же страницу, и ни один
+-- индекс по изменяемой колонке её не держит — UPDATE остаётся HOT, без записей в индексы.
+CREATE TABLE account_balances (
+    account_id BIGINT PRIMARY KEY REFERENCES accounts (id) ON DELETE CASCADE,
+    balance DECIMAL(19,2) NOT NULL DEFAULT 0,
+    CONSTRAINT account_balances_balance_non_negative CHECK (balance >= 0)
+) WITH (fillfactor = 70);
+INSERT INTO account_balances (account_id, balance)
+SELECT id, COALESCE(balance, 0) FROM accounts;
+ALTER TABLE accounts DROP COLUMN balance;
+--rollback ALTER TABLE accounts ADD COLUMN balance DECIMAL(19,2);
+--rollback UPDATE accounts a SET balance = b.balance FROM account_balances b WHERE b.account_id = a.id;
+--rollback DROP TABLE account_balances;
+
+--changeset transactions:005-transfer-function-account-balances splitStatements:false
+CREATE OR REPLACE FUNCTION transfer(p_from BIGINT, p_to BIGINT, p_amount NUMERIC)
+    RETURNS INTEGER
+    LANGUAGE plpgsql
+AS $$
+BEGIN
+    IF p_from = p_to THEN
+        RETURN 4;
+    END IF;
+    PERFORM 1 FROM account_balances WHERE account_id IN (p_from, p_to)
+        ORDER BY account_id FOR UPDATE;
+    IF NOT EXISTS (SELECT 1 FROM account_balances WHERE account_id = p_from) THEN
+        RETURN 2;
+    END IF;
+    IF NOT EXISTS (SELECT 1 FROM account_balances WHERE account_id = p_to) THEN
+        RETURN 3;
+    END IF;
+    UPDATE account_balances SET balance = balance - p_amount
+        WHERE account_id = p_from AND balance >= p_amount;
+    IF NOT FOUND THEN
+        RETURN 1;
+    END IF;
+    UPDATE account_balances SET balance = balance + p_amount WHERE account_id = p_to;
+    RETURN 0;
+END;
+$$;
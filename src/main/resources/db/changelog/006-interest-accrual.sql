@@ -0,0 +1,36 @@
+--liquibase formatted sql
+
+--changeset transactions:006-ledger-entries
+-- Журнал движений по счетам. Пакетные задания пишут сюда одной вставкой на диапазон id.
+CREATE TABLE ledger_entries (
+    id BIGSERIAL PRIMARY KEY,
+    account_id BIGINT NOT NULL REFERENCES accounts (id) ON DELETE CASCADE,
+    amount DECIMAL(19,2) NOT NULL,
+    kind VARCHAR(32) NOT NULL,
+    reference VARCHAR(64),
+    created_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+CREATE INDEX ledger_entries_account_id_idx ON ledger_entries (account_id, id);
+--rollback DROP TABLE ledger_entries;
+
+--changeset transactions:006-interest-checkpoints
+-- Запуск начисления за бизнес-дату. Ставка и размер диапазона фиксируются при первом старте,
+-- чтобы перезапуск делил id ровно так же и не начислил дважды.
+CREATE TABLE interest_runs (
+    business_date DATE PRIMARY KEY,
+    rate NUMERIC(12,10) NOT NULL,
+    chunk_size BIGINT NOT NULL,
+    started_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    completed_at TIMESTAMPTZ
+);
+-- Обработанный диапазон id. Строка вставляется в той же транзакции, что и начисление.
+CREATE TABLE interest_checkpoints (
+    business_date DATE NOT NULL REFERENCES interest_runs (business_date) ON DELETE CASCADE,
+    range_start BIGINT NOT NULL,
+    range_end BIGINT NOT NULL,
+    accounts BIGINT NOT NULL DEFAULT 0,
+    completed_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    PRIMARY KEY (business_date, range_start)
+);
+--rollback DROP TABLE interest_checkpoints;
+--rollback DROP TABLE interest_runs;
@@ -0,0 +1,56 @@
+--liquibase formatted sql
+
+--changeset transactions:007-outbox
+-- События изменения баланса. Пишутся в той же транзакции, что и само изменение, и вычитываются
+-- релеем. Таблица секционирована по дням: обработанные строки не удаляются по одной, а уходят
+-- вместе с секцией (DROP TABLE вместо DELETE и VACUUM). Секции на сегодня и вперёд создаёт
+-- OutboxPartitionMaintenance; DEFAULT подхватывает строки, если секция не успела появиться.
+CREATE TABLE outbox (
+    id BIGSERIAL NOT NULL,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    event_type VARCHAR(32) NOT NULL,
+    account_id BIGINT NOT NULL,
+    counterparty_id BIGINT,
+    amount DECIMAL(19,2) NOT NULL,
+    balance DECIMAL(19,2) NOT NULL,
+    processed_at TIMESTAMPTZ,
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+CREATE TABLE outbox_default PARTITION OF outbox DEFAULT;
+CREATE INDEX outbox_pending_idx ON outbox (id) WHERE processed_at IS NULL;
+--rollback DROP TABLE outbox;
+
+--changeset transactions:007-transfer-function-outbox splitStatements:false
+CREATE OR REPLACE FUNCTION transfer(p_from BIGINT, p_to BIGINT, p_amount NUMERIC)
+    RETURNS INTEGER
+    LANGUAGE plpgsql
+AS $$
+DECLARE
+    v_balance NUMERIC;
+BEGIN
+    IF p_from = p_to THEN
+        RETURN 4;
+    END IF;
+    PERFORM 1 FROM account_balances WHERE account_id IN (p_from, p_to)
+        ORDER BY account_id FOR UPDATE;
+    IF NOT EXISTS (SELECT 1 FROM account_balances WHERE account_id = p_from) THEN
+        RETURN 2;
+    END IF;
+    IF NOT EXISTS (SELECT 1 FROM account_balances WHERE account_id = p_to) THEN
+        RETURN 3;
+    END IF;
+    UPDATE account_balances SET balance = balance - p_amount
+        WHERE account_id = p_from AND balance >= p_amount
+        RETURNING balance INTO v_balance;
+    IF NOT FOUND THEN
+        RETURN 1;
+    END IF;
+    INSERT INTO outbox (event_type, account_id, counterparty_id, amount, balance)
+        VALUES ('TRANSFER_OUT', p_from, p_to, -p_amount, v_balance);
+    UPDATE account_balances SET balance = balance + p_amount WHERE account_id = p_to
+        RETURNING balance INTO v_balance;
+    INSERT INTO outbox (event_type, account_id, counterparty_id, amount, balance)
+        VALUES ('TRANSFER_IN', p_to, p_from, p_amount, v_balance);
+    RETURN 0;
+END;
+$$;
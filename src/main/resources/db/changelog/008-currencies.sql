@@ -0,0 +1,76 @@
+--liquibase formatted sql
+
+--changeset transactions:008-account-currency
+-- Валюта не меняется после открытия счёта, поэтому живёт в accounts, а не в узкой
+-- account_balances.
+ALTER TABLE accounts ADD COLUMN currency CHAR(3) NOT NULL DEFAULT 'USD';
+--rollback ALTER TABLE accounts DROP COLUMN currency;
+
+--changeset transactions:008-fx-rates
+-- rate — стоимость единицы валюты в базовой валюте (USD). Кросс-курс считается через базу:
+-- amount * rate(from) / rate(to). Источник для FxRateCache.
+CREATE TABLE fx_rates (
+    currency CHAR(3) PRIMARY KEY,
+    rate NUMERIC(20,10) NOT NULL,
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    CONSTRAINT fx_rates_rate_positive CHECK (rate > 0)
+);
+INSERT INTO fx_rates (currency, rate) VALUES ('USD', 1);
+--rollback DROP TABLE fx_rates;
+
+--changeset transactions:008-transfer-function-fx splitStatements:false
+-- Курсы передаются из снимка FxRateCache двумя массивами (валюты и курсы к базе), функция
+-- в fx_rates не ходит. Код 5 — для пары валют нет курса.
+DROP FUNCTION transfer(BIGINT, BIGINT, NUMERIC);
+CREATE FUNCTION transfer(p_from BIGINT, p_to BIGINT, p_amount NUMERIC,
+        p_currencies TEXT[], p_rates NUMERIC[])
+    RETURNS INTEGER
+    LANGUAGE plpgsql
+AS $$
+DECLARE
+    v_balance NUMERIC;
+    v_credit NUMERIC;
+    v_from_currency TEXT;
+    v_to_currency TEXT;
+    v_from_rate NUMERIC;
+    v_to_rate NUMERIC;
+BEGIN
+    IF p_from = p_to THEN
+        RETURN 4;
+    END IF;
+    PERFORM 1 FROM account_balances WHERE account_id IN (p_from, p_to)
+        ORDER BY account_id FOR UPDATE;
+    SELECT currency INTO v_from_currency FROM accounts WHERE id = p_from;
+    IF NOT FOUND THEN
+        RETURN 2;
+    END IF;
+    SELECT currency INTO v_to_currency FROM accounts WHERE id = p_to;
+    IF NOT FOUND THEN
+        RETURN 3;
+    END IF;
+    IF v_from_currency = v_to_currency THEN
+        v_credit := p_amount;
+    ELSE
+        v_from_rate := p_rates[array_position(p_currencies, v_from_currency)];
+        v_to_rate := p_rates[array_position(p_currencies, v_to_currency)];
+        IF v_from_rate IS NULL OR v_to_rate IS NULL THEN
+            RETURN 5;
+        END IF;
+        v_credit := round(p_amount * v_from_rate / v_to_rate, 2);
+    END IF;
+    UPDATE account_balances SET balance = balance - p_amount
+        WHERE account_id = p_from AND balance >= p_amount
+        RETURNING balance INTO v_balance;
+    IF NOT FOUND THEN
+        RETURN 1;
+    END IF;
+    INSERT INTO outbox (event_type, account_id, counterparty_id, amount, balance)
+        VALUES ('TRANSFER_OUT', p_from, p_to, -p_amount, v_balance);
+    UPDATE account_balances SET balance = balance + v_credit WHERE account_id = p_to
+        RETURNING balance INTO v_balance;
+    INSERT INTO outbox (event_type, account_id, counterparty_id, amount, balance)
+        VALUES ('TRANSFER_IN', p_to, p_from, v_credit, v_balance);
+    RETURN 0;
+END;
+$$;
+--rollback DROP FUNCTION transfer(BIGINT, BIGINT, NUMERIC, TEXT[], NUMERIC[]);
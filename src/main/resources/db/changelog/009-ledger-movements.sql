@@ -0,0 +1,65 @@
+--liquibase formatted sql
+
+--changeset transactions:009-ledger-debits-index runInTransaction:false
+-- Списания за последние сутки читаются при старте, чтобы восстановить счётчики лимитов.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ledger_entries_debits_created_at_idx
+    ON ledger_entries (created_at) WHERE amount < 0;
+--rollback DROP INDEX CONCURRENTLY IF EXISTS ledger_entries_debits_created_at_idx;
+
+--changeset transactions:009-transfer-function-ledger splitStatements:false
+-- Все изменения баланса теперь попадают в ledger_entries, включая переводы внутри функции.
+CREATE OR REPLACE FUNCTION transfer(p_from BIGINT, p_to BIGINT, p_amount NUMERIC,
+        p_currencies TEXT[], p_rates NUMERIC[])
+    RETURNS INTEGER
+    LANGUAGE plpgsql
+AS $$
+DECLARE
+    v_balance NUMERIC;
+    v_credit NUMERIC;
+    v_from_currency TEXT;
+    v_to_currency TEXT;
+    v_from_rate NUMERIC;
+    v_to_rate NUMERIC;
+BEGIN
+    IF p_from = p_to THEN
+        RETURN 4;
+    END IF;
+    PERFORM 1 FROM account_balances WHERE account_id IN (p_from, p_to)
+        ORDER BY account_id FOR UPDATE;
+    SELECT currency INTO v_from_currency FROM accounts WHERE id = p_from;
+    IF NOT FOUND THEN
+        RETURN 2;
+    END IF;
+    SELECT currency INTO v_to_currency FROM accounts WHERE id = p_to;
+    IF NOT FOUND THEN
+        RETURN 3;
+    END IF;
+    IF v_from_currency = v_to_currency THEN
+        v_credit := p_amount;
+    ELSE
+        v_from_rate := p_rates[array_position(p_currencies, v_from_currency)];
+        v_to_rate := p_rates[array_position(p_currencies, v_to_currency)];
+        IF v_from_rate IS NULL OR v_to_rate IS NULL THEN
+            RETURN 5;
+        END IF;
+        v_credit := round(p_amount * v_from_rate / v_to_rate, 2);
+    END IF;
+    UPDATE account_balances SET balance = balance - p_amount
+        WHERE account_id = p_from AND balance >= p_amount
+        RETURNING balance INTO v_balance;
+    IF NOT FOUND THEN
+        RETURN 1;
+    END IF;
+    INSERT INTO outbox (event_type, account_id, counterparty_id, amount, balance)
+        VALUES ('TRANSFER_OUT', p_from, p_to, -p_amount, v_balance);
+    INSERT INTO ledger_entries (account_id, amount, kind)
+        VALUES (p_from, -p_amount, 'TRANSFER_OUT');
+    UPDATE account_balances SET balance = balance + v_credit WHERE account_id = p_to
+        RETURNING balance INTO v_balance;
+    INSERT INTO outbox (event_type, account_id, counterparty_id, amount, balance)
+        VALUES ('TRANSFER_IN', p_to, p_from, v_credit, v_balance);
+    INSERT INTO ledger_entries (account_id, amount, kind)
+        VALUES (p_to, v_credit, 'TRANSFER_IN');
+    RETURN 0;
+END;
+$$;
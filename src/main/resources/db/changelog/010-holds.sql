@@ -0,0 +1,86 @@
+--liquibase formatted sql
+
+--changeset transactions:010-account-holds
+-- held — сумма активных холдов счёта, доступный остаток — balance - held. Инвариант держит
+-- CHECK, так что безусловное списание сверх доступного отклоняется так же, как уход в минус.
+-- Колонка с константным DEFAULT добавляется без переписывания таблицы и индексами не
+-- покрыта, UPDATE остаются HOT. Проверка добавляется NOT VALID и проверяется отдельно, см. ниже.
+ALTER TABLE account_balances ADD COLUMN held DECIMAL(19,2) NOT NULL DEFAULT 0;
+ALTER TABLE account_balances ADD CONSTRAINT account_balances_held_covered
+    CHECK (held >= 0 AND balance >= held) NOT VALID;
+-- Строки короткоживущие: capture, release и истечение их удаляют. Срок здесь только для
+-- восстановления колеса таймеров при старте — сканировать таблицу по expires_at некому.
+CREATE TABLE account_holds (
+    id BIGSERIAL PRIMARY KEY,
+    account_id BIGINT NOT NULL REFERENCES accounts (id) ON DELETE CASCADE,
+    amount DECIMAL(19,2) NOT NULL CHECK (amount > 0),
+    expires_at TIMESTAMPTZ NOT NULL,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+--rollback DROP TABLE account_holds;
+--rollback ALTER TABLE account_balances DROP CONSTRAINT account_balances_held_covered;
+--rollback ALTER TABLE account_balances DROP COLUMN held;
+
+--changeset transactions:010-account-holds-check-validate runInTransaction:false
+-- Вне транзакции ADD CONSTRAINT: проход по таблице идёт под SHARE UPDATE EXCLUSIVE и не
+-- блокирует списания.
+ALTER TABLE account_balances VALIDATE CONSTRAINT account_balances_held_covered;
+--rollback empty
+
+--changeset transactions:010-transfer-function-holds splitStatements:false
+-- Перевод списывает только из доступного остатка.
+CREATE OR REPLACE FUNCTION transfer(p_from BIGINT, p_to BIGINT, p_amount NUMERIC,
+        p_currencies TEXT[], p_rates NUMERIC[])
+    RETURNS INTEGER
+    LANGUAGE plpgsql
+AS $$
+DECLARE
+    v_balance NUMERIC;
+    v_credit NUMERIC;
+    v_from_currency TEXT;
+    v_to_currency TEXT;
+    v_from_rate NUMERIC;
+    v_to_rate NUMERIC;
+BEGIN
+    IF p_from = p_to THEN
+        RETURN 4;
+    END IF;
+    PERFORM 1 FROM account_balances WHERE account_id IN (p_from, p_to)
+        ORDER BY account_id FOR UPDATE;
+    SELECT currency INTO v_from_currency FROM accounts WHERE id = p_from;
+    IF NOT FOUND THEN
+        RETURN 2;
+    END IF;
+    SELECT currency INTO v_to_currency FROM accounts WHERE id = p_to;
+    IF NOT FOUND THEN
+        RETURN 3;
+    END IF;
+    IF v_from_currency = v_to_currency THEN
+        v_credit := p_amount;
+    ELSE
+        v_from_rate := p_rates[array_position(p_currencies, v_from_currency)];
+        v_to_rate := p_rates[array_position(p_currencies, v_to_currency)];
+        IF v_from_rate IS NULL OR v_to_rate IS NULL THEN
+            RETURN 5;
+        END IF;
+        v_credit := round(p_amount * v_from_rate / v_to_rate, 2);
+    END IF;
+    UPDATE account_balances SET balance = balance - p_amount
+        WHERE account_id = p_from AND balance - held >= p_amount
+        RETURNING balance INTO v_balance;
+    IF NOT FOUND THEN
+        RETURN 1;
+    END IF;
+    INSERT INTO outbox (event_type, account_id, counterparty_id, amount, balance)
+        VALUES ('TRANSFER_OUT', p_from, p_to, -p_amount, v_balance);
+    INSERT INTO ledger_entries (account_id, amount, kind)
+        VALUES (p_from, -p_amount, 'TRANSFER_OUT');
+    UPDATE account_balances SET balance = balance + v_credit WHERE account_id = p_to
+        RETURNING balance INTO v_balance;
+    INSERT INTO outbox (event_type, account_id, counterparty_id, amount, balance)
+        VALUES ('TRANSFER_IN', p_to, p_from, v_credit, v_balance);
+    INSERT INTO ledger_entries (account_id, amount, kind)
+        VALUES (p_to, v_credit, 'TRANSFER_IN');
+    RETURN 0;
+END;
+$$;
@@ -0,0 +1,70 @@
+--liquibase formatted sql
+
+--changeset transactions:011-scheduled-transfers
+-- Отложенные и повторяющиеся переводы. Следующий запуск считается от starts_at, а не от
+-- предыдущего: starts_at + n * '1 month' для 31 января даёт 28/29 февраля и снова 31 марта.
+-- max_runs IS NULL — без ограничения числа запусков.
+CREATE TABLE scheduled_transfers (
+    id BIGSERIAL PRIMARY KEY,
+    from_account_id BIGINT NOT NULL REFERENCES accounts (id) ON DELETE CASCADE,
+    to_account_id BIGINT NOT NULL REFERENCES accounts (id) ON DELETE CASCADE,
+    amount DECIMAL(19,2) NOT NULL CHECK (amount > 0),
+    starts_at TIMESTAMPTZ NOT NULL,
+    repeat_every INTERVAL,
+    max_runs INTEGER CHECK (max_runs > 0),
+    runs_done INTEGER NOT NULL DEFAULT 0,
+    next_run_at TIMESTAMPTZ NOT NULL,
+    status VARCHAR(16) NOT NULL DEFAULT 'ACTIVE',
+    last_status INTEGER,
+    last_run_at TIMESTAMPTZ,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    CONSTRAINT scheduled_transfers_distinct_accounts CHECK (from_account_id <> to_account_id)
+);
+-- Частичный индекс содержит только активные строки: завершённые из него уходят, и выборка
+-- наступивших переводов не зависит от накопленной истории.
+CREATE INDEX scheduled_transfers_due_idx ON scheduled_transfers (next_run_at)
+    WHERE status = 'ACTIVE';
+--rollback DROP TABLE scheduled_transfers;
+
+--changeset transactions:011-execute-scheduled-transfers splitStatements:false
+-- Исполняет уже заблокированную (FOR UPDATE SKIP LOCKED) пачку за один вызов. Сначала
+-- блокируются строки балансов всех счетов пачки в порядке id: параллельные пачки берут
+-- блокировки в одном порядке и не попадают во взаимоблокировку. Сами переводы — через
+-- transfer(), со всеми её проверками, проводками и событиями outbox; отказ (нехватка средств
+-- и т.п.) не прерывает пачку, а записывается в last_status.
+CREATE OR REPLACE FUNCTION execute_scheduled_transfers(p_ids BIGINT[], p_currencies TEXT[],
+        p_rates NUMERIC[])
+    RETURNS INTEGER
+    LANGUAGE plpgsql
+AS $$
+DECLARE
+    r RECORD;
+    v_status INTEGER;
+    v_count INTEGER := 0;
+BEGIN
+    PERFORM 1 FROM account_balances WHERE account_id IN (
+            SELECT from_account_id FROM scheduled_transfers WHERE id = ANY(p_ids)
+            UNION SELECT to_account_id FROM scheduled_transfers WHERE id = ANY(p_ids))
+        ORDER BY account_id FOR UPDATE;
+    FOR r IN SELECT id, from_account_id, to_account_id, amount, repeat_every, max_runs,
+            runs_done FROM scheduled_transfers
+            WHERE id = ANY(p_ids) ORDER BY next_run_at, id LOOP
+        v_status := transfer(r.from_account_id, r.to_account_id, r.amount, p_currencies,
+            p_rates);
+        UPDATE scheduled_transfers SET
+            runs_done = runs_done + 1,
+            last_status = v_status,
+            last_run_at = now(),
+            next_run_at = CASE WHEN r.repeat_every IS NULL THEN next_run_at
+                ELSE starts_at + (r.runs_done + 1) * r.repeat_every END,
+            status = CASE
+                WHEN r.repeat_every IS NULL AND v_status = 0 THEN 'COMPLETED'
+                WHEN r.repeat_every IS NULL THEN 'FAILED'
+                WHEN r.max_runs IS NOT NULL AND r.runs_done + 1 >= r.max_runs THEN 'COMPLETED'
+                ELSE 'ACTIVE' END
+            WHERE id = r.id;
+        v_count := v_count + 1;
+    END LOOP;
+    RETURN v_count;
+END;
+$$;
@@ -0,0 +1,83 @@
+--liquibase formatted sql
+
+--changeset transactions:012-transfer-sagas
+-- Журнал саг межшардовых переводов, ведётся в основной БД. state — последний шаг,
+-- подтверждённый шардом; failure_status — код TransferStatus причины отказа или компенсации.
+CREATE TABLE transfer_sagas (
+    id BIGSERIAL PRIMARY KEY,
+    from_account_id BIGINT NOT NULL,
+    to_account_id BIGINT NOT NULL,
+    amount DECIMAL(19,2) NOT NULL CHECK (amount > 0),
+    credit_amount DECIMAL(19,2) NOT NULL CHECK (credit_amount > 0),
+    state VARCHAR(16) NOT NULL DEFAULT 'PENDING',
+    failure_status INTEGER,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+-- Восстановление читает только незавершённые саги.
+CREATE INDEX transfer_sagas_in_flight_idx ON transfer_sagas (updated_at)
+    WHERE state NOT IN ('COMPLETED', 'COMPENSATED', 'FAILED');
+-- Шаги саги на шардах. Строка шага пишется в той же транзакции, что и изменение баланса,
+-- поэтому повтор шага после сбоя ничего не меняет. Строка списания — отложенная запись
+-- перевода: PENDING до завершения саги, затем FINAL или COMPENSATED; отклонённое списание —
+-- NO_FUNDS или NO_ACCOUNT.
+CREATE TABLE saga_steps (
+    saga_id BIGINT NOT NULL,
+    step VARCHAR(16) NOT NULL,
+    account_id BIGINT NOT NULL,
+    amount DECIMAL(19,2) NOT NULL,
+    status VARCHAR(16) NOT NULL,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    PRIMARY KEY (saga_id, step)
+);
+--rollback DROP TABLE saga_steps;
+--rollback DROP TABLE transfer_sagas;
+
+--changeset transactions:012-saga-apply-function splitStatements:false
+-- Идемпотентный шаг саги: 0 — применён сейчас или раньше, 1 — не хватает доступного
+-- остатка, 2 — счёта нет. Строку шага вставляем первой: параллельный повтор того же шага
+-- ждёт на ней и после коммита первого видит конфликт. Отказ в списании остаётся строкой шага
+-- (NO_FUNDS или NO_ACCOUNT), и повтор возвращает тот же вердикт: иначе параллельный
+-- исполнитель той же саги мог бы списать деньги уже после того, как первый получил отказ и
+-- пометил сагу FAILED. Отказ в зачислении и возврате строку удаляет — шаг можно повторить.
+CREATE OR REPLACE FUNCTION saga_apply(p_saga BIGINT, p_step TEXT, p_account BIGINT,
+        p_amount NUMERIC, p_counterparty BIGINT, p_kind TEXT)
+    RETURNS INTEGER
+    LANGUAGE plpgsql
+AS $$
+DECLARE
+    v_balance NUMERIC;
+    v_status TEXT;
+BEGIN
+    INSERT INTO saga_steps (saga_id, step, account_id, amount, status)
+        VALUES (p_saga, p_step, p_account, p_amount,
+            CASE WHEN p_amount < 0 THEN 'PENDING' ELSE 'FINAL' END)
+        ON CONFLICT DO NOTHING;
+    IF NOT FOUND THEN
+        SELECT status INTO v_status FROM saga_steps WHERE saga_id = p_saga AND step = p_step;
+        RETURN CASE v_status WHEN 'NO_FUNDS' THEN 1 WHEN 'NO_ACCOUNT' THEN 2 ELSE 0 END;
+    END IF;
+    UPDATE account_balances SET balance = balance + p_amount
+        WHERE account_id = p_account AND (p_amount > 0 OR balance - held >= -p_amount)
+        RETURNING balance INTO v_balance;
+    IF NOT FOUND THEN
+        IF EXISTS (SELECT 1 FROM account_balances WHERE account_id = p_account) THEN
+            v_status := 'NO_FUNDS';
+        ELSE
+            v_status := 'NO_ACCOUNT';
+        END IF;
+        IF p_amount < 0 THEN
+            UPDATE saga_steps SET status = v_status WHERE saga_id = p_saga AND step = p_step;
+        ELSE
+            DELETE FROM saga_steps WHERE saga_id = p_saga AND step = p_step;
+        END IF;
+        RETURN CASE v_status WHEN 'NO_FUNDS' THEN 1 ELSE 2 END;
+    END IF;
+    INSERT INTO outbox (event_type, account_id, counterparty_id, amount, balance)
+        VALUES (p_kind, p_account, p_counterparty, p_amount, v_balance);
+    INSERT INTO ledger_entries (account_id, amount, kind, reference)
+        VALUES (p_account, p_amount, p_kind, 'saga:' || p_saga);
+    RETURN 0;
+END;
+$$;
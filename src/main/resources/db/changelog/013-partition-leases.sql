@@ -0,0 +1,19 @@
+--liquibase formatted sql
+
+--changeset transactions:013-partition-leases
+-- Владение партициями пространства id счетов. Лиза действует до expires_at и продлевается
+-- владельцем; просроченную или освобождённую забирает любой узел.
+CREATE TABLE partition_leases (
+    partition_id INTEGER PRIMARY KEY,
+    owner VARCHAR(64),
+    endpoint VARCHAR(255),
+    expires_at TIMESTAMPTZ
+);
+-- Живые узлы кластера: по их числу каждый узел считает свою долю партиций.
+CREATE TABLE cluster_nodes (
+    node_id VARCHAR(64) PRIMARY KEY,
+    endpoint VARCHAR(255),
+    expires_at TIMESTAMPTZ NOT NULL
+);
+--rollback DROP TABLE cluster_nodes;
+--rollback DROP TABLE partition_leases;
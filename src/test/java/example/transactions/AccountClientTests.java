@@ -0,0 +1,126 @@
+package example.transactions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import example.transactions.client.AccountClient;
+import example.transactions.client.AccountClientConfig;
+import example.transactions.client.AccountOperationException;
+import example.transactions.gateway.TransferGatewayServer;
+import example.transactions.model.Account;
+import example.transactions.service.SingleThreadedJpaAccountService;
+
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest(properties = {"gateway.tcp.enabled=true", "gateway.tcp.port=0"})
+class AccountClientTests {
+
+    @Autowired
+    private TransferGatewayServer server;
+
+    @Autowired
+    private SingleThreadedJpaAccountService service;
+
+    private AccountClient client;
+    private Account userA;
+    private Account userB;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        userA = service.save(Account.builder()
+                .balance(new BigDecimal("1000.00")).owner("UserA").build());
+        userB = service.save(Account.builder()
+                .balance(new BigDecimal("0.00")).owner("UserB").build());
+        client = AccountClient.connect(new AccountClientConfig(
+                new InetSocketAddress("localhost", server.getLocalPort()), 2, 64,
+                Duration.ofSeconds(10)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+    }
+
+    @Test
+    void concurrentCallersTest() throws Exception {
+        // given
+        int callers = 16;
+        int callsPerCaller = 50;
+        List<CompletableFuture<BigDecimal>> results = new ArrayList<>();
+
+        // when: много потоков шлют мелкие операции одновременно
+        try (ExecutorService executor = Executors.newFixedThreadPool(callers)) {
+            List<CompletableFuture<List<CompletableFuture<BigDecimal>>>> submitted =
+                    new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                submitted.add(CompletableFuture.supplyAsync(() -> {
+                    List<CompletableFuture<BigDecimal>> calls = new ArrayList<>();
+                    for (int j = 0; j < callsPerCaller; j++) {
+                        calls.add(client.deposit(userB.getId(), new BigDecimal("0.01")));
+                        calls.add(client.getBalance(userA.getId()));
+                    }
+                    return calls;
+                }, executor));
+            }
+            submitted.forEach(calls -> results.addAll(calls.join()));
+        }
+        CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).join();
+
+        // then
+        assertEquals(0, client.getBalance(userB.getId()).join()
+                .compareTo(new BigDecimal("8.00")));
+        for (int i = 1; i < results.size(); i += 2) {
+            assertEquals(0, results.get(i).join().compareTo(new BigDecimal("1000.00")));
+        }
+    }
+
+    @Test
+    void operationsAndRejectionsTest() {
+        // when
+        BigDecimal withdrawn = client.withdraw(userA.getId(), new BigDecimal("100.50")).join();
+        client.transfer(userA.getId(), userB.getId(), new BigDecimal("200.00")).join();
+        CompletionException rejected = assertThrows(CompletionException.class,
+                () -> client.withdraw(userB.getId(), new BigDecimal("200.01")).join());
+        CompletionException unknown = assertThrows(CompletionException.class,
+                () -> client.getBalance(Long.MAX_VALUE).join());
+
+        // then
+        assertEquals(0, withdrawn.compareTo(new BigDecimal("899.50")));
+        assertEquals(0, client.getBalance(userA.getId()).join()
+                .compareTo(new BigDecimal("699.50")));
+        assertEquals(AccountOperationException.Status.INSUFFICIENT_FUNDS,
+                assertInstanceOf(AccountOperationException.class, rejected.getCause())
+                        .status());
+        assertEquals(AccountOperationException.Status.NOT_FOUND,
+                assertInstanceOf(AccountOperationException.class, unknown.getCause())
+                        .status());
+        assertThrows(CompletionException.class,
+                () -> client.deposit(userA.getId(), new BigDecimal("0.001")).join());
+    }
+
+    @Test
+    void nonPositiveTimeoutIsRejectedTest() {
+        // given
+        InetSocketAddress address = new InetSocketAddress("localhost", server.getLocalPort());
+
+        // then
+        assertThrows(IllegalArgumentException.class,
+                () -> new AccountClientConfig(address, 1, 1, Duration.ZERO));
+        assertThrows(IllegalArgumentException.class,
+                () -> new AccountClientConfig(address, 1, 1, Duration.ofMillis(-1)));
+    }
+}
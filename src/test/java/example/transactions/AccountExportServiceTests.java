@@ -0,0 +1,68 @@
+package example.transactions;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import example.transactions.model.Account;
+import example.transactions.service.AccountExportService;
+import example.transactions.service.ExportFormat;
+import example.transactions.service.SingleThreadedJpaAccountService;
+
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest
+class AccountExportServiceTests {
+
+    @Autowired
+    private AccountExportService exportService;
+
+    @Autowired
+    private SingleThreadedJpaAccountService service;
+
+    private Account userA;
+    private Account userB;
+
+    @BeforeEach
+    void setUp() {
+        userA = service
+                .save(Account.builder().balance(new BigDecimal("1000.23")).owner("UserA").build());
+        userB = service.save(Account.builder().balance(new BigDecimal("1100.23"))
+                .owner("Doe, \"Jane\"").build());
+    }
+
+    @Test
+    void exportCsvTest() throws Exception {
+        // given
+        StringWriter writer = new StringWriter();
+
+        // when
+        long exported = exportService.export(writer, ExportFormat.CSV);
+
+        // then
+        String csv = writer.toString();
+        assertTrue(exported >= 2);
+        assertTrue(csv.startsWith("id,owner,balance\n"));
+        assertTrue(csv.contains(userA.getId() + ",UserA,1000.23\n"));
+        assertTrue(csv.contains(userB.getId() + ",\"Doe, \"\"Jane\"\"\",1100.23\n"));
+    }
+
+    @Test
+    void exportNdjsonTest() throws Exception {
+        // given
+        StringWriter writer = new StringWriter();
+
+        // when
+        exportService.export(writer, ExportFormat.NDJSON);
+
+        // then
+        String json = writer.toString();
+        assertTrue(json.contains(
+                "{\"id\":" + userA.getId() + ",\"owner\":\"UserA\",\"balance\":1000.23}\n"));
+        assertTrue(json.contains("{\"id\":" + userB.getId()
+                + ",\"owner\":\"Doe, \\\"Jane\\\"\",\"balance\":1100.23}\n"));
+    }
+}
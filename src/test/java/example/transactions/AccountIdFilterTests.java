@@ -0,0 +1,86 @@
+package example.transactions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.math.BigDecimal;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import example.transactions.exeption.NotFoundException;
+import example.transactions.filter.AccountIdFilter;
+import example.transactions.model.Account;
+import example.transactions.service.SingleThreadedJpaAccountService;
+
+@Import({TestcontainersConfiguration.class, StatementCountingConfiguration.class})
+@SpringBootTest(properties = {"accounts.id-filter.enabled=true",
+        "accounts.id-filter.min-expected-insertions=10000"})
+class AccountIdFilterTests {
+
+    @Autowired
+    private SingleThreadedJpaAccountService service;
+
+    @Autowired
+    private AccountIdFilter idFilter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SqlStatementCounter counter;
+
+    @BeforeEach
+    void setUp() {
+        idFilter.rebuild();
+    }
+
+    @Test
+    void savedAccountIsVisibleTest() {
+        // given
+        Account userA = service
+                .save(Account.builder().balance(new BigDecimal("1000.23")).owner("UserA").build());
+
+        // when
+        Account copyA = service.getById(userA.getId());
+
+        // then
+        assertEquals(userA.getOwner(), copyA.getOwner());
+    }
+
+    @Test
+    void unknownIdRejectedWithoutQueryTest() {
+        // given
+        long unknownId = Long.MAX_VALUE;
+        while (idFilter.mightContain(unknownId)) {
+            unknownId--;
+        }
+        long id = unknownId;
+        NotFoundException[] thrown = new NotFoundException[1];
+
+        // when
+        counter.assertStatements(() -> thrown[0] =
+                assertThrows(NotFoundException.class, () -> service.getBalanceById(id)), 0);
+
+        // then
+        assertEquals(0, thrown[0].getStackTrace().length);
+    }
+
+    @Test
+    void rebuildPicksUpExternallyInsertedAccountsTest() {
+        // given
+        Long id = jdbcTemplate.queryForObject(
+                "INSERT INTO accounts (owner) VALUES ('External') RETURNING id", Long.class);
+        jdbcTemplate.update("INSERT INTO account_balances (account_id, balance) VALUES (?, 5)",
+                id);
+
+        // when
+        idFilter.rebuild();
+
+        // then
+        assertTrue(idFilter.mightContain(id));
+        assertEquals(0, service.getBalanceById(id).balance().compareTo(new BigDecimal("5")));
+    }
+}
@@ -0,0 +1,87 @@
+package example.transactions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import example.transactions.model.Account;
+import example.transactions.model.AccountPage;
+import example.transactions.model.AccountView;
+import example.transactions.service.AccountQueryService;
+import example.transactions.service.SingleThreadedJpaAccountService;
+
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest
+class AccountQueryServiceTests {
+
+    @Autowired
+    private AccountQueryService queryService;
+
+    @Autowired
+    private SingleThreadedJpaAccountService service;
+
+    private String owner;
+    private final List<Long> ids = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        owner = "Owner-" + UUID.randomUUID();
+        ids.clear();
+        for (int i = 0; i < 5; i++) {
+            ids.add(service.save(Account.builder().balance(BigDecimal.TEN).owner(owner).build())
+                    .getId());
+        }
+    }
+
+    @Test
+    void listByOwnerPagesTest() {
+        // given
+        List<Long> seen = new ArrayList<>();
+
+        // when
+        AccountPage first = queryService.listByOwner(owner, null, 2);
+        AccountPage second = queryService.listByOwner(owner, first.nextCursor(), 2);
+        AccountPage third = queryService.listByOwner(owner, second.nextCursor(), 2);
+        for (AccountPage page : List.of(first, second, third)) {
+            page.items().stream().map(AccountView::id).forEach(seen::add);
+        }
+
+        // then
+        assertNotNull(first.nextCursor());
+        assertNotNull(second.nextCursor());
+        assertEquals(1, third.items().size());
+        assertNull(third.nextCursor());
+        assertEquals(ids, seen);
+    }
+
+    @Test
+    void searchByOwnerTest() {
+        // given
+        String fragment = owner.substring(6, 20).toUpperCase();
+
+        // when
+        AccountPage page = queryService.searchByOwner(fragment, null, 10);
+
+        // then
+        assertEquals(ids, page.items().stream().map(AccountView::id).toList());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void invalidCursorTest() {
+        // given
+        // when
+        // then
+        assertThrows(IllegalArgumentException.class,
+                () -> queryService.listByOwner(owner, "not a cursor", 2));
+    }
+}
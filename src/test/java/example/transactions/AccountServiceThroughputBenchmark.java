@@ -0,0 +1,91 @@
+package example.transactions;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import example.transactions.model.Account;
+import example.transactions.service.ReactiveAccountService;
+import example.transactions.service.SingleThreadedJpaAccountService;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+
+// Сравнение блокирующего JPA-сервиса и R2DBC-сервиса при 5k одновременных запросов.
+// Запуск: ./gradlew benchmark
+@Slf4j
+@Tag("benchmark")
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest
+class AccountServiceThroughputBenchmark {
+
+    private static final int CONCURRENT_REQUESTS = 5_000;
+    private static final int ACCOUNTS = 100;
+    private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+    @Autowired
+    private SingleThreadedJpaAccountService jpaService;
+
+    @Autowired
+    private ReactiveAccountService reactiveService;
+
+    private final List<Account> accounts = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        accounts.clear();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts.add(jpaService.save(
+                    Account.builder().balance(new BigDecimal("1000.00")).owner("bench").build()));
+        }
+    }
+
+    @Test
+    void jpaVersusR2dbcThroughput() throws Exception {
+        // прогрев обоих путей, чтобы не мерить JIT и открытие соединений
+        runJpa(CONCURRENT_REQUESTS / 5);
+        runReactive(CONCURRENT_REQUESTS / 5);
+
+        long jpaNanos = runJpa(CONCURRENT_REQUESTS);
+        long reactiveNanos = runReactive(CONCURRENT_REQUESTS);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        log.info("JPA (virtual threads): {} ops/s per core", perCore(jpaNanos, cores));
+        log.info("R2DBC (event loop):    {} ops/s per core", perCore(reactiveNanos, cores));
+    }
+
+    private long runJpa(int requests) throws Exception {
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>(requests);
+            for (int i = 0; i < requests; i++) {
+                Account account = accounts.get(i % ACCOUNTS);
+                futures.add(executor.submit(() -> jpaService.deposit(account, AMOUNT)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private long runReactive(int requests) {
+        long start = System.nanoTime();
+        Flux.range(0, requests)
+                .flatMap(i -> reactiveService.deposit(accounts.get(i % ACCOUNTS), AMOUNT),
+                        requests)
+                .blockLast();
+        return System.nanoTime() - start;
+    }
+
+    private static long perCore(long nanos, int cores) {
+        return Math.round(CONCURRENT_REQUESTS / (nanos / 1e9) / cores);
+    }
+}
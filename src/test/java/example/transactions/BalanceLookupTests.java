@@ -0,0 +1,70 @@
+package example.transactions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import example.transactions.model.Account;
+import example.transactions.model.AccountBalances;
+import example.transactions.service.SingleThreadedJpaAccountService;
+
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest(properties = {"accounts.balance-lookup.chunk-size=3",
+        "accounts.balance-lookup.parallelism=2"})
+class BalanceLookupTests {
+
+    @Autowired
+    private SingleThreadedJpaAccountService service;
+
+    private final List<Account> accounts = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        accounts.clear();
+        for (int i = 0; i < 10; i++) {
+            accounts.add(service.save(Account.builder()
+                    .balance(new BigDecimal(i + "00.25")).owner("User" + i).build()));
+        }
+    }
+
+    @Test
+    void singleChunkLookupTest() {
+        // given
+        List<Long> ids = List.of(accounts.get(1).getId(), accounts.get(0).getId());
+
+        // when
+        AccountBalances balances = service.getBalances(ids);
+
+        // then
+        assertEquals(2, balances.size());
+        assertEquals(0, balances.get(accounts.get(0).getId()).compareTo(new BigDecimal("0.25")));
+        assertEquals(0,
+                balances.get(accounts.get(1).getId()).compareTo(new BigDecimal("100.25")));
+    }
+
+    @Test
+    void chunkedLookupTest() {
+        // given
+        List<Long> ids = new ArrayList<>();
+        accounts.forEach(account -> ids.add(account.getId()));
+        ids.add(accounts.get(3).getId());
+        ids.add(Long.MAX_VALUE);
+
+        // when
+        AccountBalances balances = service.getBalances(ids);
+
+        // then
+        assertEquals(accounts.size(), balances.size());
+        for (int i = 0; i < accounts.size(); i++) {
+            assertEquals(0, balances.get(accounts.get(i).getId())
+                    .compareTo(accounts.get(i).getBalance()));
+        }
+        assertNull(balances.get(Long.MAX_VALUE));
+    }
+}
@@ -0,0 +1,200 @@
+package example.transactions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import example.transactions.model.Account;
+import example.transactions.model.BalanceUpdate;
+import example.transactions.repository.OutboxJdbcRepository;
+import example.transactions.service.SingleThreadedJpaAccountService;
+import example.transactions.subscriptions.BalanceSubscriptionHub;
+import example.transactions.subscriptions.BalanceUpdateSink;
+
+@Import(TestcontainersConfiguration.class)
+@ActiveProfiles("subscriptions")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"outbox.file=build/balance-subscription-test.ndjson",
+                "outbox.poll-interval=PT0.1S"})
+class BalanceSubscriptionTests {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private SingleThreadedJpaAccountService service;
+
+    @Autowired
+    private BalanceSubscriptionHub hub;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void streamAfterCommitTest() throws Exception {
+        // given
+        Account account = service.save(Account.builder()
+                .balance(new BigDecimal("100.00")).owner("UserA").build());
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port
+                + "/accounts/balances/stream?ids=" + account.getId())).GET().build();
+        HttpResponse<InputStream> response = HttpClient.newHttpClient()
+                .send(request, HttpResponse.BodyHandlers.ofInputStream());
+
+        try (BufferedReader events = new BufferedReader(
+                new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+            // then: первым приходит текущий баланс
+            assertTrue(nextData(events).contains("\"balance\":100.00"));
+
+            // when
+            service.deposit(account, new BigDecimal("5.25"));
+
+            // then
+            String update = nextData(events);
+            assertTrue(update.contains("\"balance\":105.25"), update);
+            assertTrue(update.contains("\"delta\":5.25"), update);
+        }
+    }
+
+    @Test
+    void slowSubscriberConflationTest() throws Exception {
+        // given: подписчик застрял на первой отправке
+        Account account = service.save(Account.builder()
+                .balance(new BigDecimal("0.00")).owner("UserB").build());
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch unblock = new CountDownLatch(1);
+        CountDownLatch received = new CountDownLatch(2);
+        List<BalanceUpdate> updates = new CopyOnWriteArrayList<>();
+        BalanceSubscriptionHub.Subscription subscription = hub.subscribe(
+                new long[] {account.getId()}, new BalanceUpdateSink() {
+                    @Override
+                    public void send(BalanceUpdate update) throws IOException {
+                        sending.countDown();
+                        try {
+                            unblock.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        updates.add(update);
+                        received.countDown();
+                    }
+
+                    @Override
+                    public void heartbeat() {
+                    }
+                });
+
+        // when
+        assertTrue(sending.await(10, TimeUnit.SECONDS));
+        for (int i = 1; i <= 100; i++) {
+            hub.publish(account.getId(), new BigDecimal(i), BigDecimal.ONE);
+        }
+        unblock.countDown();
+
+        // then: снимок и одно слитое обновление с последним балансом и суммой изменений
+        try (subscription) {
+            assertTrue(received.await(10, TimeUnit.SECONDS));
+            Thread.sleep(200);
+            assertEquals(2, updates.size());
+            assertEquals(0, updates.get(1).balance().compareTo(new BigDecimal("100")));
+            assertEquals(0, updates.get(1).delta().compareTo(new BigDecimal("100")));
+        }
+    }
+
+    @Test
+    void staleRelayedEventIsDroppedTest() throws Exception {
+        // given
+        Account account = service.save(Account.builder()
+                .balance(new BigDecimal("0.00")).owner("UserC").build());
+        CountDownLatch received = new CountDownLatch(2);
+        List<BalanceUpdate> updates = new CopyOnWriteArrayList<>();
+        BalanceSubscriptionHub.Subscription subscription = hub.subscribe(
+                new long[] {account.getId()}, new BalanceUpdateSink() {
+                    @Override
+                    public void send(BalanceUpdate update) {
+                        updates.add(update);
+                        received.countDown();
+                    }
+
+                    @Override
+                    public void heartbeat() {
+                    }
+                });
+
+        // when: пачка с более новым событием счёта доставлена раньше
+        hub.publish(Long.MAX_VALUE - 1, account.getId(), new BigDecimal("20.00"),
+                new BigDecimal("10.00"));
+        hub.publish(Long.MAX_VALUE - 2, account.getId(), new BigDecimal("10.00"),
+                new BigDecimal("10.00"));
+
+        // then
+        try (subscription) {
+            assertTrue(received.await(10, TimeUnit.SECONDS));
+            Thread.sleep(200);
+            assertEquals(0, updates.getLast().balance().compareTo(new BigDecimal("20.00")));
+            assertTrue(updates.stream().noneMatch(
+                    update -> update.balance().compareTo(new BigDecimal("10.00")) == 0));
+        }
+    }
+
+    @Test
+    void batchRelayedByAnotherNodeTest() throws Exception {
+        // given
+        Account account = service.save(Account.builder()
+                .balance(new BigDecimal("0.00")).owner("UserD").build());
+        CountDownLatch received = new CountDownLatch(2);
+        List<BalanceUpdate> updates = new CopyOnWriteArrayList<>();
+        BalanceSubscriptionHub.Subscription subscription = hub.subscribe(
+                new long[] {account.getId()}, new BalanceUpdateSink() {
+                    @Override
+                    public void send(BalanceUpdate update) {
+                        updates.add(update);
+                        received.countDown();
+                    }
+
+                    @Override
+                    public void heartbeat() {
+                    }
+                });
+
+        // when: пачку разослал релей другого узла
+        jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", OutboxJdbcRepository.RELAYED_CHANNEL,
+                (Long.MAX_VALUE - 1) + "," + account.getId() + ",7.50,7.50;"
+                        + (Long.MAX_VALUE - 1) + "," + Long.MAX_VALUE + ",1.00,1.00");
+
+        // then
+        try (subscription) {
+            assertTrue(received.await(10, TimeUnit.SECONDS));
+            assertEquals(0, updates.getLast().balance().compareTo(new BigDecimal("7.50")));
+            assertEquals(0, updates.getLast().delta().compareTo(new BigDecimal("7.50")));
+        }
+    }
+
+    private static String nextData(BufferedReader events) throws Exception {
+        String line;
+        while ((line = events.readLine()) != null) {
+            if (line.startsWith("data:")) {
+                return line;
+            }
+        }
+        throw new AssertionError("Stream closed");
+    }
+}
@@ -0,0 +1,92 @@
+package example.transactions;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import lombok.extern.slf4j.Slf4j;
+
+// pgbench-подобное сравнение: широкая таблица со старой раскладкой (owner + balance в одной
+// строке, индексы по owner) против узкой account_balances с fillfactor = 70.
+// Для каждой таблицы меряем WAL на UPDATE, долю HOT-обновлений и прирост индексов.
+// Запуск: ./gradlew benchmark
+@Slf4j
+@Tag("benchmark")
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest
+class BalanceTableLayoutBenchmark {
+
+    private static final int ROWS = 20_000;
+    private static final int UPDATES = 50_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("CREATE TABLE bench_wide_accounts (id BIGSERIAL PRIMARY KEY,"
+                + " owner VARCHAR(255), balance DECIMAL(19,2))");
+        jdbcTemplate.execute("CREATE INDEX ON bench_wide_accounts (owner, id)");
+        jdbcTemplate.execute("CREATE INDEX ON bench_wide_accounts USING gin (owner gin_trgm_ops)");
+        jdbcTemplate.update("INSERT INTO bench_wide_accounts (owner, balance)"
+                + " SELECT repeat(md5(g::text), 6), 1000 FROM generate_series(1, ?) g", ROWS);
+
+        jdbcTemplate.execute("CREATE TABLE bench_narrow_balances (account_id BIGINT PRIMARY KEY,"
+                + " balance DECIMAL(19,2) NOT NULL) WITH (fillfactor = 70)");
+        jdbcTemplate.update("INSERT INTO bench_narrow_balances (account_id, balance)"
+                + " SELECT g, 1000 FROM generate_series(1, ?) g", ROWS);
+        jdbcTemplate.execute("VACUUM ANALYZE bench_wide_accounts");
+        jdbcTemplate.execute("VACUUM ANALYZE bench_narrow_balances");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS bench_wide_accounts");
+        jdbcTemplate.execute("DROP TABLE IF EXISTS bench_narrow_balances");
+    }
+
+    @Test
+    void walAndHotUpdatesPerLayout() {
+        measure("wide accounts", "bench_wide_accounts",
+                "UPDATE bench_wide_accounts SET balance = balance + 0.01 WHERE id = ?");
+        measure("narrow account_balances", "bench_narrow_balances",
+                "UPDATE bench_narrow_balances SET balance = balance + 0.01 WHERE account_id = ?");
+    }
+
+    private void measure(String layout, String table, String update) {
+        String startLsn = jdbcTemplate.queryForObject("SELECT pg_current_wal_lsn()::text",
+                String.class);
+        long indexBytesBefore = indexBytes(table);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long start = System.nanoTime();
+        for (int i = 0; i < UPDATES; i++) {
+            jdbcTemplate.update(update, random.nextLong(1, ROWS + 1));
+        }
+        long elapsed = System.nanoTime() - start;
+        Long walBytes = jdbcTemplate.queryForObject(
+                "SELECT pg_wal_lsn_diff(pg_current_wal_lsn(), ?::pg_lsn)::bigint", Long.class,
+                startLsn);
+        jdbcTemplate.execute("SELECT pg_stat_force_next_flush()");
+        Map<String, Object> stats = jdbcTemplate.queryForMap(
+                "SELECT n_tup_upd, n_tup_hot_upd FROM pg_stat_user_tables WHERE relname = ?",
+                table);
+        long updated = ((Number) stats.get("n_tup_upd")).longValue();
+        long hot = ((Number) stats.get("n_tup_hot_upd")).longValue();
+        log.info("{}: {} updates/s, {} WAL bytes/update, HOT {}%, index growth {} KiB", layout,
+                Math.round(UPDATES / (elapsed / 1e9)), walBytes / UPDATES,
+                updated == 0 ? 0 : hot * 100 / updated,
+                (indexBytes(table) - indexBytesBefore) / 1024);
+    }
+
+    private long indexBytes(String table) {
+        Long bytes = jdbcTemplate.queryForObject("SELECT pg_indexes_size(?::regclass)",
+                Long.class, table);
+        return bytes == null ? 0 : bytes;
+    }
+}
@@ -0,0 +1,155 @@
+package example.transactions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.math.BigDecimal;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+import example.transactions.cluster.ClusterAccountService;
+import example.transactions.cluster.PartitionLeaseManager;
+import example.transactions.model.Account;
+import example.transactions.service.OperationResult;
+import example.transactions.service.SingleThreadedJpaAccountService;
+
+// Два узла в одном процессе поверх общей БД: каждый — отдельный контекст со своим шлюзом.
+@Testcontainers
+class ClusterFailoverTests {
+
+    private static final int PARTITIONS = 8;
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES =
+            new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    @Test
+    void forwardingAndFailoverTest() throws Exception {
+        try (ConfigurableApplicationContext nodeA = startNode("node-a")) {
+            PartitionLeaseManager leasesA = nodeA.getBean(PartitionLeaseManager.class);
+            ClusterAccountService clusterA = nodeA.getBean(ClusterAccountService.class);
+            SingleThreadedJpaAccountService service =
+                    nodeA.getBean(SingleThreadedJpaAccountService.class);
+            await(() -> leasesA.ownedPartitions() == PARTITIONS);
+
+            // given
+            ConfigurableApplicationContext nodeB = startNode("node-b");
+            Account account;
+            try {
+                PartitionLeaseManager leasesB = nodeB.getBean(PartitionLeaseManager.class);
+                await(() -> leasesA.ownedPartitions() == PARTITIONS / 2
+                        && leasesB.ownedPartitions() == PARTITIONS / 2);
+                account = accountOwnedBy(service, leasesB);
+                await(() -> leasesB.localEndpoint().equals(leasesA.endpointOf(account.getId())));
+
+                // when
+                OperationResult deposited =
+                        clusterA.tryDeposit(account.getId(), new BigDecimal("5.00"));
+
+                // then
+                assertFalse(leasesA.isOwner(account.getId()));
+                assertEquals(0, balance(deposited).compareTo(new BigDecimal("105.00")));
+                assertEquals(0, balance(nodeB.getBean(ClusterAccountService.class)
+                        .tryGetBalance(account.getId())).compareTo(new BigDecimal("105.00")));
+            } finally {
+                // узел B «падает»: лизы не отпускаются и истекают сами
+                nodeB.close();
+            }
+
+            // when
+            await(() -> leasesA.isOwner(account.getId()));
+            OperationResult withdrawn =
+                    clusterA.tryWithdraw(account.getId(), new BigDecimal("5.00"));
+
+            // then
+            assertEquals(PARTITIONS, leasesA.ownedPartitions());
+            assertEquals(0, balance(withdrawn).compareTo(new BigDecimal("100.00")));
+            assertEquals(0, balance(clusterA.tryGetBalance(account.getId()))
+                    .compareTo(new BigDecimal("100.00")));
+        }
+    }
+
+    @Test
+    void crossPartitionTransferRefreshesCreditedBalanceTest() throws Exception {
+        try (ConfigurableApplicationContext nodeA = startNode("node-c");
+                ConfigurableApplicationContext nodeB = startNode("node-d")) {
+            PartitionLeaseManager leasesA = nodeA.getBean(PartitionLeaseManager.class);
+            PartitionLeaseManager leasesB = nodeB.getBean(PartitionLeaseManager.class);
+            ClusterAccountService clusterA = nodeA.getBean(ClusterAccountService.class);
+            ClusterAccountService clusterB = nodeB.getBean(ClusterAccountService.class);
+            SingleThreadedJpaAccountService service =
+                    nodeA.getBean(SingleThreadedJpaAccountService.class);
+            await(() -> leasesA.ownedPartitions() == PARTITIONS / 2
+                    && leasesB.ownedPartitions() == PARTITIONS / 2);
+
+            // given: баланс счёта зачисления закэширован на его владельце B
+            Account from = accountOwnedBy(service, leasesA);
+            Account to = accountOwnedBy(service, leasesB);
+            await(() -> leasesB.localEndpoint().equals(leasesA.endpointOf(to.getId())));
+            assertEquals(0, balance(clusterB.tryGetBalance(to.getId()))
+                    .compareTo(new BigDecimal("100.00")));
+
+            // when: перевод исполняется на A, владельце счёта списания
+            assertInstanceOf(OperationResult.Ok.class,
+                    clusterA.tryTransfer(from.getId(), to.getId(), new BigDecimal("30.00")));
+
+            // then
+            assertEquals(0, balance(clusterB.tryGetBalance(to.getId()))
+                    .compareTo(new BigDecimal("130.00")));
+            assertEquals(0, balance(clusterA.tryGetBalance(to.getId()))
+                    .compareTo(new BigDecimal("130.00")));
+        }
+    }
+
+    private static Account accountOwnedBy(SingleThreadedJpaAccountService service,
+            PartitionLeaseManager leases) {
+        for (int i = 0; i < PARTITIONS * 4; i++) {
+            Account account = service.save(Account.builder()
+                    .balance(new BigDecimal("100.00")).owner("User" + i).build());
+            if (leases.isOwner(account.getId())) {
+                return account;
+            }
+        }
+        throw new AssertionError("No account in partitions of " + leases.nodeId());
+    }
+
+    private static BigDecimal balance(OperationResult result) {
+        return assertInstanceOf(OperationResult.Ok.class, result).balance();
+    }
+
+    private static ConfigurableApplicationContext startNode(String nodeId) {
+        String r2dbcUrl = "r2dbc:postgresql://" + POSTGRES.getHost() + ":"
+                + POSTGRES.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT) + "/"
+                + POSTGRES.getDatabaseName();
+        return new SpringApplicationBuilder(TransactionsApplication.class).properties(
+                "spring.datasource.url=" + POSTGRES.getJdbcUrl(),
+                "spring.datasource.username=" + POSTGRES.getUsername(),
+                "spring.datasource.password=" + POSTGRES.getPassword(),
+                "spring.r2dbc.url=" + r2dbcUrl,
+                "spring.r2dbc.username=" + POSTGRES.getUsername(),
+                "spring.r2dbc.password=" + POSTGRES.getPassword(),
+                "server.port=0",
+                "gateway.tcp.enabled=true",
+                "gateway.tcp.port=0",
+                "accounts.cluster.enabled=true",
+                "accounts.cluster.node-id=" + nodeId,
+                "accounts.cluster.partitions=" + PARTITIONS,
+                "accounts.cluster.lease-duration=PT1S",
+                "accounts.cluster.renew-interval=PT0.2S",
+                "accounts.cluster.release-on-shutdown=false").run();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 30_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Condition not met in 30 seconds");
+            Thread.sleep(50);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package example.transactions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.math.BigDecimal;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import example.transactions.exeption.NotFoundException;
+import example.transactions.model.Account;
+import example.transactions.service.OperationResult;
+import example.transactions.service.SingleThreadedJpaAccountService;
+
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest(properties = "accounts.transfer-mode=function")
+class FunctionTransferModeTests {
+
+    @Autowired
+    private SingleThreadedJpaAccountService service;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Account userA;
+    private Account userB;
+
+    @BeforeEach
+    void setUp() {
+        userA = service
+                .save(Account.builder().balance(new BigDecimal("1000.23")).owner("UserA").build());
+        userB = service
+                .save(Account.builder().balance(new BigDecimal("1100.23")).owner("UserB").build());
+    }
+
+    @Test
+    void transferTest() {
+        // given
+        BigDecimal amount = new BigDecimal("23.43");
+
+        // when
+        service.transfer(userA, userB, amount);
+
+        // then
+        assertBalance(userA, "976.80");
+        assertBalance(userB, "1123.66");
+    }
+
+    @Test
+    void transferWritesOutboxEventsTest() {
+        // given
+        BigDecimal amount = new BigDecimal("23.43");
+
+        // when
+        service.transfer(userA, userB, amount);
+
+        // then
+        assertEquals(0, outboxAmount(userA, "TRANSFER_OUT").compareTo(amount.negate()));
+        assertEquals(0, outboxAmount(userB, "TRANSFER_IN").compareTo(amount));
+    }
+
+    @Test
+    void transferInsufficientFundsTest() {
+        // given
+        BigDecimal amount = new BigDecimal("1000.24");
+
+        // when
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> service.transfer(userA, userB, amount));
+
+        // then
+        assertEquals("Insufficient funds", e.getMessage());
+        assertBalance(userA, "1000.23");
+        assertBalance(userB, "1100.23");
+    }
+
+    @Test
+    void transferToUnknownAccountTest() {
+        // given
+        Account unknown = Account.builder().id(Long.MAX_VALUE).build();
+
+        // when
+        assertThrows(NotFoundException.class,
+                () -> service.transfer(userA, unknown, new BigDecimal("23.43")));
+
+        // then
+        assertBalance(userA, "1000.23");
+    }
+
+    @Test
+    void tryTransferResultTest() {
+        // when
+        OperationResult ok = service.tryTransfer(userA.getId(), userB.getId(),
+                new BigDecimal("23.43"));
+        OperationResult declined = service.tryTransfer(userA.getId(), userB.getId(),
+                new BigDecimal("5000.00"));
+
+        // then
+        assertInstanceOf(OperationResult.Ok.class, ok);
+        assertEquals(new OperationResult.InsufficientFunds(userA.getId()), declined);
+        assertBalance(userA, "976.80");
+        assertBalance(userB, "1123.66");
+    }
+
+    private void assertBalance(Account account, String expected) {
+        Account copy = service.getById(account.getId());
+        assertEquals(0, copy.getBalance().compareTo(new BigDecimal(expected)));
+    }
+
+    private BigDecimal outboxAmount(Account account, String type) {
+        return jdbcTemplate.queryForObject("SELECT sum(amount) FROM outbox"
+                + " WHERE account_id = ? AND event_type = ?", BigDecimal.class, account.getId(),
+                type);
+    }
+}
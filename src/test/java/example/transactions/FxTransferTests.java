@@ -0,0 +1,111 @@
+package example.transactions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.math.BigDecimal;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import example.transactions.fx.FxRateCache;
+import example.transactions.fx.FxRates;
+import example.transactions.model.Account;
+import example.transactions.service.OperationResult;
+import example.transactions.service.SingleThreadedJpaAccountService;
+
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest
+class FxTransferTests {
+
+    @Autowired
+    private SingleThreadedJpaAccountService service;
+
+    @Autowired
+    private FxRateCache fxRateCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Account usd;
+    private Account eur;
+    private Account jpy;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("INSERT INTO fx_rates (currency, rate) VALUES ('EUR', 1.10)"
+                + " ON CONFLICT (currency) DO UPDATE SET rate = EXCLUDED.rate");
+        fxRateCache.refresh();
+        usd = service.save(Account.builder()
+                .balance(new BigDecimal("1000.00")).owner("UserUsd").build());
+        eur = service.save(Account.builder()
+                .balance(new BigDecimal("500.00")).owner("UserEur").currency("EUR").build());
+        jpy = service.save(Account.builder()
+                .balance(new BigDecimal("500.00")).owner("UserJpy").currency("JPY").build());
+    }
+
+    @Test
+    void crossCurrencyTransferTest() {
+        // given
+        BigDecimal amount = new BigDecimal("100.00");
+
+        // when
+        service.transfer(eur, usd, amount);
+
+        // then
+        assertBalance(eur, "400.00");
+        assertBalance(usd, "1110.00");
+    }
+
+    @Test
+    void crossCurrencyTryTransferTest() {
+        // given
+        BigDecimal amount = new BigDecimal("110.00");
+
+        // when
+        OperationResult result = service.tryTransfer(usd.getId(), eur.getId(), amount);
+
+        // then
+        assertInstanceOf(OperationResult.Ok.class, result);
+        assertBalance(usd, "890.00");
+        assertBalance(eur, "600.00");
+    }
+
+    @Test
+    void missingRateRejectsTransferTest() {
+        // given
+        BigDecimal amount = new BigDecimal("10.00");
+
+        // when
+        assertThrows(IllegalStateException.class, () -> service.transfer(usd, jpy, amount));
+        OperationResult result = service.tryTransfer(jpy.getId(), usd.getId(), amount);
+
+        // then
+        assertInstanceOf(OperationResult.Invalid.class, result);
+        assertBalance(usd, "1000.00");
+        assertBalance(jpy, "500.00");
+    }
+
+    @Test
+    void ratesConversionTest() {
+        // given
+        FxRates rates = new FxRates(Map.of("USD", BigDecimal.ONE, "EUR", new BigDecimal("1.10"),
+                "GBP", new BigDecimal("1.25")));
+
+        // when
+        // then
+        assertEquals(new BigDecimal("142.05"),
+                rates.convert(new BigDecimal("125.00"), "GBP", "EUR"));
+        assertEquals(new BigDecimal("0.01"), rates.convert(new BigDecimal("0.01"), "USD", "EUR"));
+        assertNull(rates.convert(BigDecimal.TEN, "USD", "JPY"));
+    }
+
+    private void assertBalance(Account account, String expected) {
+        Account copy = service.getById(account.getId());
+        assertEquals(0, copy.getBalance().compareTo(new BigDecimal(expected)));
+    }
+}
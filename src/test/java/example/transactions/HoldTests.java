@@ -0,0 +1,130 @@
+package example.transactions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.math.BigDecimal;
+import java.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import example.transactions.exeption.NotFoundException;
+import example.transactions.model.Account;
+import example.transactions.model.Hold;
+import example.transactions.service.HoldService;
+import example.transactions.service.OperationResult;
+import example.transactions.service.SingleThreadedJpaAccountService;
+
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest(properties = {"accounts.holds.tick=PT0.01S", "accounts.holds.wheel-size=8"})
+class HoldTests {
+
+    @Autowired
+    private SingleThreadedJpaAccountService service;
+
+    @Autowired
+    private HoldService holdService;
+
+    private Account userA;
+    private Account userB;
+
+    @BeforeEach
+    void setUp() {
+        userA = service.save(Account.builder()
+                .balance(new BigDecimal("100.00")).owner("UserA").build());
+        userB = service.save(Account.builder()
+                .balance(new BigDecimal("10.00")).owner("UserB").build());
+    }
+
+    @Test
+    void holdReducesAvailableBalanceTest() {
+        // given
+        holdService.hold(userA.getId(), new BigDecimal("70.00"), Duration.ofMinutes(5));
+
+        // when
+        BigDecimal available = holdService.getAvailableBalance(userA.getId());
+
+        // then
+        assertEquals(0, available.compareTo(new BigDecimal("30.00")));
+        assertEquals(0, service.getBalanceById(userA.getId()).balance()
+                .compareTo(new BigDecimal("100.00")));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.withdraw(userA, new BigDecimal("30.01")));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.transfer(userA, userB, new BigDecimal("30.01")));
+        assertEquals(new OperationResult.InsufficientFunds(userA.getId()),
+                service.tryWithdraw(userA.getId(), new BigDecimal("30.01")));
+        assertThrows(IllegalArgumentException.class, () -> holdService.hold(userA.getId(),
+                new BigDecimal("30.01"), Duration.ofMinutes(5)));
+        service.withdraw(userA, new BigDecimal("30.00"));
+    }
+
+    @Test
+    void captureDebitsHeldAmountTest() {
+        // given
+        Hold hold = holdService.hold(userA.getId(), new BigDecimal("40.00"),
+                Duration.ofMinutes(5));
+
+        // when
+        BigDecimal balance = holdService.capture(hold.id());
+
+        // then
+        assertEquals(0, balance.compareTo(new BigDecimal("60.00")));
+        assertEquals(0, holdService.getAvailableBalance(userA.getId())
+                .compareTo(new BigDecimal("60.00")));
+        assertThrows(NotFoundException.class, () -> holdService.capture(hold.id()));
+        assertThrows(NotFoundException.class, () -> holdService.release(hold.id()));
+    }
+
+    @Test
+    void releaseRestoresAvailableBalanceTest() {
+        // given
+        Hold hold = holdService.hold(userA.getId(), new BigDecimal("40.00"),
+                Duration.ofMinutes(5));
+
+        // when
+        holdService.release(hold.id());
+
+        // then
+        assertEquals(0, holdService.getAvailableBalance(userA.getId())
+                .compareTo(new BigDecimal("100.00")));
+        assertThrows(NotFoundException.class, () -> holdService.capture(hold.id()));
+    }
+
+    @Test
+    void expiredHoldsAreReleasedTest() throws InterruptedException {
+        // given
+        Hold shortHold = holdService.hold(userA.getId(), new BigDecimal("40.00"),
+                Duration.ofMillis(200));
+        holdService.hold(userA.getId(), new BigDecimal("10.00"), Duration.ofMinutes(5));
+        // дальше нулевого уровня колеса (8 корзин по 10 мс) — проверяет каскад
+        Hold cascadedHold = holdService.hold(userB.getId(), new BigDecimal("10.00"),
+                Duration.ofMillis(700));
+
+        // when
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (holdService.getAvailableBalance(userB.getId()).signum() == 0
+                && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+
+        // then
+        assertEquals(0, holdService.getAvailableBalance(userA.getId())
+                .compareTo(new BigDecimal("90.00")));
+        assertEquals(0, holdService.getAvailableBalance(userB.getId())
+                .compareTo(new BigDecimal("10.00")));
+        assertThrows(NotFoundException.class, () -> holdService.capture(shortHold.id()));
+        assertThrows(NotFoundException.class, () -> holdService.capture(cascadedHold.id()));
+    }
+
+    @Test
+    void holdValidationTest() {
+        assertThrows(NotFoundException.class, () -> holdService.hold(Long.MAX_VALUE,
+                BigDecimal.ONE, Duration.ofMinutes(5)));
+        assertThrows(IllegalArgumentException.class, () -> holdService.hold(userA.getId(),
+                BigDecimal.ONE, Duration.ofDays(30)));
+        assertThrows(IllegalArgumentException.class, () -> holdService.hold(userA.getId(),
+                BigDecimal.ONE, Duration.ZERO));
+    }
+}
@@ -0,0 +1,125 @@
+package example.transactions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import example.transactions.batch.InterestAccrualJob;
+import example.transactions.batch.InterestAccrualSummary;
+import example.transactions.model.Account;
+import example.transactions.service.HoldService;
+import example.transactions.service.SingleThreadedJpaAccountService;
+
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest(properties = {"accounts.interest.rate=0.01", "accounts.interest.chunk-size=1",
+        "accounts.interest.parallelism=2"})
+class InterestAccrualJobTests {
+
+    @Autowired
+    private InterestAccrualJob job;
+
+    @Autowired
+    private SingleThreadedJpaAccountService service;
+
+    @Autowired
+    private HoldService holdService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Account userA;
+    private Account userB;
+
+    @BeforeEach
+    void setUp() {
+        userA = service.save(Account.builder()
+                .balance(new BigDecimal("1000.00")).owner("UserA").build());
+        userB = service.save(Account.builder()
+                .balance(new BigDecimal("250.50")).owner("UserB").build());
+    }
+
+    @Test
+    void accrueInterestTest() {
+        // given
+        LocalDate businessDate = LocalDate.of(2024, 1, 1);
+
+        // when
+        job.run(businessDate);
+
+        // then
+        assertBalance(userA, "1010.00");
+        assertBalance(userB, "253.01");
+        assertEquals(0, ledgerAmount(userA, businessDate).compareTo(new BigDecimal("10.00")));
+    }
+
+    @Test
+    void rerunForSameDateIsNoopTest() {
+        // given
+        LocalDate businessDate = LocalDate.of(2024, 1, 2);
+        job.run(businessDate);
+
+        // when
+        InterestAccrualSummary summary = job.run(businessDate);
+
+        // then
+        assertEquals(0, summary.accountsAccrued());
+        assertBalance(userA, "1010.00");
+    }
+
+    @Test
+    void restartFromCheckpointTest() {
+        // given
+        // упавший запуск успел обработать диапазон со счётом A
+        LocalDate businessDate = LocalDate.of(2024, 1, 3);
+        Date date = Date.valueOf(businessDate);
+        jdbcTemplate.update("INSERT INTO interest_runs (business_date, rate, chunk_size)"
+                + " VALUES (?, 0.01, 1)", date);
+        jdbcTemplate.update("INSERT INTO interest_checkpoints (business_date, range_start,"
+                + " range_end) VALUES (?, ?, ?)", date, userA.getId(), userA.getId());
+
+        // when
+        InterestAccrualSummary summary = job.run(businessDate);
+
+        // then
+        assertTrue(summary.rangesSkipped() >= 1);
+        assertBalance(userA, "1000.00");
+        assertBalance(userB, "253.01");
+    }
+
+    @Test
+    void feeIsCappedByHeldAmountTest() {
+        // given
+        // комиссия 50% за дату, холд покрывает почти весь баланс счёта B
+        LocalDate businessDate = LocalDate.of(2024, 1, 4);
+        jdbcTemplate.update("INSERT INTO interest_runs (business_date, rate, chunk_size)"
+                + " VALUES (?, -0.5, 1)", Date.valueOf(businessDate));
+        holdService.hold(userB.getId(), new BigDecimal("200.00"), Duration.ofMinutes(5));
+
+        // when
+        job.run(businessDate);
+
+        // then
+        assertBalance(userA, "500.00");
+        assertBalance(userB, "200.00");
+        assertEquals(0, ledgerAmount(userB, businessDate).compareTo(new BigDecimal("-50.50")));
+    }
+
+    private void assertBalance(Account account, String expected) {
+        Account copy = service.getById(account.getId());
+        assertEquals(0, copy.getBalance().compareTo(new BigDecimal(expected)));
+    }
+
+    private BigDecimal ledgerAmount(Account account, LocalDate businessDate) {
+        return jdbcTemplate.queryForObject("SELECT sum(amount) FROM ledger_entries"
+                + " WHERE account_id = ? AND reference = ?", BigDecimal.class, account.getId(),
+                "interest:" + businessDate);
+    }
+}
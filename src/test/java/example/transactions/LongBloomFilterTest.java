@@ -0,0 +1,44 @@
+package example.transactions;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import example.transactions.filter.LongBloomFilter;
+
+class LongBloomFilterTest {
+
+    @Test
+    void noFalseNegativesTest() {
+        // given
+        LongBloomFilter filter = LongBloomFilter.create(100_000, 0.01);
+
+        // when
+        for (long id = 1; id <= 100_000; id++) {
+            filter.add(id);
+        }
+
+        // then
+        for (long id = 1; id <= 100_000; id++) {
+            assertTrue(filter.mightContain(id));
+        }
+    }
+
+    @Test
+    void falsePositiveRateTest() {
+        // given
+        LongBloomFilter filter = LongBloomFilter.create(100_000, 0.01);
+        for (long id = 1; id <= 100_000; id++) {
+            filter.add(id);
+        }
+
+        // when
+        int falsePositives = 0;
+        for (long id = 1_000_001; id <= 1_100_000; id++) {
+            if (filter.mightContain(id)) {
+                falsePositives++;
+            }
+        }
+
+        // then
+        assertTrue(falsePositives < 2_000, "False positives: " + falsePositives);
+    }
+}
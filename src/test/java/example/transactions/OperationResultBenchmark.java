@@ -0,0 +1,118 @@
+package example.transactions;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import example.transactions.model.Account;
+import example.transactions.service.OperationResult;
+import example.transactions.service.SingleThreadedJpaAccountService;
+import lombok.extern.slf4j.Slf4j;
+
+// Списания при 30% отказов по сумме: исключения (CHECK + откат + стек) против OperationResult.
+// Запуск: ./gradlew benchmark
+@Slf4j
+@Tag("benchmark")
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest
+class OperationResultBenchmark {
+
+    private static final int REQUESTS = 20_000;
+    private static final int ACCOUNTS = 100;
+    // каждые 3 из 10 запросов идут на пустые счета и гарантированно получают отказ
+    private static final int DECLINED_PER_TEN = 3;
+    private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+    @Autowired
+    private SingleThreadedJpaAccountService service;
+
+    private final List<Account> funded = new ArrayList<>();
+    private final List<Account> empty = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        funded.clear();
+        empty.clear();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            funded.add(service.save(Account.builder()
+                    .balance(new BigDecimal("1000000.00")).owner("bench").build()));
+            empty.add(service.save(Account.builder()
+                    .balance(BigDecimal.ZERO).owner("bench").build()));
+        }
+    }
+
+    @Test
+    void exceptionsVersusResults() throws Exception {
+        // прогрев обоих путей
+        runExceptions(REQUESTS / 5, new LongAdder());
+        runResults(REQUESTS / 5, new LongAdder());
+
+        LongAdder exceptionDeclines = new LongAdder();
+        LongAdder resultDeclines = new LongAdder();
+        long exceptionNanos = runExceptions(REQUESTS, exceptionDeclines);
+        long resultNanos = runResults(REQUESTS, resultDeclines);
+
+        log.info("Exceptions: {} ops/s, {} declined", opsPerSecond(exceptionNanos),
+                exceptionDeclines.sum());
+        log.info("Results:    {} ops/s, {} declined", opsPerSecond(resultNanos),
+                resultDeclines.sum());
+    }
+
+    private long runExceptions(int requests, LongAdder declines) throws Exception {
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>(requests);
+            for (int i = 0; i < requests; i++) {
+                Account account = pick(i);
+                futures.add(executor.submit(() -> {
+                    try {
+                        service.withdraw(account, AMOUNT);
+                    } catch (IllegalArgumentException e) {
+                        declines.increment();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private long runResults(int requests, LongAdder declines) throws Exception {
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>(requests);
+            for (int i = 0; i < requests; i++) {
+                Account account = pick(i);
+                futures.add(executor.submit(() -> {
+                    if (service.tryWithdraw(account.getId(), AMOUNT)
+                            instanceof OperationResult.InsufficientFunds) {
+                        declines.increment();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private Account pick(int i) {
+        return i % 10 < DECLINED_PER_TEN ? empty.get(i % ACCOUNTS) : funded.get(i % ACCOUNTS);
+    }
+
+    private static long opsPerSecond(long nanos) {
+        return Math.round(REQUESTS / (nanos / 1e9));
+    }
+}
@@ -0,0 +1,177 @@
+package example.transactions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import example.transactions.model.Account;
+import example.transactions.outbox.OutboxPartitionMaintenance;
+import example.transactions.outbox.OutboxRelay;
+import example.transactions.repository.OutboxJdbcRepository;
+import example.transactions.service.SingleThreadedJpaAccountService;
+
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest(properties = {"outbox.file=build/outbox-relay-test.ndjson",
+        "outbox.batch-size=5"})
+class OutboxRelayTests {
+
+    private static final Path FILE = Path.of("build/outbox-relay-test.ndjson");
+    private static final Pattern EVENT_ID = Pattern.compile("\"id\":(\\d+)");
+    private static final Pattern EVENT_TYPE = Pattern.compile("\"type\":\"(\\w+)\"");
+
+    @Autowired
+    private SingleThreadedJpaAccountService service;
+
+    @Autowired
+    private OutboxRelay relay;
+
+    @Autowired
+    private OutboxPartitionMaintenance maintenance;
+
+    @Autowired
+    private OutboxJdbcRepository outboxRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Account userA;
+    private Account userB;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Files.createDirectories(FILE.getParent());
+        Files.deleteIfExists(FILE);
+        relay.drain(1);
+        Files.deleteIfExists(FILE);
+        userA = service.save(Account.builder()
+                .balance(new BigDecimal("1000.00")).owner("UserA").build());
+        userB = service.save(Account.builder()
+                .balance(new BigDecimal("100.00")).owner("UserB").build());
+    }
+
+    @Test
+    void committedOperationsAreRelayedTest() throws IOException {
+        // given
+        service.withdraw(userA, new BigDecimal("10.00"));
+        service.deposit(userB, new BigDecimal("5.00"));
+        service.transfer(userA, userB, new BigDecimal("20.00"));
+
+        // when
+        long relayed = relay.drain(2);
+
+        // then
+        List<String> lines = Files.readAllLines(FILE);
+        assertEquals(4, relayed);
+        assertEquals(4, lines.size());
+        Set<String> types = new HashSet<>();
+        for (String line : lines) {
+            Matcher matcher = EVENT_TYPE.matcher(line);
+            assertTrue(matcher.find());
+            types.add(matcher.group(1));
+        }
+        assertEquals(Set.of("WITHDRAWAL", "DEPOSIT", "TRANSFER_OUT", "TRANSFER_IN"), types);
+        assertTrue(lines.stream().anyMatch(line -> line.contains("\"type\":\"TRANSFER_OUT\"")
+                && line.contains("\"accountId\":" + userA.getId())
+                && line.contains("\"counterpartyId\":" + userB.getId())
+                && line.contains("\"amount\":-20.00")
+                && line.contains("\"balance\":970.00")));
+        assertEquals(0, pendingEvents());
+    }
+
+    @Test
+    void rolledBackOperationWritesNoEventTest() {
+        // given
+        assertThrows(IllegalArgumentException.class,
+                () -> service.withdraw(userB, new BigDecimal("500.00")));
+
+        // when
+        long relayed = relay.drain(1);
+
+        // then
+        assertEquals(0, relayed);
+        assertFalse(Files.exists(FILE));
+    }
+
+    @Test
+    void parallelWorkersRelayEachEventOnceTest() throws IOException {
+        // given
+        for (int i = 0; i < 50; i++) {
+            service.deposit(userA, new BigDecimal("1.00"));
+        }
+
+        // when
+        long relayed = relay.drain(4);
+
+        // then
+        List<String> lines = Files.readAllLines(FILE);
+        Set<Long> ids = new HashSet<>();
+        for (String line : lines) {
+            Matcher matcher = EVENT_ID.matcher(line);
+            assertTrue(matcher.find());
+            assertTrue(ids.add(Long.parseLong(matcher.group(1))));
+        }
+        assertEquals(50, relayed);
+        assertEquals(50, ids.size());
+    }
+
+    @Test
+    void processedPartitionIsDroppedTest() {
+        // given
+        LocalDate day = LocalDate.of(2020, 1, 1);
+        outboxRepository.createPartition(day);
+        jdbcTemplate.update("INSERT INTO outbox (created_at, event_type, account_id, amount,"
+                + " balance, processed_at) VALUES ('2020-01-01T12:00:00Z', 'DEPOSIT', ?, 1, 1,"
+                + " now())", userA.getId());
+
+        // when
+        maintenance.maintain();
+
+        // then
+        assertFalse(outboxRepository.findPartitions()
+                .contains(OutboxJdbcRepository.partitionName(day)));
+        assertTrue(outboxRepository.findPartitions()
+                .contains(OutboxJdbcRepository.partitionName(LocalDate.now())));
+    }
+
+    @Test
+    void partitionAdoptsRowsFromDefaultTest() {
+        // given: секции дня ещё нет, и его событие легло в DEFAULT
+        LocalDate day = LocalDate.of(2020, 2, 1);
+        jdbcTemplate.update("INSERT INTO outbox (created_at, event_type, account_id, amount,"
+                + " balance) VALUES ('2020-02-01T12:00:00Z', 'DEPOSIT', ?, 1, 1)", userA.getId());
+
+        // when
+        outboxRepository.createPartition(day);
+
+        // then
+        assertTrue(outboxRepository.findPartitions()
+                .contains(OutboxJdbcRepository.partitionName(day)));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM "
+                + OutboxJdbcRepository.partitionName(day), Integer.class));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM outbox_default"
+                + " WHERE created_at < '2020-02-02'", Integer.class));
+        outboxRepository.dropPartition(day);
+    }
+
+    private int pendingEvents() {
+        Integer pending = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM outbox WHERE processed_at IS NULL", Integer.class);
+        return pending == null ? 0 : pending;
+    }
+}
@@ -0,0 +1,125 @@
+package example.transactions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import example.transactions.exeption.RateLimitedException;
+import example.transactions.model.Account;
+import example.transactions.ratelimit.RateLimitProperties;
+import example.transactions.ratelimit.RateLimiter;
+import example.transactions.service.AccountService;
+import example.transactions.service.SingleThreadedJpaAccountService;
+
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest(properties = {"accounts.rate-limit.enabled=true",
+        "accounts.rate-limit.account-permits-per-second=1",
+        "accounts.rate-limit.account-burst=3",
+        "accounts.rate-limit.caller-permits-per-second=1",
+        "accounts.rate-limit.caller-burst=5"})
+class RateLimitTests {
+
+    @Autowired
+    private SingleThreadedJpaAccountService service;
+
+    @Autowired
+    private RateLimitProperties properties;
+
+    // Часы лимитера двигает только тест: пополнение 1 токен/с не должно зависеть от скорости
+    // прогона.
+    private final AtomicLong nanoTime = new AtomicLong();
+    private RateLimiter rateLimiter;
+    private Account userA;
+    private Account userB;
+
+    @BeforeEach
+    void setUp() {
+        rateLimiter = new RateLimiter(properties, nanoTime::get);
+        userA = service.save(Account.builder()
+                .balance(new BigDecimal("100.00")).owner("UserA").build());
+        userB = service.save(Account.builder()
+                .balance(new BigDecimal("100.00")).owner("UserB").build());
+    }
+
+    @Test
+    void accountLimitTest() {
+        // given
+        AccountService limited = rateLimiter.decorate(service, "account-limit-test");
+        for (int i = 0; i < 3; i++) {
+            limited.deposit(userA, new BigDecimal("1.00"));
+        }
+
+        // when
+        assertThrows(RateLimitedException.class,
+                () -> limited.deposit(userA, new BigDecimal("1.00")));
+
+        // then
+        assertEquals(0, service.getBalanceById(userA.getId()).balance()
+                .compareTo(new BigDecimal("103.00")));
+        limited.deposit(userB, new BigDecimal("1.00"));
+        nanoTime.addAndGet(Duration.ofSeconds(1).toNanos());
+        limited.deposit(userA, new BigDecimal("1.00"));
+    }
+
+    @Test
+    void callerLimitTest() {
+        // given
+        String callerId = "caller-limit-test";
+        for (int i = 0; i < 3; i++) {
+            assertTrue(rateLimiter.tryAcquire(callerId, userA.getId()));
+        }
+        for (int i = 0; i < 2; i++) {
+            assertTrue(rateLimiter.tryAcquire(callerId, userB.getId()));
+        }
+
+        // when
+        boolean acquired = rateLimiter.tryAcquire(callerId, Long.MAX_VALUE);
+
+        // then
+        assertFalse(acquired);
+        assertTrue(rateLimiter.tryAcquire("another-caller", Long.MAX_VALUE));
+    }
+
+    @Test
+    void accountRejectionRefundsCallerTokenTest() {
+        // given
+        String callerId = "caller-refund-test";
+        for (int i = 0; i < 3; i++) {
+            assertTrue(rateLimiter.tryAcquire(callerId, userA.getId()));
+        }
+
+        // when
+        for (int i = 0; i < 2; i++) {
+            assertFalse(rateLimiter.tryAcquire(callerId, userA.getId()));
+        }
+
+        // then
+        for (int i = 0; i < 2; i++) {
+            assertTrue(rateLimiter.tryAcquire(callerId, userB.getId()));
+        }
+        assertFalse(rateLimiter.tryAcquire(callerId, userB.getId()));
+    }
+
+    @Test
+    void evictionKeepsDepletedBucketsTest() {
+        // given
+        String callerId = "eviction-test";
+        for (int i = 0; i < 3; i++) {
+            assertTrue(rateLimiter.tryAcquire(callerId, userA.getId()));
+        }
+
+        // when
+        rateLimiter.evictFull();
+
+        // then
+        assertFalse(rateLimiter.tryAcquire(callerId, userA.getId()));
+    }
+}
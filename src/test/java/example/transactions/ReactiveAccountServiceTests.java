@@ -0,0 +1,119 @@
+package example.transactions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.math.BigDecimal;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import example.transactions.exeption.NotFoundException;
+import example.transactions.model.Account;
+import example.transactions.service.ReactiveAccountService;
+import example.transactions.service.SingleThreadedJpaAccountService;
+import lombok.extern.slf4j.Slf4j;
+import reactor.test.StepVerifier;
+
+@Slf4j
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest
+class ReactiveAccountServiceTests {
+
+    @Autowired
+    private ReactiveAccountService reactiveService;
+
+    @Autowired
+    private SingleThreadedJpaAccountService jpaService;
+
+    private Account userA;
+    private Account userB;
+
+    @BeforeEach
+    void setUp() {
+        userA = jpaService
+                .save(Account.builder().balance(new BigDecimal("1000.23")).owner("UserA").build());
+        userB = jpaService
+                .save(Account.builder().balance(new BigDecimal("1100.23")).owner("UserB").build());
+        log.info("Initial: userA = {}, userB = {}", userA, userB);
+    }
+
+    @Test
+    void withdrawTest() {
+        // given
+        BigDecimal amount = new BigDecimal("10.78");
+
+        // when
+        StepVerifier.create(reactiveService.withdraw(userA, amount)).verifyComplete();
+
+        // then
+        assertBalance(userA, "989.45");
+    }
+
+    @Test
+    void withdrawInsufficientFundsTest() {
+        // given
+        BigDecimal amount = new BigDecimal("1000.24");
+
+        // when
+        StepVerifier.create(reactiveService.withdraw(userA, amount))
+                .verifyErrorMessage("Insufficient funds");
+
+        // then
+        assertBalance(userA, "1000.23");
+    }
+
+    @Test
+    void depositTest() {
+        // given
+        BigDecimal amount = new BigDecimal("14.34");
+
+        // when
+        StepVerifier.create(reactiveService.deposit(userA, amount)).verifyComplete();
+
+        // then
+        assertBalance(userA, "1014.57");
+    }
+
+    @Test
+    void depositUnknownAccountTest() {
+        // given
+        Account unknown = Account.builder().id(Long.MAX_VALUE).build();
+
+        // when
+        // then
+        StepVerifier.create(reactiveService.deposit(unknown, BigDecimal.ONE))
+                .verifyError(NotFoundException.class);
+    }
+
+    @Test
+    void transferTest() {
+        // given
+        BigDecimal amount = new BigDecimal("23.43");
+
+        // when
+        StepVerifier.create(reactiveService.transfer(userA, userB, amount)).verifyComplete();
+
+        // then
+        assertBalance(userA, "976.80");
+        assertBalance(userB, "1123.66");
+    }
+
+    @Test
+    void transferRollbackTest() {
+        // given
+        Account unknown = Account.builder().id(Long.MAX_VALUE).build();
+
+        // when
+        StepVerifier.create(reactiveService.transfer(userA, unknown, new BigDecimal("23.43")))
+                .verifyError(NotFoundException.class);
+
+        // then
+        assertBalance(userA, "1000.23");
+    }
+
+    private void assertBalance(Account account, String expected) {
+        StepVerifier.create(reactiveService.getBalance(account.getId()))
+                .assertNext(balance -> assertEquals(0, balance.compareTo(new BigDecimal(expected))))
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,52 @@
+package example.transactions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import example.transactions.gateway.GatewayClient;
+import example.transactions.gateway.GatewayProtocol;
+import example.transactions.gateway.TransferGatewayServer;
+import example.transactions.replication.ReplicatedAccountService;
+import example.transactions.service.AccountOperations;
+
+// Контекст с включённой репликацией: в нём два AccountOperations, и шлюз должен получить
+// реплицируемый.
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest(properties = {"gateway.tcp.enabled=true", "gateway.tcp.port=0",
+        "accounts.replication.enabled=true", "accounts.replication.role=PRIMARY",
+        "accounts.replication.port=0", "accounts.replication.durability=NONE"})
+class ReplicatedGatewayTests {
+
+    @Autowired
+    private TransferGatewayServer server;
+
+    @Autowired
+    private AccountOperations operations;
+
+    @Autowired
+    private ReplicatedAccountService service;
+
+    @Test
+    void gatewayUsesReplicatedEngineTest() throws Exception {
+        // given
+        long userA = service.open(new BigDecimal("100.00"));
+        long userB = service.open(new BigDecimal("0.00"));
+
+        try (GatewayClient client = GatewayClient.connect(
+                new InetSocketAddress("localhost", server.getLocalPort()))) {
+            // when
+            client.transfer(userA, userB, 2500L).join();
+
+            // then
+            assertInstanceOf(ReplicatedAccountService.class, operations);
+            assertEquals(GatewayProtocol.STATUS_OK, client.balance(userA).join().status());
+            assertEquals(7500L, client.balance(userA).join().value());
+            assertEquals(2500L, client.balance(userB).join().value());
+        }
+    }
+}
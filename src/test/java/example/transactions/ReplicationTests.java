@@ -0,0 +1,199 @@
+package example.transactions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.math.BigDecimal;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import example.transactions.replication.ReplicatedAccountService;
+import example.transactions.replication.ReplicationDurability;
+import example.transactions.replication.ReplicationNode;
+import example.transactions.replication.ReplicationProperties;
+import example.transactions.replication.ReplicationRole;
+import example.transactions.service.OperationResult;
+
+// Primary и бэкапы по loopback в одном процессе: каждый узел — отдельный ReplicationNode со
+// своим сокетом, как если бы это были разные процессы.
+class ReplicationTests {
+
+    private final List<ReplicationNode> nodes = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        nodes.forEach(ReplicationNode::stop);
+    }
+
+    @Test
+    void synchronousReplicationTest() throws Exception {
+        // given
+        int port = freePort();
+        ReplicationNode primary = start(ReplicationRole.PRIMARY, port, 0,
+                ReplicationDurability.ONE, 1000);
+        ReplicationNode backup = start(ReplicationRole.BACKUP, freePort(), port,
+                ReplicationDurability.ONE, 1000);
+        await(() -> primary.connectedBackups() == 1);
+        ReplicatedAccountService primaryService = service(primary, ReplicationDurability.ONE);
+        ReplicatedAccountService backupService = service(backup, ReplicationDurability.ONE);
+
+        // when
+        long userA = primaryService.open(new BigDecimal("100.00"));
+        long userB = primaryService.open(new BigDecimal("0.00"));
+        OperationResult withdrawn = primaryService.tryWithdraw(userA, new BigDecimal("10.25"));
+        primaryService.tryDeposit(userB, new BigDecimal("5.00"));
+        primaryService.tryTransfer(userA, userB, new BigDecimal("40.00"));
+
+        // then: ONE ждёт ACK, поэтому бэкап уже применил всё без ожидания
+        assertEquals(0, balance(withdrawn).compareTo(new BigDecimal("89.75")));
+        assertEquals(0, balance(backupService.tryGetBalance(userA))
+                .compareTo(new BigDecimal("49.75")));
+        assertEquals(0, balance(backupService.tryGetBalance(userB))
+                .compareTo(new BigDecimal("45.00")));
+        assertEquals(primary.lastSequence(), backup.lastSequence());
+        assertInstanceOf(OperationResult.InsufficientFunds.class,
+                primaryService.tryWithdraw(userA, new BigDecimal("49.76")));
+        assertThrows(IllegalStateException.class,
+                () -> backupService.tryDeposit(userA, new BigDecimal("1.00")));
+    }
+
+    @Test
+    void snapshotCatchUpTest() throws Exception {
+        // given: бэкап подключается, когда журнал primary уже вытеснил начало
+        int port = freePort();
+        ReplicationNode primary = start(ReplicationRole.PRIMARY, port, 0,
+                ReplicationDurability.NONE, 4);
+        ReplicatedAccountService primaryService = service(primary, ReplicationDurability.NONE);
+        long userA = primaryService.open(new BigDecimal("100.00"));
+        for (int i = 0; i < 10; i++) {
+            primaryService.tryWithdraw(userA, new BigDecimal("1.00"));
+        }
+
+        // when
+        ReplicationNode backup = start(ReplicationRole.BACKUP, freePort(), port,
+                ReplicationDurability.NONE, 4);
+        primaryService.tryDeposit(userA, new BigDecimal("0.50"));
+        await(() -> backup.lastSequence() == primary.lastSequence());
+
+        // then
+        assertEquals(0, balance(service(backup, ReplicationDurability.NONE)
+                .tryGetBalance(userA)).compareTo(new BigDecimal("90.50")));
+    }
+
+    @Test
+    void promotionTest() throws Exception {
+        // given
+        int primaryPort = freePort();
+        int backupPort = freePort();
+        ReplicationNode primary = start(ReplicationRole.PRIMARY, primaryPort, 0,
+                ReplicationDurability.ALL, 1000);
+        ReplicationNode backup = start(ReplicationRole.BACKUP, backupPort, primaryPort,
+                ReplicationDurability.ALL, 1000);
+        await(() -> primary.connectedBackups() == 1);
+        long userA = service(primary, ReplicationDurability.ALL).open(new BigDecimal("100.00"));
+
+        // when: primary пропадает, бэкап становится primary, к нему подключается новый бэкап
+        primary.stop();
+        backup.promote();
+        ReplicationNode newBackup = start(ReplicationRole.BACKUP, freePort(), backupPort,
+                ReplicationDurability.ALL, 1000);
+        await(() -> backup.connectedBackups() == 1);
+        OperationResult withdrawn = service(backup, ReplicationDurability.ALL)
+                .tryWithdraw(userA, new BigDecimal("30.00"));
+
+        // then
+        assertTrue(backup.isPrimary());
+        assertEquals(0, balance(withdrawn).compareTo(new BigDecimal("70.00")));
+        assertEquals(0, balance(service(newBackup, ReplicationDurability.ALL)
+                .tryGetBalance(userA)).compareTo(new BigDecimal("70.00")));
+    }
+
+    @Test
+    void demotedPrimaryResyncsFromSnapshotTest() throws Exception {
+        // given: бэкап повышен, пока старый primary ещё принимал записи без подтверждений
+        int primaryPort = freePort();
+        int backupPort = freePort();
+        ReplicationNode primary = start(ReplicationRole.PRIMARY, primaryPort, backupPort,
+                ReplicationDurability.NONE, 1000);
+        ReplicationNode backup = start(ReplicationRole.BACKUP, backupPort, primaryPort,
+                ReplicationDurability.NONE, 1000);
+        ReplicatedAccountService primaryService = service(primary, ReplicationDurability.NONE);
+        ReplicatedAccountService backupService = service(backup, ReplicationDurability.NONE);
+        long userA = primaryService.open(new BigDecimal("100.00"));
+        await(() -> backup.lastSequence() == primary.lastSequence());
+        backup.promote();
+        primaryService.tryWithdraw(userA, new BigDecimal("30.00"));
+        backupService.tryDeposit(userA, new BigDecimal("1.00"));
+        backupService.tryDeposit(userA, new BigDecimal("1.00"));
+
+        // when: номер нового primary обогнал старый, и старый возвращается бэкапом
+        primary.demote();
+        await(() -> backup.connectedBackups() == 1 && primary.epoch() == backup.epoch()
+                && primary.lastSequence() == backup.lastSequence());
+        service(backup, ReplicationDurability.ONE).tryDeposit(userA, new BigDecimal("0.50"));
+
+        // then: неподтверждённое списание старого primary затёрто снимком
+        assertEquals(1L, backup.epoch());
+        assertEquals(0, balance(primaryService.tryGetBalance(userA))
+                .compareTo(new BigDecimal("102.50")));
+        assertThrows(IllegalStateException.class,
+                () -> primaryService.tryDeposit(userA, new BigDecimal("1.00")));
+    }
+
+    @Test
+    void unacknowledgedWriteTest() throws Exception {
+        // given
+        ReplicationNode primary = start(ReplicationRole.PRIMARY, freePort(), 0,
+                ReplicationDurability.ONE, 1000);
+        ReplicatedAccountService service = service(primary, ReplicationDurability.ONE);
+
+        // when / then: бэкапов нет — ожидание ACK истекает, но команда в памяти применена
+        assertThrows(IllegalStateException.class, () -> service.open(new BigDecimal("1.00")));
+        assertEquals(1L, primary.lastSequence());
+    }
+
+    private ReplicationNode start(ReplicationRole role, int port, int primaryPort,
+            ReplicationDurability durability, int retainedCommands) {
+        ReplicationNode node = new ReplicationNode(
+                properties(role, port, primaryPort, durability, retainedCommands));
+        node.start();
+        nodes.add(node);
+        return node;
+    }
+
+    private static ReplicatedAccountService service(ReplicationNode node,
+            ReplicationDurability durability) {
+        return new ReplicatedAccountService(node,
+                properties(ReplicationRole.PRIMARY, 0, 0, durability, 1000));
+    }
+
+    private static ReplicationProperties properties(ReplicationRole role, int port,
+            int primaryPort, ReplicationDurability durability, int retainedCommands) {
+        return new ReplicationProperties(true, role, "localhost", port, "localhost",
+                primaryPort, durability, Duration.ofMillis(500), 16, retainedCommands,
+                Duration.ofMillis(100));
+    }
+
+    private static BigDecimal balance(OperationResult result) {
+        return assertInstanceOf(OperationResult.Ok.class, result).balance();
+    }
+
+    private static int freePort() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Condition not met in 10 seconds");
+            Thread.sleep(20);
+        }
+    }
+}
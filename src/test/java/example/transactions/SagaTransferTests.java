@@ -0,0 +1,212 @@
+package example.transactions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+import example.transactions.exeption.NotFoundException;
+import example.transactions.model.Account;
+import example.transactions.model.SagaState;
+import example.transactions.model.TransferSaga;
+import example.transactions.saga.SagaCoordinator;
+import example.transactions.sharding.AccountShards;
+import example.transactions.sharding.ShardIds;
+import example.transactions.sharding.ShardedAccountService;
+
+@Testcontainers
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest(properties = {"accounts.sharding.enabled=true", "accounts.saga.stale-after=PT0S",
+        "accounts.saga.recovery-interval=PT1H"})
+class SagaTransferTests {
+
+    @Container
+    private static final PostgreSQLContainer<?> SHARD_0 =
+            new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    @Container
+    private static final PostgreSQLContainer<?> SHARD_1 =
+            new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    @DynamicPropertySource
+    static void shards(DynamicPropertyRegistry registry) {
+        ShardingTests.register(registry, 0, SHARD_0);
+        ShardingTests.register(registry, 1, SHARD_1);
+    }
+
+    @Autowired
+    private ShardedAccountService service;
+
+    @Autowired
+    private SagaCoordinator coordinator;
+
+    @Autowired
+    private AccountShards shards;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void crossShardTransferTest() {
+        // given
+        Account userA = service.create(0, "UserA", new BigDecimal("100.00"));
+        Account userB = service.create(1, "UserB", new BigDecimal("10.00"));
+
+        // when
+        service.transfer(userA, userB, new BigDecimal("40.00"));
+
+        // then
+        assertEquals(0, service.getBalance(userA.getId()).compareTo(new BigDecimal("60.00")));
+        assertEquals(0, service.getBalance(userB.getId()).compareTo(new BigDecimal("50.00")));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.transfer(userA, userB, new BigDecimal("60.01")));
+        assertEquals(0, service.getBalance(userA.getId()).compareTo(new BigDecimal("60.00")));
+    }
+
+    @Test
+    void missingTargetIsCompensatedTest() {
+        // given
+        Account userA = service.create(0, "UserA", new BigDecimal("100.00"));
+        Account userB = service.create(1, "UserB", new BigDecimal("0.00"));
+        TransferSaga saga = coordinator.begin(userA.getId(), userB.getId(),
+                new BigDecimal("30.00"));
+        assertEquals(SagaState.DEBITED, coordinator.step(saga.id()).state());
+        shards.shard(1).jdbc().getJdbcTemplate().update("DELETE FROM accounts WHERE id = ?",
+                userB.getId());
+
+        // when
+        TransferSaga finished = coordinator.drive(saga.id());
+
+        // then
+        assertEquals(SagaState.COMPENSATED, finished.state());
+        assertEquals(0, service.getBalance(userA.getId()).compareTo(new BigDecimal("100.00")));
+        assertThrows(NotFoundException.class, () -> service.getBalance(userB.getId()));
+    }
+
+    // Первый исполнитель получил отказ и пометил сагу FAILED, второй ещё видит PENDING,
+    // а на счёт тем временем пришли деньги. Второй не должен списать их у проваленной саги.
+    @Test
+    void rejectedDebitIsFinalTest() {
+        // given
+        Account userA = service.create(0, "UserA", new BigDecimal("10.00"));
+        Account userB = service.create(1, "UserB", new BigDecimal("0.00"));
+        TransferSaga saga = coordinator.begin(userA.getId(), userB.getId(),
+                new BigDecimal("30.00"));
+        assertEquals(SagaState.FAILED, coordinator.step(saga.id()).state());
+        service.deposit(userA, new BigDecimal("50.00"));
+        jdbcTemplate.update("UPDATE transfer_sagas SET state = 'PENDING' WHERE id = ?",
+                saga.id());
+
+        // when
+        TransferSaga finished = coordinator.drive(saga.id());
+
+        // then
+        assertEquals(SagaState.FAILED, finished.state());
+        assertEquals(0, service.getBalance(userA.getId()).compareTo(new BigDecimal("60.00")));
+        assertEquals(0, service.getBalance(userB.getId()).compareTo(BigDecimal.ZERO));
+    }
+
+    // Каждую сагу двигают два потока сразу, пока на счёт источника идут пополнения.
+    @Test
+    void concurrentDriversConserveMoneyTest() {
+        // given
+        Account userA = service.create(0, "UserA", new BigDecimal("0.00"));
+        Account userB = service.create(1, "UserB", new BigDecimal("0.00"));
+        BigDecimal amount = new BigDecimal("10.00");
+        List<Long> sagas = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            sagas.add(coordinator.begin(userA.getId(), userB.getId(), amount).id());
+        }
+
+        // when
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            executor.submit(() -> {
+                for (int i = 0; i < 25; i++) {
+                    service.deposit(userA, amount);
+                }
+            });
+            for (long sagaId : sagas) {
+                executor.submit(() -> coordinator.drive(sagaId));
+                executor.submit(() -> coordinator.drive(sagaId));
+            }
+        }
+
+        // then
+        long completed = sagas.stream().map(coordinator::find)
+                .filter(saga -> saga.state() == SagaState.COMPLETED).count();
+        for (long sagaId : sagas) {
+            assertTrue(coordinator.find(sagaId).state().isTerminal());
+        }
+        BigDecimal moved = amount.multiply(BigDecimal.valueOf(completed));
+        assertEquals(0, service.getBalance(userA.getId())
+                .compareTo(new BigDecimal("250.00").subtract(moved)));
+        assertEquals(0, service.getBalance(userB.getId()).compareTo(moved));
+    }
+
+    // Саги обрываются на случайном шаге, часть переходов в журнале «теряется» (шаг на шарде
+    // применён, журнал откатывается на прежнее состояние), после чего всё доводит recover().
+    // Деньги не должны появляться и исчезать, а каждая сага — завершиться.
+    @Test
+    void faultInjectionConservesMoneyTest() {
+        // given
+        Random random = new Random(42);
+        List<Account> accounts = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            accounts.add(service.create(i % 2, "User" + i, new BigDecimal("100.00")));
+        }
+        BigDecimal total = totalBalance(accounts);
+        List<Long> sagas = new ArrayList<>();
+
+        // when
+        for (int i = 0; i < 100; i++) {
+            Account from = accounts.get(random.nextInt(accounts.size()));
+            Account to = accounts.get(random.nextInt(accounts.size()));
+            if (ShardIds.shardOf(from.getId()) == ShardIds.shardOf(to.getId())) {
+                continue;
+            }
+            TransferSaga saga = coordinator.begin(from.getId(), to.getId(),
+                    BigDecimal.valueOf(random.nextInt(6000), 2));
+            sagas.add(saga.id());
+            int steps = random.nextInt(4);
+            for (int s = 0; s < steps; s++) {
+                SagaState before = coordinator.find(saga.id()).state();
+                coordinator.step(saga.id());
+                if (random.nextInt(3) == 0) {
+                    jdbcTemplate.update("UPDATE transfer_sagas SET state = ? WHERE id = ?",
+                            before.name(), saga.id());
+                }
+            }
+        }
+        coordinator.recover();
+
+        // then
+        assertTrue(sagas.size() > 10);
+        for (long sagaId : sagas) {
+            assertTrue(coordinator.find(sagaId).state().isTerminal());
+        }
+        assertEquals(0, totalBalance(accounts).compareTo(total));
+        for (Account account : accounts) {
+            assertTrue(service.getBalance(account.getId()).signum() >= 0);
+        }
+    }
+
+    private BigDecimal totalBalance(List<Account> accounts) {
+        return accounts.stream().map(account -> service.getBalance(account.getId()))
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+}
@@ -0,0 +1,209 @@
+package example.transactions;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import example.transactions.fx.FxRateCache;
+import example.transactions.exeption.NotFoundException;
+import example.transactions.model.Account;
+import example.transactions.model.ScheduledTransfer;
+import example.transactions.model.ScheduledTransferStatus;
+import example.transactions.model.TransferRecurrence;
+import example.transactions.repository.ScheduledTransferJdbcRepository;
+import example.transactions.scheduled.ScheduledTransferJob;
+import example.transactions.scheduled.ScheduledTransferProperties;
+import example.transactions.service.ScheduledTransferService;
+import example.transactions.service.SingleThreadedJpaAccountService;
+import example.transactions.service.TransferStatus;
+
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest(properties = "accounts.scheduled-transfers.batch-size=2")
+class ScheduledTransferTests {
+
+    @Autowired
+    private SingleThreadedJpaAccountService service;
+
+    @Autowired
+    private ScheduledTransferService scheduledTransferService;
+
+    @Autowired
+    private ScheduledTransferJob job;
+
+    @Autowired
+    private ScheduledTransferJdbcRepository repository;
+
+    @Autowired
+    private ScheduledTransferProperties properties;
+
+    @Autowired
+    private FxRateCache fxRateCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Account userA;
+    private Account userB;
+
+    @BeforeEach
+    void setUp() {
+        job.drain(1);
+        userA = service.save(Account.builder()
+                .balance(new BigDecimal("100.00")).owner("UserA").build());
+        userB = service.save(Account.builder()
+                .balance(new BigDecimal("0.00")).owner("UserB").build());
+    }
+
+    @Test
+    void dueTransfersAreExecutedInBatchesTest() {
+        // given
+        Instant past = Instant.now().minusSeconds(60);
+        long[] ids = new long[5];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = scheduledTransferService.schedule(userA.getId(), userB.getId(),
+                    new BigDecimal("10.00"), past, null, null);
+        }
+        long future = scheduledTransferService.schedule(userA.getId(), userB.getId(),
+                new BigDecimal("10.00"), Instant.now().plus(Duration.ofDays(1)), null, null);
+
+        // when
+        long executed = job.drain(2);
+
+        // then
+        assertEquals(5, executed);
+        assertBalance(userA, "50.00");
+        assertBalance(userB, "50.00");
+        for (long id : ids) {
+            assertEquals(ScheduledTransferStatus.COMPLETED, find(id).status());
+        }
+        assertEquals(ScheduledTransferStatus.ACTIVE, find(future).status());
+        assertEquals(0, find(future).runsDone());
+    }
+
+    @Test
+    void recurringTransferCatchesUpAndCompletesTest() {
+        // given
+        Instant start = Instant.now().truncatedTo(ChronoUnit.SECONDS).atZone(ZoneOffset.UTC)
+                .minusMonths(1).toInstant();
+        long id = scheduledTransferService.schedule(userA.getId(), userB.getId(),
+                new BigDecimal("15.00"), start, TransferRecurrence.MONTHLY, 3);
+
+        // when
+        long executed = job.drain(1);
+
+        // then
+        ScheduledTransfer transfer = find(id);
+        assertEquals(2, executed);
+        assertEquals(2, transfer.runsDone());
+        assertEquals(ScheduledTransferStatus.ACTIVE, transfer.status());
+        assertEquals(start.atZone(ZoneOffset.UTC).plusMonths(2).toInstant(),
+                transfer.nextRunAt());
+        assertBalance(userA, "70.00");
+        assertBalance(userB, "30.00");
+    }
+
+    @Test
+    void declinedTransferIsRecordedTest() {
+        // given
+        long id = scheduledTransferService.schedule(userA.getId(), userB.getId(),
+                new BigDecimal("100.01"), Instant.now().minusSeconds(1), null, null);
+
+        // when
+        job.drain(1);
+
+        // then
+        ScheduledTransfer transfer = find(id);
+        assertEquals(ScheduledTransferStatus.FAILED, transfer.status());
+        assertEquals(TransferStatus.INSUFFICIENT_FUNDS.ordinal(), transfer.lastStatus());
+        assertBalance(userA, "100.00");
+    }
+
+    @Test
+    void transientFailureLeavesTransferDueTest() {
+        // given
+        long id = scheduledTransferService.schedule(userA.getId(), userB.getId(),
+                new BigDecimal("10.00"), Instant.now().minusSeconds(1), null, null);
+        ScheduledTransferJob timingOut = new ScheduledTransferJob(properties,
+                new ScheduledTransferJdbcRepository(jdbcTemplate) {
+                    @Override
+                    public int execute(long[] ids, String[] currencies, BigDecimal[] rates) {
+                        throw new QueryTimeoutException("Statement timed out");
+                    }
+                }, fxRateCache, transactionManager);
+
+        // when
+        long executed = timingOut.drain(1);
+
+        // then
+        assertEquals(0, executed);
+        assertEquals(ScheduledTransferStatus.ACTIVE, find(id).status());
+        assertEquals(1, job.drain(1));
+        assertEquals(ScheduledTransferStatus.COMPLETED, find(id).status());
+        assertBalance(userB, "10.00");
+    }
+
+    @Test
+    void cancelledTransferIsSkippedTest() {
+        // given
+        long id = scheduledTransferService.schedule(userA.getId(), userB.getId(),
+                new BigDecimal("10.00"), Instant.now().minusSeconds(1),
+                TransferRecurrence.DAILY, null);
+        scheduledTransferService.cancel(id);
+
+        // when
+        long executed = job.drain(1);
+
+        // then
+        assertEquals(0, executed);
+        assertEquals(ScheduledTransferStatus.CANCELLED, find(id).status());
+        assertThrows(NotFoundException.class, () -> scheduledTransferService.cancel(id));
+    }
+
+    @Test
+    void instancesClaimDisjointShardsTest() {
+        // given
+        long[] ids = new long[4];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = scheduledTransferService.schedule(userA.getId(), userB.getId(),
+                    BigDecimal.ONE, Instant.now().minusSeconds(1), null, null);
+        }
+
+        // when
+        long[] even = repository.findDue(2, 0, 100);
+        long[] odd = repository.findDue(2, 1, 100);
+
+        // then
+        long[] claimed = new long[even.length + odd.length];
+        System.arraycopy(even, 0, claimed, 0, even.length);
+        System.arraycopy(odd, 0, claimed, even.length, odd.length);
+        Arrays.sort(claimed);
+        assertArrayEquals(ids, claimed);
+        Arrays.stream(even).forEach(id -> assertEquals(0, id % 2));
+        Arrays.stream(odd).forEach(id -> assertEquals(1, id % 2));
+    }
+
+    private ScheduledTransfer find(long id) {
+        return scheduledTransferService.findById(id).orElseThrow();
+    }
+
+    private void assertBalance(Account account, String expected) {
+        assertEquals(0, service.getBalanceById(account.getId()).balance()
+                .compareTo(new BigDecimal(expected)));
+    }
+}
@@ -0,0 +1,130 @@
+package example.transactions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.math.BigDecimal;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+import example.transactions.exeption.NotFoundException;
+import example.transactions.model.Account;
+import example.transactions.outbox.OutboxRelay;
+import example.transactions.sharding.AccountShards;
+import example.transactions.sharding.ShardIds;
+import example.transactions.sharding.ShardedAccountService;
+
+@Testcontainers
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest(properties = "accounts.sharding.enabled=true")
+class ShardingTests {
+
+    @Container
+    private static final PostgreSQLContainer<?> SHARD_0 =
+            new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    @Container
+    private static final PostgreSQLContainer<?> SHARD_1 =
+            new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    @DynamicPropertySource
+    static void shards(DynamicPropertyRegistry registry) {
+        register(registry, 0, SHARD_0);
+        register(registry, 1, SHARD_1);
+    }
+
+    @Autowired
+    private ShardedAccountService service;
+
+    @Autowired
+    private AccountShards shards;
+
+    @Autowired
+    private OutboxRelay relay;
+
+    @Test
+    void newIdsEncodeShardTest() {
+        // when
+        Account first = service.create("UserA", new BigDecimal("10.00"));
+        Account second = service.create("UserB", new BigDecimal("20.00"));
+        Account pinned = service.create(1, "UserC", new BigDecimal("30.00"));
+
+        // then
+        assertNotEquals(ShardIds.shardOf(first.getId()), ShardIds.shardOf(second.getId()));
+        assertEquals(1, ShardIds.shardOf(pinned.getId()));
+        assertEquals(0, service.getBalance(first.getId()).compareTo(new BigDecimal("10.00")));
+        assertEquals(0, service.getBalance(second.getId()).compareTo(new BigDecimal("20.00")));
+        assertEquals(0, service.getBalance(pinned.getId()).compareTo(new BigDecimal("30.00")));
+    }
+
+    @Test
+    void singleShardOperationsTest() {
+        // given
+        Account userA = service.create(1, "UserA", new BigDecimal("100.00"));
+        Account userB = service.create(1, "UserB", new BigDecimal("0.00"));
+
+        // when
+        service.withdraw(userA, new BigDecimal("10.00"));
+        service.deposit(userB, new BigDecimal("5.00"));
+        service.transfer(userA, userB, new BigDecimal("40.00"));
+
+        // then
+        assertEquals(0, service.getBalance(userA.getId()).compareTo(new BigDecimal("50.00")));
+        assertEquals(0, service.getBalance(userB.getId()).compareTo(new BigDecimal("45.00")));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.withdraw(userA, new BigDecimal("50.01")));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.transfer(userA, userB, new BigDecimal("50.01")));
+    }
+
+    @Test
+    void unknownAccountsTest() {
+        // given
+        Account userA = service.create(0, "UserA", new BigDecimal("100.00"));
+        Account missing = Account.builder().id(ShardIds.baseId(1) + Integer.MAX_VALUE).build();
+        Account unknownShard = Account.builder().id(ShardIds.baseId(7) + 1).build();
+
+        // then
+        assertThrows(NotFoundException.class,
+                () -> service.deposit(missing, BigDecimal.ONE));
+        assertThrows(NotFoundException.class,
+                () -> service.withdraw(unknownShard, BigDecimal.ONE));
+        assertThrows(NotFoundException.class,
+                () -> service.transfer(userA, unknownShard, BigDecimal.ONE));
+        assertEquals(0, service.getBalance(userA.getId()).compareTo(new BigDecimal("100.00")));
+    }
+
+    @Test
+    void shardJournalIsRelayedTest() {
+        // given
+        Account userA = service.create(1, Account.builder().owner("UserA").currency("EUR")
+                .balance(new BigDecimal("10.00")).build());
+        service.deposit(userA, new BigDecimal("5.00"));
+        JdbcTemplate shard = shards.shard(1).jdbc().getJdbcTemplate();
+
+        // when
+        relay.drain(1);
+
+        // then
+        assertEquals("EUR", shard.queryForObject("SELECT currency FROM accounts WHERE id = ?",
+                String.class, userA.getId()));
+        assertEquals(0, shard.queryForObject("SELECT count(*) FROM outbox"
+                + " WHERE processed_at IS NULL", Integer.class));
+    }
+
+    static void register(DynamicPropertyRegistry registry, int index,
+            PostgreSQLContainer<?> container) {
+        String prefix = "accounts.sharding.shards[" + index + "].";
+        registry.add(prefix + "url", container::getJdbcUrl);
+        registry.add(prefix + "username", container::getUsername);
+        registry.add(prefix + "password", container::getPassword);
+    }
+}
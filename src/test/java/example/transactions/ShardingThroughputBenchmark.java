@@ -0,0 +1,98 @@
+package example.transactions;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+import example.transactions.model.Account;
+import example.transactions.sharding.ShardedAccountService;
+import lombok.extern.slf4j.Slf4j;
+
+// Пропускная способность записи в зависимости от числа шардов: одна и та же нагрузка
+// (пополнения с виртуальных потоков) раскладывается по счетам первых 1, 2 и 4 шардов.
+// Все шарды — контейнеры на одной машине, так что рост упирается в её ядра и диск.
+// Запуск: ./gradlew benchmark
+@Slf4j
+@Tag("benchmark")
+@Testcontainers
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest(properties = {"accounts.sharding.enabled=true",
+        "accounts.sharding.pool-size=16"})
+class ShardingThroughputBenchmark {
+
+    private static final int REQUESTS = 20_000;
+    private static final int ACCOUNTS_PER_SHARD = 200;
+    private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+    @Container
+    private static final PostgreSQLContainer<?> SHARD_0 = shard();
+
+    @Container
+    private static final PostgreSQLContainer<?> SHARD_1 = shard();
+
+    @Container
+    private static final PostgreSQLContainer<?> SHARD_2 = shard();
+
+    @Container
+    private static final PostgreSQLContainer<?> SHARD_3 = shard();
+
+    @DynamicPropertySource
+    static void shards(DynamicPropertyRegistry registry) {
+        ShardingTests.register(registry, 0, SHARD_0);
+        ShardingTests.register(registry, 1, SHARD_1);
+        ShardingTests.register(registry, 2, SHARD_2);
+        ShardingTests.register(registry, 3, SHARD_3);
+    }
+
+    @Autowired
+    private ShardedAccountService service;
+
+    @Test
+    void writeThroughputByShardCount() throws Exception {
+        List<Account> accounts = new ArrayList<>();
+        for (int shard = 0; shard < 4; shard++) {
+            for (int i = 0; i < ACCOUNTS_PER_SHARD; i++) {
+                accounts.add(service.create(shard, "bench", new BigDecimal("1000.00")));
+            }
+        }
+        // прогрев всех пулов и JIT
+        run(accounts, REQUESTS / 4);
+
+        for (int shards : new int[] {1, 2, 4}) {
+            long nanos = run(accounts.subList(0, shards * ACCOUNTS_PER_SHARD), REQUESTS);
+            log.info("{} shard(s): {} writes/s", shards, Math.round(REQUESTS / (nanos / 1e9)));
+        }
+    }
+
+    private long run(List<Account> accounts, int requests) throws Exception {
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>(requests);
+            for (int i = 0; i < requests; i++) {
+                Account account = accounts.get(i % accounts.size());
+                futures.add(executor.submit(() -> service.deposit(account, AMOUNT)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static PostgreSQLContainer<?> shard() {
+        return new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+    }
+}
@@ -1,13 +1,21 @@
 package example.transactions;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import java.math.BigDecimal;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import example.transactions.exeption.NotFoundException;
 import example.transactions.model.Account;
+import example.transactions.model.AccountBalanceView;
+import example.transactions.model.AccountView;
+import example.transactions.service.OperationResult;
 import example.transactions.service.SingleThreadedJpaAccountService;
 import lombok.extern.slf4j.Slf4j;
 
@@ -19,6 +27,9 @@ class SingleThreadedJpaAccountServiceTests {
     @Autowired
     private SingleThreadedJpaAccountService service;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     private Account userA;
     private Account userB;
 
@@ -42,6 +53,28 @@ class SingleThreadedJpaAccountServiceTests {
         assertEquals(0, userA.getBalance().compareTo(acc.getBalance()));
     }
 
+    @Test
+    void balanceProjectionTest() {
+        // given
+        // when
+        AccountBalanceView balance = service.getBalanceById(userA.getId());
+        AccountView view = service.getViewById(userB.getId());
+
+        // then
+        assertEquals(userA.getId(), balance.id());
+        assertEquals(0, userA.getBalance().compareTo(balance.balance()));
+        assertEquals(userB.getOwner(), view.owner());
+        assertEquals(0, userB.getBalance().compareTo(view.balance()));
+    }
+
+    @Test
+    void balanceProjectionNotFoundTest() {
+        // given
+        // when
+        // then
+        assertThrows(NotFoundException.class, () -> service.getBalanceById(Long.MAX_VALUE));
+    }
+
     @Test
     void withdrawTest() {
         // given
@@ -82,4 +115,121 @@ class SingleThreadedJpaAccountServiceTests {
         assertEquals(0, copyA.getBalance().compareTo(new BigDecimal("976.80")));
         assertEquals(0, copyB.getBalance().compareTo(new BigDecimal("1123.66")));
     }
+
+    @Test
+    void withdrawInsufficientFundsTest() {
+        // given
+        BigDecimal amount = new BigDecimal("1000.24");
+
+        // when
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> service.withdraw(userA, amount));
+
+        // then
+        assertEquals("Insufficient funds", e.getMessage());
+        Account copyA = service.getById(userA.getId());
+        assertEquals(0, copyA.getBalance().compareTo(new BigDecimal("1000.23")));
+    }
+
+    @Test
+    void transferRollbackTest() {
+        // given
+        Account unknown = Account.builder().id(Long.MAX_VALUE).build();
+
+        // when
+        assertThrows(NotFoundException.class,
+                () -> service.transfer(userA, unknown, new BigDecimal("23.43")));
+
+        // then
+        Account copyA = service.getById(userA.getId());
+        assertEquals(0, copyA.getBalance().compareTo(new BigDecimal("1000.23")));
+    }
+
+    @Test
+    void balanceConstraintRejectsDirectWritesTest() {
+        // given
+        String sql = "UPDATE account_balances SET balance = -1 WHERE account_id = ?";
+
+        // when
+        // then
+        assertThrows(DataIntegrityViolationException.class,
+                () -> jdbcTemplate.update(sql, userA.getId()));
+    }
+
+    @Test
+    void tryWithdrawResultTest() {
+        // given
+        BigDecimal amount = new BigDecimal("0.23");
+
+        // when
+        OperationResult result = service.tryWithdraw(userA.getId(), amount);
+
+        // then
+        OperationResult.Ok ok = assertInstanceOf(OperationResult.Ok.class, result);
+        assertEquals(0, ok.balance().compareTo(new BigDecimal("1000.00")));
+    }
+
+    @Test
+    void tryWithdrawInsufficientFundsResultTest() {
+        // given
+        BigDecimal amount = new BigDecimal("1000.24");
+
+        // when
+        OperationResult result = service.tryWithdraw(userA.getId(), amount);
+
+        // then
+        assertEquals(new OperationResult.InsufficientFunds(userA.getId()), result);
+        Account copyA = service.getById(userA.getId());
+        assertEquals(0, copyA.getBalance().compareTo(new BigDecimal("1000.23")));
+    }
+
+    @Test
+    void tryOperationsNotFoundAndInvalidResultTest() {
+        // given
+        BigDecimal amount = new BigDecimal("1.00");
+
+        // when
+        // then
+        assertEquals(new OperationResult.NotFound(Long.MAX_VALUE),
+                service.tryDeposit(Long.MAX_VALUE, amount));
+        assertEquals(new OperationResult.NotFound(Long.MAX_VALUE),
+                service.tryWithdraw(Long.MAX_VALUE, amount));
+        assertInstanceOf(OperationResult.Invalid.class,
+                service.tryDeposit(userA.getId(), new BigDecimal("0.001")));
+        assertInstanceOf(OperationResult.Invalid.class, service.tryWithdraw(-1L, amount));
+    }
+
+    @Test
+    void tryTransferResultTest() {
+        // given
+        BigDecimal amount = new BigDecimal("23.43");
+
+        // when
+        OperationResult ok = service.tryTransfer(userA.getId(), userB.getId(), amount);
+        OperationResult declined = service.tryTransfer(userA.getId(), userB.getId(),
+                new BigDecimal("5000.00"));
+        OperationResult missing = service.tryTransfer(userA.getId(), Long.MAX_VALUE, amount);
+
+        // then
+        assertInstanceOf(OperationResult.Ok.class, ok);
+        assertEquals(new OperationResult.InsufficientFunds(userA.getId()), declined);
+        assertEquals(new OperationResult.NotFound(Long.MAX_VALUE), missing);
+        Account copyA = service.getById(userA.getId());
+        assertEquals(0, copyA.getBalance().compareTo(new BigDecimal("976.80")));
+    }
+
+    @Test
+    void tryTransferRollsBackDebitWhenTargetVanishesTest() {
+        // given: фильтр id ещё знает получателя, но строки уже нет
+        jdbcTemplate.update("DELETE FROM accounts WHERE id = ?", userB.getId());
+
+        // when
+        OperationResult result = service.tryTransfer(userA.getId(), userB.getId(),
+                new BigDecimal("23.43"));
+
+        // then
+        assertEquals(new OperationResult.NotFound(userB.getId()), result);
+        Account copyA = service.getById(userA.getId());
+        assertEquals(0, copyA.getBalance().compareTo(new BigDecimal("1000.23")));
+    }
 }
@@ -0,0 +1,134 @@
+package example.transactions;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.sql.DataSource;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import jakarta.persistence.EntityManagerFactory;
+
+// Считает SQL, который реально уходит в драйвер за время одного действия.
+// Операторы и служебные вызовы соединения ловит прокси над DataSource (видит и JPA, и
+// JdbcTemplate), flush-и и загрузки сущностей берутся из Hibernate Statistics.
+// roundTrips = выполненные операторы + вызовы Connection, на которые pgjdbc сам ходит на
+// сервер: COMMIT/ROLLBACK, SAVEPOINT/RELEASE, SET и SHOW уровня изоляции, проверка isValid.
+// BEGIN pgjdbc отправляет в одном пакете с первым запросом, поэтому отдельно не считается.
+// Сброс состояния соединения самим Hikari при возврате в пул идёт мимо прокси; Spring
+// восстанавливает изоляцию сам, так что Hikari сбрасывать обычно нечего.
+public class SqlStatementCounter {
+
+    private static final Set<String> ROUND_TRIP_CALLS = Set.of("commit", "rollback",
+            "setSavepoint", "releaseSavepoint", "setTransactionIsolation",
+            "getTransactionIsolation", "isValid");
+
+    private final AtomicLong statements = new AtomicLong();
+    private final AtomicLong connectionRoundTrips = new AtomicLong();
+    private final ObjectProvider<EntityManagerFactory> entityManagerFactory;
+
+    public SqlStatementCounter(ObjectProvider<EntityManagerFactory> entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    public record StatementCounts(long statements, long roundTrips, long flushes,
+            long entityLoads) {
+    }
+
+    public StatementCounts count(Runnable action) {
+        Statistics statistics = statistics();
+        statements.set(0);
+        connectionRoundTrips.set(0);
+        statistics.clear();
+        action.run();
+        return new StatementCounts(statements.get(), statements.get() + connectionRoundTrips.get(),
+                statistics.getFlushCount(), statistics.getEntityLoadCount());
+    }
+
+    public StatementCounts assertStatements(Runnable action, int max) {
+        StatementCounts counts = count(action);
+        assertTrue(counts.statements() <= max,
+                () -> "Expected at most " + max + " statements, but was " + counts);
+        return counts;
+    }
+
+    public StatementCounts assertRoundTrips(Runnable action, int max) {
+        StatementCounts counts = count(action);
+        assertTrue(counts.roundTrips() <= max,
+                () -> "Expected at most " + max + " round trips, but was " + counts);
+        return counts;
+    }
+
+    public StatementCounts assertFlushes(Runnable action, int max) {
+        StatementCounts counts = count(action);
+        assertTrue(counts.flushes() <= max,
+                () -> "Expected at most " + max + " flushes, but was " + counts);
+        return counts;
+    }
+
+    DataSource wrap(DataSource target) {
+        return new DelegatingDataSource(target) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                return wrapConnection(super.getConnection());
+            }
+
+            @Override
+            public Connection getConnection(String username, String password)
+                    throws SQLException {
+                return wrapConnection(super.getConnection(username, password));
+            }
+        };
+    }
+
+    private Statistics statistics() {
+        Statistics statistics =
+                entityManagerFactory.getObject().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        return statistics;
+    }
+
+    private Connection wrapConnection(Connection connection) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            String name = method.getName();
+            if (ROUND_TRIP_CALLS.contains(name)) {
+                connectionRoundTrips.incrementAndGet();
+            }
+            Object result = invoke(connection, method, args);
+            if (result instanceof Statement statement) {
+                return wrapStatement(statement, method.getReturnType());
+            }
+            return result;
+        };
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] {Connection.class}, handler);
+    }
+
+    private Object wrapStatement(Statement statement, Class<?> type) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (method.getName().startsWith("execute")) {
+                statements.incrementAndGet();
+            }
+            return invoke(statement, method, args);
+        };
+        return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {type},
+                handler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args)
+            throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package example.transactions;
+
+import java.math.BigDecimal;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import example.transactions.model.Account;
+import example.transactions.service.SingleThreadedJpaAccountService;
+
+// Бюджет SQL на горячих путях: тест падает, если изменение добавит запросы (например, N+1
+// или чтение перед записью).
+@Import({TestcontainersConfiguration.class, StatementCountingConfiguration.class})
+@SpringBootTest
+class StatementCountTests {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("10.78");
+
+    @Autowired
+    private SingleThreadedJpaAccountService service;
+
+    @Autowired
+    private SqlStatementCounter counter;
+
+    private Account userA;
+    private Account userB;
+
+    @BeforeEach
+    void setUp() {
+        userA = service
+                .save(Account.builder().balance(new BigDecimal("1000.23")).owner("UserA").build());
+        userB = service
+                .save(Account.builder().balance(new BigDecimal("1100.23")).owner("UserB").build());
+    }
+
+    @Test
+    void withdrawStatementsTest() {
+        counter.assertStatements(() -> service.withdraw(userA, AMOUNT), 1);
+        // оператор, SHOW TRANSACTION ISOLATION LEVEL (Spring сверяет уровень перед началом
+        // транзакции с явным isolation) и COMMIT
+        counter.assertRoundTrips(() -> service.withdraw(userA, AMOUNT), 3);
+        counter.assertFlushes(() -> service.withdraw(userA, AMOUNT), 0);
+    }
+
+    @Test
+    void depositStatementsTest() {
+        counter.assertStatements(() -> service.deposit(userA, AMOUNT), 1);
+        counter.assertRoundTrips(() -> service.deposit(userA, AMOUNT), 3);
+    }
+
+    @Test
+    void transferStatementsTest() {
+        counter.assertStatements(() -> service.transfer(userA, userB, AMOUNT), 2);
+        counter.assertRoundTrips(() -> service.transfer(userA, userB, AMOUNT), 4);
+    }
+
+    @Test
+    void balanceLookupStatementsTest() {
+        counter.assertStatements(() -> service.getBalanceById(userA.getId()), 1);
+        counter.assertFlushes(() -> service.getBalanceById(userA.getId()), 0);
+    }
+
+    @Test
+    void bulkBalanceLookupStatementsTest() {
+        counter.assertRoundTrips(
+                () -> service.getBalances(List.of(userA.getId(), userB.getId(), Long.MAX_VALUE)),
+                1);
+    }
+
+    @Nested
+    @TestPropertySource(properties = "accounts.transfer-mode=function")
+    class FunctionMode {
+
+        @Autowired
+        private SingleThreadedJpaAccountService functionModeService;
+
+        @Autowired
+        private SqlStatementCounter functionModeCounter;
+
+        @Test
+        void transferStatementsTest() {
+            Account from = functionModeService.save(
+                    Account.builder().balance(new BigDecimal("1000.23")).owner("UserA").build());
+            Account to = functionModeService.save(
+                    Account.builder().balance(new BigDecimal("1100.23")).owner("UserB").build());
+
+            functionModeCounter.assertStatements(
+                    () -> functionModeService.transfer(from, to, AMOUNT), 1);
+            functionModeCounter.assertRoundTrips(
+                    () -> functionModeService.transfer(from, to, AMOUNT), 3);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package example.transactions;
+
+import javax.sql.DataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import jakarta.persistence.EntityManagerFactory;
+
+@TestConfiguration(proxyBeanMethods = false)
+class StatementCountingConfiguration {
+
+	@Bean
+	static SqlStatementCounter sqlStatementCounter(
+			ObjectProvider<EntityManagerFactory> entityManagerFactory) {
+		return new SqlStatementCounter(entityManagerFactory);
+	}
+
+	@Bean
+	static BeanPostProcessor statementCountingDataSourcePostProcessor(
+			ObjectProvider<SqlStatementCounter> counter) {
+		return new BeanPostProcessor() {
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				if (bean instanceof DataSource dataSource) {
+					return counter.getObject().wrap(dataSource);
+				}
+				return bean;
+			}
+		};
+	}
+
+}
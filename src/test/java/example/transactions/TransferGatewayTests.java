@@ -0,0 +1,108 @@
+package example.transactions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import example.transactions.gateway.GatewayClient;
+import example.transactions.gateway.GatewayProtocol;
+import example.transactions.gateway.GatewayResponse;
+import example.transactions.gateway.TransferGatewayServer;
+import example.transactions.model.Account;
+import example.transactions.service.SingleThreadedJpaAccountService;
+
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest(properties = {"gateway.tcp.enabled=true", "gateway.tcp.port=0"})
+class TransferGatewayTests {
+
+    @Autowired
+    private TransferGatewayServer server;
+
+    @Autowired
+    private SingleThreadedJpaAccountService service;
+
+    private GatewayClient client;
+    private Account userA;
+    private Account userB;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        userA = service
+                .save(Account.builder().balance(new BigDecimal("1000.23")).owner("UserA").build());
+        userB = service
+                .save(Account.builder().balance(new BigDecimal("1100.23")).owner("UserB").build());
+        client = GatewayClient.connect(new InetSocketAddress("localhost", server.getLocalPort()));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        client.close();
+    }
+
+    @Test
+    void balanceTest() {
+        // given
+        // when
+        GatewayResponse response = client.balance(userA.getId()).join();
+
+        // then
+        assertEquals(GatewayProtocol.STATUS_OK, response.status());
+        assertEquals(100023L, response.value());
+    }
+
+    @Test
+    void transferTest() {
+        // given
+        long amount = 2343L;
+
+        // when
+        GatewayResponse response = client.transfer(userA.getId(), userB.getId(), amount).join();
+
+        // then
+        assertEquals(GatewayProtocol.STATUS_OK, response.status());
+        assertEquals(97680L, client.balance(userA.getId()).join().value());
+        assertEquals(112366L, client.balance(userB.getId()).join().value());
+    }
+
+    @Test
+    void errorStatusTest() {
+        // given
+        // when
+        GatewayResponse insufficient = client.withdraw(userA.getId(), 100024L).join();
+        GatewayResponse notFound = client.deposit(Long.MAX_VALUE, 1L).join();
+        GatewayResponse invalid = client.deposit(userA.getId(), -1L).join();
+
+        // then
+        assertEquals(GatewayProtocol.STATUS_INSUFFICIENT_FUNDS, insufficient.status());
+        assertEquals(GatewayProtocol.STATUS_NOT_FOUND, notFound.status());
+        assertEquals(GatewayProtocol.STATUS_INVALID, invalid.status());
+    }
+
+    @Test
+    void pipelinedRequestsTest() {
+        // given
+        int requests = 200;
+
+        // when
+        List<CompletableFuture<GatewayResponse>> futures = new ArrayList<>(requests);
+        for (int i = 0; i < requests; i++) {
+            Account account = i % 2 == 0 ? userA : userB;
+            futures.add(client.balance(account.getId()));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+
+        // then
+        for (int i = 0; i < requests; i++) {
+            long expected = i % 2 == 0 ? 100023L : 110023L;
+            assertEquals(expected, futures.get(i).join().value());
+        }
+    }
+}
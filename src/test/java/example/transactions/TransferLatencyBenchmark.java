@@ -0,0 +1,101 @@
+package example.transactions;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import example.transactions.model.Account;
+import example.transactions.service.SingleThreadedJpaAccountService;
+import lombok.extern.slf4j.Slf4j;
+
+// Задержка перевода под нагрузкой: JPA (withdraw + deposit) против SQL-функции transfer().
+// Запуск: ./gradlew benchmark
+@Slf4j
+@Tag("benchmark")
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest
+class TransferLatencyBenchmark {
+
+    private static final int CLIENTS = 64;
+    private static final int TRANSFERS_PER_CLIENT = 200;
+    private static final int ACCOUNTS = 100;
+    private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+    @Nested
+    @TestPropertySource(properties = "accounts.transfer-mode=jpa")
+    class JpaMode {
+
+        @Autowired
+        private SingleThreadedJpaAccountService service;
+
+        @Test
+        void transferLatency() throws Exception {
+            measure("JPA", service);
+        }
+    }
+
+    @Nested
+    @TestPropertySource(properties = "accounts.transfer-mode=function")
+    class FunctionMode {
+
+        @Autowired
+        private SingleThreadedJpaAccountService service;
+
+        @Test
+        void transferLatency() throws Exception {
+            measure("FUNCTION", service);
+        }
+    }
+
+    private static void measure(String mode, SingleThreadedJpaAccountService service)
+            throws Exception {
+        List<Account> accounts = new ArrayList<>(ACCOUNTS);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts.add(service.save(Account.builder().balance(new BigDecimal("100000.00"))
+                    .owner("bench").build()));
+        }
+        long[] latencies = new long[CLIENTS * TRANSFERS_PER_CLIENT];
+        AtomicInteger failures = new AtomicInteger();
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int client = 0; client < CLIENTS; client++) {
+                int offset = client * TRANSFERS_PER_CLIENT;
+                executor.execute(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < TRANSFERS_PER_CLIENT; i++) {
+                        int from = random.nextInt(ACCOUNTS);
+                        int to = (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+                        long begin = System.nanoTime();
+                        try {
+                            service.transfer(accounts.get(from), accounts.get(to), AMOUNT);
+                        } catch (RuntimeException e) {
+                            // в режиме JPA встречные переводы блокируют строки в разном порядке
+                            failures.incrementAndGet();
+                        }
+                        latencies[offset + i] = System.nanoTime() - begin;
+                    }
+                });
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        Arrays.sort(latencies);
+        log.info("{}: {} transfers/s, p50 = {} us, p99 = {} us, failures = {}", mode,
+                Math.round(latencies.length / (elapsed / 1e9)), percentile(latencies, 0.50),
+                percentile(latencies, 0.99), failures.get());
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        return sorted[(int) Math.min(sorted.length - 1, sorted.length * quantile)] / 1_000;
+    }
+}
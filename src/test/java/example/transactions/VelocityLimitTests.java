@@ -0,0 +1,124 @@
+package example.transactions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.math.BigDecimal;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import example.transactions.exeption.LimitExceededException;
+import example.transactions.limits.VelocityLimitProperties;
+import example.transactions.limits.VelocityLimiter;
+import example.transactions.model.Account;
+import example.transactions.service.OperationResult;
+import example.transactions.service.SingleThreadedJpaAccountService;
+import example.transactions.sharding.AccountShards;
+
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest(properties = {"accounts.velocity.enabled=true",
+        "accounts.velocity.max-withdrawn-per-day=100.00",
+        "accounts.velocity.max-operations-per-minute=5"})
+class VelocityLimitTests {
+
+    @Autowired
+    private SingleThreadedJpaAccountService service;
+
+    @Autowired
+    private VelocityLimitProperties properties;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectProvider<AccountShards> shards;
+
+    private Account userA;
+    private Account userB;
+
+    @BeforeEach
+    void setUp() {
+        userA = service.save(Account.builder()
+                .balance(new BigDecimal("1000.00")).owner("UserA").build());
+        userB = service.save(Account.builder()
+                .balance(new BigDecimal("50.00")).owner("UserB").build());
+    }
+
+    @Test
+    void dailyAmountLimitTest() {
+        // given
+        service.withdraw(userA, new BigDecimal("60.00"));
+        service.transfer(userA, userB, new BigDecimal("30.00"));
+
+        // when
+        assertThrows(LimitExceededException.class,
+                () -> service.withdraw(userA, new BigDecimal("10.01")));
+        OperationResult result = service.tryWithdraw(userA.getId(), new BigDecimal("20.00"));
+
+        // then
+        assertEquals(new OperationResult.LimitExceeded(userA.getId()), result);
+        service.withdraw(userA, new BigDecimal("10.00"));
+        assertBalance(userA, "900.00");
+    }
+
+    @Test
+    void operationCountLimitTest() {
+        // given
+        for (int i = 0; i < 5; i++) {
+            service.withdraw(userA, new BigDecimal("1.00"));
+        }
+
+        // when
+        // then
+        assertThrows(LimitExceededException.class,
+                () -> service.withdraw(userA, new BigDecimal("1.00")));
+        assertBalance(userA, "995.00");
+    }
+
+    @Test
+    void declinedWithdrawalReleasesLimitTest() {
+        // given
+        assertInstanceOf(OperationResult.InsufficientFunds.class,
+                service.tryWithdraw(userB.getId(), new BigDecimal("80.00")));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.withdraw(userB, new BigDecimal("70.00")));
+        service.deposit(userB, new BigDecimal("100.00"));
+
+        // when
+        OperationResult result = service.tryWithdraw(userB.getId(), new BigDecimal("90.00"));
+
+        // then
+        assertInstanceOf(OperationResult.Ok.class, result);
+        assertBalance(userB, "60.00");
+    }
+
+    @Test
+    void countersRebuiltFromLedgerTest() {
+        // given
+        service.withdraw(userA, new BigDecimal("60.00"));
+        VelocityLimiter restarted = new VelocityLimiter(properties, dataSource,
+                transactionManager, shards);
+
+        // when
+        restarted.rebuild();
+
+        // then
+        assertNull(restarted.tryAcquire(userA.getId(), new BigDecimal("50.00")));
+        assertNotNull(restarted.tryAcquire(userA.getId(), new BigDecimal("40.00")));
+    }
+
+    private void assertBalance(Account account, String expected) {
+        Account copy = service.getById(account.getId());
+        assertEquals(0, copy.getBalance().compareTo(new BigDecimal(expected)));
+    }
+}